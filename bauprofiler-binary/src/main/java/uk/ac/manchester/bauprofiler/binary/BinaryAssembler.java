@@ -0,0 +1,54 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.json.assembler.JsonAssembler;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonWriter;
+
+/* Lays out conversions exactly as the json assembler does, but encodes
+ * the result as a binary frame rather than text. Generated profiles write
+ * their fields straight into the frame, timestamps as raw longs, so their
+ * bodies are never formatted as json; only structure and other conversions
+ * are tokenised from text. BinaryAssemblerBenchmark measures both */
+public class BinaryAssembler extends JsonAssembler {
+    private static final int ESTIMATED_COMPRESSION = 3;
+
+    protected JsonWriter createWriter(int size) {
+        return new BinaryWriter(size/ESTIMATED_COMPRESSION);
+    }
+
+    protected Assembly createAssembly(JsonWriter json) {
+        return new BinaryAssembly(((BinaryWriter) json).toBytes());
+    }
+
+    /* Schema records become frames too, so they decode in stream order */
+    public Assembly assembleRecord(String json) {
+        BinaryWriter frame = new BinaryWriter(json.length()/ESTIMATED_COMPRESSION);
+        frame.append(json);
+        return createAssembly(frame);
+    }
+}
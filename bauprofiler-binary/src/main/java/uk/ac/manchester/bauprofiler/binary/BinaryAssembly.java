@@ -0,0 +1,71 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import java.util.Base64;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+
+/* Prints as one base64 line so any text sink can carry it,
+ * the pretty form is the decoded json for reading by eye */
+public class BinaryAssembly implements Assembly {
+    private final byte[] frame;
+    /* The frame before its strings were encoded, which decodes on its own */
+    private final byte[] standalone;
+    private String encoded;
+
+    public BinaryAssembly(byte[] frame) {
+        this(frame, frame);
+    }
+
+    private BinaryAssembly(byte[] frame, byte[] standalone) {
+        this.frame = frame;
+        this.standalone = standalone;
+    }
+
+    public byte[] getBytes() {
+        return frame;
+    }
+
+    public int size() {
+        return frame.length;
+    }
+
+    public String toString() {
+        if (encoded == null)
+            encoded = Base64.getEncoder().encodeToString(frame);
+        return encoded;
+    }
+
+    public String toPrettyString() {
+        return BinaryDecoder.decode(standalone, true);
+    }
+
+    public Assembly encodeStrings(StringDictionary dictionary) {
+        return new BinaryAssembly(FrameStringEncoder.encode(standalone, dictionary), standalone);
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import static uk.ac.manchester.bauprofiler.binary.BinaryFormat.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonUtils;
+import uk.ac.manchester.bauprofiler.json.generator.BinaryProfileReader;
+
+/* Converts binary frames back into exactly the json the json assembler would have produced.
+ * Profile bodies are decoded by their generated classes, so those must be on the class path */
+public class BinaryDecoder {
+    private static final int PRETTY_SPACING = 4;
+
+    private final byte[] frame;
+    private final StringBuilder json;
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<ProfileLayout> layouts = new ArrayList<>();
+    /* Strings shared by the profiles of the frame */
+    private final List<String> profileStrings = new ArrayList<>();
+    /* Slots of the stream dictionary, shared by the frames of a stream */
+    private final List<String> streamStrings;
+    private int position;
+
+    private BinaryDecoder(byte[] frame, List<String> streamStrings) {
+        this.frame = frame;
+        this.streamStrings = streamStrings;
+        json = new StringBuilder(frame.length*4);
+    }
+
+    public static String decode(byte[] frame) {
+        return new BinaryDecoder(frame, new ArrayList<>()).decode();
+    }
+
+    public static String decode(byte[] frame, boolean prettyPrint) {
+        return decode(frame, prettyPrint, new ArrayList<>());
+    }
+
+    private static String decode(byte[] frame, boolean prettyPrint, List<String> streamStrings) {
+        String json = new BinaryDecoder(frame, streamStrings).decode();
+        return (prettyPrint) ? JsonUtils.prettyPrint(json, PRETTY_SPACING) : json;
+    }
+
+    /* Frames as printed by a BinaryAssembly: one base64 frame per line */
+    public static String decodeLine(String line, boolean prettyPrint) {
+        return decodeLine(line, prettyPrint, new ArrayList<>());
+    }
+
+    private static String decodeLine(String line, boolean prettyPrint, List<String> streamStrings) {
+        byte[] frame;
+        try {
+            frame = Base64.getDecoder().decode(line.trim());
+        } catch (IllegalArgumentException e) {
+            throw new MalformedFrameException("not a base64 frame");
+        }
+        return decode(frame, prettyPrint, streamStrings);
+    }
+
+    public static int decodeLines(Reader in, Writer out, boolean prettyPrint) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        List<String> streamStrings = new ArrayList<>();
+        int frames = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            out.write(decodeLine(line, prettyPrint, streamStrings));
+            out.write('\n');
+            ++frames;
+        }
+        out.flush();
+        return frames;
+    }
+
+    /* Frames as written by a BinaryFilePrinter: each preceded by its varint length */
+    public static int decodeFrames(InputStream in, Writer out, boolean prettyPrint)
+            throws IOException {
+        DataInputStream frames = new DataInputStream(new BufferedInputStream(in));
+        List<String> streamStrings = new ArrayList<>();
+        int decoded = 0;
+        int length;
+        while ((length = readLength(frames)) >= 0) {
+            byte[] frame = new byte[length];
+            try {
+                frames.readFully(frame);
+            } catch (EOFException e) {
+                throw new MalformedFrameException("truncated frame " + decoded);
+            }
+            out.write(decode(frame, prettyPrint, streamStrings));
+            out.write('\n');
+            ++decoded;
+        }
+        out.flush();
+        return decoded;
+    }
+
+    private static int readLength(InputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0)
+                    return -1;
+                throw new MalformedFrameException("truncated frame length");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return length;
+        }
+        throw new MalformedFrameException("frame length too long");
+    }
+
+    /* Usage: BinaryDecoder [--pretty] [--raw] <input|-> [output]
+     * Reads base64 lines, or with --raw the length prefixed frames of a binary file sink */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean prettyPrint = arguments.remove("--pretty");
+        boolean raw = arguments.remove("--raw");
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            System.err.println("usage: BinaryDecoder [--pretty] [--raw] <input|-> [output]");
+            System.exit(1);
+        }
+        try (InputStream in = openInput(arguments.get(0))
+                ; Writer out = openOutput((arguments.size() > 1) ? arguments.get(1) : null)) {
+            if (raw)
+                decodeFrames(in, out, prettyPrint);
+            else
+                decodeLines(new InputStreamReader(in, StandardCharsets.UTF_8), out, prettyPrint);
+        }
+    }
+
+    private static InputStream openInput(String path) throws IOException {
+        if (path.equals("-"))
+            return System.in;
+        return Files.newInputStream(Paths.get(path));
+    }
+
+    private static Writer openOutput(String path) throws IOException {
+        if (path == null)
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private String decode() {
+        readHeader();
+        while (position < frame.length)
+            readNext();
+        return json.toString();
+    }
+
+    private void readHeader() {
+        if (frame.length < HEADER_SIZE || frame[0] != MAGIC_0 || frame[1] != MAGIC_1)
+            throw new MalformedFrameException("missing frame header");
+        if (frame[2] < MIN_VERSION || frame[2] > VERSION)
+            throw new MalformedFrameException("unsupported version " + frame[2]);
+        position = HEADER_SIZE;
+    }
+
+    private void readNext() {
+        int next = frame[position++] & 0xFF;
+        if (next >= MIN_KEPT && next <= MAX_KEPT) {
+            json.append((char) next);
+            return;
+        }
+        switch (next) {
+            case STRING:
+                appendString(defineString());
+                break;
+            case STRING_REF:
+                appendString(readDictionaryEntry());
+                break;
+            case KEY:
+                appendString(defineString()).append(':');
+                break;
+            case KEY_REF:
+                appendString(readDictionaryEntry()).append(':');
+                break;
+            case INTEGER:
+                json.append(unzigzag(readVarLong()));
+                break;
+            case DECIMAL:
+                appendDecimal(json, unzigzag(readVarLong()), (int) readVarLong());
+                break;
+            case TRUE:
+                json.append("true");
+                break;
+            case FALSE:
+                json.append("false");
+                break;
+            case NULL:
+                json.append("null");
+                break;
+            case LITERAL:
+                json.append(readText());
+                break;
+            case STREAM_STRING:
+                appendString(defineStreamString());
+                break;
+            case STREAM_REF:
+                appendString(readStreamString());
+                break;
+            case PROFILE:
+                appendProfile(defineLayout());
+                break;
+            case PROFILE_REF:
+                appendProfile(readLayout());
+                break;
+            default:
+                throw new MalformedFrameException(
+                        "unknown token " + next + " at " + (position-1));
+        }
+    }
+
+    private StringBuilder appendString(String text) {
+        return json.append('"').append(text).append('"');
+    }
+
+    private String defineString() {
+        String text = readText();
+        dictionary.add(text);
+        return text;
+    }
+
+    /* Slots are handed out in order, so a new slot is never past the end */
+    private String defineStreamString() {
+        long slot = readVarLong();
+        String text = readText();
+        if (slot > streamStrings.size())
+            throw new MalformedFrameException("stream string " + slot + " out of order");
+        if (slot == streamStrings.size())
+            streamStrings.add(text);
+        else
+            streamStrings.set((int) slot, text);
+        return text;
+    }
+
+    private String readStreamString() {
+        long slot = readVarLong();
+        if (slot >= streamStrings.size())
+            throw new MalformedFrameException("undefined stream string " + slot);
+        return streamStrings.get((int) slot);
+    }
+
+    private String readDictionaryEntry() {
+        long index = readVarLong();
+        if (index >= dictionary.size())
+            throw new MalformedFrameException("undefined string " + index);
+        return dictionary.get((int) index);
+    }
+
+    private ProfileLayout defineLayout() {
+        String className = readText();
+        if (position >= frame.length)
+            throw new MalformedFrameException("truncated layout at " + position);
+        ProfileLayout layout = new ProfileLayout(className, frame[position++] != 0);
+        layouts.add(layout);
+        return layout;
+    }
+
+    private ProfileLayout readLayout() {
+        long index = readVarLong();
+        if (index >= layouts.size())
+            throw new MalformedFrameException("undefined layout " + index);
+        return layouts.get((int) index);
+    }
+
+    private void appendProfile(ProfileLayout layout) {
+        long length = readVarLong();
+        if (length > frame.length - position)
+            throw new MalformedFrameException("truncated profile at " + position);
+        BinaryProfileReader in = new BinaryProfileReader(
+                ByteBuffer.wrap(frame, position, (int) length), profileStrings);
+        layout.read(in, json);
+        if (in.hasRemaining())
+            throw new MalformedFrameException(
+                    "profile at " + position + " is longer than its layout");
+        position += (int) length;
+    }
+
+    private String readText() {
+        long length = readVarLong();
+        if (length > frame.length - position)
+            throw new MalformedFrameException("truncated text at " + position);
+        String text = new String(frame, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return text;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= frame.length)
+                throw new MalformedFrameException("truncated varint");
+            byte b = frame[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new MalformedFrameException("varint too long");
+    }
+
+    /* A generated profile class and the verbosity its body was written with */
+    private static class ProfileLayout {
+        private final Method readBinary;
+        private final boolean verbose;
+
+        ProfileLayout(String className, boolean verbose) {
+            try {
+                readBinary = Class.forName(className).getMethod("readBinary"
+                        , BinaryProfileReader.class, StringBuilder.class, boolean.class);
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                throw new MalformedFrameException("no generated profile " + className);
+            }
+            this.verbose = verbose;
+        }
+
+        void read(BinaryProfileReader in, StringBuilder json) {
+            try {
+                readBinary.invoke(null, in, json, verbose);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new MalformedFrameException("profile does not fit the layout of "
+                        + readBinary.getDeclaringClass().getName());
+            }
+        }
+    }
+
+    public static class MalformedFrameException extends RuntimeException {
+        public MalformedFrameException(String message) {
+            super("Malformed binary frame: " + message);
+        }
+    }
+}
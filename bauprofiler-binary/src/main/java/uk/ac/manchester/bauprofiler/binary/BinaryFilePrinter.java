@@ -0,0 +1,82 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import uk.ac.manchester.bauprofiler.core.ProfilerPrinter;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Appends raw binary frames, each preceded by its varint length, avoiding
+ * the base64 a text sink needs to carry them */
+public class BinaryFilePrinter implements ProfilerPrinter, AutoCloseable {
+    private final OutputStream out;
+    private final byte[] length = new byte[5];
+
+    public BinaryFilePrinter(Path path) throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(
+                    path, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    public synchronized void print(Assembly output) {
+        if (!(output instanceof BinaryAssembly))
+            throw new NotBinaryException(output.getClass().getName());
+        byte[] frame = ((BinaryAssembly) output).getBytes();
+        try {
+            out.write(length, 0, encodeLength(frame.length));
+            out.write(frame);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int encodeLength(int value) {
+        int size = 0;
+        while ((value & ~0x7F) != 0) {
+            length[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        length[size++] = (byte) value;
+        return size;
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    public static class NotBinaryException extends RuntimeException {
+        public NotBinaryException(String assembly) {
+            super("Binary file output needs a binary assembler, got " + assembly);
+        }
+    }
+}
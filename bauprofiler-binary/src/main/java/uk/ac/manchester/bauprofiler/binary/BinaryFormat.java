@@ -0,0 +1,102 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+/* Layout of a binary frame: a three byte header followed by the json text, in which
+ * printable ascii outside strings (structure, separators) is kept as single bytes and
+ * strings, keys and numbers are replaced by tokens. Token opcodes sit below 0x20 so
+ * never clash with kept text. The bodies of generated profiles are replaced whole, by
+ * the fixed layout their class writes and decodes. Each frame carries its own string
+ * dictionary and layouts, so frames decode independently, unless their values were
+ * encoded against the dictionary of the stream, in which case they decode in stream order */
+final class BinaryFormat {
+    static final byte MAGIC_0 = 'B';
+    static final byte MAGIC_1 = 'P';
+    static final byte VERSION = 2;
+    /* Frames of earlier versions only lack the profile tokens */
+    static final byte MIN_VERSION = 1;
+    static final int HEADER_SIZE = 3;
+
+    /* New dictionary entry: varint length + utf-8 bytes, exactly as escaped in json */
+    static final byte STRING = 1;
+    /* Previously defined dictionary entry: varint index */
+    static final byte STRING_REF = 2;
+    /* As STRING and STRING_REF, followed by a ':' */
+    static final byte KEY = 3;
+    static final byte KEY_REF = 4;
+    /* Zigzag varint */
+    static final byte INTEGER = 5;
+    /* Zigzag varint unscaled value followed by a varint scale */
+    static final byte DECIMAL = 6;
+    static final byte TRUE = 7;
+    static final byte FALSE = 8;
+    static final byte NULL = 9;
+    /* Any other text, kept verbatim: varint length + utf-8 bytes */
+    static final byte LITERAL = 10;
+    /* Stream dictionary entry: varint slot + varint length + utf-8 bytes, taking the slot
+     * over from any earlier entry */
+    static final byte STREAM_STRING = 11;
+    /* Stream dictionary entry defined earlier in the stream: varint slot */
+    static final byte STREAM_REF = 12;
+    /* Profile body in a new layout: varint length + utf-8 name of the generated class, a
+     * verbose byte, then varint length + the bytes its writeBinary wrote. The profiles of
+     * a frame share their strings, so are decoded in order */
+    static final byte PROFILE = 13;
+    /* Profile body in a layout defined earlier in the frame: varint index, then varint
+     * length + bytes as for PROFILE */
+    static final byte PROFILE_REF = 14;
+
+    static final int MIN_KEPT = 0x20;
+    static final int MAX_KEPT = 0x7E;
+
+    /* Longest digit run that cannot overflow a long, longer runs are checked as they are read */
+    static final int MAX_SAFE_DIGITS = 18;
+
+    private BinaryFormat() {}
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /* Text of a decoded number, as it was before it was encoded */
+    static StringBuilder appendDecimal(StringBuilder sb, long unscaled, int scale) {
+        if (scale == 0)
+            return sb.append(unscaled);
+        StringBuilder digits = new StringBuilder(Long.toString(unscaled));
+        if (unscaled < 0)
+            digits.deleteCharAt(0);
+        while (digits.length() <= scale)
+            digits.insert(0, '0');
+        digits.insert(digits.length()-scale, '.');
+        if (unscaled < 0)
+            sb.append('-');
+        return sb.append(digits);
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import static uk.ac.manchester.bauprofiler.binary.BinaryFormat.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonWriter;
+import uk.ac.manchester.bauprofiler.json.generator.BinaryConvertableProfile;
+import uk.ac.manchester.bauprofiler.json.generator.BinaryProfileWriter;
+import uk.ac.manchester.bauprofiler.json.generator.BinaryValueWriter;
+
+/* Tokenises json as it is written and encodes each token into a binary frame.
+ * Tokens may be split across appends, so partial strings and literals are held
+ * until they are terminated. Every token keeps its exact text, so the frame
+ * decodes to the same characters even where the json is not well formed.
+ * Numbers handed over as values are encoded without formatting them, unless
+ * they turn out to be part of a longer literal. Generated profiles hand over
+ * their fixed binary layout, which is copied in without any json at all */
+class BinaryWriter extends JsonWriter implements BinaryValueWriter {
+    private static final int DEFAULT = 0;
+    private static final int IN_STRING = 1;
+    private static final int IN_ESCAPE = 2;
+    private static final int IN_LITERAL = 3;
+    /* A string has closed, but whether it is a key depends on the next char */
+    private static final int AFTER_STRING = 4;
+    /* A number value has been handed over, but the next char may extend it */
+    private static final int AFTER_NUMBER = 5;
+    private static final int CONVERSION_CAPACITY = 256;
+    private static final int INITIAL_LAYOUTS = 8;
+
+    private final FrameDictionary dictionary = new FrameDictionary();
+    private final StringBuilder token = new StringBuilder();
+    /* Conversions write their text here to be tokenised in one pass */
+    private final StringBuilder conversionText = new StringBuilder(CONVERSION_CAPACITY);
+    /* Profiles write their layout here, it is copied in once its length is known.
+     * Strings are shared by the profiles of the frame, repeats become references */
+    private final BinaryProfileWriter profileBytes =
+        new BinaryProfileWriter(CONVERSION_CAPACITY, true);
+    /* Layouts defined in the frame, indexed in order of definition */
+    private Class<?>[] layoutClasses = new Class<?>[INITIAL_LAYOUTS];
+    private boolean[] layoutVerbosity = new boolean[INITIAL_LAYOUTS];
+    private int layouts;
+    private byte[] bytes;
+    private int size;
+    private int state = DEFAULT;
+    private long pendingUnscaled;
+    private int pendingScale;
+
+    BinaryWriter(int capacity) {
+        super(0);
+        bytes = new byte[Math.max(capacity, HEADER_SIZE+1)];
+        bytes[size++] = MAGIC_0;
+        bytes[size++] = MAGIC_1;
+        bytes[size++] = VERSION;
+    }
+
+    public boolean isPretty() {
+        return false;
+    }
+
+    public JsonWriter append(char c) {
+        switch (state) {
+            case IN_STRING:
+                if (c == '"') {
+                    state = AFTER_STRING;
+                } else {
+                    token.append(c);
+                    if (c == '\\')
+                        state = IN_ESCAPE;
+                }
+                break;
+            case IN_ESCAPE:
+                token.append(c);
+                state = IN_STRING;
+                break;
+            case AFTER_STRING:
+                writeString(c == ':');
+                state = DEFAULT;
+                if (c != ':')
+                    appendOutsideToken(c);
+                break;
+            case IN_LITERAL:
+                if (isLiteralChar(c)) {
+                    token.append(c);
+                    break;
+                }
+                writeLiteral();
+                state = DEFAULT;
+                appendOutsideToken(c);
+                break;
+            case AFTER_NUMBER:
+                if (isLiteralChar(c)) {
+                    token.setLength(0);
+                    BinaryFormat.appendDecimal(token, pendingUnscaled, pendingScale).append(c);
+                    state = IN_LITERAL;
+                    break;
+                }
+                writeNumber(pendingUnscaled, pendingScale);
+                state = DEFAULT;
+                appendOutsideToken(c);
+                break;
+            default:
+                appendOutsideToken(c);
+        }
+        return this;
+    }
+
+    /* Runs of string and literal chars are copied into the token in one go,
+     * only the chars that end them go through append(char) */
+    public JsonWriter append(CharSequence csq, int start, int end) {
+        int i = start;
+        while (i < end) {
+            int run = i;
+            if (state == IN_STRING) {
+                while (run < end && csq.charAt(run) != '"' && csq.charAt(run) != '\\')
+                    run++;
+            } else if (state == IN_LITERAL) {
+                while (run < end && isLiteralChar(csq.charAt(run)))
+                    run++;
+            }
+            if (run > i) {
+                token.append(csq, i, run);
+                i = run;
+            } else {
+                append(csq.charAt(i++));
+            }
+        }
+        return this;
+    }
+
+    public JsonWriter append(char[] str) {
+        for (char c : str)
+            append(c);
+        return this;
+    }
+
+    public JsonWriter append(Conversion conversion) {
+        conversionText.setLength(0);
+        try {
+            conversion.writeTo(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        takeText();
+        return this;
+    }
+
+    public StringBuilder text() {
+        return conversionText;
+    }
+
+    public void appendBinary(BinaryConvertableProfile profile) {
+        takeText();
+        flushToken();
+        writeLayout(profile.getClass(), profile.isVerbose());
+        profileBytes.reset();
+        profile.writeBinary(profileBytes);
+        int length = profileBytes.size();
+        writeVarLong(length);
+        ensureCapacity(length);
+        profileBytes.copyTo(bytes, size);
+        size += length;
+    }
+
+    /* A frame holds few profile classes, so they are found by a linear scan */
+    private void writeLayout(Class<?> profileClass, boolean verbose) {
+        for (int i = 0; i < layouts; i++) {
+            if (layoutClasses[i] == profileClass && layoutVerbosity[i] == verbose) {
+                writeByte(PROFILE_REF);
+                writeVarLong(i);
+                return;
+            }
+        }
+        if (layouts == layoutClasses.length) {
+            layoutClasses = Arrays.copyOf(layoutClasses, layouts*2);
+            layoutVerbosity = Arrays.copyOf(layoutVerbosity, layouts*2);
+        }
+        layoutClasses[layouts] = profileClass;
+        layoutVerbosity[layouts++] = verbose;
+        writeByte(PROFILE);
+        writeText(profileClass.getName());
+        writeByte((byte) ((verbose) ? 1 : 0));
+    }
+
+    public void appendInteger(long value) {
+        appendDecimal(value, 0);
+    }
+
+    public void appendDecimal(long unscaled, int scale) {
+        takeText();
+        if (state != DEFAULT) {
+            append(BinaryFormat.appendDecimal(new StringBuilder(), unscaled, scale));
+            return;
+        }
+        pendingUnscaled = unscaled;
+        pendingScale = scale;
+        state = AFTER_NUMBER;
+    }
+
+    private void takeText() {
+        append(conversionText, 0, conversionText.length());
+        conversionText.setLength(0);
+    }
+
+    public int length() {
+        return size;
+    }
+
+    public byte[] toBytes() {
+        flushToken();
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void flushToken() {
+        if (state == IN_LITERAL) {
+            writeLiteral();
+        } else if (state == AFTER_STRING) {
+            writeString(false);
+        } else if (state == AFTER_NUMBER) {
+            writeNumber(pendingUnscaled, pendingScale);
+        } else if (state == IN_STRING || state == IN_ESCAPE) {
+            writeByte((byte) '"');
+            writeVerbatim();
+        }
+        state = DEFAULT;
+    }
+
+    private void appendOutsideToken(char c) {
+        if (c == '"') {
+            token.setLength(0);
+            state = IN_STRING;
+        } else if (isLiteralChar(c)) {
+            token.setLength(0);
+            token.append(c);
+            state = IN_LITERAL;
+        } else {
+            writeByte((byte) c);
+        }
+    }
+
+    /* Anything that cannot be kept as a single byte runs into a literal */
+    private static boolean isLiteralChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+            || c == '-' || c == '+' || c == '.' || c < MIN_KEPT || c > MAX_KEPT;
+    }
+
+    /* Repeated strings are found without copying the token */
+    private void writeString(boolean key) {
+        int index = dictionary.indexOf(token);
+        if (index >= 0)
+            writeReference(index, key);
+        else
+            writeDefinition(dictionary.define(token.toString()), key);
+    }
+
+    void writeString(String value, boolean key) {
+        int index = dictionary.indexOf(value);
+        if (index >= 0)
+            writeReference(index, key);
+        else
+            writeDefinition(dictionary.define(value), key);
+    }
+
+    private void writeReference(int index, boolean key) {
+        writeByte((key) ? KEY_REF : STRING_REF);
+        writeVarLong(index);
+    }
+
+    private void writeDefinition(String value, boolean key) {
+        writeByte((key) ? KEY : STRING);
+        writeText(value);
+    }
+
+    void writeStreamString(int slot, String value) {
+        writeByte(STREAM_STRING);
+        writeVarLong(slot);
+        writeText(value);
+    }
+
+    void writeStreamRef(int slot) {
+        writeByte(STREAM_REF);
+        writeVarLong(slot);
+    }
+
+    /* Bytes of an already encoded token */
+    void writeEncoded(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    private void writeLiteral() {
+        if (isToken("true"))
+            writeByte(TRUE);
+        else if (isToken("false"))
+            writeByte(FALSE);
+        else if (isToken("null"))
+            writeByte(NULL);
+        else if (!writeNumber())
+            writeVerbatim();
+    }
+
+    private void writeVerbatim() {
+        if (token.length() == 0)
+            return;
+        writeByte(LITERAL);
+        writeText(token.toString());
+    }
+
+    private boolean isToken(String literal) {
+        return literal.contentEquals(token);
+    }
+
+    /* Only numbers whose text the decoder reproduces exactly are encoded,
+     * anything else (exponents, leading zeros, -0) is kept as a literal */
+    private boolean writeNumber() {
+        int length = token.length();
+        boolean negative = token.charAt(0) == '-';
+        int first = (negative) ? 1 : 0;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = first; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.' && scale < 0 && digits > 0) {
+                scale = 0;
+                continue;
+            }
+            if (c < '0' || c > '9')
+                return false;
+            if (++digits > MAX_SAFE_DIGITS && unscaled > (Long.MAX_VALUE - (c - '0'))/10)
+                return scale < 0 && writeLongInteger();
+            unscaled = unscaled*10 + (c - '0');
+            if (scale >= 0)
+                ++scale;
+        }
+        if (digits == 0 || scale == 0)
+            return false;
+        if (token.charAt(first) == '0' && first+1 < length && token.charAt(first+1) != '.')
+            return false;
+        if (negative && unscaled == 0)
+            return false;
+        writeNumber((negative) ? -unscaled : unscaled, Math.max(scale, 0));
+        return true;
+    }
+
+    private void writeNumber(long unscaled, int scale) {
+        if (scale == 0) {
+            writeByte(INTEGER);
+            writeVarLong(zigzag(unscaled));
+        } else {
+            writeByte(DECIMAL);
+            writeVarLong(zigzag(unscaled));
+            writeVarLong(scale);
+        }
+    }
+
+    private boolean writeLongInteger() {
+        long value;
+        try {
+            value = Long.parseLong(token.toString());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (!Long.toString(value).contentEquals(token))
+            return false;
+        writeByte(INTEGER);
+        writeVarLong(zigzag(value));
+        return true;
+    }
+
+    /* Ascii text, the common case, is written without an intermediate array */
+    private void writeText(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                writeBytes(text.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        writeVarLong(length);
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++)
+            bytes[size++] = (byte) text.charAt(i);
+    }
+
+    private void writeBytes(byte[] utf8) {
+        writeVarLong(utf8.length);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, bytes, size, utf8.length);
+        size += utf8.length;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void writeByte(byte b) {
+        ensureCapacity(1);
+        bytes[size++] = b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length*2));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+
+/* Strings defined in a frame, indexed in order of definition. Lookups take
+ * any char sequence, so a token still being built is matched without copying
+ * it. Open addressing over a power of two table kept at most half full */
+final class FrameDictionary {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] indices = new int[INITIAL_CAPACITY];
+    private int size;
+
+    int indexOf(CharSequence value) {
+        int hash = hash(value);
+        int mask = keys.length-1;
+        for (int slot = hash & mask;; slot = (slot+1) & mask) {
+            String key = keys[slot];
+            if (key == null)
+                return -1;
+            if (hashes[slot] == hash && key.contentEquals(value))
+                return indices[slot];
+        }
+    }
+
+    /* The value must not be defined already, returns it for convenience */
+    String define(String value) {
+        if ((size+1)*2 > keys.length)
+            grow();
+        insert(value, hash(value), size++);
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(String value, int hash, int index) {
+        int mask = keys.length-1;
+        int slot = hash & mask;
+        while (keys[slot] != null)
+            slot = (slot+1) & mask;
+        keys[slot] = value;
+        hashes[slot] = hash;
+        indices[slot] = index;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldIndices = indices;
+        keys = new String[oldKeys.length*2];
+        hashes = new int[oldKeys.length*2];
+        indices = new int[oldKeys.length*2];
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != null)
+                insert(oldKeys[i], oldHashes[i], oldIndices[i]);
+    }
+
+    /* Same as String.hashCode, spread so nearby codes land apart */
+    private static int hash(CharSequence value) {
+        int h = 0;
+        for (int i = 0; i < value.length(); i++)
+            h = 31*h + value.charAt(i);
+        return h ^ (h >>> 16);
+    }
+}
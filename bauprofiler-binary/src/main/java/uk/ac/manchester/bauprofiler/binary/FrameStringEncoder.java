@@ -0,0 +1,179 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import static uk.ac.manchester.bauprofiler.binary.BinaryFormat.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+import uk.ac.manchester.bauprofiler.binary.BinaryDecoder.MalformedFrameException;
+
+/* Rewrites a standalone frame so its string values refer to the dictionary of
+ * the stream, each new value defined in the frame that first uses it. Keys and
+ * the values left unencoded go back through the frame's own dictionary, every
+ * other token is copied as it is, profile layouts included */
+final class FrameStringEncoder {
+    private final byte[] frame;
+    private final StringDictionary dictionary;
+    private final BinaryWriter out;
+    private final List<String> frameStrings = new ArrayList<>();
+    private int position = HEADER_SIZE;
+
+    private FrameStringEncoder(byte[] frame, StringDictionary dictionary) {
+        this.frame = frame;
+        this.dictionary = dictionary;
+        out = new BinaryWriter(frame.length);
+    }
+
+    static byte[] encode(byte[] frame, StringDictionary dictionary) {
+        return new FrameStringEncoder(frame, dictionary).encode();
+    }
+
+    private byte[] encode() {
+        if (frame.length < HEADER_SIZE || frame[0] != MAGIC_0 || frame[1] != MAGIC_1
+                || frame[2] != VERSION)
+            throw new MalformedFrameException("not a standalone frame");
+        while (position < frame.length)
+            encodeNext();
+        return out.toBytes();
+    }
+
+    private void encodeNext() {
+        int start = position;
+        int next = frame[position++] & 0xFF;
+        if (next >= MIN_KEPT && next <= MAX_KEPT) {
+            out.writeEncoded(frame, start, 1);
+            return;
+        }
+        switch (next) {
+            case STRING:
+                writeValue(defineString());
+                break;
+            case STRING_REF:
+                writeValue(readFrameString());
+                break;
+            case KEY:
+                out.writeString(defineString(), true);
+                break;
+            case KEY_REF:
+                out.writeString(readFrameString(), true);
+                break;
+            case DECIMAL:
+                readVarLong();
+                readVarLong();
+                out.writeEncoded(frame, start, position-start);
+                break;
+            case INTEGER:
+                readVarLong();
+                out.writeEncoded(frame, start, position-start);
+                break;
+            case LITERAL:
+                readText();
+                out.writeEncoded(frame, start, position-start);
+                break;
+            case TRUE:
+            case FALSE:
+            case NULL:
+                out.writeEncoded(frame, start, 1);
+                break;
+            case PROFILE:
+                readText();
+                skip(1);
+                skip(readVarLong());
+                out.writeEncoded(frame, start, position-start);
+                break;
+            case PROFILE_REF:
+                readVarLong();
+                skip(readVarLong());
+                out.writeEncoded(frame, start, position-start);
+                break;
+            default:
+                throw new MalformedFrameException(
+                        "unexpected token " + next + " at " + start);
+        }
+    }
+
+    private void writeValue(String value) {
+        if (!dictionary.accepts(value)) {
+            out.writeString(value, false);
+            return;
+        }
+        int slot = dictionary.lookup(value);
+        if (slot != StringDictionary.NO_SLOT) {
+            out.writeStreamRef(slot);
+            return;
+        }
+        slot = dictionary.define(value);
+        if (slot != StringDictionary.NO_SLOT)
+            out.writeStreamString(slot, value);
+        else
+            out.writeString(value, false);
+    }
+
+    private String defineString() {
+        String text = readText();
+        frameStrings.add(text);
+        return text;
+    }
+
+    private String readFrameString() {
+        long index = readVarLong();
+        if (index >= frameStrings.size())
+            throw new MalformedFrameException("undefined string " + index);
+        return frameStrings.get((int) index);
+    }
+
+    private String readText() {
+        long length = readVarLong();
+        if (length > frame.length - position)
+            throw new MalformedFrameException("truncated text at " + position);
+        String text = new String(frame, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return text;
+    }
+
+    private void skip(long length) {
+        if (length > frame.length - position)
+            throw new MalformedFrameException("truncated profile at " + position);
+        position += (int) length;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= frame.length)
+                throw new MalformedFrameException("truncated varint");
+            byte b = frame[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new MalformedFrameException("varint too long");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.assembler.JsonAssembler;
+
+/**
+ * Compares the time and output size of {@link BinaryAssembler} against
+ * {@link JsonAssembler} on the same timer heavy group. Sizes are the
+ * compact json line and the raw frame, which is what binary_file writes.
+ * Run with:
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; uk.ac.manchester.bauprofiler.binary.BinaryAssemblerBenchmark [groups] [profiles per group]
+ */
+public class BinaryAssemblerBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+	int groups = (args.length > 0) ? Integer.parseInt(args[0]) : 20_000;
+	int profiles = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+	List<Conversion> group = SampleTimings.group(profiles);
+
+	for (int round = 0; round < ROUNDS; round++) {
+	    report("json", groups, profiles, run(new JsonAssembler(), group, groups));
+	    report("binary", groups, profiles, run(new BinaryAssembler(), group, groups));
+	}
+    }
+
+    private static void report(String assembler, int groups, int profiles, long[] result) {
+	System.out.printf("%-6s %d x %d profiles: %.1f ms, %.0f groups/s, %d bytes per group%n"
+		, assembler, groups, profiles, result[0]/1e6
+		, groups/(result[0]/1e9), result[1]);
+    }
+
+    /* Returns the elapsed nanos and the size of one group */
+    private static long[] run(Assembler assembler, List<Conversion> group, int groups) {
+	long size = 0;
+	long start = System.nanoTime();
+	for (int i = 0; i < groups; i++)
+	    size = size(assembler.assemble(group.iterator(), group.size()));
+	return new long[] {System.nanoTime()-start, size};
+    }
+
+    private static long size(Assembly assembly) {
+	return (assembly instanceof BinaryAssembly)
+	    ? ((BinaryAssembly) assembly).size() : assembly.toString().length();
+    }
+}
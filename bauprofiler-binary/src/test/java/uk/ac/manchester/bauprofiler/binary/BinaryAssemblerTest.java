@@ -0,0 +1,337 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.assembler.JsonAssembler;
+import uk.ac.manchester.bauprofiler.json.core.ArrayNode;
+import uk.ac.manchester.bauprofiler.json.core.ObjectArrayNode;
+import uk.ac.manchester.bauprofiler.json.core.ObjectNode;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonUtils;
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
+
+public class BinaryAssemblerTest {
+    private static final AssemblyNode EVENTS = new ObjectNode("\"events\"", 1);
+    private static final AssemblyNode TIMINGS = new ObjectArrayNode("\"timings\"", 2);
+    private static final AssemblyNode SAMPLES = new ArrayNode("\"samples\"", 3);
+
+    private List<Conversion> conversions = new ArrayList<>();
+
+    private void add(long id, String body, AssemblyNode... nodes) {
+	conversions.add(new Conversion() {
+	    public long id() {
+		return id;
+	    }
+	    public String toString() {
+		return body;
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return nodes;
+	    }
+	});
+    }
+
+    /* Writes values to a ValueWriter, the text is what it writes as json */
+    private void addValues(long id, String text, Consumer<ValueWriter> values) {
+	conversions.add(new Conversion() {
+	    public long id() {
+		return id;
+	    }
+	    public String toString() {
+		return text;
+	    }
+	    public void writeTo(Appendable out) throws IOException {
+		if (out instanceof ValueWriter)
+		    values.accept((ValueWriter) out);
+		else
+		    out.append(text);
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return new AssemblyNode[] {EVENTS};
+	    }
+	});
+    }
+
+    private String json() {
+	return new JsonAssembler().assemble(conversions.iterator(), 64).toString();
+    }
+
+    private BinaryAssembly binary() {
+	return (BinaryAssembly) new BinaryAssembler().assemble(conversions.iterator(), 64);
+    }
+
+    @Test
+    public void testEmptyAssemblyDecodesToEmptyObject() {
+	BinaryAssembly assembly = (BinaryAssembly) new BinaryAssembler().assemble(
+		Collections.<Conversion>emptyIterator(), 10);
+	assertThat(BinaryDecoder.decode(assembly.getBytes()), equalTo("{}"));
+    }
+
+    @Test
+    public void testRoundTripMatchesJsonAssembler() {
+	add(0, "\"name\":\"kernel \\\"main\\\"\",\"start\":1571234567890123456,\"end\":-42");
+	add(1, "\"ratio\":0.100000,\"delta\":-1.50,\"tiny\":-0.05", EVENTS);
+	add(2, "\"ok\":true,\"failed\":false,\"parent\":null,\"big\":1e5", EVENTS, TIMINGS);
+	add(2, "\"ok\":false,\"failed\":true,\"parent\":null,\"big\":007", EVENTS, TIMINGS);
+	add(3, "12", SAMPLES);
+	add(3, "-0", SAMPLES);
+	add(4, "\"unicode\":\"é\\u00e9\",\"empty\":\"\"");
+
+	assertThat(BinaryDecoder.decode(binary().getBytes()), equalTo(json()));
+    }
+
+    @Test
+    public void testRoundTripKeepsTextThatIsNotWellFormed() {
+	add(0, "\"name\":\"k\"1\",\"sizes\":[1, 2],\"odd\":NaN", EVENTS);
+	add(0, "\"name\":\"k\"1\",\"unterminated\":\"é", EVENTS);
+
+	assertThat(BinaryDecoder.decode(binary().getBytes()), equalTo(json()));
+    }
+
+    @Test
+    public void testRepeatedKeysAndValuesAreSmallerThanJson() {
+	for (int i = 0; i < 100; i++)
+	    add(1, "\"method\":\"uk.ac.manchester.Kernel.run\",\"start\":"
+		    + (1571234567890123456L + i*1000) + ",\"elapsed\":" + (i*37), TIMINGS);
+
+	BinaryAssembly assembly = binary();
+	String json = json();
+	assertThat(BinaryDecoder.decode(assembly.getBytes()), equalTo(json));
+	assertTrue(assembly.size()*3 < json.length());
+    }
+
+    @Test
+    public void testGeneratedProfilesDecodeToJsonAtUnderAThirdOfTheSize() {
+	conversions.addAll(SampleTimings.group(64));
+
+	BinaryAssembly assembly = binary();
+	String json = json();
+	assertThat(BinaryDecoder.decode(assembly.getBytes()), equalTo(json));
+	assertTrue(assembly.size()*3 < json.length());
+    }
+
+    @Test
+    public void testGeneratedProfilesMixWithTextConversions() {
+	GeneratedSampleTiming verbose = SampleTimings.timing(1);
+	verbose.setVerbosity(true);
+	GeneratedSampleTiming unnamed = SampleTimings.timing(2);
+	unnamed.method = null;
+	conversions.add(SampleTimings.timing(0).convert());
+	add(2, "\"kernel\":\"uk.ac.manchester.Kernel.run\"", EVENTS);
+	conversions.add(verbose.convert());
+	conversions.add(unnamed.convert());
+	conversions.add(SampleTimings.timing(4).convert());
+
+	assertThat(BinaryDecoder.decode(binary().getBytes()), equalTo(json()));
+    }
+
+    @Test
+    public void testPositionalProfileIsWrittenAsItsRow() {
+	GeneratedSampleTiming positional = SampleTimings.timing(0);
+	positional.setPositional(true);
+	conversions.add(positional.convert());
+	conversions.add(SampleTimings.timing(1).convert());
+
+	assertThat(BinaryDecoder.decode(binary().getBytes()), equalTo(json()));
+    }
+
+    @Test
+    public void testValuesDecodeAsTheTextTheyReplace() {
+	addValues(0, "\"start\":-9223372036854775808,\"end\":0.05,\"delta\":-12.340", (out) -> {
+		out.text().append("\"start\":");
+		out.appendInteger(Long.MIN_VALUE);
+		out.text().append(",\"end\":");
+		out.appendDecimal(5, 2);
+		out.text().append(",\"delta\":");
+		out.appendDecimal(-12340, 3);
+	    });
+	addValues(1, "\"time\":12ms,\"label\":\"v3.5\",\"last\":7", (out) -> {
+		out.text().append("\"time\":");
+		out.appendInteger(12);
+		out.text().append("ms,\"label\":\"v");
+		out.appendDecimal(35, 1);
+		out.text().append("\",\"last\":");
+		out.appendInteger(7);
+	    });
+
+	assertThat(BinaryDecoder.decode(binary().getBytes()), equalTo(json()));
+    }
+
+    @Test
+    public void testPrintsAsBase64AndPrettyPrintsAsJson() {
+	add(0, "\"a\":1,\"b\":\"c\"");
+	BinaryAssembly assembly = binary();
+
+	assertThat(Base64.getDecoder().decode(assembly.toString()), equalTo(assembly.getBytes()));
+	assertThat(assembly.toPrettyString(), equalTo(JsonUtils.prettyPrint(json(), 4)));
+    }
+
+    @Test
+    public void testDecodesPrintedLines() throws Exception {
+	add(0, "\"a\":1");
+	String line = binary().toString();
+	StringWriter out = new StringWriter();
+
+	int frames = BinaryDecoder.decodeLines(
+		new StringReader(line + "\n\n" + line + "\n"), out, false);
+
+	assertThat(frames, equalTo(2));
+	assertThat(out.toString(), equalTo(json() + "\n" + json() + "\n"));
+    }
+
+    private String printStream(StringDictionary dictionary, String... bodies) {
+	StringBuilder stream = new StringBuilder();
+	for (String body : bodies) {
+	    conversions.clear();
+	    add(0, body, EVENTS);
+	    dictionary.beginRecord();
+	    stream.append(binary().encodeStrings(dictionary)).append('\n');
+	}
+	return stream.toString();
+    }
+
+    private String expectedStream(String... bodies) {
+	StringBuilder expected = new StringBuilder();
+	for (String body : bodies) {
+	    conversions.clear();
+	    add(0, body, EVENTS);
+	    expected.append(json()).append('\n');
+	}
+	return expected.toString();
+    }
+
+    @Test
+    public void testStreamStringsDecodeInStreamOrder() throws Exception {
+	String[] bodies = {
+	    "\"name\":\"uk.ac.manchester.Kernel.run\",\"device\":\"gpu\",\"tags\":[\"uk.ac.manchester.Kernel.run\"]"
+	    , "\"name\":\"uk.ac.manchester.Kernel.run\",\"device\":\"gpu\",\"tags\":[\"$dollar\"]"
+	    , "\"uk.ac.manchester.Kernel.run\":\"name\""};
+	StringDictionary dictionary = new StringDictionary(16, 4);
+	String stream = printStream(dictionary, bodies);
+	StringWriter out = new StringWriter();
+
+	BinaryDecoder.decodeLines(new StringReader(stream), out, false);
+
+	assertThat(out.toString(), equalTo(expectedStream(bodies)));
+	assertThat(dictionary.getDefined(), equalTo(3L));
+	assertThat(dictionary.getReferenced(), equalTo(2L));
+    }
+
+    @Test
+    public void testEvictedSlotIsRedefined() throws Exception {
+	String[] bodies = {
+	    "\"name\":\"first kernel\""
+	    , "\"name\":\"second kernel\""
+	    , "\"name\":\"first kernel\",\"next\":\"second kernel\""};
+	StringDictionary dictionary = new StringDictionary(1, 4);
+	String stream = printStream(dictionary, bodies);
+	StringWriter out = new StringWriter();
+
+	BinaryDecoder.decodeLines(new StringReader(stream), out, false);
+
+	assertThat(out.toString(), equalTo(expectedStream(bodies)));
+	assertThat(dictionary.getEvicted(), equalTo(2L));
+    }
+
+    @Test
+    public void testStreamEncodingKeepsGeneratedProfiles() throws Exception {
+	conversions.addAll(SampleTimings.group(8));
+	add(0, "\"name\":\"uk.ac.manchester.Kernel.run\"", EVENTS);
+	StringDictionary dictionary = new StringDictionary(16, 4);
+	dictionary.beginRecord();
+	String line = binary().encodeStrings(dictionary).toString();
+	StringWriter out = new StringWriter();
+
+	BinaryDecoder.decodeLines(new StringReader(line), out, false);
+
+	assertThat(out.toString(), equalTo(json() + "\n"));
+    }
+
+    @Test(expected=BinaryDecoder.MalformedFrameException.class)
+    public void testStreamEncodedFrameNeedsEarlierFrames() {
+	StringDictionary dictionary = new StringDictionary(16, 4);
+	String[] lines = printStream(dictionary, "\"a\":\"kernel\"", "\"a\":\"kernel\"").split("\n");
+
+	BinaryDecoder.decodeLine(lines[1], false);
+    }
+
+    @Test
+    public void testPrettyStringOfStreamEncodedFrameIsStandalone() {
+	add(0, "\"a\":\"kernel\"");
+	StringDictionary dictionary = new StringDictionary(16, 4);
+	binary().encodeStrings(dictionary);
+
+	assertThat(binary().encodeStrings(dictionary).toPrettyString()
+		, equalTo(JsonUtils.prettyPrint(json(), 4)));
+    }
+
+    @Test(expected=BinaryDecoder.MalformedFrameException.class)
+    public void testRejectsFrameWithoutHeader() {
+	BinaryDecoder.decode(new byte[]{1, 2, 3, 4});
+    }
+
+    @Test(expected=BinaryDecoder.MalformedFrameException.class)
+    public void testRejectsUnknownToken() {
+	BinaryDecoder.decode(new byte[]{'B', 'P', 1, 0x1F});
+    }
+
+    @Test(expected=BinaryDecoder.MalformedFrameException.class)
+    public void testRejectsProfileOfUnknownClass() {
+	BinaryDecoder.decode(new byte[]{'B', 'P', 2, 13, 3, 'x', '.', 'Y', 0, 0});
+    }
+
+    @Test(expected=BinaryDecoder.MalformedFrameException.class)
+    public void testRejectsTruncatedFrame() {
+	add(0, "\"a\":\"value\"");
+	byte[] frame = binary().getBytes();
+	BinaryDecoder.decode(Arrays.copyOf(frame, frame.length-3));
+    }
+
+    @Test
+    public void testFactoryCreatesBinaryAssembler() {
+	Assembly assembly = new BinaryAssemblerFactory(new String[]{""}).create()
+	    .assemble(Collections.<Conversion>emptyIterator(), 10);
+	assertThat(assembly, instanceOf(BinaryAssembly.class));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Properties;
+
+import uk.ac.manchester.bauprofiler.core.GroupDescriptor;
+import uk.ac.manchester.bauprofiler.core.Profile;
+import uk.ac.manchester.bauprofiler.core.ProfilerPrinter;
+import uk.ac.manchester.bauprofiler.core.SchemaOncePrinter;
+import uk.ac.manchester.bauprofiler.core.SinkSettings;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.converter.ProfileSchemas;
+import uk.ac.manchester.bauprofiler.json.assembler.JsonAssembly;
+import uk.ac.manchester.bauprofiler.json.assembler.SchemaOnceDecoder;
+
+public class BinaryFilePrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Assembly assemble(String body) {
+	Iterator<Conversion> conversions = Arrays.<Conversion>asList(new Conversion() {
+	    public long id() {
+		return 0;
+	    }
+	    public String toString() {
+		return body;
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return new AssemblyNode[]{};
+	    }
+	}).iterator();
+	return new BinaryAssembler().assemble(conversions, 16);
+    }
+
+    @Test
+    public void testWrittenFramesDecodeToJsonLines() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("profiler.bin");
+	StringBuilder body = new StringBuilder("\"long\":\"");
+	for (int i = 0; i < 200; i++)
+	    body.append('x');
+	body.append('"');
+
+	try (BinaryFilePrinter printer = new BinaryFilePrinter(path)) {
+	    printer.print(assemble("\"a\":1"));
+	    printer.print(assemble(body.toString()));
+	}
+	StringWriter out = new StringWriter();
+	try (InputStream in = Files.newInputStream(path)) {
+	    assertThat(BinaryDecoder.decodeFrames(in, out, false), equalTo(2));
+	}
+
+	assertThat(out.toString(), equalTo("{\"a\":1}\n{" + body + "}\n"));
+    }
+
+    private static class PositionalProfile implements ConvertableProfile {
+	static final int CLASS_ID = 4791;
+
+	public int getId() {
+	    return CLASS_ID;
+	}
+	public Optional<Integer> getDependencyId() {
+	    return Optional.empty();
+	}
+	public boolean dependsOn(Profile dep) {
+	    return false;
+	}
+	public void setVerbosity(boolean verbose) {}
+	public void preProcess() {}
+	public void postProcess() {}
+	public Conversion convert() {
+	    return null;
+	}
+    }
+
+    @Test
+    public void testSchemaOnceFramesExpandBackToJson() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("schema.bin");
+	ProfileSchemas.register(PositionalProfile.CLASS_ID
+		, "\"@4791\":[\"name\",\"elapsed\"]", "\"@4791\":[\"name\",\"elapsed\"]");
+	GroupDescriptor group = GroupDescriptor.of(
+		0, 0, Collections.singletonList(new PositionalProfile()));
+
+	try (SchemaOncePrinter printer = new SchemaOncePrinter(
+		    new BinaryFilePrinter(path), false, new BinaryAssembler())) {
+	    printer.print(group, assemble("\"@4791\":[\"run\",1.25]"));
+	    printer.print(group, assemble("\"@4791\":[\"copy\",0.50]"));
+	}
+	StringWriter lines = new StringWriter();
+	try (InputStream in = Files.newInputStream(path)) {
+	    assertThat(BinaryDecoder.decodeFrames(in, lines, false), equalTo(3));
+	}
+	StringWriter out = new StringWriter();
+	new SchemaOnceDecoder().decodeLines(new StringReader(lines.toString()), out, false);
+
+	assertThat(out.toString(), equalTo(
+		    "{\"name\":\"run\",\"elapsed\":1.25}\n{\"name\":\"copy\",\"elapsed\":0.50}\n"));
+    }
+
+    @Test(expected=BinaryFilePrinter.NotBinaryException.class)
+    public void testRejectsTextAssembly() throws Exception {
+	try (BinaryFilePrinter printer = new BinaryFilePrinter(folder.newFile().toPath())) {
+	    printer.print(new JsonAssembly("{}"));
+	}
+    }
+
+    @Test
+    public void testFactoryCreatesPrinterAtConfiguredPath() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("sink.bin");
+	Properties properties = new Properties();
+	properties.setProperty(SinkSettings.PREFIX + "raw.path", path.toString());
+
+	ProfilerPrinter printer = new BinaryFilePrinterFactory().create(
+		new SinkSettings("raw", properties));
+	printer.print(assemble("\"a\":1"));
+	((BinaryFilePrinter) printer).close();
+
+	assertTrue(Files.size(path) > 0);
+    }
+}
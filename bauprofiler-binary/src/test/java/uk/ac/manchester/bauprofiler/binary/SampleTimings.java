@@ -0,0 +1,57 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.binary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+
+/* A timer heavy group of generated profiles: repeated keys and method
+ * names, nanosecond longs and two place decimals */
+class SampleTimings {
+    private static final String[] METHODS = {
+	"uk.ac.manchester.Kernel.run", "uk.ac.manchester.Kernel.compile"
+	, "uk.ac.manchester.Device.copyIn", "uk.ac.manchester.Device.copyOut"};
+    private static final long EPOCH_NANOS = 1571234567890123456L;
+
+    static List<Conversion> group(int profiles) {
+	List<Conversion> group = new ArrayList<>(profiles);
+	for (int i = 0; i < profiles; i++)
+	    group.add(timing(i).convert());
+	return group;
+    }
+
+    static GeneratedSampleTiming timing(int i) {
+	GeneratedSampleTiming timing = new GeneratedSampleTiming();
+	timing.method = METHODS[i%METHODS.length];
+	timing.start = EPOCH_NANOS+i*1_000_003L;
+	timing.end = timing.start+(i*7919)%1_000_000;
+	timing.elapsed = (timing.end-timing.start)/1000.0;
+	timing.tasks = i%16;
+	return timing;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Appends assemblies to a file from a dedicated writer thread. Groups are
+ * queued in a bounded ring and written in batches: a batch is committed
+ * once it holds batchSize characters or flushInterval has passed since
+ * its first group, whichever comes first. */
+public class AsyncFilePrinter implements ProfilerPrinter, AutoCloseable {
+    /* Queued by close() to wake an idle writer */
+    private static final Assembly CLOSE = new Assembly() {
+        public String toPrettyString() {
+            return "";
+        }
+    };
+
+    public enum QueueFullPolicy {
+        BLOCK,
+        DROP_NEWEST,
+        DROP_OLDEST;
+
+        public static QueueFullPolicy parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new UnknownPolicyException(name);
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final ArrayBlockingQueue<Assembly> ring;
+    private final boolean prettyPrint;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean force;
+    private final QueueFullPolicy policy;
+    private final Thread writer;
+    private final StringBuilder batch;
+    private final List<Assembly> drained;
+
+    /* Printers hold the read side while queueing, so close() cannot slip
+     * in between their closed check and the group reaching the ring */
+    private final ReentrantReadWriteLock state = new ReentrantReadWriteLock();
+    private volatile boolean closed = false;
+    private volatile IOException failure = null;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong forces = new AtomicLong();
+
+    public AsyncFilePrinter(
+            Path path, boolean prettyPrint, int capacity, int batchSize
+            , long flushIntervalMs, boolean force, QueueFullPolicy policy) throws IOException {
+        this.channel = FileChannel.open(path
+                , StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.prettyPrint = prettyPrint;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.force = force;
+        this.policy = policy;
+        this.batch = new StringBuilder(batchSize+(batchSize >> 2));
+        this.drained = new ArrayList<>(capacity);
+        this.writer = new Thread(this::writeLoop, "ProfilerFileWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void print(Assembly output) {
+        state.readLock().lock();
+        try {
+            if (closed)
+                throw new ClosedPrinterException();
+            if (failure != null)
+                throw new FileWriteException(failure);
+            if (!ring.offer(output))
+                handleFullQueue(output);
+            else
+                enqueued.incrementAndGet();
+        } finally {
+            state.readLock().unlock();
+        }
+    }
+
+    private void handleFullQueue(Assembly output) {
+        switch (policy) {
+            case DROP_NEWEST:
+                dropped.incrementAndGet();
+                return;
+            case DROP_OLDEST:
+                while (!ring.offer(output))
+                    if (ring.poll() != null)
+                        dropped.incrementAndGet();
+                enqueued.incrementAndGet();
+                return;
+            default:
+                blocked.incrementAndGet();
+                putUninterruptibly(output);
+                enqueued.incrementAndGet();
+        }
+    }
+
+    private void putUninterruptibly(Assembly output) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                ring.put(output);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void writeLoop() {
+        long batchStarted = 0;
+        int groupsInBatch = 0;
+        while (!(closed && ring.isEmpty())) {
+            Assembly output = pollUntil(groupsInBatch == 0
+                    ? flushIntervalNanos : batchStarted+flushIntervalNanos-System.nanoTime());
+            if (output != null) {
+                if (groupsInBatch == 0)
+                    batchStarted = System.nanoTime();
+                groupsInBatch += append(output);
+                ring.drainTo(drained);
+                for (Assembly a : drained)
+                    groupsInBatch += append(a);
+                drained.clear();
+            }
+            if (groupsInBatch > 0 && (batch.length() >= batchSize
+                        || System.nanoTime()-batchStarted >= flushIntervalNanos || closed)) {
+                commit(groupsInBatch);
+                groupsInBatch = 0;
+            }
+        }
+        if (groupsInBatch > 0)
+            commit(groupsInBatch);
+    }
+
+    private Assembly pollUntil(long nanos) {
+        try {
+            return ring.poll(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    private int append(Assembly output) {
+        if (output == CLOSE)
+            return 0;
+        batch.append(Rendering.renderLine(output, prettyPrint));
+        return 1;
+    }
+
+    /* After a failed write the file has a gap, so later batches are
+     * dropped rather than appended after it */
+    private void commit(int groups) {
+        if (failure != null) {
+            batch.setLength(0);
+            dropped.addAndGet(groups);
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+        batch.setLength(0);
+        try {
+            int length = bytes.remaining();
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            if (force) {
+                channel.force(false);
+                forces.incrementAndGet();
+            }
+            bytesWritten.addAndGet(length);
+            written.addAndGet(groups);
+            commits.incrementAndGet();
+        } catch (IOException e) {
+            failure = e;
+            dropped.addAndGet(groups);
+        }
+    }
+
+    /* Writes out everything queued so far, then closes the file. The writer
+     * is woken with a sentinel rather than interrupted, as an interrupt
+     * would close the channel mid-write. */
+    public synchronized void close() throws IOException {
+        state.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+        } finally {
+            state.writeLock().unlock();
+        }
+        putUninterruptibly(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (force)
+            channel.force(true);
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public boolean isPretty() {
+        return prettyPrint;
+    }
+
+    public boolean mayDrop() {
+        return policy != QueueFullPolicy.BLOCK;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getForces() {
+        return forces.get();
+    }
+
+    public static class FileWriteException extends RuntimeException {
+        public FileWriteException(IOException cause) {
+            super("Profiler output file can no longer be written: "+cause.getMessage(), cause);
+        }
+    }
+
+    public static class UnknownPolicyException extends RuntimeException {
+        public UnknownPolicyException(String name) {
+            super("Unknown queue full policy "+name);
+        }
+    }
+}
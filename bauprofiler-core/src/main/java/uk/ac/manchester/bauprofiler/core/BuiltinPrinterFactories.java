@@ -0,0 +1,149 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+
+/* The sinks shipped with the profiler. Every setting defaults to the
+ * corresponding profiler.output.* property, and prettyprint applies to
+ * all of them. */
+public final class BuiltinPrinterFactories {
+    private BuiltinPrinterFactories() {}
+
+    private static boolean prettyPrint(SinkSettings settings) {
+        return settings.getBoolean("prettyprint", Profiler.PRETTY_PRINT);
+    }
+
+    public static class Stdout implements ProfilerPrinterFactory {
+        public String getName() {
+            return "stdout";
+        }
+
+        /* Not AutoCloseable, so closing the sink leaves System.out open for
+         * the rest of the process and its shutdown hooks */
+        public ProfilerPrinter create(SinkSettings settings) {
+            return new WriterPrinter(
+                    new PrintWriter(System.out, true), prettyPrint(settings))::print;
+        }
+    }
+
+    public static class File implements ProfilerPrinterFactory {
+        public String getName() {
+            return "file";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            FileWriter writer = new FileWriter(settings.get("path", Profiler.FILE_PATH), true);
+            return new WriterPrinter(new PrintWriter(writer, true), prettyPrint(settings));
+        }
+    }
+
+    public static class AsyncFile implements ProfilerPrinterFactory {
+        public String getName() {
+            return "async_file";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            return new AsyncFilePrinter(
+                    Paths.get(settings.get("path", Profiler.FILE_PATH))
+                    , prettyPrint(settings)
+                    , settings.getInt("capacity", Profiler.FILE_ASYNC_CAPACITY)
+                    , settings.getInt("batch_size", Profiler.FILE_ASYNC_BATCH_SIZE)
+                    , settings.getLong("flush_ms", Profiler.FILE_ASYNC_FLUSH_MS)
+                    , settings.getBoolean("force", Profiler.FILE_ASYNC_FORCE)
+                    , AsyncFilePrinter.QueueFullPolicy.parse(
+                        settings.get("queue_full", Profiler.FILE_ASYNC_QUEUE_FULL)));
+        }
+    }
+
+    public static class RollingFile implements ProfilerPrinterFactory {
+        public String getName() {
+            return "rolling_file";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            return new RollingFilePrinter(
+                    Paths.get(settings.get("path", Profiler.FILE_PATH))
+                    , prettyPrint(settings)
+                    , settings.getLong("max_bytes", Profiler.FILE_ROLLING_MAX_BYTES)
+                    , settings.getLong("interval_ms", Profiler.FILE_ROLLING_INTERVAL_MS)
+                    , settings.getBoolean("compress", Profiler.FILE_ROLLING_COMPRESS));
+        }
+    }
+
+    public static class MappedFile implements ProfilerPrinterFactory {
+        public String getName() {
+            return "mapped_file";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            return new MappedFilePrinter(
+                    Paths.get(settings.get("path", Profiler.FILE_PATH))
+                    , prettyPrint(settings)
+                    , settings.getInt("segment_bytes", Profiler.FILE_MAPPED_SEGMENT_BYTES));
+        }
+    }
+
+    public static class Server implements ProfilerPrinterFactory {
+        public String getName() {
+            return "server";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            return new SelectorServerPrinter(
+                    settings.getInt("port", Profiler.SERVER_PORT)
+                    , prettyPrint(settings)
+                    , settings.getInt("client_buffer", Profiler.SERVER_CLIENT_BUFFER)
+                    , SelectorServerPrinter.SlowClientPolicy.parse(
+                        settings.get("slow_client", Profiler.SERVER_SLOW_CLIENT))
+                    , settings.getInt("sample_rate", Profiler.SERVER_SAMPLE_RATE)
+                    , (settings.getBoolean("replay", Profiler.SERVER_REPLAY)) ? new ReplayLog(
+                        Paths.get(settings.get("replay.dir", Profiler.SERVER_REPLAY_DIR))
+                        , settings.getLong(
+                            "replay.segment_bytes", Profiler.SERVER_REPLAY_SEGMENT_BYTES)
+                        , settings.getLong(
+                            "replay.retain_bytes", Profiler.SERVER_REPLAY_RETAIN_BYTES))
+                        : null
+                    , settings.getLong("replay.grace_ms", Profiler.SERVER_REPLAY_GRACE_MS));
+        }
+    }
+
+    public static class SharedMemory implements ProfilerPrinterFactory {
+        public String getName() {
+            return "shm";
+        }
+
+        public ProfilerPrinter create(SinkSettings settings) throws IOException {
+            return new SharedMemoryRingPrinter(
+                    Paths.get(settings.get("path", Profiler.SHM_PATH))
+                    , prettyPrint(settings)
+                    , settings.getInt("capacity", Profiler.SHM_CAPACITY));
+        }
+    }
+}
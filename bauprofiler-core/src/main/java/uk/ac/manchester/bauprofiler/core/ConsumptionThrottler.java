@@ -129,4 +129,8 @@ public class ConsumptionThrottler implements GroupConsumer {
     public boolean isMarkedAsFinalGroup(Long groupId) {
         return proxiedGrouping.isMarkedAsFinalGroup(groupId);
     }
+
+    public long getFinalSequence(Long groupId) {
+        return proxiedGrouping.getFinalSequence(groupId);
+    }
 }
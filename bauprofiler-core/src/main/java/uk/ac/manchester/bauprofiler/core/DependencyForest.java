@@ -0,0 +1,367 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.AbstractSequentialList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import uk.ac.manchester.bauprofiler.core.interfaces.Timed;
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+
+/* Keeps profiles linked in output order as they arrive: roots in arrival
+ * order, each followed by its dependents in arrival order. Like a search
+ * outwards from its arrival, a dependent is attached to the nearest
+ * preceding parent that it dependsOn, looking back NEAREST_PARENT_WINDOW
+ * profiles of the parent class. Otherwise it waits in its arrival position,
+ * and each later profile of the parent class is checked as its parent and
+ * then widens the search back by one more. Every link is made as profiles
+ * arrive, so building the order does no searching; a dependent whose
+ * parent is never reached keeps its arrival position.
+ *
+ * Cost: an arrival checks at most NEAREST_PARENT_WINDOW candidates plus two
+ * for each dependent waiting on its class, and cycle checks are near
+ * constant time (trees only ever merge, so their roots are kept in a
+ * union-find). Linking a dependent also updates the subtree end of every
+ * ancestor that ended where its parent ended, so a group that is one long
+ * chain pays its depth on each arrival. */
+final class DependencyForest {
+    private static final int NEAREST_PARENT_WINDOW = 32;
+    private static final int EXPECTED_CLASSES = 16;
+    private static final Comparator<Node> BY_START_TIME = (a, b) -> (a.startTime != b.startTime)
+        ? Long.compare(a.startTime, b.startTime) : Integer.compare(a.arrival, b.arrival);
+
+    private final IntKeyedMap<Nodes> profilesByClass = new IntKeyedMap<>(EXPECTED_CLASSES);
+    private final IntKeyedMap<Nodes> waitingByDependency = new IntKeyedMap<>(EXPECTED_CLASSES);
+    private final Node head = new Node(null, -1);
+    private Node tail = head;
+    private int size = 0;
+
+    void add(ConvertableProfile profile) {
+        Node node = new Node(profile, size++);
+        int dependencyId = profile.dependencyId();
+        if (dependencyId == ConvertableProfile.NO_DEPENDENCY)
+            append(node);
+        else
+            attachToPrecedingParent(node, dependencyId);
+        nodesOf(profilesByClass, profile.getId()).add(node);
+        adoptWaitingDependents(node);
+    }
+
+    private void attachToPrecedingParent(Node node, int dependencyId) {
+        Nodes candidates = profilesByClass.get(dependencyId);
+        int from = (candidates == null) ? -1 : candidates.size()-1;
+        int to = Math.max(-1, from-NEAREST_PARENT_WINDOW);
+        for (int i = from; i > to; i--) {
+            Node candidate = candidates.get(i);
+            if (isParentOf(candidate, node)) {
+                insertAfter(candidate.last, node);
+                link(candidate, node);
+                return;
+            }
+        }
+        append(node);
+        node.waiting = true;
+        node.nextCandidate = to;
+        nodesOf(waitingByDependency, dependencyId).add(node);
+    }
+
+    /* Only ever asked of a root, see isRootOf */
+    private boolean isParentOf(Node candidate, Node dependent) {
+        return candidate != dependent
+            && dependent.profile.dependsOn(candidate.profile)
+            && !isRootOf(dependent, candidate);
+    }
+
+    private void adoptWaitingDependents(Node parent) {
+        Nodes dependents = waitingByDependency.get(parent.profile.getId());
+        if (dependents == null)
+            return;
+        Nodes candidates = profilesByClass.get(parent.profile.getId());
+        int kept = 0;
+        for (int i = 0; i < dependents.size(); i++) {
+            Node dependent = dependents.get(i);
+            if (!dependent.waiting)
+                continue;
+            if (isParentOf(parent, dependent))
+                adopt(parent, dependent);
+            else if (!adoptedByNextPreceding(dependent, candidates))
+                dependents.set(kept++, dependent);
+        }
+        dependents.truncate(kept);
+    }
+
+    private boolean adoptedByNextPreceding(Node dependent, Nodes candidates) {
+        if (dependent.nextCandidate < 0)
+            return false;
+        Node candidate = candidates.get(dependent.nextCandidate--);
+        if (!isParentOf(candidate, dependent))
+            return false;
+        adopt(candidate, dependent);
+        return true;
+    }
+
+    /* Waiting dependents are roots, so their subtree moves as one run. */
+    private void adopt(Node parent, Node dependent) {
+        dependent.waiting = false;
+        Node first = dependent, last = dependent.last;
+        first.prev.next = last.next;
+        if (last.next != null)
+            last.next.prev = first.prev;
+        else
+            tail = first.prev;
+        spliceAfter(parent.last, first, last);
+        link(parent, dependent);
+    }
+
+    /* Only ever asked of a root: a new profile, or a dependent still waiting,
+     * so being its ancestor is the same as being the root of its tree */
+    private boolean isRootOf(Node root, Node node) {
+        return rootOf(node) == root;
+    }
+
+    private Node rootOf(Node node) {
+        Node root = node;
+        while (root.root != root)
+            root = root.root;
+        while (node != root) {
+            Node next = node.root;
+            node.root = root;
+            node = next;
+        }
+        return root;
+    }
+
+    private void append(Node node) {
+        insertAfter(tail, node);
+    }
+
+    private void insertAfter(Node at, Node node) {
+        spliceAfter(at, node, node);
+    }
+
+    private void spliceAfter(Node at, Node first, Node last) {
+        last.next = at.next;
+        if (at.next != null)
+            at.next.prev = last;
+        else
+            tail = last;
+        at.next = first;
+        first.prev = at;
+    }
+
+    private void link(Node parent, Node child) {
+        child.parent = parent;
+        child.root = rootOf(parent);
+        Node oldLast = parent.last;
+        for (Node n = parent; n != null && n.last == oldLast; n = n.parent)
+            n.last = child.last;
+    }
+
+    private Nodes nodesOf(IntKeyedMap<Nodes> map, int key) {
+        Nodes nodes = map.get(key);
+        if (nodes == null) {
+            nodes = new Nodes();
+            map.put(key, nodes);
+        }
+        return nodes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<ConvertableProfile> view() {
+        return new OrderedView();
+    }
+
+    /* Orders the roots, and the dependents of each parent, by timer start
+     * time. Dependents still follow their parent. A profile without a timer
+     * takes the start time of the sibling that arrived before it. */
+    List<ConvertableProfile> orderByStartTime(int parallelThreshold) {
+        List<ConvertableProfile> ordered = new ArrayList<>(size);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        pushByStartTime(stack, siblingsFrom(head.next, tail), parallelThreshold);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            ordered.add(node.profile);
+            if (node.last != node)
+                pushByStartTime(stack, siblingsFrom(node.next, node.last), parallelThreshold);
+        }
+        return ordered;
+    }
+
+    private Node[] siblingsFrom(Node first, Node last) {
+        if (first == null)
+            return new Node[0];
+        int count = 0;
+        for (Node n = first; ; n = n.last.next) {
+            count++;
+            if (n.last == last)
+                break;
+        }
+        Node[] siblings = new Node[count];
+        long startTime = Long.MIN_VALUE;
+        Node n = first;
+        for (int i = 0; i < count; i++, n = n.last.next) {
+            startTime = startTimeOf(n.profile, startTime);
+            n.startTime = startTime;
+            siblings[i] = n;
+        }
+        return siblings;
+    }
+
+    private static long startTimeOf(ConvertableProfile profile, long previous) {
+        if (!(profile instanceof Timed))
+            return previous;
+        TimerInfo timer = ((Timed) profile).getTimer();
+        return (timer != null) ? timer.getStartTime() : previous;
+    }
+
+    private static void pushByStartTime(ArrayDeque<Node> stack, Node[] siblings, int parallelThreshold) {
+        if (siblings.length > parallelThreshold)
+            Arrays.parallelSort(siblings, BY_START_TIME);
+        else
+            Arrays.sort(siblings, BY_START_TIME);
+        for (int i = siblings.length-1; i >= 0; i--)
+            stack.push(siblings[i]);
+    }
+
+    private final class OrderedView extends AbstractSequentialList<ConvertableProfile> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public ListIterator<ConvertableProfile> listIterator(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+            ViewIterator iterator = new ViewIterator();
+            while (iterator.nextIndex() < index)
+                iterator.next();
+            return iterator;
+        }
+    }
+
+    private final class ViewIterator implements ListIterator<ConvertableProfile> {
+        private Node cursor = head;
+        private int index = 0;
+
+        public boolean hasNext() {
+            return cursor.next != null;
+        }
+
+        public ConvertableProfile next() {
+            if (cursor.next == null)
+                throw new NoSuchElementException();
+            cursor = cursor.next;
+            index++;
+            return cursor.profile;
+        }
+
+        public boolean hasPrevious() {
+            return cursor != head;
+        }
+
+        public ConvertableProfile previous() {
+            if (cursor == head)
+                throw new NoSuchElementException();
+            ConvertableProfile profile = cursor.profile;
+            cursor = cursor.prev;
+            index--;
+            return profile;
+        }
+
+        public int nextIndex() {
+            return index;
+        }
+
+        public int previousIndex() {
+            return index-1;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void set(ConvertableProfile profile) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void add(ConvertableProfile profile) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Node {
+        private final ConvertableProfile profile;
+        private final int arrival;
+        private Node prev, next, parent;
+        private Node last = this;
+        private Node root = this;
+        private boolean waiting = false;
+        private int nextCandidate = -1;
+        private long startTime;
+
+        Node(ConvertableProfile profile, int arrival) {
+            this.profile = profile;
+            this.arrival = arrival;
+        }
+    }
+
+    private static final class Nodes {
+        private Node[] nodes = new Node[8];
+        private int size = 0;
+
+        void add(Node node) {
+            if (size == nodes.length)
+                nodes = Arrays.copyOf(nodes, size << 1);
+            nodes[size++] = node;
+        }
+
+        Node get(int i) {
+            return nodes[i];
+        }
+
+        void set(int i, Node node) {
+            nodes[i] = node;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
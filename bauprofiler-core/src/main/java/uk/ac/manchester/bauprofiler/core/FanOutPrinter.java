@@ -0,0 +1,147 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Hands every assembly to each sink whose route selects its group. Each
+ * sink prints from its own queue and thread, so a slow sink only fills its
+ * own queue; once full, a sink either drops further groups or, if asked
+ * to, makes the caller wait. */
+public class FanOutPrinter implements ProfilerPrinter, AutoCloseable {
+    private static final long CLOSE_TIMEOUT_MS = 10000;
+
+    private final List<Sink> sinks;
+
+    public FanOutPrinter(List<Sink> sinks) {
+        this.sinks = new ArrayList<>(sinks);
+    }
+
+    public void print(Assembly output) {
+        print(GroupDescriptor.unknown(), output);
+    }
+
+    public void print(long sequence, Assembly output) {
+        print(GroupDescriptor.forSequence(sequence), output);
+    }
+
+    public void print(GroupDescriptor group, Assembly output) {
+        Delivery delivery = new Delivery(group, output);
+        for (Sink sink : sinks)
+            sink.deliver(delivery);
+    }
+
+    /* Waits for queued groups to be printed, then closes the sinks */
+    public void close() throws Exception {
+        long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+        for (Sink sink : sinks)
+            sink.awaitDrained(deadline);
+        Exception failure = null;
+        for (Sink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    public List<Sink> getSinks() {
+        return sinks;
+    }
+
+    private static final class Delivery {
+        private final GroupDescriptor group;
+        private final Assembly output;
+
+        Delivery(GroupDescriptor group, Assembly output) {
+            this.group = group;
+            this.output = output;
+        }
+    }
+
+    public static class Sink implements AutoCloseable {
+        private final String name;
+        private final ProfilerPrinter printer;
+        private final SinkRoute route;
+        private final boolean blockWhenFull;
+        private final PipelineStage<Delivery> stage;
+        private final AtomicLong dropped = new AtomicLong();
+
+        public Sink(
+                String name, ProfilerPrinter printer, SinkRoute route
+                , int queueCapacity, boolean blockWhenFull) {
+            this.name = name;
+            this.printer = printer;
+            this.route = route;
+            this.blockWhenFull = blockWhenFull;
+            this.stage = new PipelineStage<>(
+                    "ProfilerSink-"+name+"-", 1, queueCapacity
+                    , (delivery) -> printer.print(delivery.group, delivery.output));
+        }
+
+        private void deliver(Delivery delivery) {
+            if (!route.test(delivery.group))
+                return;
+            if (blockWhenFull)
+                stage.submit(delivery);
+            else if (!stage.offer(delivery))
+                dropped.incrementAndGet();
+        }
+
+        private void awaitDrained(long deadline) throws InterruptedException {
+            stage.awaitIdle(deadline);
+        }
+
+        public void close() throws Exception {
+            if (printer instanceof AutoCloseable)
+                ((AutoCloseable) printer).close();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ProfilerPrinter getPrinter() {
+            return printer;
+        }
+
+        public PipelineStage<?> getStage() {
+            return stage;
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+    }
+}
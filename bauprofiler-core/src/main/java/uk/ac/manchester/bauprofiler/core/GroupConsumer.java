@@ -32,4 +32,5 @@ public interface GroupConsumer {
     ConvertableProfile getNextFromGroup(Long groupId);
     void deleteGroup(Long groupId);
     boolean isMarkedAsFinalGroup(Long groupId);
+    long getFinalSequence(Long groupId);
 }
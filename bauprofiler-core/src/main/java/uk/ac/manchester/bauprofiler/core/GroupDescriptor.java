@@ -0,0 +1,131 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+
+/* What a printer may know about the group behind an assembly, e.g. to
+ * route it. Output that did not come from a detached group has neither
+ * a group id nor a sequence. The profile classes are only collected once
+ * a printer asks for them, off the consumer thread. */
+public final class GroupDescriptor {
+    public static final long NO_SEQUENCE = -1;
+    private static final ProfileClasses NO_CLASSES = new ProfileClasses(
+            Collections.emptySet(), Collections.emptySet());
+    private static final GroupDescriptor UNKNOWN = new GroupDescriptor(
+            false, 0, NO_SEQUENCE, Collections.emptyList());
+
+    private final boolean hasGroupId;
+    private final long groupId;
+    private final long sequence;
+    private final List<? extends ConvertableProfile> profiles;
+    private volatile ProfileClasses classes;
+
+    private GroupDescriptor(
+            boolean hasGroupId, long groupId, long sequence
+            , List<? extends ConvertableProfile> profiles) {
+        this.hasGroupId = hasGroupId;
+        this.groupId = groupId;
+        this.sequence = sequence;
+        this.profiles = profiles;
+        this.classes = (profiles.isEmpty()) ? NO_CLASSES : null;
+    }
+
+    public static GroupDescriptor of(
+            long groupId, long sequence, List<? extends ConvertableProfile> profiles) {
+        return new GroupDescriptor(true, groupId, sequence, profiles);
+    }
+
+    public static GroupDescriptor forSequence(long sequence) {
+        return new GroupDescriptor(false, 0, sequence, Collections.emptyList());
+    }
+
+    public static GroupDescriptor unknown() {
+        return UNKNOWN;
+    }
+
+    public boolean hasGroupId() {
+        return hasGroupId;
+    }
+
+    public long getGroupId() {
+        return groupId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getProfileCount() {
+        return profiles.size();
+    }
+
+    public Set<Class<?>> getProfileClasses() {
+        return getClasses().classes;
+    }
+
+    public Set<Integer> getProfileClassIds() {
+        return getClasses().classIds;
+    }
+
+    /* Printers may ask from several threads; each collects the same sets */
+    private ProfileClasses getClasses() {
+        ProfileClasses collected = classes;
+        if (collected == null)
+            classes = collected = ProfileClasses.of(profiles);
+        return collected;
+    }
+
+    private static final class ProfileClasses {
+        private final Set<Class<?>> classes;
+        private final Set<Integer> classIds;
+
+        private ProfileClasses(Set<Class<?>> classes, Set<Integer> classIds) {
+            this.classes = classes;
+            this.classIds = classIds;
+        }
+
+        private static ProfileClasses of(List<? extends ConvertableProfile> profiles) {
+            Set<Class<?>> classes = new HashSet<>();
+            Set<Integer> classIds = new HashSet<>();
+            Class<?> last = null;
+            for (ConvertableProfile profile : profiles) {
+                if (profile.getClass() != last) {
+                    last = profile.getClass();
+                    classes.add(last);
+                    classIds.add(profile.getId());
+                }
+            }
+            return new ProfileClasses(
+                    Collections.unmodifiableSet(classes), Collections.unmodifiableSet(classIds));
+        }
+    }
+}
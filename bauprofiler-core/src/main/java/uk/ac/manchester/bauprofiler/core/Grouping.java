@@ -28,6 +28,7 @@ package uk.ac.manchester.bauprofiler.core;
 import java.util.Queue;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.NoSuchElementException;
 
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
@@ -35,8 +36,8 @@ import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
 public class Grouping implements GroupProducer, GroupConsumer {
     private final ConcurrentHashMap<Long, Queue<ConvertableProfile>> groupings =
         new ConcurrentHashMap<>();
-    private final ConcurrentHashMap.KeySetView<Long, Boolean> groupIdsMarkedAsFinal =
-        ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, Long> finalGroupSequences = new ConcurrentHashMap<>();
+    private final AtomicLong nextFinalSequence = new AtomicLong();
 
     public void createGroup(Long groupId) {
         checkGroupAvailability(groupId);
@@ -78,16 +79,23 @@ public class Grouping implements GroupProducer, GroupConsumer {
     public void deleteGroup(Long groupId) {
         checkIfGroupIsDeletable(groupId);
         groupings.remove(groupId);
-        groupIdsMarkedAsFinal.remove(groupId);
+        finalGroupSequences.remove(groupId);
     }
 
     public void markGroupAsFinal(Long groupId) {
         checkGroupIsCreated(groupId);
-        groupIdsMarkedAsFinal.add(groupId);
+        finalGroupSequences.computeIfAbsent(groupId, (id) -> nextFinalSequence.getAndIncrement());
     }
 
     public boolean isMarkedAsFinalGroup(Long groupId) {
-        return groupIdsMarkedAsFinal.contains(groupId);
+        return finalGroupSequences.containsKey(groupId);
+    }
+
+    public long getFinalSequence(Long groupId) {
+        Long sequence = finalGroupSequences.get(groupId);
+        if (sequence == null)
+            throw new GroupNotFinalException(groupId);
+        return sequence;
     }
 
     private void safelyInsertProfileIntoGroup(ConvertableProfile profile, Long groupId) {
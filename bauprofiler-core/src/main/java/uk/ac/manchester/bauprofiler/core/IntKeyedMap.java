@@ -0,0 +1,98 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.Arrays;
+
+final class IntKeyedMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    IntKeyedMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int)(expectedSize/LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity-1;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = indexOf(key); values[i] != null; i = (i+1) & mask)
+            if (keys[i] == key)
+                return (V) values[i];
+        return null;
+    }
+
+    void put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException("Null values are not supported");
+        int i = indexOf(key);
+        for (; values[i] != null; i = (i+1) & mask)
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length*LOAD_FACTOR)
+            grow();
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new Object[oldValues.length << 1];
+        mask = keys.length-1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+            int i = indexOf(oldKeys[j]);
+            while (values[i] != null)
+                i = (i+1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Appends assemblies into pre-allocated memory-mapped segments, one record
+ * per group, so a group costs a copy into the page cache rather than a
+ * write call. Each segment starts with a header:
+ *
+ *   0  int   magic
+ *   4  int   version
+ *   8  long  capacity of the data area
+ *   16 long  committed bytes of the data area
+ *   24 long  committed records
+ *   32 int   sealed (1 once the writer has moved to the next segment)
+ *
+ * and data starts at HEADER_SIZE. A record is an int length followed by
+ * the group's UTF-8 bytes, so pretty printed groups spanning several lines
+ * read back whole. The committed length is only advanced, behind a release
+ * fence, after a whole record has been copied, so a reader tailing a
+ * segment never sees a partial group (see MappedSegmentReader). */
+public class MappedFilePrinter implements ProfilerPrinter, AutoCloseable {
+    public static final int MAGIC = 0x42415553;
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 64;
+    static final int CAPACITY_OFFSET = 8;
+    static final int COMMITTED_OFFSET = 16;
+    static final int RECORDS_OFFSET = 24;
+    static final int SEALED_OFFSET = 32;
+    static final int RECORD_HEADER = 4;
+
+    private final Path directory;
+    private final String baseName;
+    private final boolean prettyPrint;
+    private final int segmentSize;
+    /* Unpaired surrogates are replaced rather than cutting the record short */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+    private int segmentIndex = 0;
+    private long records;
+    private boolean closed = false;
+
+    private final AtomicLong segments = new AtomicLong();
+    private final AtomicLong bytesCommitted = new AtomicLong();
+    private final AtomicLong recordsCommitted = new AtomicLong();
+
+    public MappedFilePrinter(Path path, boolean prettyPrint, int segmentSize) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        this.directory = absolute.getParent();
+        this.baseName = absolute.getFileName().toString();
+        this.prettyPrint = prettyPrint;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        while (Files.exists(directory.resolve(segmentName(baseName, segmentIndex))))
+            segmentIndex++;
+        openSegment(segmentSize);
+    }
+
+    public static String segmentName(String baseName, int index) {
+        return String.format("%s.%06d.seg", baseName, index);
+    }
+
+    private void openSegment(int capacity) throws IOException {
+        segmentPath = directory.resolve(segmentName(baseName, segmentIndex++));
+        try (FileChannel channel = FileChannel.open(segmentPath
+                    , StandardOpenOption.CREATE_NEW, StandardOpenOption.READ
+                    , StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE+capacity);
+        }
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putLong(CAPACITY_OFFSET, capacity);
+        segment.position(HEADER_SIZE);
+        records = 0;
+        segments.incrementAndGet();
+    }
+
+    public synchronized void print(Assembly output) {
+        if (closed)
+            throw new ClosedPrinterException();
+        String content = Rendering.render(output, prettyPrint);
+        int start = segment.position();
+        if (!encodeRecord(start, CharBuffer.wrap(content))) {
+            segment.position(start);
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(content);
+            try {
+                nextSegment(RECORD_HEADER+bytes.remaining());
+            } catch (IOException e) {
+                throw new SegmentWriteException(segmentPath, e);
+            }
+            start = segment.position();
+            segment.putInt(bytes.remaining()).put(bytes);
+        }
+        commit(segment.position()-start);
+    }
+
+    /* Encodes straight into the mapping, false if the segment is too full */
+    private boolean encodeRecord(int start, CharBuffer chars) {
+        if (segment.remaining() < RECORD_HEADER)
+            return false;
+        segment.position(start+RECORD_HEADER);
+        encoder.reset();
+        if (encoder.encode(chars, segment, true).isOverflow()
+                || encoder.flush(segment).isOverflow())
+            return false;
+        segment.putInt(start, segment.position()-start-RECORD_HEADER);
+        return true;
+    }
+
+    private void nextSegment(int required) throws IOException {
+        seal();
+        openSegment(Math.max(segmentSize, required));
+    }
+
+    private void commit(int recordBytes) {
+        MemoryFences.release();
+        segment.putLong(RECORDS_OFFSET, ++records);
+        segment.putLong(COMMITTED_OFFSET, segment.position()-HEADER_SIZE);
+        recordsCommitted.incrementAndGet();
+        bytesCommitted.addAndGet(recordBytes);
+    }
+
+    private void seal() {
+        segment.putInt(SEALED_OFFSET, 1);
+        segment.force();
+    }
+
+    public boolean isPretty() {
+        return prettyPrint;
+    }
+
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        seal();
+    }
+
+    public synchronized Path getActiveSegment() {
+        return segmentPath;
+    }
+
+    public long getSegments() {
+        return segments.get();
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted.get();
+    }
+
+    public long getBytesCommitted() {
+        return bytesCommitted.get();
+    }
+
+    public static class SegmentWriteException extends RuntimeException {
+        public SegmentWriteException(Path segment, IOException cause) {
+            super("Failed to map segment "+segment+": "+cause.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Tails a segment written by MappedFilePrinter, possibly while it is still
+ * being written, returning only groups covered by the committed length. */
+public class MappedSegmentReader {
+    private final MappedByteBuffer segment;
+    private long consumed = 0;
+
+    public MappedSegmentReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.capacity() < MappedFilePrinter.HEADER_SIZE
+                || segment.getInt(0) != MappedFilePrinter.MAGIC)
+            throw new NotASegmentException(path);
+        if (segment.getInt(4) != MappedFilePrinter.VERSION)
+            throw new UnsupportedVersionException(path, segment.getInt(4));
+    }
+
+    public long getCommitted() {
+        return segment.getLong(MappedFilePrinter.COMMITTED_OFFSET);
+    }
+
+    public long getRecords() {
+        return segment.getLong(MappedFilePrinter.RECORDS_OFFSET);
+    }
+
+    /* Once sealed and drained, the reader can move to the next segment */
+    public boolean isSealed() {
+        return segment.getInt(MappedFilePrinter.SEALED_OFFSET) == 1;
+    }
+
+    /* Returns the groups committed since the last call */
+    public List<String> poll() {
+        long committed = getCommitted();
+        MemoryFences.acquire();
+        List<String> groups = new ArrayList<>();
+        int from = MappedFilePrinter.HEADER_SIZE+(int) consumed;
+        int end = MappedFilePrinter.HEADER_SIZE+(int) committed;
+        while (from < end) {
+            int length = segment.getInt(from);
+            from += MappedFilePrinter.RECORD_HEADER;
+            groups.add(decode(from, from+length));
+            from += length;
+        }
+        consumed = committed;
+        return groups;
+    }
+
+    private String decode(int from, int to) {
+        ByteBuffer slice = segment.duplicate();
+        slice.limit(to).position(from);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    public static class NotASegmentException extends RuntimeException {
+        public NotASegmentException(Path path) {
+            super(path+" is not a profiler output segment");
+        }
+    }
+
+    public static class UnsupportedVersionException extends RuntimeException {
+        public UnsupportedVersionException(Path path, int version) {
+            super("Unsupported segment version "+version+" in "+path);
+        }
+    }
+}
@@ -28,24 +28,20 @@ package uk.ac.manchester.bauprofiler.core;
 import static uk.ac.manchester.bauprofiler.core.MultiGroupConsumerState.State.*;
 
 import java.util.List;
-import java.util.ArrayList;
 
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
-import uk.ac.manchester.bauprofiler.core.converter.Conversion;
-import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
-import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.converter.SequentialProfileConverter;
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
 
 public class MultiGroupConsumer {
-    private final ProfileQueueBuilderSelector pqselector = new ProfileQueueBuilderSelector();
+    private final ProfileQueueBuilderSelector pqselector;
     private final GroupConnections connectedGroupIds = new GroupConnections();
     private final Object zeroConnectionLock = new Object();
 
-    private final AssemblerFactory assemblerFactory;
     private final GroupConsumer grouping;
     private final Terminator terminator;
     private final MultiGroupConsumerState state;
-    private final ProfilerPrinter printer;
+    private final GroupOutput output;
 
     private Long selectedGroupId = null;
 
@@ -53,11 +49,20 @@ public class MultiGroupConsumer {
             Terminator terminator, GroupConsumer grouping
             , AssemblerFactory assemblerFactory, MultiGroupConsumerState state
             , ProfilerPrinter printer) {
+        this(terminator, grouping, state, OrderedProfileQueue.Ordering.arrival()
+                , new DirectGroupOutput(new OutputGenerator(
+                        new SequentialProfileConverter(), assemblerFactory), printer));
+    }
+
+    public MultiGroupConsumer(
+            Terminator terminator, GroupConsumer grouping
+            , MultiGroupConsumerState state, OrderedProfileQueue.Ordering ordering
+            , GroupOutput output) {
+        this.pqselector = new ProfileQueueBuilderSelector(ordering);
         this.terminator = terminator;
         this.grouping = grouping;
-        this.assemblerFactory = assemblerFactory;
         this.state = state;
-        this.printer = printer;
+        this.output = output;
     }
 
     public void execute() {
@@ -95,7 +100,6 @@ public class MultiGroupConsumer {
         if (selectedGroupIsReadyToOutput()) {
             outputSelectedGroup();
             deleteSelectedGroup();
-            notifyTerminator();
         }
         if (hasAnotherSelectableGroup())
             selectGroup();
@@ -128,12 +132,15 @@ public class MultiGroupConsumer {
             && !grouping.hasNextInGroup(selectedGroupId);
     }
 
+    /* The group only counts as consumed once it is printed, so the pool
+     * cannot go idle while a staged output still holds it */
     private void outputSelectedGroup() {
-        printer.print(generateOutputForSelectedGroup());
-    }
-
-    private Assembly generateOutputForSelectedGroup() {
-        return new OutputGenerator(getProfilesForSelectedGroup()).generate();
+        List<ConvertableProfile> profiles = getProfilesForSelectedGroup();
+        output.output(
+                GroupDescriptor.of(
+                    selectedGroupId, grouping.getFinalSequence(selectedGroupId), profiles)
+                , profiles
+                , this::notifyTerminator);
     }
 
     private List<ConvertableProfile> getProfilesForSelectedGroup() {
@@ -181,46 +188,4 @@ public class MultiGroupConsumer {
     public int getNumOfConnections() {
         return connectedGroupIds.getNumOfConnections();
     }
-
-    private class OutputGenerator {
-        private int conversionSize;
-        private List<ConvertableProfile> profiles;
-        private List<Conversion> convertedProfiles;
-        private Assembly assembly;
-
-        public OutputGenerator(List<ConvertableProfile> profiles) {
-            this.profiles = profiles;
-        }
-
-        public Assembly generate() {
-            postProcessProfiles();
-            convertProfiles();
-            calculateConversionSize();
-            assembleConvertedProfiles();
-            return assembly;
-        }
-
-        private void postProcessProfiles() {
-            for (ConvertableProfile cp : profiles)
-                cp.postProcess();
-        }
-
-        private void convertProfiles() {
-            convertedProfiles = new ArrayList<>(profiles.size());
-            for (ConvertableProfile cp : profiles)
-                convertedProfiles.add(cp.convert());
-        }
-
-        private void calculateConversionSize() {
-            conversionSize = 0;
-            for (Conversion c : convertedProfiles)
-                conversionSize += c.toString().length();
-        }
-
-        private void assembleConvertedProfiles() {
-            assembly = assemblerFactory
-                .create()
-                .assemble(convertedProfiles.iterator(), conversionSize);
-        }
-    }
 }
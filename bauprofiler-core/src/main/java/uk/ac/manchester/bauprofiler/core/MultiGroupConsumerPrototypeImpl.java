@@ -26,25 +26,32 @@
 package uk.ac.manchester.bauprofiler.core;
 
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
+import uk.ac.manchester.bauprofiler.core.converter.SequentialProfileConverter;
 
 public class MultiGroupConsumerPrototypeImpl implements MultiGroupConsumerPrototype {
     private GroupConsumer consumer;
-    private AssemblerFactory factory;
-    private ProfilerPrinter printer;
+    private OrderedProfileQueue.Ordering ordering;
+    private GroupOutput output;
 
     public MultiGroupConsumerPrototypeImpl(
             GroupConsumer consumer, AssemblerFactory factory, ProfilerPrinter printer) {
+        this(consumer, OrderedProfileQueue.Ordering.arrival(), new DirectGroupOutput(
+                    new OutputGenerator(new SequentialProfileConverter(), factory), printer));
+    }
+
+    public MultiGroupConsumerPrototypeImpl(
+            GroupConsumer consumer, OrderedProfileQueue.Ordering ordering, GroupOutput output) {
         this.consumer = consumer;
-        this.factory = factory;
-        this.printer = printer;
+        this.ordering = ordering;
+        this.output = output;
     }
 
     public MultiGroupConsumer produce(Terminator terminator, MultiGroupConsumerState state) {
         return new MultiGroupConsumer(
                 terminator
                 , new ConsumptionThrottler(consumer, new ExponentialBackoff(2, 1))
-                , factory
                 , state
-                , printer);
+                , ordering
+                , output);
     }
 }
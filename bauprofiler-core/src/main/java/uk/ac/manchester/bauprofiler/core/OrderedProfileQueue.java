@@ -25,12 +25,8 @@
  */
 package uk.ac.manchester.bauprofiler.core;
 
-import java.util.HashMap;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Collections;
-import java.util.Optional;
 
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
 
@@ -38,7 +34,7 @@ public class OrderedProfileQueue {
     private final List<ConvertableProfile> orderedProfiles;
 
     private OrderedProfileQueue(Builder builder) {
-        this.orderedProfiles = Collections.unmodifiableList(builder.orderedProfiles);
+        this.orderedProfiles = Collections.unmodifiableList(builder.ordered());
     }
 
     public List<ConvertableProfile> getProfiles() {
@@ -46,49 +42,74 @@ public class OrderedProfileQueue {
     }
 
     public static Builder builder() {
-        return new Builder();
+        return builder(Ordering.arrival());
     }
 
-    public static final class Builder {
-        private final Deque<ConvertableProfile> profiles = new LinkedList<>();
-        private final HashMap<Integer, Deque<ConvertableProfile>> profilesWithDeps =
-            new HashMap<>();
-        private final List<ConvertableProfile> orderedProfiles = new LinkedList<>();
+    public static Builder builder(Ordering ordering) {
+        return new Builder(ordering);
+    }
 
-        private Builder() {}
+    public static final class Builder {
+        private final DependencyForest forest = new DependencyForest();
+        private final Ordering ordering;
 
-        public void insert(ConvertableProfile profile) {
-            Optional<Integer> dependencyId = profile.getDependencyId();
-            if (dependencyId.isPresent())
-                insertProfileWithDep(profile, dependencyId.get());
-            else
-                profiles.add(profile);
+        private Builder(Ordering ordering) {
+            this.ordering = ordering;
         }
 
-        private void insertProfileWithDep(ConvertableProfile profile, Integer dependencyId) {
-            Deque<ConvertableProfile> profilesWithSameDep = profilesWithDeps.get(dependencyId);
-            if (profilesWithSameDep == null) {
-                profilesWithSameDep = new LinkedList<ConvertableProfile>();
-                profilesWithDeps.put(dependencyId, profilesWithSameDep);
-            }
-            profilesWithSameDep.add(profile);
+        public void insert(ConvertableProfile profile) {
+            forest.add(profile);
         }
 
         public OrderedProfileQueue build() {
-            orderProfiles();
             return new OrderedProfileQueue(this);
         }
 
-        private void orderProfiles() {
-            while (profiles.size() > 0) {
-                ConvertableProfile profile = profiles.removeFirst();
-                Deque<ConvertableProfile> dependents = profilesWithDeps.get(profile.getId());
-                if (dependents != null
-                        && dependents.size() != 0
-                        && dependents.peek().dependsOn(profile))
-                    profiles.addFirst(dependents.removeFirst());
-                orderedProfiles.add(profile);
+        private List<ConvertableProfile> ordered() {
+            return (ordering.byStartTime)
+                ? forest.orderByStartTime(ordering.parallelThreshold) : forest.view();
+        }
+    }
+
+    public static final class Ordering {
+        public static final String ARRIVAL = "arrival";
+        public static final String START_TIME = "starttime";
+
+        private static final Ordering ARRIVAL_ORDERING = new Ordering(false, Integer.MAX_VALUE);
+
+        private final boolean byStartTime;
+        private final int parallelThreshold;
+
+        private Ordering(boolean byStartTime, int parallelThreshold) {
+            this.byStartTime = byStartTime;
+            this.parallelThreshold = parallelThreshold;
+        }
+
+        public static Ordering arrival() {
+            return ARRIVAL_ORDERING;
+        }
+
+        public static Ordering startTime(int parallelThreshold) {
+            if (parallelThreshold < 0)
+                throw new IllegalArgumentException("Parallel sort threshold cannot be negative");
+            return new Ordering(true, parallelThreshold);
+        }
+
+        public static Ordering parse(String name, int parallelThreshold) {
+            switch (name) {
+                case ARRIVAL:
+                    return arrival();
+                case START_TIME:
+                    return startTime(parallelThreshold);
+                default:
+                    throw new UnknownOrderingException(name);
             }
         }
     }
+
+    public static class UnknownOrderingException extends RuntimeException {
+        public UnknownOrderingException(String name) {
+            super("Unknown profile ordering "+name);
+        }
+    }
 }
@@ -0,0 +1,272 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Prints sequenced assemblies in sequence order. Assemblies that arrive
+ * early wait in a reorder window; a submitter whose sequence is beyond the
+ * window blocks until the window moves. If the next sequence is missing for
+ * longer than the straggler timeout it is skipped, and a straggler that
+ * turns up afterwards is printed as soon as it arrives. */
+public class OutputSequencer implements ProfilerPrinter {
+    private final ProfilerPrinter printer;
+    private final int window;
+    private final long stragglerTimeoutNanos;
+    private final Object lock = new Object();
+    private final Assembly[] reorderBuffer;
+    private final GroupDescriptor[] bufferedGroups;
+
+    private long next = 0;
+    private int buffered = 0;
+    private boolean draining = false;
+    private long headMissingSince = -1;
+    private boolean watchdogRunning = false;
+
+    private long emitted = 0;
+    private long stragglers = 0;
+    private long skipped = 0;
+    private long blockedSubmissions = 0;
+    private int peakBuffered = 0;
+
+    public OutputSequencer(ProfilerPrinter printer, int window, long stragglerTimeoutMs) {
+        if (window < 1)
+            throw new IllegalArgumentException("Reorder window must hold at least one assembly");
+        this.printer = printer;
+        this.window = window;
+        this.stragglerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stragglerTimeoutMs);
+        this.reorderBuffer = new Assembly[window];
+        this.bufferedGroups = new GroupDescriptor[window];
+    }
+
+    public void print(Assembly output) {
+        printer.print(output);
+    }
+
+    public void print(long sequence, Assembly output) {
+        print(GroupDescriptor.forSequence(sequence), output);
+    }
+
+    public void print(GroupDescriptor group, Assembly output) {
+        long sequence = group.getSequence();
+        boolean straggler;
+        synchronized (lock) {
+            waitForWindow(sequence);
+            straggler = sequence < next;
+            if (straggler) {
+                stragglers++;
+            } else {
+                buffer(group, output);
+                if (!claimDrain()) {
+                    startWatchdogIfNeeded();
+                    return;
+                }
+            }
+        }
+        if (straggler)
+            printer.print(group, output);
+        else
+            drain();
+    }
+
+    private void waitForWindow(long sequence) {
+        boolean blocked = false;
+        while (sequence >= next+window) {
+            if (!blocked) {
+                blockedSubmissions++;
+                blocked = true;
+            }
+            markHeadMissing();
+            long remaining = headMissingSince+stragglerTimeoutNanos-System.nanoTime();
+            if (remaining > 0)
+                waitOnLock(remaining);
+            else
+                skipTo((buffered > 0) ? nextBuffered() : sequence-window+1);
+        }
+    }
+
+    private void buffer(GroupDescriptor group, Assembly output) {
+        int slot = slot(group.getSequence());
+        reorderBuffer[slot] = output;
+        bufferedGroups[slot] = group;
+        buffered++;
+        peakBuffered = Math.max(peakBuffered, buffered);
+    }
+
+    private boolean claimDrain() {
+        if (draining)
+            return false;
+        if (reorderBuffer[slot(next)] == null) {
+            markHeadMissing();
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+
+    private void drain() {
+        boolean done = false;
+        try {
+            while (true) {
+                Assembly output;
+                GroupDescriptor group;
+                synchronized (lock) {
+                    int slot = slot(next);
+                    output = reorderBuffer[slot];
+                    if (output == null) {
+                        draining = false;
+                        done = true;
+                        headMissingSince = (buffered > 0) ? System.nanoTime() : -1;
+                        startWatchdogIfNeeded();
+                        lock.notifyAll();
+                        return;
+                    }
+                    group = bufferedGroups[slot];
+                    reorderBuffer[slot] = null;
+                    bufferedGroups[slot] = null;
+                    buffered--;
+                    next++;
+                    emitted++;
+                    headMissingSince = -1;
+                    lock.notifyAll();
+                }
+                printer.print(group, output);
+            }
+        } finally {
+            if (!done)
+                synchronized (lock) {
+                    draining = false;
+                    startWatchdogIfNeeded();
+                    lock.notifyAll();
+                }
+        }
+    }
+
+    private void markHeadMissing() {
+        if (headMissingSince < 0)
+            headMissingSince = System.nanoTime();
+    }
+
+    private long nextBuffered() {
+        long sequence = next;
+        while (reorderBuffer[slot(sequence)] == null)
+            sequence++;
+        return sequence;
+    }
+
+    private void skipTo(long sequence) {
+        skipped += sequence-next;
+        next = sequence;
+        headMissingSince = -1;
+        lock.notifyAll();
+    }
+
+    private void startWatchdogIfNeeded() {
+        if (watchdogRunning || buffered == 0)
+            return;
+        watchdogRunning = true;
+        new Thread(this::watchStragglers, "ProfilerOutputSequencer").start();
+    }
+
+    /* Skips missing sequences once they time out, for when no submitter
+     * is around to do it. Exits once the reorder buffer is empty. */
+    private void watchStragglers() {
+        while (true) {
+            synchronized (lock) {
+                while (true) {
+                    if (buffered == 0) {
+                        watchdogRunning = false;
+                        return;
+                    }
+                    if (!draining) {
+                        markHeadMissing();
+                        long remaining = headMissingSince+stragglerTimeoutNanos-System.nanoTime();
+                        if (remaining <= 0) {
+                            skipTo(nextBuffered());
+                            if (claimDrain())
+                                break;
+                            continue;
+                        }
+                        waitOnLock(remaining);
+                    } else {
+                        waitOnLock(stragglerTimeoutNanos);
+                    }
+                }
+            }
+            drain();
+        }
+    }
+
+    private void waitOnLock(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.timedWait(lock, Math.max(1, nanos));
+        } catch (InterruptedException e) {
+            // ignore
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % window);
+    }
+
+    public long getEmitted() {
+        synchronized (lock) {
+            return emitted;
+        }
+    }
+
+    public long getStragglers() {
+        synchronized (lock) {
+            return stragglers;
+        }
+    }
+
+    public long getSkipped() {
+        synchronized (lock) {
+            return skipped;
+        }
+    }
+
+    public long getBlockedSubmissions() {
+        synchronized (lock) {
+            return blockedSubmissions;
+        }
+    }
+
+    public int getBuffered() {
+        synchronized (lock) {
+            return buffered;
+        }
+    }
+
+    public int getPeakBuffered() {
+        synchronized (lock) {
+            return peakBuffered;
+        }
+    }
+}
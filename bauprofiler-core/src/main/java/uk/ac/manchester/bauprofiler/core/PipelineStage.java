@@ -0,0 +1,248 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/* A bounded queue drained by up to a fixed number of worker threads.
+ * Workers are started on demand and exit after idling, so an idle stage
+ * does not keep the JVM alive, while queued work is always finished. An
+ * item whose handler fails is counted and the stage moves on; the owner
+ * reports the failures with the other stage metrics. */
+public class PipelineStage<T> {
+    private static final long IDLE_TIMEOUT_MS = 1000;
+
+    private final String name;
+    private final int maxWorkers;
+    private final BlockingQueue<T> queue;
+    private final Consumer<T> handler;
+
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blockedSubmissions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicReference<RuntimeException> lastFailure = new AtomicReference<>();
+    private final Object idle = new Object();
+
+    public PipelineStage(String name, int maxWorkers, int queueCapacity, Consumer<T> handler) {
+        if (maxWorkers < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException(name+" needs at least one worker and queue slot");
+        this.name = name;
+        this.maxWorkers = maxWorkers;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.handler = handler;
+    }
+
+    public void submit(T item) {
+        submitted.incrementAndGet();
+        if (!queue.offer(item)) {
+            blockedSubmissions.incrementAndGet();
+            putUninterruptibly(item);
+        }
+        recordQueueDepth();
+        startWorkerIfNeeded();
+    }
+
+    /* Like submit, but refuses the item rather than wait for queue space */
+    public boolean offer(T item) {
+        submitted.incrementAndGet();
+        if (!queue.offer(item)) {
+            submitted.decrementAndGet();
+            rejected.incrementAndGet();
+            signalIfIdle();
+            return false;
+        }
+        recordQueueDepth();
+        startWorkerIfNeeded();
+        return true;
+    }
+
+    private void putUninterruptibly(T item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void recordQueueDepth() {
+        int depth = queue.size();
+        int peak;
+        while (depth > (peak = peakQueueDepth.get()))
+            if (peakQueueDepth.compareAndSet(peak, depth))
+                break;
+    }
+
+    private void startWorkerIfNeeded() {
+        while (!queue.isEmpty()) {
+            int current = workers.get();
+            if (current >= maxWorkers)
+                return;
+            if (workers.compareAndSet(current, current+1)) {
+                startWorker();
+                return;
+            }
+        }
+    }
+
+    private void startWorker() {
+        Thread worker = new Thread(this::work, name+workerIds.getAndIncrement());
+        worker.start();
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                T item = pollUntilIdle();
+                if (item != null) {
+                    handle(item);
+                    continue;
+                }
+                workers.decrementAndGet();
+                if (queue.isEmpty() || !reclaimWorkerSlot())
+                    return;
+            }
+        } catch (Error e) {
+            workers.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean reclaimWorkerSlot() {
+        int current;
+        while ((current = workers.get()) < maxWorkers)
+            if (workers.compareAndSet(current, current+1))
+                return true;
+        return false;
+    }
+
+    private T pollUntilIdle() {
+        try {
+            return queue.poll(IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    private void handle(T item) {
+        try {
+            handler.accept(item);
+            completed.incrementAndGet();
+        } catch (RuntimeException e) {
+            lastFailure.set(e);
+            failed.incrementAndGet();
+        } finally {
+            signalIfIdle();
+        }
+    }
+
+    private boolean isIdle() {
+        return completed.get()+failed.get() >= submitted.get();
+    }
+
+    private void signalIfIdle() {
+        if (!isIdle())
+            return;
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+    }
+
+    /* Waits until every item submitted so far has been handled, or until
+     * the System.nanoTime() deadline; false if items were still pending */
+    public boolean awaitIdle(long deadline) throws InterruptedException {
+        synchronized (idle) {
+            while (!isIdle()) {
+                long remaining = deadline-System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.size()+queue.remainingCapacity();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public int getActiveWorkers() {
+        return workers.get();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /* Null until a handler fails */
+    public RuntimeException getLastFailure() {
+        return lastFailure.get();
+    }
+
+    public long getBlockedSubmissions() {
+        return blockedSubmissions.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -27,24 +27,91 @@ package uk.ac.manchester.bauprofiler.core;
 
 import java.io.PrintWriter;
 import java.io.FileWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.io.IOException;
-
-import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import java.nio.file.Paths;
 
 public class PrinterProvider {
     private static PrintWriter out = null;
+    private static SelectorServerPrinter server = null;
+    private static SharedMemoryRingPrinter sharedMemory = null;
+    private static AsyncFilePrinter asyncFile = null;
+    private static RollingFilePrinter rollingFile = null;
+    private static MappedFilePrinter mappedFile = null;
+    /* Set when the selected printer renders and closes its own output */
+    private static ProfilerPrinter sink = null;
+    private static AutoCloseable sinkResource = null;
 
     static {
+        if (Profiler.FILE_OUTPUT && !Profiler.SERVER_OUTPUT && !Profiler.SHM_OUTPUT)
+            checkFileModes();
         if (Profiler.SERVER_OUTPUT) {
             try {
-                ServerSocket serverSocket = new ServerSocket(Profiler.SERVER_PORT);
-                Socket clientSocket = serverSocket.accept(); // blocks execution
-                out = new PrintWriter(clientSocket.getOutputStream(), true);
-            } catch (Exception e) {
+                server = new SelectorServerPrinter(
+                        Profiler.SERVER_PORT
+                        , Profiler.PRETTY_PRINT
+                        , Profiler.SERVER_CLIENT_BUFFER
+                        , SelectorServerPrinter.SlowClientPolicy.parse(Profiler.SERVER_SLOW_CLIENT)
+                        , Profiler.SERVER_SAMPLE_RATE
+                        , (Profiler.SERVER_REPLAY) ? new ReplayLog(
+                            Paths.get(Profiler.SERVER_REPLAY_DIR)
+                            , Profiler.SERVER_REPLAY_SEGMENT_BYTES
+                            , Profiler.SERVER_REPLAY_RETAIN_BYTES) : null
+                        , Profiler.SERVER_REPLAY_GRACE_MS);
+                sink = server;
+                sinkResource = server;
+            } catch (IOException e) {
                 throw new ServerOutputException(e.getMessage());
             }
+        } else if (Profiler.SHM_OUTPUT) {
+            try {
+                sharedMemory = new SharedMemoryRingPrinter(
+                        Paths.get(Profiler.SHM_PATH)
+                        , Profiler.PRETTY_PRINT
+                        , Profiler.SHM_CAPACITY);
+                sink = sharedMemory;
+                sinkResource = sharedMemory;
+            } catch (IOException e) {
+                throw new FileOutputException(e.getMessage());
+            }
+        } else if (Profiler.FILE_OUTPUT && Profiler.FILE_ASYNC) {
+            try {
+                asyncFile = new AsyncFilePrinter(
+                        Paths.get(Profiler.FILE_PATH)
+                        , Profiler.PRETTY_PRINT
+                        , Profiler.FILE_ASYNC_CAPACITY
+                        , Profiler.FILE_ASYNC_BATCH_SIZE
+                        , Profiler.FILE_ASYNC_FLUSH_MS
+                        , Profiler.FILE_ASYNC_FORCE
+                        , AsyncFilePrinter.QueueFullPolicy.parse(Profiler.FILE_ASYNC_QUEUE_FULL));
+                sink = asyncFile;
+                sinkResource = asyncFile;
+            } catch (IOException e) {
+                throw new FileOutputException(e.getMessage());
+            }
+        } else if (Profiler.FILE_OUTPUT && Profiler.FILE_MAPPED) {
+            try {
+                mappedFile = new MappedFilePrinter(
+                        Paths.get(Profiler.FILE_PATH)
+                        , Profiler.PRETTY_PRINT
+                        , Profiler.FILE_MAPPED_SEGMENT_BYTES);
+                sink = mappedFile;
+                sinkResource = mappedFile;
+            } catch (IOException e) {
+                throw new FileOutputException(e.getMessage());
+            }
+        } else if (Profiler.FILE_OUTPUT && Profiler.FILE_ROLLING) {
+            try {
+                rollingFile = new RollingFilePrinter(
+                        Paths.get(Profiler.FILE_PATH)
+                        , Profiler.PRETTY_PRINT
+                        , Profiler.FILE_ROLLING_MAX_BYTES
+                        , Profiler.FILE_ROLLING_INTERVAL_MS
+                        , Profiler.FILE_ROLLING_COMPRESS);
+                sink = rollingFile;
+                sinkResource = rollingFile;
+            } catch (IOException e) {
+                throw new FileOutputException(e.getMessage());
+            }
         } else if (Profiler.FILE_OUTPUT) {
             try {
                 FileWriter fw = new FileWriter(Profiler.FILE_PATH, true);
@@ -57,25 +124,69 @@ public class PrinterProvider {
 
         Runtime.getRuntime().addShutdownHook(new Thread() {
             public void run() {
-                out.close();
+                Profiler.drainOutput();
+                if (sinkResource != null) {
+                    try {
+                        sinkResource.close();
+                    } catch (Exception e) {
+                        System.err.println("Profiler output incomplete: "+e.getMessage());
+                    }
+                } else
+                    out.close();
             }
         });
     }
 
+    /* Only one of the asynchronous, mapped and rolling file printers can
+     * write the output file */
+    private static void checkFileModes() {
+        int modes = 0;
+        for (boolean mode : new boolean[]{
+                Profiler.FILE_ASYNC, Profiler.FILE_MAPPED, Profiler.FILE_ROLLING})
+            modes += (mode) ? 1 : 0;
+        if (modes > 1)
+            throw new FileOutputException("Conflicting file output modes:"
+                    +" at most one of profiler.output.file.async, .mapped and .rolling may be set");
+    }
+
+    /* The server, shared memory and the asynchronous, mapped and rolling file
+     * printers render the output themselves, so their format is fixed by
+     * profiler.output.prettyprint at startup */
     public static ProfilerPrinter printer() {
-        return new ProfilerPrinter() {
-            public void print(Assembly output) {
-                out.println(output.toString());
-            }
-        };
+        if (sink != null)
+            return sink;
+        return new WriterPrinter(out, false);
     }
 
     public static ProfilerPrinter prettyPrinter() {
-        return new ProfilerPrinter() {
-            public void print(Assembly output) {
-                out.println(output.toPrettyString());
-            }
-        };
+        if (sink != null)
+            return sink;
+        return new WriterPrinter(out, true);
+    }
+
+    /* Null unless profiler.output.server is in effect */
+    public static SelectorServerPrinter getServerPrinter() {
+        return server;
+    }
+
+    /* Null unless profiler.output.shm is in effect */
+    public static SharedMemoryRingPrinter getSharedMemoryPrinter() {
+        return sharedMemory;
+    }
+
+    /* Null unless profiler.output.file.async is in effect */
+    public static AsyncFilePrinter getAsyncFilePrinter() {
+        return asyncFile;
+    }
+
+    /* Null unless profiler.output.file.rolling is in effect */
+    public static RollingFilePrinter getRollingFilePrinter() {
+        return rollingFile;
+    }
+
+    /* Null unless profiler.output.file.mapped is in effect */
+    public static MappedFilePrinter getMappedFilePrinter() {
+        return mappedFile;
     }
 
     public static class ServerOutputException extends RuntimeException {
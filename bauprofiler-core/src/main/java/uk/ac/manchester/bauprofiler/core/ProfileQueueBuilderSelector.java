@@ -34,9 +34,19 @@ import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
 public class ProfileQueueBuilderSelector {
     private final Map<Long, OrderedProfileQueue.Builder> selector = new Hashtable<>();
 
+    private final OrderedProfileQueue.Ordering ordering;
+
     private Long reference = null;
     private OrderedProfileQueue.Builder selected = null;
 
+    public ProfileQueueBuilderSelector() {
+        this(OrderedProfileQueue.Ordering.arrival());
+    }
+
+    public ProfileQueueBuilderSelector(OrderedProfileQueue.Ordering ordering) {
+        this.ordering = ordering;
+    }
+
     public void createReference(Long ref) {
         checkRefAvailability(ref);
         createNewReference(ref);
@@ -48,7 +58,7 @@ public class ProfileQueueBuilderSelector {
     }
 
     private void createNewReference(Long ref) {
-        selector.put(ref, OrderedProfileQueue.builder());
+        selector.put(ref, OrderedProfileQueue.builder(ordering));
     }
 
     public void select(Long ref) {
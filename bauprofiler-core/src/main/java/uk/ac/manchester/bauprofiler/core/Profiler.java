@@ -25,11 +25,20 @@
  */
 package uk.ac.manchester.bauprofiler.core;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 
 import uk.ac.manchester.bauprofiler.core.interfaces.Timed;
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.converter.ProfileConverter;
+import uk.ac.manchester.bauprofiler.core.converter.SequentialProfileConverter;
+import uk.ac.manchester.bauprofiler.core.converter.ForkJoinProfileConverter;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactoryProvider;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
 
 public abstract class Profiler {
 
@@ -46,6 +55,18 @@ public abstract class Profiler {
             settings.getProperty("profiler.output.file", "false"));
     public static final String FILE_PATH = settings.getProperty(
             "profiler.output.file.path", "./var/profiler.json");
+    public static final boolean FILE_ASYNC = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.file.async", "false"));
+    public static final boolean FILE_ROLLING = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.file.rolling", "false"));
+    public static final boolean FILE_MAPPED = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.file.mapped", "false"));
+    public static final boolean SHM_OUTPUT = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.shm", "false"));
+    public static final String SHM_PATH = settings.getProperty(
+            "profiler.output.shm.path", "./var/profiler.ring");
+    public static final String SINKS = settings.getProperty(
+            "profiler.output.sinks", "");
     public static final int MAX_PTHREADS = Integer.parseInt(
             settings.getProperty("profiler.max_pthreads", "2"));
     public static final String ASSEMBLER_FACTORY = settings.getProperty(
@@ -58,36 +79,204 @@ public abstract class Profiler {
             settings.getProperty("profiler.output.prettyprint", "false"));
     public static final boolean VERBOSE = Boolean.parseBoolean(
             settings.getProperty("profiler.output.verbose", "false"));
+    public static final boolean SCHEMA_ONCE = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.schema_once", "false"));
+    public static final boolean STRING_DICTIONARY = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.strings", "false"));
+    public static final int STRING_DICTIONARY_CAPACITY = Integer.parseInt(
+            settings.getProperty("profiler.output.strings.capacity", "4096"));
+    public static final int STRING_DICTIONARY_MIN_LENGTH = Integer.parseInt(
+            settings.getProperty("profiler.output.strings.min_length", "4"));
+    public static final String ORDER = settings.getProperty(
+            "profiler.output.order", OrderedProfileQueue.Ordering.ARRIVAL);
+    public static final int ORDER_PARALLEL_THRESHOLD = Integer.parseInt(
+            settings.getProperty("profiler.output.order.parallel_threshold", "8192"));
+    public static final int CONVERT_PARALLELISM = Integer.parseInt(
+            settings.getProperty("profiler.convert.parallelism", "0"));
+    public static final int CONVERT_PARALLEL_THRESHOLD = Integer.parseInt(
+            settings.getProperty("profiler.convert.parallel_threshold", "65536"));
+    public static final boolean SEQUENCED = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.sequenced", "false"));
+    public static final int SEQUENCED_WINDOW = Integer.parseInt(
+            settings.getProperty("profiler.output.sequenced.window", "1024"));
+    public static final long SEQUENCED_TIMEOUT_MS = Long.parseLong(
+            settings.getProperty("profiler.output.sequenced.timeout_ms", "5000"));
+    public static final int FILE_ASYNC_CAPACITY = Integer.parseInt(
+            settings.getProperty("profiler.output.file.async.capacity", "4096"));
+    public static final int FILE_ASYNC_BATCH_SIZE = Integer.parseInt(
+            settings.getProperty("profiler.output.file.async.batch_size", "1048576"));
+    public static final long FILE_ASYNC_FLUSH_MS = Long.parseLong(
+            settings.getProperty("profiler.output.file.async.flush_ms", "100"));
+    public static final boolean FILE_ASYNC_FORCE = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.file.async.force", "false"));
+    public static final String FILE_ASYNC_QUEUE_FULL = settings.getProperty(
+            "profiler.output.file.async.queue_full", "block");
+    public static final long FILE_ROLLING_MAX_BYTES = Long.parseLong(
+            settings.getProperty("profiler.output.file.rolling.max_bytes", "268435456"));
+    public static final long FILE_ROLLING_INTERVAL_MS = Long.parseLong(
+            settings.getProperty("profiler.output.file.rolling.interval_ms", "0"));
+    public static final boolean FILE_ROLLING_COMPRESS = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.file.rolling.compress", "true"));
+    public static final int FILE_MAPPED_SEGMENT_BYTES = Integer.parseInt(
+            settings.getProperty("profiler.output.file.mapped.segment_bytes", "67108864"));
+    public static final int SERVER_CLIENT_BUFFER = Integer.parseInt(
+            settings.getProperty("profiler.output.server.client_buffer", "4194304"));
+    public static final String SERVER_SLOW_CLIENT = settings.getProperty(
+            "profiler.output.server.slow_client", "drop_oldest");
+    public static final int SERVER_SAMPLE_RATE = Integer.parseInt(
+            settings.getProperty("profiler.output.server.sample_rate", "10"));
+    public static final boolean SERVER_REPLAY = Boolean.parseBoolean(
+            settings.getProperty("profiler.output.server.replay", "false"));
+    public static final String SERVER_REPLAY_DIR = settings.getProperty(
+            "profiler.output.server.replay.dir", "./var/replay");
+    public static final long SERVER_REPLAY_SEGMENT_BYTES = Long.parseLong(
+            settings.getProperty("profiler.output.server.replay.segment_bytes", "16777216"));
+    public static final long SERVER_REPLAY_RETAIN_BYTES = Long.parseLong(
+            settings.getProperty("profiler.output.server.replay.retain_bytes", "268435456"));
+    public static final long SERVER_REPLAY_GRACE_MS = Long.parseLong(
+            settings.getProperty("profiler.output.server.replay.grace_ms", "500"));
+    public static final int SHM_CAPACITY = Integer.parseInt(
+            settings.getProperty("profiler.output.shm.capacity", "16777216"));
+    public static final boolean PIPELINE = Boolean.parseBoolean(
+            settings.getProperty("profiler.pipeline", "false"));
+    public static final int PIPELINE_CONVERT_THREADS = Integer.parseInt(
+            settings.getProperty("profiler.pipeline.convert.threads", "1"));
+    public static final int PIPELINE_CONVERT_QUEUE = Integer.parseInt(
+            settings.getProperty("profiler.pipeline.convert.queue", "16"));
+    public static final int PIPELINE_SINK_THREADS = Integer.parseInt(
+            settings.getProperty("profiler.pipeline.sink.threads", "1"));
+    public static final int PIPELINE_SINK_QUEUE = Integer.parseInt(
+            settings.getProperty("profiler.pipeline.sink.queue", "16"));
+    public static final long PIPELINE_DRAIN_MS = Long.parseLong(
+            settings.getProperty("profiler.pipeline.drain_ms", "10000"));
 
     private static final Profiler instance;
+    private static final GroupOutput output;
+    private static FanOutPrinter sinks = null;
+    /* Cleared while the output is created if a schema_once stream may drop */
+    private static boolean positionalRows = SCHEMA_ONCE;
 
     static {
         if (ENABLED) {
             Grouping grouping = new Grouping();
+            output = createOutput();
             instance = new ProfilerImplementation(
                 new ConcurrentProfileDispatcher(
                     grouping
                     , new MultiGroupConsumerPool(
                         new MultiGroupConsumerPrototypeImpl(
                             grouping
-                            , AssemblerFactoryProvider.loadFactory(
-                                ASSEMBLER_FACTORY
-                                , ASSEMBLER_FACTORY_PARAMS.split("\\s*\\,\\s*"))
-                            , ((PRETTY_PRINT) ?
-                                PrinterProvider.prettyPrinter() : PrinterProvider.printer()))
+                            , OrderedProfileQueue.Ordering.parse(
+                                ORDER, ORDER_PARALLEL_THRESHOLD)
+                            , output)
                         , new LeastConnection()
                         , MAX_PTHREADS)
                     , UniqueEncoder.unboundedEncoder()
                     )
                 );
-        } else
+        } else {
+            output = null;
             instance = new ProfilerPlaceHolder();
+        }
+    }
+
+    private static GroupOutput createOutput() {
+        AssemblerFactory assemblers = AssemblerFactoryProvider.loadFactory(
+                ASSEMBLER_FACTORY, ASSEMBLER_FACTORY_PARAMS.split("\\s*\\,\\s*"));
+        OutputGenerator generator = new OutputGenerator(createConverter(), assemblers);
+        ProfilerPrinter printer = (SINKS.trim().isEmpty())
+            ? forStream(defaultPrinter(), assemblers) : createSinks(assemblers);
+        if (SEQUENCED)
+            printer = new OutputSequencer(printer, SEQUENCED_WINDOW, SEQUENCED_TIMEOUT_MS);
+        if (PIPELINE)
+            return new StagedGroupOutput(
+                    generator, printer
+                    , PIPELINE_CONVERT_THREADS, PIPELINE_CONVERT_QUEUE
+                    , PIPELINE_SINK_THREADS, PIPELINE_SINK_QUEUE);
+        return new DirectGroupOutput(generator, printer);
+    }
+
+    private static ProfilerPrinter defaultPrinter() {
+        return (PRETTY_PRINT) ? PrinterProvider.prettyPrinter() : PrinterProvider.printer();
+    }
+
+    /* Each stream needs its own record of the schemas and strings already
+     * printed to it. Schemas are printed around the string dictionary, in
+     * the encoding of the assembled groups */
+    private static ProfilerPrinter forStream(
+            ProfilerPrinter printer, AssemblerFactory assemblers) {
+        if (STRING_DICTIONARY && printer.mayDrop())
+            System.err.println("Profiler strings left unencoded: a sink may drop output");
+        if (STRING_DICTIONARY)
+            printer = new StringDictionaryPrinter(printer, new StringDictionary(
+                        STRING_DICTIONARY_CAPACITY, STRING_DICTIONARY_MIN_LENGTH));
+        if (SCHEMA_ONCE && printer.mayDrop() && positionalRows) {
+            System.err.println("Profiler rows left keyed for every sink: a sink may drop output");
+            positionalRows = false;
+        }
+        if (SCHEMA_ONCE)
+            printer = new SchemaOncePrinter(printer, VERBOSE, assemblers.create());
+        return printer;
+    }
+
+    /* One assembly of a group feeds every sink, so rows are positional only
+     * when every stream keeps the schemas it is sent */
+    static boolean isPositional() {
+        return positionalRows;
+    }
+
+    private static ProfilerPrinter createSinks(AssemblerFactory assemblers) {
+        sinks = SinkProvider.load(SINKS, settings, (printer) -> forStream(printer, assemblers));
+        SinkProvider.closeOnShutdown(sinks, Profiler::drainOutput);
+        return sinks;
+    }
+
+    private static ProfileConverter createConverter() {
+        if (CONVERT_PARALLELISM > 0)
+            return new ForkJoinProfileConverter(
+                    new ForkJoinPool(CONVERT_PARALLELISM), CONVERT_PARALLEL_THRESHOLD);
+        return new SequentialProfileConverter();
     }
 
     public static Profiler getInstance() {
         return instance;
     }
 
+    /* Shutdown hooks run concurrently, so the hooks closing printers first
+     * wait for the groups still held by the pipeline stages */
+    static void drainOutput() {
+        if (!(output instanceof StagedGroupOutput))
+            return;
+        try {
+            if (!((StagedGroupOutput) output).drain(PIPELINE_DRAIN_MS))
+                System.err.println("Profiler output incomplete: pipeline not drained");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (PipelineStage<?> stage : getOutputStages())
+            reportFailures(stage);
+    }
+
+    static void reportFailures(PipelineStage<?> stage) {
+        RuntimeException failure = stage.getLastFailure();
+        if (failure != null)
+            System.err.println("Profiler output incomplete: "+stage.getFailed()
+                    +" failed in "+stage.getName()+", last with "+failure);
+    }
+
+    public static List<PipelineStage<?>> getOutputStages() {
+        if (!(output instanceof StagedGroupOutput))
+            return Collections.emptyList();
+        StagedGroupOutput staged = (StagedGroupOutput) output;
+        return Arrays.asList(staged.getConvertStage(), staged.getSinkStage());
+    }
+
+    public static List<FanOutPrinter.Sink> getOutputSinks() {
+        if (sinks == null)
+            return Collections.emptyList();
+        return sinks.getSinks();
+    }
+
     public abstract <T> void link(long groupId, T hardLink);
     public abstract void unlink(long groupId);
     public abstract void enable(long groupId);
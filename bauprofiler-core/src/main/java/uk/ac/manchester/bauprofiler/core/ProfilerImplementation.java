@@ -121,10 +121,13 @@ public class ProfilerImplementation extends Profiler {
 
     @Override
     public <T extends ConvertableProfile & Timed> Timer tprofile(T profile, long groupId) {
+        TimedAction timer = timeProfile(profile);
         profile(profile, groupId);
-        return timeProfile(profile);
+        return timer;
     }
 
+    /* Set before the profile is dispatched, so a consumer reading it
+     * through getTimer always finds it */
     private TimedAction timeProfile(Timed profile) {
         TimedAction timer = new TimedAction();
         profile.setTimer(timer);
@@ -161,6 +164,7 @@ public class ProfilerImplementation extends Profiler {
 
     private void prepareProfile(ConvertableProfile profile) {
         profile.setVerbosity(Profiler.VERBOSE);
+        profile.setPositional(Profiler.isPositional());
         profile.preProcess();
     }
 
@@ -185,8 +189,9 @@ public class ProfilerImplementation extends Profiler {
     @Override
     public <T1 extends ConvertableProfile & Timed, T2> Timer tprofile(
             T1 profile, long groupId, T2 softLink) {
+        TimedAction timer = timeProfile(profile);
         profile(profile, groupId, softLink);
-        return timeProfile(profile);
+        return timer;
     }
 
     @Override
@@ -29,4 +29,29 @@ import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
 
 public interface ProfilerPrinter {
     void print(Assembly output);
+
+    default void print(long sequence, Assembly output) {
+        print(output);
+    }
+
+    default void print(GroupDescriptor group, Assembly output) {
+        print(group.getSequence(), output);
+    }
+
+    default boolean isPretty() {
+        return false;
+    }
+
+    /* Whether a record accepted by print can fail to reach a reader, so no
+     * later record may depend on it */
+    default boolean mayDrop() {
+        return false;
+    }
+
+    /* Thrown by printers that own their output once they are closed */
+    public static class ClosedPrinterException extends RuntimeException {
+        public ClosedPrinterException() {
+            super("Printer has been closed");
+        }
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* How the printers that own their output render a group */
+final class Rendering {
+    static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private Rendering() {}
+
+    static String render(Assembly output, boolean prettyPrint) {
+        return (prettyPrint) ? output.toPrettyString() : output.toString();
+    }
+
+    static String renderLine(Assembly output, boolean prettyPrint) {
+        return render(output, prettyPrint)+LINE_SEPARATOR;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/* Keeps the most recent server output in on-disk segments so that clients
+ * joining late can catch up. Every group is indexed by its position and
+ * the time it was printed, so replays always start on a group boundary.
+ * Once more than retainedBytes are kept the oldest segments are deleted. */
+class ReplayLog implements AutoCloseable {
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retainedBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long position = 0;
+    private int nextSegment = 0;
+
+    ReplayLog(Path directory, long segmentBytes, long retainedBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.retainedBytes = retainedBytes;
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final long base;
+        private long length = 0;
+        private long[] offsets = new long[64];
+        private long[] times = new long[64];
+        private int groups = 0;
+
+        Segment(Path path, long base) throws IOException {
+            this.path = path;
+            this.base = base;
+            this.channel = FileChannel.open(path
+                    , StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+                    , StandardOpenOption.WRITE);
+        }
+
+        void index(long offset, long time) {
+            if (groups == offsets.length) {
+                offsets = Arrays.copyOf(offsets, groups*2);
+                times = Arrays.copyOf(times, groups*2);
+            }
+            offsets[groups] = offset;
+            times[groups++] = time;
+        }
+
+        long end() {
+            return base+length;
+        }
+
+        /* Index of the first group whose key is at least value */
+        int firstAtLeast(long[] keys, long value) {
+            int low = 0, high = groups;
+            while (low < high) {
+                int mid = (low+high) >>> 1;
+                if (keys[mid] < value)
+                    low = mid+1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+    }
+
+    synchronized void append(ByteBuffer group) throws IOException {
+        Segment active = segments.peekLast();
+        if (active == null || (active.length > 0 && active.length+group.remaining() > segmentBytes))
+            active = roll();
+        active.index(position, System.currentTimeMillis());
+        long written = 0;
+        while (group.hasRemaining())
+            written += active.channel.write(group);
+        active.length += written;
+        position += written;
+    }
+
+    private Segment roll() throws IOException {
+        Segment previous = segments.peekLast();
+        if (previous != null)
+            previous.channel.close();
+        Segment segment = new Segment(
+                directory.resolve(String.format("replay.%06d", nextSegment++)), position);
+        segments.addLast(segment);
+        while (position-segments.peekFirst().base > retainedBytes && segments.size() > 1)
+            Files.deleteIfExists(segments.pollFirst().path);
+        return segment;
+    }
+
+    synchronized long getPosition() {
+        return position;
+    }
+
+    /* Replays roughly the last bytes of output, from the first whole group */
+    synchronized Replay replayBytes(long bytes) {
+        long from = position-bytes;
+        for (Segment segment : segments)
+            if (segment.end() > from)
+                return replayFrom(segment, segment.firstAtLeast(segment.offsets, from));
+        return new Replay();
+    }
+
+    /* Replays every group printed at or after the given time */
+    synchronized Replay replaySince(long timeMillis) {
+        for (Segment segment : segments)
+            if (segment.groups > 0 && segment.times[segment.groups-1] >= timeMillis)
+                return replayFrom(segment, segment.firstAtLeast(segment.times, timeMillis));
+        return new Replay();
+    }
+
+    private Replay replayFrom(Segment first, int group) {
+        Replay replay = new Replay();
+        boolean started = false;
+        for (Segment segment : segments) {
+            if (segment == first) {
+                started = true;
+                long from = (group < segment.groups) ? segment.offsets[group] : segment.end();
+                replay.add(segment.path, from-segment.base, segment.length);
+            } else if (started)
+                replay.add(segment.path, 0, segment.length);
+        }
+        return replay;
+    }
+
+    public synchronized void close() throws IOException {
+        Iterator<Segment> remaining = segments.iterator();
+        while (remaining.hasNext()) {
+            Segment segment = remaining.next();
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+            remaining.remove();
+        }
+    }
+
+    /* A snapshot of the log; groups appended later are not included */
+    static class Replay implements AutoCloseable {
+        private final ArrayDeque<Range> ranges = new ArrayDeque<>();
+        private FileChannel current;
+        private long cursor;
+        private long remaining = 0;
+
+        private static class Range {
+            private final Path path;
+            private final long from;
+            private final long to;
+
+            Range(Path path, long from, long to) {
+                this.path = path;
+                this.from = from;
+                this.to = to;
+            }
+        }
+
+        private void add(Path path, long from, long to) {
+            if (to > from) {
+                ranges.addLast(new Range(path, from, to));
+                remaining += to-from;
+            }
+        }
+
+        long getRemaining() {
+            return remaining;
+        }
+
+        /* Sends as much as target accepts without blocking, using
+         * FileChannel.transferTo so the data never enters the heap.
+         * Returns true once the whole replay has been sent. */
+        boolean transferTo(WritableByteChannel target) throws IOException {
+            while (!ranges.isEmpty()) {
+                Range range = ranges.peekFirst();
+                if (current == null) {
+                    try {
+                        current = FileChannel.open(range.path, StandardOpenOption.READ);
+                    } catch (NoSuchFileException e) {
+                        /* Expired before it could be replayed */
+                        ranges.pollFirst();
+                        remaining -= range.to-range.from;
+                        continue;
+                    }
+                    cursor = range.from;
+                }
+                long sent = current.transferTo(cursor, range.to-cursor, target);
+                if (sent == 0)
+                    return false;
+                cursor += sent;
+                remaining -= sent;
+                if (cursor == range.to) {
+                    ranges.pollFirst();
+                    current.close();
+                    current = null;
+                }
+            }
+            return true;
+        }
+
+        public void close() throws IOException {
+            if (current != null)
+                current.close();
+            ranges.clear();
+        }
+    }
+}
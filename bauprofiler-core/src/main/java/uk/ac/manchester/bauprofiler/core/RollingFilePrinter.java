@@ -0,0 +1,266 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Writes assemblies to numbered segments next to the configured path, e.g.
+ * profiler.json.000000, profiler.json.000001, ... A new segment is started
+ * when the current one would exceed maxSegmentBytes or has been open for
+ * rotationIntervalMs; the interval is also checked on a timer, so a quiet
+ * segment is still closed on time. Closed segments are gzipped in the
+ * background to <segment>.gz, so rotation itself only costs a close and an
+ * open. Segments an earlier run left uncompressed are gzipped at startup. */
+public class RollingFilePrinter implements ProfilerPrinter, AutoCloseable {
+    private static final String COMPRESSED_SUFFIX = ".gz";
+
+    private final Path directory;
+    private final String baseName;
+    private final boolean prettyPrint;
+    private final long maxSegmentBytes;
+    private final long rotationIntervalNanos;
+    private final boolean compress;
+    private final ScheduledThreadPoolExecutor background;
+
+    private FileChannel segment;
+    private Path segmentPath;
+    private int segmentIndex;
+    private long segmentBytes;
+    private long segmentOpened;
+    private boolean closed = false;
+    private IOException rotationFailure = null;
+    private ScheduledFuture<?> rotationTimer = null;
+
+    private final AtomicLong rotations = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong compressionFailures = new AtomicLong();
+
+    public RollingFilePrinter(
+            Path path, boolean prettyPrint, long maxSegmentBytes
+            , long rotationIntervalMs, boolean compress) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        this.directory = absolute.getParent();
+        this.baseName = absolute.getFileName().toString();
+        this.prettyPrint = prettyPrint;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.rotationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rotationIntervalMs);
+        this.compress = compress;
+        this.background = new ScheduledThreadPoolExecutor(1, (r) -> {
+            Thread thread = new Thread(r, "ProfilerSegmentWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.setRemoveOnCancelPolicy(true);
+        Files.createDirectories(directory);
+        List<Path> leftovers = new ArrayList<>();
+        segmentIndex = lastSegmentIndex(leftovers)+1;
+        if (compress)
+            for (Path leftover : leftovers)
+                background.execute(() -> compress(leftover));
+        openSegment();
+    }
+
+    public static String segmentName(String baseName, int index) {
+        return String.format("%s.%06d", baseName, index);
+    }
+
+    /* Resumes numbering after any segments left by an earlier run, and
+     * collects those that were never compressed */
+    private int lastSegmentIndex(List<Path> uncompressed) throws IOException {
+        Pattern segmentPattern = Pattern.compile(
+                Pattern.quote(baseName)+"\\.(\\d+)("+Pattern.quote(COMPRESSED_SUFFIX)+")?");
+        int last = -1;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, baseName+".*")) {
+            for (Path entry : entries) {
+                Matcher matcher = segmentPattern.matcher(entry.getFileName().toString());
+                if (!matcher.matches())
+                    continue;
+                last = Math.max(last, Integer.parseInt(matcher.group(1)));
+                if (matcher.group(2) == null)
+                    uncompressed.add(entry);
+            }
+        }
+        return last;
+    }
+
+    private void openSegment() throws IOException {
+        segmentPath = directory.resolve(segmentName(baseName, segmentIndex));
+        segment = FileChannel.open(segmentPath
+                , StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+        segmentOpened = System.nanoTime();
+        scheduleRotation();
+    }
+
+    private void scheduleRotation() {
+        if (rotationIntervalNanos <= 0)
+            return;
+        if (rotationTimer != null)
+            rotationTimer.cancel(false);
+        int index = segmentIndex;
+        rotationTimer = background.schedule(
+                () -> rotateOnTimer(index), rotationIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* An empty segment is kept and its interval restarted */
+    private synchronized void rotateOnTimer(int index) {
+        if (closed || index != segmentIndex || rotationFailure != null)
+            return;
+        if (segmentBytes == 0) {
+            segmentOpened = System.nanoTime();
+            scheduleRotation();
+            return;
+        }
+        try {
+            rotate();
+        } catch (IOException e) {
+            rotationFailure = e;
+        }
+    }
+
+    public synchronized void print(Assembly output) {
+        if (closed)
+            throw new ClosedPrinterException();
+        if (rotationFailure != null)
+            throw new SegmentWriteException(segmentPath, rotationFailure);
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(
+                Rendering.renderLine(output, prettyPrint));
+        try {
+            if (shouldRotate(bytes.remaining()))
+                rotate();
+            while (bytes.hasRemaining())
+                segmentBytes += segment.write(bytes);
+        } catch (IOException e) {
+            throw new SegmentWriteException(segmentPath, e);
+        }
+    }
+
+    private boolean shouldRotate(int pending) {
+        if (segmentBytes == 0)
+            return false;
+        return segmentBytes+pending > maxSegmentBytes
+            || (rotationIntervalNanos > 0
+                    && System.nanoTime()-segmentOpened >= rotationIntervalNanos);
+    }
+
+    private void rotate() throws IOException {
+        closeSegment();
+        segmentIndex++;
+        openSegment();
+        rotations.incrementAndGet();
+    }
+
+    private void closeSegment() throws IOException {
+        segment.close();
+        if (compress) {
+            Path closedSegment = segmentPath;
+            background.execute(() -> compress(closedSegment));
+        }
+    }
+
+    private void compress(Path source) {
+        Path target = source.resolveSibling(source.getFileName()+COMPRESSED_SUFFIX);
+        Path partial = source.resolveSibling(target.getFileName()+".part");
+        try {
+            try (InputStream in = Files.newInputStream(source);
+                    OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+                byte[] buffer = new byte[1 << 16];
+                for (int read; (read = in.read(buffer)) != -1;)
+                    out.write(buffer, 0, read);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(source);
+            compressed.incrementAndGet();
+        } catch (IOException e) {
+            compressionFailures.incrementAndGet();
+        }
+    }
+
+    public boolean isPretty() {
+        return prettyPrint;
+    }
+
+    /* Closes the active segment and waits for outstanding compression */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            if (rotationTimer != null)
+                rotationTimer.cancel(false);
+            closeSegment();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized Path getActiveSegment() {
+        return segmentPath;
+    }
+
+    public long getRotations() {
+        return rotations.get();
+    }
+
+    public long getCompressed() {
+        return compressed.get();
+    }
+
+    public long getCompressionFailures() {
+        return compressionFailures.get();
+    }
+
+    public static class SegmentWriteException extends RuntimeException {
+        public SegmentWriteException(Path segment, IOException cause) {
+            super("Failed to write to segment "+segment+": "+cause.getMessage(), cause);
+        }
+    }
+}
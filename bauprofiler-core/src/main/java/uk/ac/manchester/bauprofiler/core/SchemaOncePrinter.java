@@ -0,0 +1,110 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.converter.ProfileSchemas;
+
+/* Prints the schemas of the classes in a group ahead of the group, the
+ * first time each class reaches this printer, as {"$schema":{...}}. Wrap
+ * the printer of each stream so a stream carries every schema it needs.
+ * Schema records are encoded by the assembler of the groups, so a stream
+ * in a format other than json text can carry them. A printer that may drop
+ * records could lose a schema that is never printed again, so nothing is
+ * added for it; its groups have to be assembled keyed. */
+public class SchemaOncePrinter implements ProfilerPrinter, AutoCloseable {
+    public static final String SCHEMA_KEY = "$schema";
+
+    private final ProfilerPrinter printer;
+    private final boolean verbose;
+    private final Function<String, Assembly> records;
+    private final boolean keepsSchemas;
+    private final Set<Integer> printedClassIds = new HashSet<>();
+    private long schemasPrinted = 0;
+
+    public SchemaOncePrinter(ProfilerPrinter printer, boolean verbose) {
+        this(printer, verbose, Assembler::jsonRecord);
+    }
+
+    public SchemaOncePrinter(ProfilerPrinter printer, boolean verbose, Assembler assembler) {
+        this(printer, verbose, assembler::assembleRecord);
+    }
+
+    private SchemaOncePrinter(ProfilerPrinter printer, boolean verbose
+            , Function<String, Assembly> records) {
+        this.printer = printer;
+        this.verbose = verbose;
+        this.records = records;
+        this.keepsSchemas = !printer.mayDrop();
+    }
+
+    public void print(Assembly output) {
+        printer.print(output);
+    }
+
+    public void print(long sequence, Assembly output) {
+        printer.print(sequence, output);
+    }
+
+    public synchronized void print(GroupDescriptor group, Assembly output) {
+        if (!keepsSchemas) {
+            printer.print(group, output);
+            return;
+        }
+        StringJoiner schemas = new StringJoiner(",", "{\""+SCHEMA_KEY+"\":{", "}}");
+        boolean unprinted = false;
+        for (int classId : group.getProfileClassIds()) {
+            if (printedClassIds.contains(classId))
+                continue;
+            String schema = ProfileSchemas.get(classId, verbose);
+            if (schema == null)
+                continue;
+            schemas.add(schema);
+            printedClassIds.add(classId);
+            unprinted = true;
+        }
+        if (unprinted) {
+            printer.print(group, records.apply(schemas.toString()));
+            ++schemasPrinted;
+        }
+        printer.print(group, output);
+    }
+
+    public synchronized long getSchemasPrinted() {
+        return schemasPrinted;
+    }
+
+    public void close() throws Exception {
+        if (printer instanceof AutoCloseable)
+            ((AutoCloseable) printer).close();
+    }
+}
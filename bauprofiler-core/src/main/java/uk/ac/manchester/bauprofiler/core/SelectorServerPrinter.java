@@ -0,0 +1,526 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Serves output to any number of clients from a single selector thread.
+ * print() renders a group once and queues it on every connected client
+ * without blocking; each client has a bounded outbound buffer and a client
+ * that falls behind is handled by the SlowClientPolicy.
+ *
+ * With a ReplayLog, a client joining late may send one request line within
+ * requestGraceMs of connecting:
+ *
+ *   replay all | replay bytes <n> | replay seconds <n> | replay minutes <n>
+ *
+ * Live output for a new client is held back until it sends a request or
+ * the grace period ends, so history is never sent after live groups. The
+ * requested history is sent from the log with FileChannel.transferTo,
+ * followed by the live output queued in the meantime. */
+public class SelectorServerPrinter implements ProfilerPrinter, AutoCloseable {
+    private static final long CLOSE_DRAIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum SlowClientPolicy {
+        /* Discard the oldest queued groups to make room */
+        DROP_OLDEST,
+        /* Close the connection */
+        DISCONNECT,
+        /* Keep only every sampleRate-th group while the client is behind */
+        SAMPLE;
+
+        public static SlowClientPolicy parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new UnknownPolicyException(name);
+            }
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final boolean prettyPrint;
+    private final int clientBufferBytes;
+    private final SlowClientPolicy policy;
+    private final int sampleRate;
+    private final ReplayLog replayLog;
+    private final long requestGraceNanos;
+
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Client> scheduled = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+    private long closeDeadline;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReplayed = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong replayLogFailures = new AtomicLong();
+
+    public SelectorServerPrinter(
+            int port, boolean prettyPrint, int clientBufferBytes
+            , SlowClientPolicy policy, int sampleRate) throws IOException {
+        this(port, prettyPrint, clientBufferBytes, policy, sampleRate, null, 0);
+    }
+
+    SelectorServerPrinter(
+            int port, boolean prettyPrint, int clientBufferBytes
+            , SlowClientPolicy policy, int sampleRate
+            , ReplayLog replayLog, long requestGraceMs) throws IOException {
+        this.replayLog = replayLog;
+        this.requestGraceNanos = TimeUnit.MILLISECONDS.toNanos(requestGraceMs);
+        this.prettyPrint = prettyPrint;
+        this.clientBufferBytes = clientBufferBytes;
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.selectorThread = new Thread(this::selectLoop, "ProfilerOutputServer");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public void print(Assembly output) {
+        if (closed)
+            throw new ClosedPrinterException();
+        if (clients.isEmpty() && replayLog == null)
+            return;
+        ByteBuffer group = StandardCharsets.UTF_8.encode(
+                Rendering.renderLine(output, prettyPrint));
+        if (replayLog == null) {
+            offer(group);
+            return;
+        }
+        /* Logging and queuing together keeps replays and live output disjoint */
+        synchronized (replayLog) {
+            try {
+                replayLog.append(group.duplicate());
+            } catch (IOException e) {
+                replayLogFailures.incrementAndGet();
+            }
+            offer(group);
+        }
+    }
+
+    private void offer(ByteBuffer group) {
+        boolean wakeup = false;
+        for (Client client : clients) {
+            if (!client.offer(group.duplicate()))
+                client.open = false;
+            wakeup |= schedule(client);
+        }
+        if (wakeup)
+            selector.wakeup();
+    }
+
+    private boolean schedule(Client client) {
+        if (!client.scheduled.compareAndSet(false, true))
+            return false;
+        scheduled.add(client);
+        return true;
+    }
+
+    private void selectLoop() {
+        while (!closed || (hasQueuedOutput() && System.nanoTime() < closeDeadline)) {
+            try {
+                selector.select(selectTimeoutMillis());
+            } catch (IOException e) {
+                break;
+            }
+            for (Client client; (client = scheduled.poll()) != null;) {
+                client.scheduled.set(false);
+                if (!client.open)
+                    disconnect(client);
+                else if (client.key.isValid() && !client.isHeld())
+                    client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+            releaseExpiredHolds();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid())
+                    continue;
+                if (key.isAcceptable())
+                    accept();
+                else
+                    service(key, (Client) key.attachment());
+            }
+        }
+    }
+
+    /* Wakes up in time to release the earliest held client */
+    private long selectTimeoutMillis() {
+        if (closed)
+            return 10;
+        long earliest = Long.MAX_VALUE;
+        for (Client client : clients)
+            if (client.isHeld())
+                earliest = Math.min(earliest, client.heldUntil);
+        if (earliest == Long.MAX_VALUE)
+            return 0;
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(earliest-System.nanoTime()+999999));
+    }
+
+    private void releaseExpiredHolds() {
+        long now = System.nanoTime();
+        for (Client client : clients)
+            if (client.isHeld() && (closed || now-client.heldUntil >= 0))
+                release(client);
+    }
+
+    private void release(Client client) {
+        client.heldUntil = 0;
+        if (client.key.isValid() && client.hasQueuedOutput())
+            client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private boolean hasQueuedOutput() {
+        for (Client client : clients)
+            if (client.hasQueuedOutput())
+                return true;
+        return false;
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel == null)
+                return;
+            channel.configureBlocking(false);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            accepted.incrementAndGet();
+        } catch (IOException e) {
+            /* The client went away before it could be registered */
+        }
+    }
+
+    /* The snapshot is taken under the log lock, so every group is either in
+     * the replay or queued after it, never both */
+    private void handleRequest(Client client, String request) {
+        if (replayLog == null) {
+            rejectedRequests.incrementAndGet();
+            return;
+        }
+        ReplayLog.Replay replay;
+        synchronized (replayLog) {
+            replay = (client.hasSentOutput()) ? null : parseRequest(request.trim());
+            if (replay != null)
+                client.startReplay(replay);
+        }
+        if (replay == null)
+            rejectedRequests.incrementAndGet();
+        else
+            replays.incrementAndGet();
+        release(client);
+    }
+
+    private ReplayLog.Replay parseRequest(String request) {
+        String[] words = request.toLowerCase().split("\\s+");
+        if (words.length < 2 || !words[0].equals("replay"))
+            return null;
+        if (words.length == 2 && words[1].equals("all"))
+            return replayLog.replayBytes(Long.MAX_VALUE);
+        if (words.length != 3)
+            return null;
+        long amount;
+        try {
+            amount = Long.parseLong(words[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        switch (words[1]) {
+            case "bytes":
+                return replayLog.replayBytes(amount);
+            case "seconds":
+                return replayLog.replaySince(
+                        System.currentTimeMillis()-TimeUnit.SECONDS.toMillis(amount));
+            case "minutes":
+                return replayLog.replaySince(
+                        System.currentTimeMillis()-TimeUnit.MINUTES.toMillis(amount));
+            default:
+                return null;
+        }
+    }
+
+    private void service(SelectionKey key, Client client) {
+        try {
+            if (key.isReadable() && !client.read())
+                disconnect(client);
+            else if (key.isValid() && key.isWritable() && client.flush())
+                key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    private void disconnect(Client client) {
+        if (!clients.remove(client))
+            return;
+        client.open = false;
+        client.key.cancel();
+        try {
+            client.endReplay();
+            client.channel.close();
+        } catch (IOException e) {
+            /* Already gone */
+        }
+        disconnected.incrementAndGet();
+    }
+
+    /* Pending output is given up to a second to reach the clients */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closeDeadline = System.nanoTime()+CLOSE_DRAIN_NANOS;
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Client client : clients)
+            disconnect(client);
+        server.close();
+        selector.close();
+        if (replayLog != null)
+            replayLog.close();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getClients() {
+        return clients.size();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public boolean isPretty() {
+        return prettyPrint;
+    }
+
+    /* Besides the groups dropped for slow clients, a client sees nothing
+     * printed before it connected beyond what the replay still holds */
+    public boolean mayDrop() {
+        return true;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getDisconnected() {
+        return disconnected.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReplayed() {
+        return bytesReplayed.get();
+    }
+
+    public long getReplays() {
+        return replays.get();
+    }
+
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    public long getReplayLogFailures() {
+        return replayLogFailures.get();
+    }
+
+    private class Client {
+        private final SocketChannel channel;
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ByteBuffer scratch = ByteBuffer.allocate(256);
+        private final StringBuilder request = new StringBuilder();
+        private boolean requested = false;
+        /* Only touched by the selector thread */
+        private ReplayLog.Replay replay;
+        private long sent = 0;
+        private long queuedBytes = 0;
+        private long sampled = 0;
+        private SelectionKey key;
+        private volatile boolean open = true;
+        /* Live output is not sent before this, 0 once released; only
+         * touched by the selector thread */
+        private long heldUntil;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+            this.heldUntil = (replayLog == null) ? 0 : System.nanoTime()+requestGraceNanos;
+        }
+
+        boolean isHeld() {
+            return heldUntil != 0;
+        }
+
+        /* Called by consumers; false if the client has to be disconnected */
+        synchronized boolean offer(ByteBuffer group) {
+            if (!open)
+                return false;
+            if (queuedBytes+group.remaining() > clientBufferBytes) {
+                if (policy == SlowClientPolicy.DISCONNECT)
+                    return false;
+                if (policy == SlowClientPolicy.SAMPLE && sampled++ % sampleRate != 0) {
+                    dropped.incrementAndGet();
+                    return true;
+                }
+                evictFor(group.remaining());
+            } else
+                sampled = 0;
+            queue.addLast(group);
+            queuedBytes += group.remaining();
+            return true;
+        }
+
+        /* Oldest first, skipping a partially sent group so framing survives.
+         * A group larger than the whole buffer is still queued on its own. */
+        private void evictFor(int bytes) {
+            Iterator<ByteBuffer> queued = queue.iterator();
+            if (queued.hasNext() && queue.peekFirst().position() > 0)
+                queued.next();
+            while (queued.hasNext() && queuedBytes+bytes > clientBufferBytes) {
+                queuedBytes -= queued.next().remaining();
+                queued.remove();
+                dropped.incrementAndGet();
+            }
+        }
+
+        synchronized boolean hasQueuedOutput() {
+            return replay != null || !queue.isEmpty();
+        }
+
+        /* A replay would duplicate live output the client has already seen,
+         * which only happens for a request after the grace period */
+        synchronized boolean hasSentOutput() {
+            return sent > 0;
+        }
+
+        /* Live output queued so far is part of the replay */
+        synchronized void startReplay(ReplayLog.Replay replay) {
+            queue.clear();
+            queuedBytes = 0;
+            this.replay = replay;
+        }
+
+        /* Called by the selector thread; true once everything has been sent.
+         * The replay is sent outside the lock so consumers never wait on it */
+        boolean flush() throws IOException {
+            if (replay != null) {
+                long remaining = replay.getRemaining();
+                boolean done = replay.transferTo(channel);
+                bytesReplayed.addAndGet(remaining-replay.getRemaining());
+                if (!done)
+                    return false;
+                endReplay();
+            }
+            return flushQueue();
+        }
+
+        void endReplay() throws IOException {
+            if (replay != null)
+                replay.close();
+            replay = null;
+        }
+
+        private synchronized boolean flushQueue() throws IOException {
+            while (!queue.isEmpty()) {
+                ByteBuffer head = queue.peekFirst();
+                int written = channel.write(head);
+                sent += written;
+                queuedBytes -= written;
+                bytesSent.addAndGet(written);
+                if (head.hasRemaining())
+                    return false;
+                queue.pollFirst();
+            }
+            return true;
+        }
+
+        /* Collects the first request line; false once the client has
+         * closed its end */
+        boolean read() throws IOException {
+            int read;
+            do {
+                scratch.clear();
+                read = channel.read(scratch);
+                for (int i=0; i<read && !requested; i++) {
+                    char c = (char) scratch.get(i);
+                    if (c == '\n') {
+                        requested = true;
+                        handleRequest(this, request.toString());
+                    } else if (request.length() < scratch.capacity())
+                        request.append(c);
+                }
+            } while (read > 0);
+            return read == 0;
+        }
+    }
+
+    public static class UnknownPolicyException extends RuntimeException {
+        public UnknownPolicyException(String name) {
+            super("Unknown slow client policy "+name);
+        }
+    }
+}
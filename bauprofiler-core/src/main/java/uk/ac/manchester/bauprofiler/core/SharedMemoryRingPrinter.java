@@ -0,0 +1,192 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Publishes assemblies into a memory-mapped single-producer ring that a
+ * reader process on the same host consumes with SharedMemoryRingReader.
+ * The file is a header followed by a power of two sized data area:
+ *
+ *   0   int   magic
+ *   4   int   version
+ *   8   long  capacity of the data area
+ *   64  long  write sequence (bytes published, written by the printer)
+ *   128 long  read sequence (bytes consumed, written by the reader)
+ *
+ * Each group is a frame of an int length followed by its UTF-8 bytes, padded
+ * to 8 bytes; a frame that would straddle the end of the ring is preceded by
+ * a PADDING frame filling the rest. The write sequence only moves, behind
+ * a release fence, once a frame is complete. The printer never waits for
+ * the reader: a group that does not fit in the free space is dropped and
+ * counted. */
+public class SharedMemoryRingPrinter implements ProfilerPrinter, AutoCloseable {
+    public static final int MAGIC = 0x42415552;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 192;
+    public static final int PADDING = -1;
+    static final int CAPACITY_OFFSET = 8;
+    static final int WRITE_SEQUENCE_OFFSET = 64;
+    static final int READ_SEQUENCE_OFFSET = 128;
+    static final int FRAME_HEADER = 4;
+    static final int ALIGNMENT = 8;
+
+    private final MappedByteBuffer ring;
+    private final ByteBuffer data;
+    private final ByteBuffer writer;
+    private final int capacity;
+    private final int mask;
+    private final boolean prettyPrint;
+    /* Unpaired surrogates are replaced rather than cutting the group short */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer staging = ByteBuffer.allocate(1 << 16);
+    private long writeSequence;
+    /* Refreshed only when the ring looks full, as the reader's cache line is
+     * contended */
+    private long readSequence;
+    private boolean closed = false;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SharedMemoryRingPrinter(Path path, boolean prettyPrint, int capacity) throws IOException {
+        if (Integer.bitCount(capacity) != 1 || capacity < ALIGNMENT)
+            throw new InvalidCapacityException(capacity);
+        this.capacity = capacity;
+        this.mask = capacity-1;
+        this.prettyPrint = prettyPrint;
+        try (FileChannel channel = FileChannel.open(path
+                    , StandardOpenOption.CREATE, StandardOpenOption.READ
+                    , StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE+capacity);
+        }
+        ring.putInt(4, VERSION);
+        ring.putLong(CAPACITY_OFFSET, capacity);
+        ring.putLong(WRITE_SEQUENCE_OFFSET, 0);
+        ring.putLong(READ_SEQUENCE_OFFSET, 0);
+        /* Written last so a reader never attaches to a half-initialised ring */
+        MemoryFences.release();
+        ring.putInt(0, MAGIC);
+        ring.position(HEADER_SIZE);
+        data = ring.slice();
+        writer = data.duplicate();
+    }
+
+    static int frameLength(int payload) {
+        return (FRAME_HEADER+payload+ALIGNMENT-1) & -ALIGNMENT;
+    }
+
+    public synchronized void print(Assembly output) {
+        if (closed)
+            throw new ClosedPrinterException();
+        ByteBuffer payload = encode(Rendering.render(output, prettyPrint));
+        int length = payload.remaining();
+        int frame = frameLength(length);
+        int offset = (int) (writeSequence & mask);
+        int padding = (offset+frame > capacity) ? capacity-offset : 0;
+        if (padding+frame > capacity-(writeSequence-readSequence)) {
+            readSequence = ring.getLong(READ_SEQUENCE_OFFSET);
+            /* The reader is done with the space before it is overwritten */
+            MemoryFences.acquire();
+            if (padding+frame > capacity-(writeSequence-readSequence)) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        if (padding > 0) {
+            data.putInt(offset, PADDING);
+            offset = 0;
+        }
+        data.putInt(offset, length);
+        writer.position(offset+FRAME_HEADER);
+        writer.put(payload);
+        writeSequence += padding+frame;
+        MemoryFences.release();
+        ring.putLong(WRITE_SEQUENCE_OFFSET, writeSequence);
+        published.incrementAndGet();
+    }
+
+    private ByteBuffer encode(String content) {
+        int maxBytes = (int) (content.length()*encoder.maxBytesPerChar());
+        if (staging.capacity() < maxBytes)
+            staging = ByteBuffer.allocate(Integer.highestOneBit(maxBytes) << 1);
+        staging.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(content), staging, true);
+        if (result.isUnderflow())
+            result = encoder.flush(staging);
+        if (!result.isUnderflow())
+            throw new IllegalStateException("Staging buffer too small: "+result);
+        staging.flip();
+        return staging;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        ring.force();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public boolean isPretty() {
+        return prettyPrint;
+    }
+
+    public boolean mayDrop() {
+        return true;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public static class InvalidCapacityException extends RuntimeException {
+        public InvalidCapacityException(int capacity) {
+            super("Ring capacity must be a power of two, not "+capacity);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static uk.ac.manchester.bauprofiler.core.SharedMemoryRingPrinter.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/* Consumes the ring written by SharedMemoryRingPrinter, typically from
+ * another process. Reading needs no system calls: the reader polls the
+ * write sequence and hands back space by advancing the read sequence.
+ * A reader resumes from the read sequence stored in the ring. */
+public class SharedMemoryRingReader {
+    private final MappedByteBuffer ring;
+    private final ByteBuffer data;
+    private final int capacity;
+    private final int mask;
+    private long readSequence;
+
+    public SharedMemoryRingReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path
+                    , StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new NotARingException(path);
+            ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (ring.getInt(0) != MAGIC)
+            throw new NotARingException(path);
+        MemoryFences.acquire();
+        if (ring.getInt(4) != VERSION)
+            throw new UnsupportedVersionException(path, ring.getInt(4));
+        capacity = (int) ring.getLong(CAPACITY_OFFSET);
+        mask = capacity-1;
+        ring.position(HEADER_SIZE);
+        data = ring.slice();
+        readSequence = ring.getLong(READ_SEQUENCE_OFFSET);
+    }
+
+    /* Passes every published group to handler, then releases their space.
+     * The buffer handed over is only valid during the call. */
+    public int drain(Consumer<ByteBuffer> handler) {
+        long writeSequence = ring.getLong(WRITE_SEQUENCE_OFFSET);
+        MemoryFences.acquire();
+        int groups = 0;
+        while (readSequence < writeSequence) {
+            int offset = (int) (readSequence & mask);
+            int length = data.getInt(offset);
+            if (length == PADDING) {
+                readSequence += capacity-offset;
+                continue;
+            }
+            ByteBuffer frame = data.duplicate();
+            frame.limit(offset+FRAME_HEADER+length).position(offset+FRAME_HEADER);
+            handler.accept(frame.slice());
+            readSequence += frameLength(length);
+            groups++;
+        }
+        /* Frames are read before their space is handed back */
+        MemoryFences.release();
+        ring.putLong(READ_SEQUENCE_OFFSET, readSequence);
+        return groups;
+    }
+
+    /* Convenience form of drain() decoding each group to a string */
+    public List<String> poll() {
+        List<String> groups = new ArrayList<>();
+        drain((frame) -> groups.add(StandardCharsets.UTF_8.decode(frame).toString()));
+        return groups;
+    }
+
+    public long getReadSequence() {
+        return readSequence;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public static class NotARingException extends RuntimeException {
+        public NotARingException(Path path) {
+            super(path+" is not a profiler output ring");
+        }
+    }
+
+    public static class UnsupportedVersionException extends RuntimeException {
+        public UnsupportedVersionException(Path path, int version) {
+            super("Unsupported ring version "+version+" in "+path);
+        }
+    }
+}
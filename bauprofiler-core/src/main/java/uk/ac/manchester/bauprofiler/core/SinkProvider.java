@@ -0,0 +1,129 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.function.UnaryOperator;
+
+/* Builds the sinks listed in profiler.output.sinks. Each sink is named, and
+ * configured through profiler.output.sink.<name>.*:
+ *
+ *   type        factory name, defaults to the sink name
+ *   route       see SinkRoute, defaults to every group
+ *   queue       groups queued for the sink, default 1024
+ *   queue_full  drop (default) or block when the queue is full
+ *
+ * plus whatever settings the factory itself reads. */
+public class SinkProvider {
+    public static final int DEFAULT_QUEUE = 1024;
+
+    public static Map<String, ProfilerPrinterFactory> loadFactories() {
+        Map<String, ProfilerPrinterFactory> factories = new HashMap<>();
+        for (ProfilerPrinterFactory factory : ServiceLoader.load(ProfilerPrinterFactory.class))
+            factories.putIfAbsent(factory.getName(), factory);
+        return factories;
+    }
+
+    public static FanOutPrinter load(String sinkNames, Properties properties) {
+        return load(sinkNames, properties, UnaryOperator.identity());
+    }
+
+    /* The decorator wraps the printer of every sink, behind its queue */
+    public static FanOutPrinter load(
+            String sinkNames, Properties properties, UnaryOperator<ProfilerPrinter> decorator) {
+        Map<String, ProfilerPrinterFactory> factories = loadFactories();
+        List<FanOutPrinter.Sink> sinks = new ArrayList<>();
+        for (String name : sinkNames.trim().split("\\s*,\\s*")) {
+            SinkSettings settings = new SinkSettings(name, properties);
+            ProfilerPrinterFactory factory = factories.get(settings.get("type", name));
+            if (factory == null)
+                throw new UnknownSinkTypeException(name, settings.get("type", name));
+            sinks.add(new FanOutPrinter.Sink(
+                        name
+                        , decorator.apply(create(factory, settings))
+                        , SinkRoute.parse(settings.get("route", ""))
+                        , settings.getInt("queue", DEFAULT_QUEUE)
+                        , blockWhenFull(settings)));
+        }
+        return new FanOutPrinter(sinks);
+    }
+
+    private static ProfilerPrinter create(ProfilerPrinterFactory factory, SinkSettings settings) {
+        try {
+            return factory.create(settings);
+        } catch (IOException e) {
+            throw new SinkCreationException(settings.getSinkName(), e);
+        }
+    }
+
+    private static boolean blockWhenFull(SinkSettings settings) {
+        String policy = settings.get("queue_full", "drop").trim();
+        if (policy.equalsIgnoreCase("block"))
+            return true;
+        if (policy.equalsIgnoreCase("drop"))
+            return false;
+        throw new UnknownQueueFullPolicyException(settings.getSinkName(), policy);
+    }
+
+    public static void closeOnShutdown(FanOutPrinter printer, Runnable beforeClose) {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                beforeClose.run();
+                try {
+                    printer.close();
+                } catch (Exception e) {
+                    System.err.println("Profiler output incomplete: "+e.getMessage());
+                }
+                for (FanOutPrinter.Sink sink : printer.getSinks())
+                    Profiler.reportFailures(sink.getStage());
+            }
+        });
+    }
+
+    public static class UnknownSinkTypeException extends RuntimeException {
+        public UnknownSinkTypeException(String sink, String type) {
+            super("No ProfilerPrinterFactory named "+type+" for sink "+sink);
+        }
+    }
+
+    public static class SinkCreationException extends RuntimeException {
+        public SinkCreationException(String sink, IOException cause) {
+            super("Unable to create sink "+sink+": "+cause.getMessage(), cause);
+        }
+    }
+
+    public static class UnknownQueueFullPolicyException extends RuntimeException {
+        public UnknownQueueFullPolicyException(String sink, String policy) {
+            super("Unknown queue_full policy "+policy+" for sink "+sink);
+        }
+    }
+}
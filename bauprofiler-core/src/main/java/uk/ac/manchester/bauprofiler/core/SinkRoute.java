@@ -0,0 +1,120 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/* Selects the groups a sink receives. A route is a list of conditions
+ * separated by ';', all of which must hold, e.g.
+ *
+ *   min_profiles=10000
+ *   class=KernelProfile,uk.ac.manchester.tornado.TaskProfile;max_profiles=100
+ *   group=1,2,3
+ *
+ * class matches a simple or fully qualified name of any profile class in
+ * the group. An empty route, or "all", selects everything. */
+public final class SinkRoute implements Predicate<GroupDescriptor> {
+    private static final SinkRoute ALL = new SinkRoute(new ArrayList<>());
+
+    private final List<Predicate<GroupDescriptor>> conditions;
+
+    private SinkRoute(List<Predicate<GroupDescriptor>> conditions) {
+        this.conditions = conditions;
+    }
+
+    public static SinkRoute all() {
+        return ALL;
+    }
+
+    public static SinkRoute parse(String route) {
+        String trimmed = route.trim();
+        if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("all"))
+            return ALL;
+        List<Predicate<GroupDescriptor>> conditions = new ArrayList<>();
+        for (String condition : trimmed.split("\\s*;\\s*"))
+            conditions.add(parseCondition(condition));
+        return new SinkRoute(conditions);
+    }
+
+    private static Predicate<GroupDescriptor> parseCondition(String condition) {
+        int split = condition.indexOf('=');
+        if (split < 0)
+            throw new InvalidRouteException(condition);
+        String key = condition.substring(0, split).trim();
+        String value = condition.substring(split+1).trim();
+        try {
+            switch (key) {
+                case "group":
+                    Set<Long> groups = new HashSet<>();
+                    for (String group : values(value))
+                        groups.add(Long.parseLong(group));
+                    return (group) -> group.hasGroupId() && groups.contains(group.getGroupId());
+                case "class":
+                    Set<String> names = new HashSet<>(values(value));
+                    return (group) -> containsClass(group, names);
+                case "min_profiles":
+                    int min = Integer.parseInt(value);
+                    return (group) -> group.getProfileCount() >= min;
+                case "max_profiles":
+                    int max = Integer.parseInt(value);
+                    return (group) -> group.getProfileCount() <= max;
+                default:
+                    throw new InvalidRouteException(condition);
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidRouteException(condition);
+        }
+    }
+
+    private static List<String> values(String value) {
+        return Arrays.asList(value.split("\\s*,\\s*"));
+    }
+
+    private static boolean containsClass(GroupDescriptor group, Set<String> names) {
+        for (Class<?> klass : group.getProfileClasses())
+            if (names.contains(klass.getName()) || names.contains(klass.getSimpleName()))
+                return true;
+        return false;
+    }
+
+    public boolean test(GroupDescriptor group) {
+        for (Predicate<GroupDescriptor> condition : conditions)
+            if (!condition.test(group))
+                return false;
+        return true;
+    }
+
+    public static class InvalidRouteException extends RuntimeException {
+        public InvalidRouteException(String condition) {
+            super("Invalid route condition "+condition);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+/* Hands ordered groups to a convert/assemble stage, which hands assemblies
+ * to a sink stage. A slow printer fills the sink queue, then the convert
+ * queue, and only then blocks the consumers handing groups over. */
+public class StagedGroupOutput implements GroupOutput {
+    private static final Runnable NOTHING = () -> {};
+
+    private final PipelineStage<PendingGroup> convertStage;
+    private final PipelineStage<GroupAssembly> sinkStage;
+    private final Object drainLock = new Object();
+    private int inFlight = 0;
+
+    public StagedGroupOutput(
+            OutputGenerator generator, ProfilerPrinter printer
+            , int convertThreads, int convertQueueCapacity
+            , int sinkThreads, int sinkQueueCapacity) {
+        sinkStage = new PipelineStage<>(
+                "ProfilerSink", sinkThreads, sinkQueueCapacity
+                , (output) -> {
+                    try {
+                        printer.print(output.group, output.assembly);
+                    } finally {
+                        printed(output.whenPrinted);
+                    }
+                });
+        convertStage = new PipelineStage<>(
+                "ProfilerConvert", convertThreads, convertQueueCapacity
+                , (pending) -> convert(generator, pending));
+    }
+
+    private void convert(OutputGenerator generator, PendingGroup pending) {
+        Assembly assembly;
+        try {
+            assembly = generator.generate(pending.profiles);
+        } catch (RuntimeException e) {
+            printed(pending.whenPrinted);
+            throw e;
+        }
+        sinkStage.submit(new GroupAssembly(pending.group, assembly, pending.whenPrinted));
+    }
+
+    private void printed(Runnable whenPrinted) {
+        try {
+            whenPrinted.run();
+        } finally {
+            synchronized (drainLock) {
+                if (--inFlight == 0)
+                    drainLock.notifyAll();
+            }
+        }
+    }
+
+    public void output(GroupDescriptor group, List<ConvertableProfile> orderedProfiles) {
+        output(group, orderedProfiles, NOTHING);
+    }
+
+    @Override
+    public void output(
+            GroupDescriptor group, List<ConvertableProfile> orderedProfiles
+            , Runnable whenPrinted) {
+        synchronized (drainLock) {
+            inFlight++;
+        }
+        convertStage.submit(new PendingGroup(group, orderedProfiles, whenPrinted));
+    }
+
+    /* Waits until every group handed over so far has left the printer.
+     * Returns false if some were still in flight after timeoutMs */
+    public boolean drain(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (drainLock) {
+            long remaining;
+            while (inFlight > 0) {
+                remaining = deadline-System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(drainLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    public int getInFlight() {
+        synchronized (drainLock) {
+            return inFlight;
+        }
+    }
+
+    public PipelineStage<?> getConvertStage() {
+        return convertStage;
+    }
+
+    public PipelineStage<?> getSinkStage() {
+        return sinkStage;
+    }
+
+    private static final class PendingGroup {
+        private final GroupDescriptor group;
+        private final List<ConvertableProfile> profiles;
+        private final Runnable whenPrinted;
+
+        PendingGroup(
+                GroupDescriptor group, List<ConvertableProfile> profiles
+                , Runnable whenPrinted) {
+            this.group = group;
+            this.profiles = profiles;
+            this.whenPrinted = whenPrinted;
+        }
+    }
+
+    private static final class GroupAssembly {
+        private final GroupDescriptor group;
+        private final Assembly assembly;
+        private final Runnable whenPrinted;
+
+        GroupAssembly(GroupDescriptor group, Assembly assembly, Runnable whenPrinted) {
+            this.group = group;
+            this.assembly = assembly;
+            this.whenPrinted = whenPrinted;
+        }
+    }
+}
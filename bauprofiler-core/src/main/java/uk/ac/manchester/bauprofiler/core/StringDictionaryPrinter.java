@@ -0,0 +1,78 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+
+/* Encodes the string values of every assembly against the dictionary of
+ * this stream before printing it. Definitions travel with the record that
+ * first uses them, so records must reach the stream in the order encoded.
+ * A printer that may drop records would lose definitions, and a pretty
+ * printer prints the unencoded assembly, so neither has anything encoded. */
+public class StringDictionaryPrinter implements ProfilerPrinter, AutoCloseable {
+    private final ProfilerPrinter printer;
+    private final StringDictionary dictionary;
+    private final boolean encoding;
+
+    public StringDictionaryPrinter(ProfilerPrinter printer, StringDictionary dictionary) {
+        this.printer = printer;
+        this.dictionary = dictionary;
+        this.encoding = !printer.isPretty() && !printer.mayDrop();
+    }
+
+    public synchronized void print(Assembly output) {
+        printer.print(encode(output));
+    }
+
+    public synchronized void print(long sequence, Assembly output) {
+        printer.print(sequence, encode(output));
+    }
+
+    public synchronized void print(GroupDescriptor group, Assembly output) {
+        printer.print(group, encode(output));
+    }
+
+    private Assembly encode(Assembly output) {
+        if (!encoding)
+            return output;
+        dictionary.beginRecord();
+        return output.encodeStrings(dictionary);
+    }
+
+    public boolean isEncoding() {
+        return encoding;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public void close() throws Exception {
+        if (printer instanceof AutoCloseable)
+            ((AutoCloseable) printer).close();
+    }
+}
@@ -31,4 +31,14 @@ import uk.ac.manchester.bauprofiler.core.converter.Conversion;
 
 public interface Assembler {
     Assembly assemble(Iterator<Conversion> conversions, int estimatedSize);
+
+    /* A record that is already whole json, such as a schema, in the same
+     * encoding as the groups this assembler assembles */
+    default Assembly assembleRecord(String json) {
+        return jsonRecord(json);
+    }
+
+    static Assembly jsonRecord(String json) {
+        return new JsonRecord(json);
+    }
 }
@@ -28,4 +28,10 @@ package uk.ac.manchester.bauprofiler.core.assembler;
 public interface Assembly {
     String toString();
     String toPrettyString();
+
+    /* This assembly with its string values replaced by references into the
+     * dictionary of the stream it is printed to. Optional for an assembly */
+    default Assembly encodeStrings(StringDictionary dictionary) {
+        return this;
+    }
 }
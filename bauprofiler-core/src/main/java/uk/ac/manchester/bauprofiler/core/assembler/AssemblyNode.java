@@ -33,4 +33,12 @@ public interface AssemblyNode {
     String open();
     String close();
     String postClose();
+
+    /* Pre-rendered fragments, shared between assemblies and must not be modified:
+     *   openFragment      = prefix + separator + preOpen + open
+     *   closeFragment     = close + postClose
+     *   separatorFragment = close + "," + open */
+    char[] openFragment();
+    char[] closeFragment();
+    char[] separatorFragment();
 }
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core.assembler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/* Bounded dictionary of the string values printed to one stream, each value
+ * held in a numbered slot. Once full, the least recently used value gives up
+ * its slot, unless it is in use by the record being encoded, in which case
+ * the new value is left unencoded. Not thread safe, one per stream. */
+public class StringDictionary {
+    public static final int NO_SLOT = -1;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int capacity;
+    private final int minLength;
+    private long record = 0;
+    private long defined = 0;
+    private long referenced = 0;
+    private long evicted = 0;
+
+    public StringDictionary(int capacity, int minLength) {
+        this.capacity = capacity;
+        this.minLength = minLength;
+    }
+
+    /* Called by the printer ahead of encoding each record */
+    public void beginRecord() {
+        ++record;
+    }
+
+    /* Values shorter than a reference are not worth a slot */
+    public boolean accepts(String value) {
+        return value.length() >= minLength;
+    }
+
+    public int lookup(String value) {
+        Entry entry = entries.get(value);
+        if (entry == null)
+            return NO_SLOT;
+        entry.record = record;
+        ++referenced;
+        return entry.slot;
+    }
+
+    /* The slot given to the value, which the stream must define before
+     * referencing it, or NO_SLOT if there is none to give */
+    public int define(String value) {
+        int slot;
+        if (entries.size() < capacity) {
+            slot = entries.size();
+        } else if (entries.isEmpty()) {
+            return NO_SLOT;
+        } else {
+            Iterator<Entry> eldest = entries.values().iterator();
+            Entry entry = eldest.next();
+            if (entry.record == record)
+                return NO_SLOT;
+            eldest.remove();
+            slot = entry.slot;
+            ++evicted;
+        }
+        entries.put(value, new Entry(slot, record));
+        ++defined;
+        return slot;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getDefined() {
+        return defined;
+    }
+
+    public long getReferenced() {
+        return referenced;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    private static class Entry {
+        private final int slot;
+        private long record;
+
+        Entry(int slot, long record) {
+            this.slot = slot;
+            this.record = record;
+        }
+    }
+}
@@ -25,10 +25,21 @@
  */
 package uk.ac.manchester.bauprofiler.core.converter;
 
+import java.io.IOException;
+
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
 
 public interface Conversion {
     long id();
     String toString();
     AssemblyNode[] getAssemblyNodes();
+
+    /* Writes the same text as toString(), ideally without materialising it */
+    default void writeTo(Appendable out) throws IOException {
+        out.append(toString());
+    }
+
+    default int sizeHint() {
+        return toString().length();
+    }
 }
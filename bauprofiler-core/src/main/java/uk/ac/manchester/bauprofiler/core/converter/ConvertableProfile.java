@@ -30,9 +30,21 @@ import java.util.Optional;
 import uk.ac.manchester.bauprofiler.core.Profile;
 
 public interface ConvertableProfile extends Profile {
+    int NO_DEPENDENCY = -1;
+
     int getId();
     Optional<Integer> getDependencyId();
+
+    default int dependencyId() {
+        return getDependencyId().orElse(NO_DEPENDENCY);
+    }
+
     boolean dependsOn(Profile dep);
     void setVerbosity(boolean verbose);
+
+    /* Write values by position only, their keys given once per stream by
+     * the schema registered in ProfileSchemas. Optional for a profile */
+    default void setPositional(boolean positional) {}
+
     Conversion convert();
 }
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core.converter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ForkJoinProfileConverter implements ProfileConverter {
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final ProfileConverter sequential = new SequentialProfileConverter();
+
+    public ForkJoinProfileConverter(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /* Like the sequential converter, the whole group is post-processed
+     * before any profile is converted, so the passes are joined in turn */
+    public List<Conversion> convert(List<ConvertableProfile> profiles) {
+        if (profiles.size() < threshold)
+            return sequential.convert(profiles);
+        ConvertableProfile[] input = profiles.toArray(new ConvertableProfile[profiles.size()]);
+        Conversion[] output = new Conversion[input.length];
+        int chunkSize = chunkSizeFor(input.length);
+        pool.invoke(new ConvertChunk(input, null, 0, input.length, chunkSize));
+        pool.invoke(new ConvertChunk(input, output, 0, input.length, chunkSize));
+        return Arrays.asList(output);
+    }
+
+    private int chunkSizeFor(int size) {
+        return Math.max(MIN_CHUNK_SIZE, size/(pool.getParallelism()*CHUNKS_PER_WORKER));
+    }
+
+    /* Post-processes its profiles without an output, else writes their
+     * conversions at their indices, so the output keeps the group's order
+     * without a merge step. */
+    private static final class ConvertChunk extends RecursiveAction {
+        private final ConvertableProfile[] input;
+        private final Conversion[] output;
+        private final int from, to, chunkSize;
+
+        ConvertChunk(ConvertableProfile[] input, Conversion[] output, int from, int to, int chunkSize) {
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to-from <= chunkSize) {
+                convertChunk();
+                return;
+            }
+            int mid = (from+to) >>> 1;
+            invokeAll(new ConvertChunk(input, output, from, mid, chunkSize)
+                    , new ConvertChunk(input, output, mid, to, chunkSize));
+        }
+
+        private void convertChunk() {
+            if (output == null) {
+                for (int i = from; i < to; i++)
+                    input[i].postProcess();
+                return;
+            }
+            for (int i = from; i < to; i++)
+                output[i] = input[i].convert();
+        }
+    }
+}
@@ -29,4 +29,5 @@ import uk.ac.manchester.bauprofiler.core.TimerInfo;
 
 public interface Timed {
    public void setTimer(TimerInfo timer);
+   default TimerInfo getTimer() { return null; }
 }
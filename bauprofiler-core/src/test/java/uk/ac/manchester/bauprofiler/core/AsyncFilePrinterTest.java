@@ -0,0 +1,224 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.AsyncFilePrinter.QueueFullPolicy;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AsyncFilePrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Assembly assembly(String content) {
+	return new AssemblyStub(content, "pretty "+content);
+    }
+
+    private Assembly blockingAssembly(CountDownLatch rendering, CountDownLatch release) {
+	return new AssemblyStub("blocker") {
+	    public String toString() {
+		rendering.countDown();
+		try {
+		    release.await();
+		} catch (InterruptedException e) {
+		    throw new RuntimeException(e);
+		}
+		return super.toString();
+	    }
+	};
+    }
+
+    private List<String> lines(Path path) throws IOException {
+	return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+
+    private List<String> expected(String prefix, int count) {
+	List<String> expected = new ArrayList<>();
+	for (int i=0; i<count; i++)
+	    expected.add(prefix+i);
+	return expected;
+    }
+
+    @Test
+    public void testAllAssembliesAreWrittenInOrderOnClose() throws IOException {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, false, 16, 1 << 20, 10000, true, QueueFullPolicy.BLOCK);
+	for (int i=0; i<1000; i++)
+	    printer.print(assembly("g"+i));
+	printer.close();
+
+	assertThat(lines(path), equalTo(expected("g", 1000)));
+	assertThat(printer.getWritten(), equalTo(1000L));
+	assertThat(printer.getDropped(), equalTo(0L));
+	assertThat(printer.mayDrop(), is(false));
+	assertThat(printer.getForces(), equalTo(printer.getCommits()));
+	assertThat(printer.getBytesWritten(), equalTo(Files.size(path)));
+    }
+
+    @Test
+    public void testManyGroupsAreCommittedTogether() throws IOException {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, false, 4096, 1 << 20, 10000, false, QueueFullPolicy.BLOCK);
+	for (int i=0; i<1000; i++)
+	    printer.print(assembly("g"+i));
+	printer.close();
+
+	assertTrue(printer.getCommits() < 1000);
+    }
+
+    @Test
+    public void testBatchIsCommittedAfterFlushInterval() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, true, 16, 1 << 20, 10, false, QueueFullPolicy.BLOCK);
+	printer.print(assembly("a"));
+	long deadline = System.currentTimeMillis()+10000;
+	while (printer.getWritten() < 1 && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+
+	assertThat(lines(path).get(0), equalTo("pretty a"));
+	printer.close();
+    }
+
+    @Test
+    public void testDropNewestDiscardsWhileQueueIsFull() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	CountDownLatch rendering = new CountDownLatch(1);
+	CountDownLatch release = new CountDownLatch(1);
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, false, 2, 1 << 20, 10000, false, QueueFullPolicy.DROP_NEWEST);
+	printer.print(blockingAssembly(rendering, release));
+	rendering.await();
+	for (int i=0; i<4; i++)
+	    printer.print(assembly("g"+i));
+	release.countDown();
+	printer.close();
+
+	assertThat(printer.getDropped(), equalTo(2L));
+	assertThat(printer.mayDrop(), is(true));
+	assertThat(lines(path).subList(1, 3), equalTo(expected("g", 2)));
+    }
+
+    @Test
+    public void testDropOldestKeepsMostRecent() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	CountDownLatch rendering = new CountDownLatch(1);
+	CountDownLatch release = new CountDownLatch(1);
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, false, 2, 1 << 20, 10000, false, QueueFullPolicy.DROP_OLDEST);
+	printer.print(blockingAssembly(rendering, release));
+	rendering.await();
+	for (int i=0; i<4; i++)
+	    printer.print(assembly("g"+i));
+	release.countDown();
+	printer.close();
+
+	assertThat(printer.getDropped(), equalTo(2L));
+	assertThat(lines(path).subList(1, 3), equalTo(expected("g", 4).subList(2, 4)));
+    }
+
+    @Test(expected=ProfilerPrinter.ClosedPrinterException.class)
+    public void testPrintAfterCloseIsRefused() throws IOException {
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		folder.getRoot().toPath().resolve("out.json")
+		, false, 2, 1024, 10, false, QueueFullPolicy.BLOCK);
+	printer.close();
+	printer.print(assembly("a"));
+    }
+
+    @Test
+    public void testPrintFailsOnceAWriteHasFailed() throws Exception {
+	Path full = Paths.get("/dev/full");
+	Assume.assumeTrue(Files.isWritable(full));
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		full, false, 16, 1024, 1, false, QueueFullPolicy.BLOCK);
+	printer.print(assembly("a"));
+	long deadline = System.currentTimeMillis()+10000;
+	while (printer.getDropped() < 1 && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+
+	try {
+	    printer.print(assembly("b"));
+	    fail("print after a failed write was accepted");
+	} catch (AsyncFilePrinter.FileWriteException e) {
+	    assertThat(e.getCause(), instanceOf(IOException.class));
+	}
+	try {
+	    printer.close();
+	    fail("close did not report the failed write");
+	} catch (IOException e) {
+	}
+	assertThat(printer.getWritten(), equalTo(0L));
+    }
+
+    @Test
+    public void testEveryAcceptedGroupIsWrittenWhenCloseRacesPrint() throws Exception {
+	Path path = folder.getRoot().toPath().resolve("out.json");
+	AsyncFilePrinter printer = new AsyncFilePrinter(
+		path, false, 4, 1024, 10000, false, QueueFullPolicy.BLOCK);
+	AtomicLong accepted = new AtomicLong();
+	Thread[] printers = new Thread[4];
+	for (int t = 0; t < printers.length; t++) {
+	    printers[t] = new Thread(() -> {
+		try {
+		    while (true) {
+			printer.print(assembly("g"));
+			accepted.incrementAndGet();
+		    }
+		} catch (ProfilerPrinter.ClosedPrinterException e) {
+		}
+	    });
+	    printers[t].start();
+	}
+	while (accepted.get() < 1000)
+	    Thread.sleep(1);
+	printer.close();
+	for (Thread t : printers)
+	    t.join(10000);
+
+	assertThat(printer.getWritten(), equalTo(accepted.get()));
+	assertThat((long) lines(path).size(), equalTo(accepted.get()));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+
+import org.junit.Test;
+
+public class FanOutPrinterTest {
+    private static class Recorder implements ProfilerPrinter, AutoCloseable {
+	private final List<String> printed = Collections.synchronizedList(new ArrayList<>());
+	private final List<GroupDescriptor> groups = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch release;
+	private volatile boolean closed = false;
+
+	Recorder(CountDownLatch release) {
+	    this.release = release;
+	}
+
+	public void print(Assembly output) {
+	    print(GroupDescriptor.unknown(), output);
+	}
+
+	public void print(GroupDescriptor group, Assembly output) {
+	    try {
+		release.await();
+	    } catch (InterruptedException e) {
+		throw new RuntimeException(e);
+	    }
+	    groups.add(group);
+	    printed.add(output.toString());
+	}
+
+	public void close() {
+	    closed = true;
+	}
+    }
+
+    private GroupDescriptor group(long id) {
+	return GroupDescriptor.of(id, id, Arrays.asList(new DummyConvertableProfile()));
+    }
+
+    @Test
+    public void testGroupsAreRoutedToMatchingSinks() throws Exception {
+	Recorder odd = new Recorder(new CountDownLatch(0));
+	Recorder all = new Recorder(new CountDownLatch(0));
+	FanOutPrinter printer = new FanOutPrinter(Arrays.asList(
+		    new FanOutPrinter.Sink("odd", odd, SinkRoute.parse("group=1,3"), 16, false)
+		    , new FanOutPrinter.Sink("all", all, SinkRoute.all(), 16, false)));
+	for (long id=0; id<4; id++)
+	    printer.print(group(id), new AssemblyStub("g"+id));
+	printer.close();
+
+	assertThat(odd.printed, equalTo(Arrays.asList("g1", "g3")));
+	assertThat(all.printed, equalTo(Arrays.asList("g0", "g1", "g2", "g3")));
+	assertThat(odd.groups.get(1).getGroupId(), equalTo(3L));
+	assertTrue(odd.closed && all.closed);
+    }
+
+    @Test
+    public void testStalledSinkDoesNotHoldUpOthers() throws Exception {
+	CountDownLatch release = new CountDownLatch(1);
+	Recorder stalled = new Recorder(release);
+	Recorder healthy = new Recorder(new CountDownLatch(0));
+	FanOutPrinter printer = new FanOutPrinter(Arrays.asList(
+		    new FanOutPrinter.Sink("stalled", stalled, SinkRoute.all(), 2, false)
+		    , new FanOutPrinter.Sink("healthy", healthy, SinkRoute.all(), 100, false)));
+	for (long id=0; id<50; id++)
+	    printer.print(group(id), new AssemblyStub("g"+id));
+	long deadline = System.currentTimeMillis()+10000;
+	while (healthy.printed.size() < 50 && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+
+	assertThat(healthy.printed.size(), equalTo(50));
+	assertTrue(printer.getSinks().get(0).getDropped() >= 47);
+	release.countDown();
+	printer.close();
+	assertThat(stalled.printed.size(), equalTo(50-(int) printer.getSinks().get(0).getDropped()));
+    }
+
+    @Test
+    public void testUnsequencedOutputReachesEverySink() throws Exception {
+	Recorder recorder = new Recorder(new CountDownLatch(0));
+	FanOutPrinter printer = new FanOutPrinter(Arrays.asList(
+		    new FanOutPrinter.Sink("all", recorder, SinkRoute.all(), 4, true)));
+	printer.print(new AssemblyStub("plain"));
+	printer.close();
+
+	assertThat(recorder.printed, equalTo(Arrays.asList("plain")));
+	assertFalse(recorder.groups.get(0).hasGroupId());
+    }
+}
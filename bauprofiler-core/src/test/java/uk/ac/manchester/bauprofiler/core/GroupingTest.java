@@ -157,6 +157,25 @@ public class GroupingTest {
 
 		assertThat(Arrays.equals(producedProfiles, consumedProfiles), equalTo(true));
 	    }
+
+	    @Test
+	    public void testFinalSequenceFollowsMarkingOrder() {
+		producer.createGroup(3L);
+		producer.createGroup(4L);
+		producer.markGroupAsFinal(4L);
+		producer.markGroupAsFinal(3L);
+		producer.markGroupAsFinal(4L);
+
+		assertThat(consumer.getFinalSequence(4L), equalTo(0L));
+		assertThat(consumer.getFinalSequence(3L), equalTo(1L));
+	    }
+
+	    @Test (expected=Grouping.GroupNotFinalException.class)
+	    public void testNotFinalGroupHasNoSequence() {
+		producer.createGroup(3L);
+
+		consumer.getFinalSequence(3L);
+	    }
 	}
     }
 }
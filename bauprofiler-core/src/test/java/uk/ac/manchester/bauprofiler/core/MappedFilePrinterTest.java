@@ -0,0 +1,137 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFilePrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path base;
+
+    @Before
+    public void setUp() {
+	base = folder.getRoot().toPath().resolve("profiler.json");
+    }
+
+    private Path segment(int index) {
+	return base.resolveSibling(MappedFilePrinter.segmentName("profiler.json", index));
+    }
+
+    @Test
+    public void testReaderSeesOnlyCommittedGroups() throws IOException {
+	MappedFilePrinter printer = new MappedFilePrinter(base, false, 1024);
+	MappedSegmentReader reader = new MappedSegmentReader(segment(0));
+	assertThat(reader.poll(), equalTo(Collections.emptyList()));
+
+	printer.print(new AssemblyStub("{\"a\":1}"));
+	printer.print(new AssemblyStub("{\"b\":\"é\"}"));
+	assertThat(reader.poll(), equalTo(Arrays.asList("{\"a\":1}", "{\"b\":\"é\"}")));
+	assertFalse(reader.isSealed());
+
+	printer.print(new AssemblyStub("{\"c\":3}"));
+	assertThat(reader.poll(), equalTo(Arrays.asList("{\"c\":3}")));
+	assertThat(reader.getRecords(), equalTo(3L));
+	printer.close();
+	assertTrue(reader.isSealed());
+    }
+
+    @Test
+    public void testFullSegmentIsSealedAndWritingMovesOn() throws IOException {
+	MappedFilePrinter printer = new MappedFilePrinter(base, false, 12);
+	printer.print(new AssemblyStub("abcdef"));
+	printer.print(new AssemblyStub("ghijkl"));
+	printer.close();
+
+	MappedSegmentReader first = new MappedSegmentReader(segment(0));
+	MappedSegmentReader second = new MappedSegmentReader(segment(1));
+	assertTrue(first.isSealed());
+	assertThat(first.poll(), equalTo(Arrays.asList("abcdef")));
+	assertThat(second.poll(), equalTo(Arrays.asList("ghijkl")));
+	assertThat(printer.getSegments(), equalTo(2L));
+	assertThat(printer.getBytesCommitted(), equalTo(20L));
+    }
+
+    @Test
+    public void testPrettyGroupsReadBackWhole() throws IOException {
+	MappedFilePrinter printer = new MappedFilePrinter(base, true, 1024);
+	MappedSegmentReader reader = new MappedSegmentReader(segment(0));
+	printer.print(new AssemblyStub("{\"a\":1}", "{\n  \"a\": 1\n}"));
+	printer.print(new AssemblyStub("{\"b\":2}", "{\n  \"b\": 2\n}"));
+	printer.close();
+
+	assertThat(reader.poll(), equalTo(Arrays.asList("{\n  \"a\": 1\n}", "{\n  \"b\": 2\n}")));
+	assertThat(reader.getRecords(), equalTo(2L));
+    }
+
+    @Test
+    public void testUnpairedSurrogateIsReplacedNotTruncated() throws IOException {
+	MappedFilePrinter printer = new MappedFilePrinter(base, false, 1024);
+	printer.print(new AssemblyStub("{\"a\":\"x\uD800y\"}"));
+	printer.close();
+
+	assertThat(new MappedSegmentReader(segment(0)).poll()
+		, equalTo(Arrays.asList("{\"a\":\"x?y\"}")));
+    }
+
+    @Test
+    public void testOversizedGroupGetsALargerSegment() throws IOException {
+	MappedFilePrinter printer = new MappedFilePrinter(base, false, 4);
+	printer.print(new AssemblyStub("larger than a segment"));
+	printer.close();
+
+	assertThat(new MappedSegmentReader(segment(1)).poll()
+		, equalTo(Arrays.asList("larger than a segment")));
+	assertThat(new MappedSegmentReader(segment(0)).getCommitted(), equalTo(0L));
+    }
+
+    @Test
+    public void testExistingSegmentsAreNotOverwritten() throws IOException {
+	new MappedFilePrinter(base, false, 16).close();
+	MappedFilePrinter printer = new MappedFilePrinter(base, false, 16);
+
+	assertThat(printer.getActiveSegment(), equalTo(segment(1)));
+	printer.close();
+    }
+
+    @Test(expected=MappedSegmentReader.NotASegmentException.class)
+    public void testReaderRejectsOtherFiles() throws IOException {
+	Files.write(segment(0), new byte[MappedFilePrinter.HEADER_SIZE]);
+	new MappedSegmentReader(segment(0));
+    }
+}
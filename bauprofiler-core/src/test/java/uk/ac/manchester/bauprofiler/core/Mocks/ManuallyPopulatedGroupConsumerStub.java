@@ -35,7 +35,8 @@ import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
 
 public class ManuallyPopulatedGroupConsumerStub implements GroupConsumer {
     private Map<Long, Integer> consumables = new HashMap<>();
-    private Set<Long> finalIDs = new HashSet<>();
+    private Map<Long, Long> finalIDs = new HashMap<>();
+    private long nextFinalSequence = 0;
 
     public boolean hasNextInGroup(Long groupId) {
 	Integer consumableCount = consumables.get(groupId);
@@ -58,7 +59,11 @@ public class ManuallyPopulatedGroupConsumerStub implements GroupConsumer {
     }
 
     public boolean isMarkedAsFinalGroup(Long groupId) {
-	return finalIDs.contains(groupId);
+	return finalIDs.containsKey(groupId);
+    }
+
+    public long getFinalSequence(Long groupId) {
+	return finalIDs.get(groupId);
     }
 
     public void populateGroup(Long groupId, int quantity) {
@@ -66,7 +71,7 @@ public class ManuallyPopulatedGroupConsumerStub implements GroupConsumer {
     }
 
     public void markGroupAsFinal(Long groupId) {
-	finalIDs.add(groupId);
+	finalIDs.put(groupId, nextFinalSequence++);
     }
 
     public Set<Long> getConsumedGroupIds() {
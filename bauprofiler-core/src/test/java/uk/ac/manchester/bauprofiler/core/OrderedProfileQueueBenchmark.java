@@ -0,0 +1,130 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Times {@link OrderedProfileQueue} on groups of TornadoVM-like task,
+ * kernel and copy chains. Run with:
+ * java -cp target/classes:target/test-classes uk.ac.manchester.bauprofiler.core.OrderedProfileQueueBenchmark [profiles] [depth]
+ */
+public class OrderedProfileQueueBenchmark {
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) {
+	int profiles = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+	int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+	ChainProfile[] group = createGroup(profiles, depth, new Random(42));
+
+	for (int i = 0; i < WARMUP; i++)
+	    order(group);
+	long[] insertTimes = new long[ITERATIONS];
+	long[] buildTimes = new long[ITERATIONS];
+	for (int i = 0; i < ITERATIONS; i++) {
+	    long start = System.nanoTime();
+	    OrderedProfileQueue.Builder builder = insert(group);
+	    long inserted = System.nanoTime();
+	    builder.build();
+	    buildTimes[i] = System.nanoTime()-inserted;
+	    insertTimes[i] = inserted-start;
+	}
+	Arrays.sort(insertTimes);
+	Arrays.sort(buildTimes);
+	System.out.printf("%d profiles, chain depth %d: inserts median %.2f ms, build median %.3f ms%n",
+		profiles, depth, insertTimes[ITERATIONS/2]/1e6, buildTimes[ITERATIONS/2]/1e6);
+    }
+
+    private static OrderedProfileQueue.Builder insert(ChainProfile[] group) {
+	OrderedProfileQueue.Builder builder = OrderedProfileQueue.builder();
+	for (ChainProfile profile : group)
+	    builder.insert(profile);
+	return builder;
+    }
+
+    private static int order(ChainProfile[] group) {
+	return insert(group).build().getProfiles().size();
+    }
+
+    /* Each chain is a task followed by a kernel and copies, each depending on
+     * the previous link. Chains are interleaved and a third arrive reversed. */
+    private static ChainProfile[] createGroup(int profiles, int depth, Random random) {
+	ChainProfile[] group = new ChainProfile[profiles];
+	int chains = (profiles+depth-1)/depth;
+	int next = 0;
+	for (int chain = 0; chain < chains && next < profiles; chain++) {
+	    int links = Math.min(depth, profiles-next);
+	    boolean reversed = random.nextInt(3) == 0;
+	    for (int link = 0; link < links; link++) {
+		int at = reversed ? next+links-1-link : next+link;
+		group[at] = new ChainProfile(link, chain);
+	    }
+	    next += links;
+	}
+	for (int i = group.length-1; i > 0; i--) {
+	    if (random.nextInt(4) != 0)
+		continue;
+	    int j = Math.max(0, i-random.nextInt(2*depth));
+	    ChainProfile tmp = group[i];
+	    group[i] = group[j];
+	    group[j] = tmp;
+	}
+	return group;
+    }
+
+    private static class ChainProfile extends DummyConvertableProfile {
+	private final int link;
+	private final int chain;
+
+	ChainProfile(int link, int chain) {
+	    this.link = link;
+	    this.chain = chain;
+	}
+
+	@Override
+	public int getId() {
+	    return link;
+	}
+
+	@Override
+	public Optional<Integer> getDependencyId() {
+	    return (link == 0) ? Optional.empty() : Optional.of(link-1);
+	}
+
+	@Override
+	public int dependencyId() {
+	    return link-1;
+	}
+
+	@Override
+	public boolean dependsOn(Profile dep) {
+	    return ((ChainProfile) dep).chain == chain;
+	}
+    }
+}
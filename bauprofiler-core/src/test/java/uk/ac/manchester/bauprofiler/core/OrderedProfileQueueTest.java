@@ -0,0 +1,398 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.interfaces.Timed;
+
+import org.junit.Test;
+import org.junit.Before;
+
+public class OrderedProfileQueueTest {
+    private OrderedProfileQueue.Builder builder;
+
+    private void insert(ConvertableProfile... profiles) {
+	for (ConvertableProfile profile : profiles)
+	    builder.insert(profile);
+    }
+
+    @Before
+    public void createBuilder() {
+	builder = OrderedProfileQueue.builder();
+    }
+
+    @Test
+    public void testDependencyIdDefaultsToSentinel() {
+	assertThat(new OrderedProfileStub(0).dependencyId(),
+		equalTo(ConvertableProfile.NO_DEPENDENCY));
+	assertThat(new OrderedProfileStub(1, new OrderedProfileStub(4)).dependencyId(), equalTo(4));
+    }
+
+    @Test
+    public void testIndependentProfilesKeepInsertionOrder() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub b = new OrderedProfileStub(1);
+	OrderedProfileStub c = new OrderedProfileStub(0);
+	insert(a, b, c);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, b, c)));
+    }
+
+    @Test
+    public void testDependentFollowsItsDependency() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub b = new OrderedProfileStub(1);
+	OrderedProfileStub dependent = new OrderedProfileStub(2, a);
+	insert(dependent, a, b);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, dependent, b)));
+    }
+
+    @Test
+    public void testDependencyChainsAreFollowed() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub b = new OrderedProfileStub(1);
+	OrderedProfileStub c = new OrderedProfileStub(2, a);
+	OrderedProfileStub d = new OrderedProfileStub(3, c);
+	insert(a, d, b, c);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, c, d, b)));
+    }
+
+    @Test
+    public void testDependentsOfManyClasses() {
+	OrderedProfileStub[] roots = new OrderedProfileStub[100];
+	OrderedProfileStub[] dependents = new OrderedProfileStub[100];
+	for (int i = 0; i < roots.length; i++) {
+	    roots[i] = new OrderedProfileStub(i);
+	    dependents[i] = new OrderedProfileStub(i+100, roots[i]);
+	}
+	insert(dependents);
+	insert(roots);
+
+	ConvertableProfile[] expected = new ConvertableProfile[200];
+	for (int i = 0; i < roots.length; i++) {
+	    expected[2*i] = roots[i];
+	    expected[2*i+1] = dependents[i];
+	}
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(expected)));
+    }
+
+    @Test
+    public void testEveryDependentFollowsItsParent() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub b = new OrderedProfileStub(1);
+	OrderedProfileStub first = new OrderedProfileStub(2, a);
+	OrderedProfileStub second = new OrderedProfileStub(2, a);
+	insert(first, a, b, second);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, first, second, b)));
+    }
+
+    @Test
+    public void testDeepChainArrivingBeforeItsRoot() {
+	OrderedProfileStub task = new OrderedProfileStub(0);
+	OrderedProfileStub kernel = new OrderedProfileStub(1, task);
+	OrderedProfileStub copyIn = new OrderedProfileStub(2, kernel);
+	OrderedProfileStub copyOut = new OrderedProfileStub(3, copyIn);
+	insert(copyOut, copyIn, kernel, task);
+
+	assertThat(builder.build().getProfiles(),
+		equalTo(Arrays.asList(task, kernel, copyIn, copyOut)));
+    }
+
+    @Test
+    public void testDependentIsMatchedToItsOwnParent() {
+	OrderedProfileStub first = new OrderedProfileStub(0);
+	OrderedProfileStub second = new OrderedProfileStub(0);
+	OrderedProfileStub ofFirst = new OrderedProfileStub(1, first);
+	OrderedProfileStub ofSecond = new OrderedProfileStub(1, second);
+	insert(first, second, ofSecond, ofFirst);
+
+	assertThat(builder.build().getProfiles(),
+		equalTo(Arrays.asList(first, ofFirst, second, ofSecond)));
+    }
+
+    @Test
+    public void testDependentWithoutParentKeepsArrivalPosition() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub orphan = new OrderedProfileStub(1, new OrderedProfileStub(5));
+	OrderedProfileStub b = new OrderedProfileStub(2);
+	insert(a, orphan, b);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, orphan, b)));
+    }
+
+    @Test
+    public void testCyclicDependenciesAreNotDropped() {
+	CyclicProfileStub a = new CyclicProfileStub(0, 1);
+	CyclicProfileStub b = new CyclicProfileStub(1, 0);
+	OrderedProfileStub c = new OrderedProfileStub(2);
+	insert(a, b, c);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, b, c)));
+    }
+
+    @Test
+    public void testCycleThroughAnAdoptedSubtreeIsRefused() {
+	CyclicProfileStub a = new CyclicProfileStub(0, 2);
+	CyclicProfileStub b = new CyclicProfileStub(1, 0);
+	CyclicProfileStub c = new CyclicProfileStub(2, 1);
+	insert(a, b, c);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(a, b, c)));
+    }
+
+    @Test
+    public void testLongChainArrivingInReverse() {
+	List<OrderedProfileStub> chain = new ArrayList<>();
+	chain.add(new OrderedProfileStub(0));
+	for (int i = 1; i < 2000; i++)
+	    chain.add(new OrderedProfileStub(i, chain.get(i-1)));
+	for (int i = chain.size()-1; i >= 0; i--)
+	    insert(chain.get(i));
+
+	assertThat(builder.build().getProfiles(), equalTo(chain));
+    }
+
+    @Test
+    public void testDistantPrecedingParentIsFoundAsLaterCandidatesArrive() {
+	OrderedProfileStub parent = new OrderedProfileStub(0);
+	insert(parent);
+	for (int i = 0; i < 100; i++)
+	    insert(new OrderedProfileStub(0));
+	OrderedProfileStub dependent = new OrderedProfileStub(1, parent);
+	insert(dependent);
+	for (int i = 0; i < 100; i++)
+	    insert(new OrderedProfileStub(0));
+
+	List<ConvertableProfile> ordered = builder.build().getProfiles();
+
+	assertThat(ordered.size(), equalTo(202));
+	assertThat(ordered.get(0), is(sameInstance((ConvertableProfile) parent)));
+	assertThat(ordered.get(1), is(sameInstance((ConvertableProfile) dependent)));
+    }
+
+    @Test
+    public void testParentBeyondTheSearchKeepsDependentInArrivalPosition() {
+	OrderedProfileStub parent = new OrderedProfileStub(0);
+	insert(parent);
+	for (int i = 0; i < 100; i++)
+	    insert(new OrderedProfileStub(0));
+	OrderedProfileStub dependent = new OrderedProfileStub(1, parent);
+	insert(dependent);
+
+	List<ConvertableProfile> ordered = builder.build().getProfiles();
+
+	assertThat(ordered.get(101), is(sameInstance((ConvertableProfile) dependent)));
+    }
+
+    @Test
+    public void testOrderedViewIteratesBothWays() {
+	OrderedProfileStub a = new OrderedProfileStub(0);
+	OrderedProfileStub b = new OrderedProfileStub(1, a);
+	OrderedProfileStub c = new OrderedProfileStub(2);
+	insert(c, b, a);
+	List<ConvertableProfile> ordered = builder.build().getProfiles();
+
+	ListIterator<ConvertableProfile> iterator = ordered.listIterator(ordered.size());
+	List<ConvertableProfile> reversed = new ArrayList<>();
+	while (iterator.hasPrevious())
+	    reversed.add(iterator.previous());
+
+	assertThat(reversed, equalTo(Arrays.asList(b, a, c)));
+    }
+
+    private static class CyclicProfileStub extends OrderedProfileStub {
+	private final int dependencyId;
+
+	CyclicProfileStub(int id, int dependencyId) {
+	    super(id);
+	    this.dependencyId = dependencyId;
+	}
+
+	@Override
+	public int dependencyId() {
+	    return dependencyId;
+	}
+
+	@Override
+	public boolean dependsOn(Profile dep) {
+	    return dep instanceof CyclicProfileStub;
+	}
+    }
+
+    @Test
+    public void testStartTimeOrderingSortsRoots() {
+	builder = OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(1024));
+	TimedProfileStub late = new TimedProfileStub(0, 30);
+	TimedProfileStub early = new TimedProfileStub(1, 10);
+	TimedProfileStub middle = new TimedProfileStub(2, 20);
+	insert(late, early, middle);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(early, middle, late)));
+    }
+
+    @Test
+    public void testStartTimeOrderingKeepsDependentsAfterParents() {
+	builder = OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(1024));
+	TimedProfileStub parent = new TimedProfileStub(0, 20);
+	TimedProfileStub other = new TimedProfileStub(1, 15);
+	TimedProfileStub secondChild = new TimedProfileStub(2, parent, 12);
+	TimedProfileStub firstChild = new TimedProfileStub(2, parent, 11);
+	insert(secondChild, parent, firstChild, other);
+
+	assertThat(builder.build().getProfiles(),
+		equalTo(Arrays.asList(other, parent, firstChild, secondChild)));
+    }
+
+    @Test
+    public void testStartTimeOrderingKeepsUntimedProfilesAfterTheirPredecessor() {
+	builder = OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(1024));
+	TimedProfileStub late = new TimedProfileStub(0, 30);
+	OrderedProfileStub untimed = new OrderedProfileStub(1);
+	TimedProfileStub early = new TimedProfileStub(2, 10);
+	insert(late, untimed, early);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(early, late, untimed)));
+    }
+
+    @Test
+    public void testParallelStartTimeOrderingMatchesSequential() {
+	OrderedProfileQueue.Builder sequential =
+	    OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(Integer.MAX_VALUE));
+	OrderedProfileQueue.Builder parallel =
+	    OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(0));
+	for (int i = 0; i < 10000; i++) {
+	    TimedProfileStub root = new TimedProfileStub(0, (i*7919) % 1000);
+	    TimedProfileStub dependent = new TimedProfileStub(1, root, (i*104729) % 1000);
+	    sequential.insert(dependent);
+	    sequential.insert(root);
+	    parallel.insert(dependent);
+	    parallel.insert(root);
+	}
+
+	assertThat(parallel.build().getProfiles(), equalTo(sequential.build().getProfiles()));
+    }
+
+    @Test
+    public void testProfilesTimedByTheProfilerAreOrderedByStartTime() {
+	builder = OrderedProfileQueue.builder(OrderedProfileQueue.Ordering.startTime(1024));
+	ProfilerImplementation profiler = new ProfilerImplementation(new ProfileDispatcher() {
+	    public void dispatchProfileToGroup(ConvertableProfile profile, Long groupId) {
+		builder.insert(profile);
+	    }
+	    public void dispatchGroup(Long groupId) {}
+	    public void releaseGroup(Long groupId) {}
+	});
+	profiler.attach(0L);
+	TimedProfileStub first = new TimedProfileStub(0, 0);
+	TimedProfileStub second = new TimedProfileStub(1, 0);
+	TimedProfileStub third = new TimedProfileStub(2, 0);
+	Timer firstTimer = profiler.tprofile(first, 0L);
+	Timer secondTimer = profiler.tprofile(second, 0L);
+	Timer thirdTimer = profiler.tprofile(third, 0L);
+	startAfterClockTick(thirdTimer);
+	startAfterClockTick(firstTimer);
+	startAfterClockTick(secondTimer);
+
+	assertThat(builder.build().getProfiles(), equalTo(Arrays.asList(third, first, second)));
+    }
+
+    private static void startAfterClockTick(Timer timer) {
+	long now = System.nanoTime();
+	while (System.nanoTime() == now);
+	timer.start();
+    }
+
+    @Test (expected=OrderedProfileQueue.UnknownOrderingException.class)
+    public void testUnknownOrderingIsRejected() {
+	OrderedProfileQueue.Ordering.parse("endtime", 0);
+    }
+
+    private static class TimedProfileStub extends OrderedProfileStub implements Timed {
+	private TimerInfo timer;
+
+	TimedProfileStub(int id, long startTime) {
+	    super(id);
+	    timer = new StartTimeStub(startTime);
+	}
+
+	TimedProfileStub(int id, OrderedProfileStub dependency, long startTime) {
+	    super(id, dependency);
+	    timer = new StartTimeStub(startTime);
+	}
+
+	public void setTimer(TimerInfo timer) {
+	    this.timer = timer;
+	}
+
+	@Override
+	public TimerInfo getTimer() {
+	    return timer;
+	}
+    }
+
+    private static class StartTimeStub implements TimerInfo {
+	private final long start;
+
+	StartTimeStub(long start) {
+	    this.start = start;
+	}
+
+	public long getStartTime() {
+	    return start;
+	}
+
+	public double getStartTimeInMilliSeconds() {
+	    return start*1e-6;
+	}
+
+	public long getEndTime() {
+	    return start;
+	}
+
+	public double getEndTimeInMilliSeconds() {
+	    return start*1e-6;
+	}
+
+	public long getTotalTime() {
+	    return 0;
+	}
+
+	public double getTotalTimeInMilliSeconds() {
+	    return 0;
+	}
+    }
+}
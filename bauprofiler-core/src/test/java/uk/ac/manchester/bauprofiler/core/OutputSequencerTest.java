@@ -0,0 +1,128 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OutputSequencerTest {
+    private final List<String> printed = Collections.synchronizedList(new ArrayList<>());
+    private final ProfilerPrinter recorder = (assembly) -> printed.add(assembly.toString());
+
+    private void awaitPrinted(int count) throws InterruptedException {
+	long deadline = System.currentTimeMillis()+10000;
+	while (printed.size() < count && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+    }
+
+    @Test
+    public void testOutOfOrderAssembliesArePrintedInSequence() {
+	OutputSequencer sequencer = new OutputSequencer(recorder, 8, 10000);
+	sequencer.print(2, new AssemblyStub("c"));
+	sequencer.print(1, new AssemblyStub("b"));
+	assertThat(printed.size(), equalTo(0));
+
+	sequencer.print(0, new AssemblyStub("a"));
+	sequencer.print(3, new AssemblyStub("d"));
+
+	assertThat(printed, equalTo(Arrays.asList("a", "b", "c", "d")));
+	assertThat(sequencer.getEmitted(), equalTo(4L));
+	assertThat(sequencer.getPeakBuffered(), equalTo(3));
+    }
+
+    @Test
+    public void testUnsequencedAssemblyIsPrintedImmediately() {
+	OutputSequencer sequencer = new OutputSequencer(recorder, 8, 10000);
+	sequencer.print(1, new AssemblyStub("b"));
+	sequencer.print(new AssemblyStub("x"));
+
+	assertThat(printed, equalTo(Arrays.asList("x")));
+    }
+
+    @Test
+    public void testMissingSequenceIsSkippedAfterTimeout() throws InterruptedException {
+	OutputSequencer sequencer = new OutputSequencer(recorder, 8, 50);
+	sequencer.print(1, new AssemblyStub("b"));
+	sequencer.print(2, new AssemblyStub("c"));
+	awaitPrinted(2);
+
+	assertThat(printed, equalTo(Arrays.asList("b", "c")));
+	assertThat(sequencer.getSkipped(), equalTo(1L));
+
+	sequencer.print(0, new AssemblyStub("a"));
+
+	assertThat(printed, equalTo(Arrays.asList("b", "c", "a")));
+	assertThat(sequencer.getStragglers(), equalTo(1L));
+    }
+
+    @Test
+    public void testSubmitterBeyondWindowWaits() throws InterruptedException {
+	OutputSequencer sequencer = new OutputSequencer(recorder, 2, 10000);
+	sequencer.print(1, new AssemblyStub("b"));
+	Thread submitter = new Thread(() -> sequencer.print(2, new AssemblyStub("c")));
+	submitter.start();
+	submitter.join(100);
+
+	assertTrue(submitter.isAlive());
+	assertThat(sequencer.getBlockedSubmissions(), equalTo(1L));
+
+	sequencer.print(0, new AssemblyStub("a"));
+	submitter.join(10000);
+	awaitPrinted(3);
+
+	assertThat(printed, equalTo(Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void testParallelSubmittersAreSequenced() throws InterruptedException {
+	OutputSequencer sequencer = new OutputSequencer(recorder, 16, 10000);
+	Thread[] submitters = new Thread[4];
+	for (int t = 0; t < submitters.length; t++) {
+	    int offset = t;
+	    submitters[t] = new Thread(() -> {
+		for (int i = offset; i < 1000; i += submitters.length)
+		    sequencer.print(i, new AssemblyStub(Integer.toString(i)));
+	    });
+	    submitters[t].start();
+	}
+	for (Thread submitter : submitters)
+	    submitter.join(10000);
+	awaitPrinted(1000);
+
+	List<String> expected = new ArrayList<>();
+	for (int i = 0; i < 1000; i++)
+	    expected.add(Integer.toString(i));
+	assertThat(printed, equalTo(expected));
+	assertThat(sequencer.getSkipped(), equalTo(0L));
+    }
+}
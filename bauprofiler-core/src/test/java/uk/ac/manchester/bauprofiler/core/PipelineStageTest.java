@@ -0,0 +1,157 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.After;
+
+public class PipelineStageTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+
+    private void awaitRelease() {
+	try {
+	    release.await(10, TimeUnit.SECONDS);
+	} catch (InterruptedException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+	long deadline = System.currentTimeMillis()+10000;
+	while (handled.size() < count && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+    }
+
+    @After
+    public void releaseWorkers() {
+	release.countDown();
+    }
+
+    @Test
+    public void testSingleWorkerHandlesItemsInOrder() throws InterruptedException {
+	PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 4, handled::add);
+	for (int i = 0; i < 100; i++)
+	    stage.submit(i);
+	awaitHandled(100);
+
+	List<Integer> expected = new ArrayList<>();
+	for (int i = 0; i < 100; i++)
+	    expected.add(i);
+	assertThat(handled, equalTo(expected));
+	assertThat(stage.getSubmitted(), equalTo(100L));
+	assertThat(stage.getCompleted(), equalTo(100L));
+    }
+
+    @Test
+    public void testFullQueueBlocksSubmitter() throws InterruptedException {
+	PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 2, (i) -> {
+	    awaitRelease();
+	    handled.add(i);
+	});
+	Thread submitter = new Thread(() -> {
+	    for (int i = 0; i < 4; i++)
+		stage.submit(i);
+	});
+	submitter.start();
+	submitter.join(200);
+
+	assertTrue(submitter.isAlive());
+	assertThat(stage.getQueueDepth(), equalTo(2));
+	assertThat(stage.getPeakQueueDepth(), equalTo(2));
+	assertTrue(stage.getBlockedSubmissions() >= 1);
+
+	release.countDown();
+	submitter.join(10000);
+	awaitHandled(4);
+	assertThat(handled.size(), equalTo(4));
+    }
+
+    @Test
+    public void testWorkersAreBounded() throws InterruptedException {
+	AtomicInteger concurrent = new AtomicInteger();
+	AtomicInteger peak = new AtomicInteger();
+	PipelineStage<Integer> stage = new PipelineStage<>("test", 3, 64, (i) -> {
+	    peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+	    awaitRelease();
+	    concurrent.decrementAndGet();
+	    handled.add(i);
+	});
+	for (int i = 0; i < 20; i++)
+	    stage.submit(i);
+	Thread.sleep(100);
+
+	assertThat(stage.getActiveWorkers(), equalTo(3));
+	assertThat(peak.get(), equalTo(3));
+
+	release.countDown();
+	awaitHandled(20);
+	assertThat(handled.size(), equalTo(20));
+    }
+
+    @Test
+    public void testFailedItemDoesNotStopStage() throws InterruptedException {
+	IllegalStateException failure = new IllegalStateException();
+	PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 4, (i) -> {
+	    if (i == 0)
+		throw failure;
+	    handled.add(i);
+	});
+	stage.submit(0);
+	stage.submit(1);
+	awaitHandled(1);
+
+	assertThat(handled, equalTo(Collections.singletonList(1)));
+	assertThat(stage.getFailed(), equalTo(1L));
+	assertThat(stage.getLastFailure(), sameInstance(failure));
+    }
+
+    @Test
+    public void testAwaitIdleReturnsOnceQueuedItemsAreHandled() throws InterruptedException {
+	PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 4, (i) -> {
+	    awaitRelease();
+	    handled.add(i);
+	});
+	assertTrue(stage.awaitIdle(System.nanoTime()));
+	for (int i = 0; i < 3; i++)
+	    stage.submit(i);
+
+	assertFalse(stage.awaitIdle(System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(50)));
+	release.countDown();
+	assertTrue(stage.awaitIdle(System.nanoTime()+TimeUnit.SECONDS.toNanos(10)));
+	assertThat(handled.size(), equalTo(3));
+    }
+}
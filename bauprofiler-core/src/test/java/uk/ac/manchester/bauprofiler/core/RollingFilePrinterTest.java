@@ -0,0 +1,151 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RollingFilePrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path base;
+
+    @Before
+    public void setUp() {
+	base = folder.getRoot().toPath().resolve("profiler.json");
+    }
+
+    private Path segment(int index) {
+	return base.resolveSibling(RollingFilePrinter.segmentName("profiler.json", index));
+    }
+
+    private List<String> compressedLines(Path path) throws IOException {
+	List<String> lines = new ArrayList<>();
+	try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+			new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+	    for (String line; (line = reader.readLine()) != null;)
+		lines.add(line);
+	}
+	return lines;
+    }
+
+    @Test
+    public void testSegmentsRotateBySizeAndAreCompressed() throws IOException {
+	RollingFilePrinter printer = new RollingFilePrinter(base, false, 16, 0, true);
+	for (int i=0; i<6; i++)
+	    printer.print(new AssemblyStub("group"+i));
+	printer.close();
+
+	List<String> lines = new ArrayList<>();
+	for (int i=0; i<3; i++) {
+	    Path compressed = segment(i).resolveSibling(segment(i).getFileName()+".gz");
+	    assertFalse(Files.exists(segment(i)));
+	    lines.addAll(compressedLines(compressed));
+	}
+	assertThat(printer.getRotations(), equalTo(2L));
+	assertThat(printer.getCompressed(), equalTo(3L));
+	assertThat(lines.size(), equalTo(6));
+	assertThat(lines.get(5), equalTo("group5"));
+    }
+
+    @Test
+    public void testOversizedGroupIsWrittenToItsOwnSegment() throws IOException {
+	RollingFilePrinter printer = new RollingFilePrinter(base, false, 4, 0, false);
+	printer.print(new AssemblyStub("a larger group"));
+	printer.print(new AssemblyStub("another one"));
+	printer.close();
+
+	assertThat(Files.readAllLines(segment(0)).size(), equalTo(1));
+	assertThat(Files.readAllLines(segment(1)).size(), equalTo(1));
+    }
+
+    @Test
+    public void testSegmentsRotateByInterval() throws Exception {
+	RollingFilePrinter printer = new RollingFilePrinter(base, false, Long.MAX_VALUE, 1, false);
+	printer.print(new AssemblyStub("a"));
+	Thread.sleep(5);
+	printer.print(new AssemblyStub("b"));
+	printer.close();
+
+	assertThat(Files.readAllLines(segment(0)), equalTo(Arrays.asList("a")));
+	assertThat(Files.readAllLines(segment(1)), equalTo(Arrays.asList("b")));
+    }
+
+    @Test
+    public void testQuietSegmentRotatesOnTimer() throws Exception {
+	RollingFilePrinter printer = new RollingFilePrinter(base, false, Long.MAX_VALUE, 20, true);
+	printer.print(new AssemblyStub("a"));
+	long deadline = System.currentTimeMillis()+10000;
+	while (printer.getCompressed() < 1 && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+
+	assertThat(printer.getRotations(), equalTo(1L));
+	assertThat(compressedLines(segment(0).resolveSibling(segment(0).getFileName()+".gz"))
+		, equalTo(Arrays.asList("a")));
+	Thread.sleep(100);
+	assertThat(printer.getRotations(), equalTo(1L));
+	printer.close();
+    }
+
+    @Test
+    public void testNumberingResumesAfterExistingSegments() throws IOException {
+	RollingFilePrinter first = new RollingFilePrinter(base, false, Long.MAX_VALUE, 0, true);
+	first.print(new AssemblyStub("a"));
+	first.close();
+	RollingFilePrinter second = new RollingFilePrinter(base, false, Long.MAX_VALUE, 0, false);
+
+	assertThat(second.getActiveSegment(), equalTo(segment(1)));
+	second.close();
+    }
+
+    @Test
+    public void testSegmentLeftByAnEarlierRunIsCompressedAtStartup() throws IOException {
+	Files.write(segment(0), Arrays.asList("a"));
+	RollingFilePrinter printer = new RollingFilePrinter(base, false, Long.MAX_VALUE, 0, true);
+	printer.close();
+
+	assertFalse(Files.exists(segment(0)));
+	assertThat(compressedLines(segment(0).resolveSibling(segment(0).getFileName()+".gz"))
+		, equalTo(Arrays.asList("a")));
+	assertThat(printer.getCompressed(), equalTo(2L));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.converter.ProfileSchemas;
+
+import org.junit.Test;
+import org.junit.BeforeClass;
+
+public class SchemaOncePrinterTest {
+    private static final int FIRST_CLASS_ID = 4901;
+    private static final int SECOND_CLASS_ID = 4902;
+    private static final int UNREGISTERED_CLASS_ID = 4903;
+
+    private final List<String> printed = new ArrayList<>();
+    private final ProfilerPrinter recorder = (assembly) -> printed.add(assembly.toString());
+
+    @BeforeClass
+    public static void registerSchemas() {
+	ProfileSchemas.register(FIRST_CLASS_ID, "\"@4901\":[\"a\"]", "\"@4901\":[\"a\",\"b\"]");
+	ProfileSchemas.register(SECOND_CLASS_ID, "\"@4902\":[\"c\"]", "\"@4902\":[\"c\"]");
+    }
+
+    private static class FirstProfile extends DummyConvertableProfile {
+	public int getId() {
+	    return FIRST_CLASS_ID;
+	}
+    }
+
+    private static class SecondProfile extends DummyConvertableProfile {
+	public int getId() {
+	    return SECOND_CLASS_ID;
+	}
+    }
+
+    private static class UnregisteredProfile extends DummyConvertableProfile {
+	public int getId() {
+	    return UNREGISTERED_CLASS_ID;
+	}
+    }
+
+    private GroupDescriptor group(ConvertableProfile... profiles) {
+	return GroupDescriptor.of(0, 0, Arrays.asList(profiles));
+    }
+
+    @Test
+    public void testSchemaIsPrintedOnceAheadOfFirstGroup() {
+	SchemaOncePrinter printer = new SchemaOncePrinter(recorder, false);
+	printer.print(group(new FirstProfile()), new AssemblyStub("x"));
+	printer.print(group(new FirstProfile()), new AssemblyStub("y"));
+
+	assertThat(printed, equalTo(Arrays.asList(
+			"{\"$schema\":{\"@4901\":[\"a\"]}}", "x", "y")));
+	assertThat(printer.getSchemasPrinted(), equalTo(1L));
+    }
+
+    @Test
+    public void testOnlyUnprintedSchemasOfGroupArePrinted() {
+	SchemaOncePrinter printer = new SchemaOncePrinter(recorder, true);
+	printer.print(group(new FirstProfile()), new AssemblyStub("x"));
+	printer.print(group(new FirstProfile(), new SecondProfile()), new AssemblyStub("y"));
+
+	assertThat(printed, equalTo(Arrays.asList(
+			"{\"$schema\":{\"@4901\":[\"a\",\"b\"]}}", "x"
+			, "{\"$schema\":{\"@4902\":[\"c\"]}}", "y")));
+    }
+
+    @Test
+    public void testEachPrinterIsItsOwnStream() {
+	new SchemaOncePrinter(recorder, false).print(group(new FirstProfile()), new AssemblyStub("x"));
+	new SchemaOncePrinter(recorder, false).print(group(new FirstProfile()), new AssemblyStub("y"));
+
+	assertThat(printed, equalTo(Arrays.asList(
+			"{\"$schema\":{\"@4901\":[\"a\"]}}", "x"
+			, "{\"$schema\":{\"@4901\":[\"a\"]}}", "y")));
+    }
+
+    @Test
+    public void testUnregisteredClassesAndUnknownGroupsPassThrough() {
+	SchemaOncePrinter printer = new SchemaOncePrinter(recorder, false);
+	printer.print(group(new UnregisteredProfile()), new AssemblyStub("x"));
+	printer.print(GroupDescriptor.unknown(), new AssemblyStub("y"));
+	printer.print(new AssemblyStub("z"));
+
+	assertThat(printed, equalTo(Arrays.asList("x", "y", "z")));
+	assertThat(printer.getSchemasPrinted(), equalTo(0L));
+    }
+
+    @Test
+    public void testPrinterThatMayDropIsSentNoSchemas() {
+	ProfilerPrinter lossy = new ProfilerPrinter() {
+	    public void print(Assembly output) {
+		recorder.print(output);
+	    }
+
+	    public boolean mayDrop() {
+		return true;
+	    }
+	};
+	SchemaOncePrinter printer = new SchemaOncePrinter(lossy, false);
+	printer.print(group(new FirstProfile()), new AssemblyStub("x"));
+
+	assertThat(printed, equalTo(Arrays.asList("x")));
+	assertThat(printer.getSchemasPrinted(), equalTo(0L));
+    }
+}
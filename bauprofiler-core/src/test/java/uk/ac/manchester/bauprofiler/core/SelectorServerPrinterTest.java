@@ -0,0 +1,261 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import uk.ac.manchester.bauprofiler.core.SelectorServerPrinter.SlowClientPolicy;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SelectorServerPrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private SelectorServerPrinter server;
+
+    @After
+    public void tearDown() throws IOException {
+	if (server != null)
+	    server.close();
+    }
+
+    private Socket connect() throws Exception {
+	long accepted = server.getAccepted();
+	Socket socket = new Socket("localhost", server.getPort());
+	long deadline = System.currentTimeMillis()+10000;
+	while (server.getAccepted() == accepted && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+	return socket;
+    }
+
+    private BufferedReader reader(Socket socket) throws IOException {
+	return new BufferedReader(new InputStreamReader(
+		    socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private String payload(int size) {
+	StringBuilder payload = new StringBuilder(size);
+	for (int i=0; i<size; i++)
+	    payload.append('x');
+	return payload.toString();
+    }
+
+    @Test
+    public void testStartupDoesNotWaitForClients() throws IOException {
+	server = new SelectorServerPrinter(0, false, 1024, SlowClientPolicy.DROP_OLDEST, 1);
+	server.print(new AssemblyStub("nobody is listening"));
+
+	assertThat(server.getClients(), equalTo(0));
+    }
+
+    @Test
+    public void testEveryClientReceivesEveryGroup() throws Exception {
+	server = new SelectorServerPrinter(0, false, 1 << 20, SlowClientPolicy.DROP_OLDEST, 1);
+	try (Socket first = connect(); Socket second = connect()) {
+	    BufferedReader firstReader = reader(first);
+	    BufferedReader secondReader = reader(second);
+	    for (int i=0; i<100; i++)
+		server.print(new AssemblyStub("group"+i));
+
+	    for (int i=0; i<100; i++) {
+		assertThat(firstReader.readLine(), equalTo("group"+i));
+		assertThat(secondReader.readLine(), equalTo("group"+i));
+	    }
+	}
+    }
+
+    @Test
+    public void testStalledClientDoesNotBlockPrinting() throws Exception {
+	server = new SelectorServerPrinter(0, false, 4096, SlowClientPolicy.DROP_OLDEST, 1);
+	try (Socket stalled = connect()) {
+	    String group = payload(1024);
+	    for (int i=0; i<50000; i++)
+		server.print(new AssemblyStub(group));
+
+	    assertTrue(server.getDropped() > 0);
+	    assertThat(server.getClients(), equalTo(1));
+	}
+    }
+
+    @Test
+    public void testStalledClientIsDisconnected() throws Exception {
+	server = new SelectorServerPrinter(0, false, 4096, SlowClientPolicy.DISCONNECT, 1);
+	try (Socket stalled = connect()) {
+	    String group = payload(1024);
+	    long deadline = System.currentTimeMillis()+10000;
+	    while (server.getDisconnected() == 0 && System.currentTimeMillis() < deadline)
+		server.print(new AssemblyStub(group));
+
+	    assertThat(server.getDisconnected(), equalTo(1L));
+	    assertThat(server.getClients(), equalTo(0));
+	}
+    }
+
+    @Test
+    public void testQueuedOutputIsDeliveredOnClose() throws Exception {
+	server = new SelectorServerPrinter(0, false, 1 << 20, SlowClientPolicy.DROP_OLDEST, 1);
+	try (Socket client = connect()) {
+	    BufferedReader reader = reader(client);
+	    server.print(new AssemblyStub("last"));
+	    server.close();
+
+	    assertThat(reader.readLine(), equalTo("last"));
+	    assertThat(reader.readLine(), equalTo(null));
+	}
+    }
+
+    private SelectorServerPrinter replayingServer(long segmentBytes, long retainedBytes)
+	    throws IOException {
+	return replayingServer(segmentBytes, retainedBytes, 10000);
+    }
+
+    private SelectorServerPrinter replayingServer(
+	    long segmentBytes, long retainedBytes, long requestGraceMs) throws IOException {
+	return new SelectorServerPrinter(0, false, 1 << 20, SlowClientPolicy.DROP_OLDEST, 1
+		, new ReplayLog(folder.getRoot().toPath(), segmentBytes, retainedBytes)
+		, requestGraceMs);
+    }
+
+    private void request(Socket socket, String request) throws Exception {
+	long handled = server.getReplays()+server.getRejectedRequests();
+	OutputStream out = socket.getOutputStream();
+	out.write((request+"\n").getBytes(StandardCharsets.UTF_8));
+	out.flush();
+	long deadline = System.currentTimeMillis()+10000;
+	while (server.getReplays()+server.getRejectedRequests() == handled
+		&& System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+    }
+
+    @Test
+    public void testLateClientReplaysHistoryThenLiveOutput() throws Exception {
+	server = replayingServer(64, 1 << 20);
+	for (int i=0; i<20; i++)
+	    server.print(new AssemblyStub("history"+i));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    request(late, "replay all");
+	    for (int i=0; i<20; i++)
+		assertThat(reader.readLine(), equalTo("history"+i));
+	    server.print(new AssemblyStub("live"));
+	    assertThat(reader.readLine(), equalTo("live"));
+	}
+	assertThat(server.getReplays(), equalTo(1L));
+	assertTrue(server.getBytesReplayed() > 0);
+    }
+
+    @Test
+    public void testReplayByBytesStartsOnAGroupBoundary() throws Exception {
+	server = replayingServer(1 << 20, 1 << 20);
+	for (int i=0; i<10; i++)
+	    server.print(new AssemblyStub("group"+i));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    request(late, "replay bytes 10");
+	    server.print(new AssemblyStub("live"));
+
+	    assertThat(reader.readLine(), equalTo("group9"));
+	    assertThat(reader.readLine(), equalTo("live"));
+	}
+    }
+
+    @Test
+    public void testExpiredSegmentsAreNotReplayed() throws Exception {
+	server = replayingServer(16, 32);
+	for (int i=0; i<10; i++)
+	    server.print(new AssemblyStub("group"+i));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    request(late, "replay minutes 5");
+	    server.print(new AssemblyStub("live"));
+
+	    String first = reader.readLine();
+	    assertThat(first, not(equalTo("group0")));
+	    String line = first;
+	    while (!line.equals("live"))
+		line = reader.readLine();
+	}
+    }
+
+    @Test
+    public void testMalformedRequestIsRejected() throws Exception {
+	server = replayingServer(1 << 20, 1 << 20);
+	server.print(new AssemblyStub("history"));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    request(late, "replay everything");
+	    server.print(new AssemblyStub("live"));
+
+	    assertThat(reader.readLine(), equalTo("live"));
+	    assertThat(server.getRejectedRequests(), equalTo(1L));
+	}
+    }
+
+    @Test
+    public void testLiveOutputIsHeldUntilTheClientRequestsAReplay() throws Exception {
+	server = replayingServer(1 << 20, 1 << 20);
+	server.print(new AssemblyStub("history"));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    server.print(new AssemblyStub("live0"));
+	    Thread.sleep(50);
+	    assertThat(server.getBytesSent(), equalTo(0L));
+
+	    request(late, "replay all");
+	    server.print(new AssemblyStub("live1"));
+
+	    assertThat(reader.readLine(), equalTo("history"));
+	    assertThat(reader.readLine(), equalTo("live0"));
+	    assertThat(reader.readLine(), equalTo("live1"));
+	}
+	assertThat(server.getReplays(), equalTo(1L));
+    }
+
+    @Test
+    public void testHeldOutputIsSentOnceTheGracePeriodEnds() throws Exception {
+	server = replayingServer(1 << 20, 1 << 20, 50);
+	server.print(new AssemblyStub("history"));
+	try (Socket late = connect()) {
+	    BufferedReader reader = reader(late);
+	    server.print(new AssemblyStub("live"));
+
+	    assertThat(reader.readLine(), equalTo("live"));
+	    request(late, "replay all");
+	    assertThat(server.getRejectedRequests(), equalTo(1L));
+	}
+    }
+}
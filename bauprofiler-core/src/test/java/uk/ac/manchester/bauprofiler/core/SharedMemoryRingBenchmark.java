@@ -0,0 +1,129 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.SelectorServerPrinter.SlowClientPolicy;
+
+/**
+ * Compares the throughput of {@link SharedMemoryRingPrinter} with a local
+ * reader against {@link SelectorServerPrinter} with a loopback client.
+ * Groups are retried until accepted, so both sinks deliver every group.
+ * Run with:
+ * java -cp target/classes:target/test-classes uk.ac.manchester.bauprofiler.core.SharedMemoryRingBenchmark [groups] [group bytes]
+ */
+public class SharedMemoryRingBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+	int groups = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+	int groupBytes = (args.length > 1) ? Integer.parseInt(args[1]) : 512;
+	Assembly group = assembly(groupBytes);
+
+	for (int round = 0; round < ROUNDS; round++) {
+	    report("shared memory", groups, groupBytes, sharedMemory(group, groups));
+	    report("socket", groups, groupBytes, socket(group, groups));
+	}
+    }
+
+    private static void report(String sink, int groups, int groupBytes, long nanos) {
+	System.out.printf("%-13s %d x %d bytes: %.1f ms, %.0f groups/s, %.1f MB/s%n"
+		, sink, groups, groupBytes, nanos/1e6
+		, groups/(nanos/1e9), groups*(double) groupBytes/(nanos/1e3));
+    }
+
+    private static long sharedMemory(Assembly group, int groups) throws Exception {
+	Path path = Files.createTempFile("bauprofiler", ".ring");
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 1 << 24);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	AtomicLong received = new AtomicLong();
+	Thread consumer = new Thread(() -> {
+		while (received.get() < groups)
+		    if (received.addAndGet(reader.drain((frame) -> {})) < groups)
+			Thread.yield();
+	    });
+	long start = System.nanoTime();
+	consumer.start();
+	for (int i = 0; i < groups;) {
+	    long published = printer.getPublished();
+	    printer.print(group);
+	    if (printer.getPublished() != published)
+		i++;
+	    else
+		Thread.yield();
+	}
+	consumer.join();
+	long elapsed = System.nanoTime()-start;
+	printer.close();
+	Files.delete(path);
+	return elapsed;
+    }
+
+    private static long socket(Assembly group, int groups) throws Exception {
+	SelectorServerPrinter server = new SelectorServerPrinter(
+		0, false, 1 << 24, SlowClientPolicy.DROP_OLDEST, 1);
+	long expected = (long) groups*(group.toString().length()+System.lineSeparator().length());
+	try (Socket client = new Socket("localhost", server.getPort())) {
+	    while (server.getClients() == 0)
+		Thread.sleep(1);
+	    InputStream in = client.getInputStream();
+	    Thread consumer = new Thread(() -> {
+		    byte[] buffer = new byte[1 << 16];
+		    long read = 0;
+		    try {
+			for (int n; read < expected && (n = in.read(buffer)) != -1;)
+			    read += n;
+		    } catch (Exception e) {
+			throw new RuntimeException(e);
+		    }
+		});
+	    long start = System.nanoTime();
+	    consumer.start();
+	    for (int i = 0; i < groups; i++) {
+		while (server.getBytesSent()+(1 << 23) < (long) i*expected/groups)
+		    Thread.yield();
+		server.print(group);
+	    }
+	    consumer.join();
+	    long elapsed = System.nanoTime()-start;
+	    server.close();
+	    return elapsed;
+	}
+    }
+
+    private static Assembly assembly(int bytes) {
+	StringBuilder content = new StringBuilder(bytes);
+	for (int i = 0; i < bytes; i++)
+	    content.append((char) ('a'+i%26));
+	return new AssemblyStub(content.toString());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedMemoryRingPrinterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path path;
+
+    @Before
+    public void setUp() {
+	path = folder.getRoot().toPath().resolve("profiler.ring");
+    }
+
+    @Test
+    public void testReaderReceivesPublishedGroups() throws IOException {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 1024);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	assertThat(reader.poll(), equalTo(Collections.emptyList()));
+
+	printer.print(new AssemblyStub("{\"a\":1}"));
+	printer.print(new AssemblyStub("{\"b\":\"é\"}"));
+	assertThat(reader.poll(), equalTo(Arrays.asList("{\"a\":1}", "{\"b\":\"é\"}")));
+	printer.close();
+    }
+
+    @Test
+    public void testUnpairedSurrogateIsReplacedNotTruncated() throws IOException {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 1024);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	printer.print(new AssemblyStub("{\"a\":\"x\uD800y\"}"));
+
+	assertThat(reader.poll(), equalTo(Arrays.asList("{\"a\":\"x?y\"}")));
+	printer.close();
+    }
+
+    @Test
+    public void testFramesWrapAroundTheRing() throws IOException {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 64);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	List<String> received = new ArrayList<>();
+	for (int i=0; i<100; i++) {
+	    printer.print(new AssemblyStub("group"+i+"-abcdefghijk"));
+	    received.addAll(reader.poll());
+	}
+
+	assertThat(received.size(), equalTo(100));
+	assertThat(received.get(99), equalTo("group99-abcdefghijk"));
+	assertThat(printer.getDropped(), equalTo(0L));
+    }
+
+    @Test
+    public void testGroupsAreDroppedWhileTheReaderIsBehind() throws IOException {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 64);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	for (int i=0; i<10; i++)
+	    printer.print(new AssemblyStub("group"+i));
+
+	assertThat(printer.getPublished(), equalTo(4L));
+	assertThat(printer.getDropped(), equalTo(6L));
+	assertThat(reader.poll(), equalTo(Arrays.asList("group0", "group1", "group2", "group3")));
+	printer.print(new AssemblyStub("after"));
+	assertThat(reader.poll(), equalTo(Arrays.asList("after")));
+    }
+
+    @Test
+    public void testReaderResumesFromStoredReadSequence() throws IOException {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 1024);
+	printer.print(new AssemblyStub("first"));
+	new SharedMemoryRingReader(path).poll();
+	printer.print(new AssemblyStub("second"));
+
+	assertThat(new SharedMemoryRingReader(path).poll(), equalTo(Arrays.asList("second")));
+    }
+
+    @Test
+    public void testConcurrentReaderSeesEveryGroupInOrder() throws Exception {
+	SharedMemoryRingPrinter printer = new SharedMemoryRingPrinter(path, false, 4096);
+	SharedMemoryRingReader reader = new SharedMemoryRingReader(path);
+	List<String> received = new ArrayList<>();
+	Thread consumer = new Thread(() -> {
+		long deadline = System.currentTimeMillis()+10000;
+		while (received.size() < 1000 && System.currentTimeMillis() < deadline)
+		    received.addAll(reader.poll());
+	    });
+	consumer.start();
+	int printed = 0;
+	while (printed < 1000) {
+	    long dropped = printer.getDropped();
+	    printer.print(new AssemblyStub("group"+printed));
+	    if (printer.getDropped() == dropped)
+		printed++;
+	}
+	consumer.join();
+
+	for (int i=0; i<1000; i++)
+	    assertThat(received.get(i), equalTo("group"+i));
+    }
+
+    @Test(expected=SharedMemoryRingPrinter.InvalidCapacityException.class)
+    public void testCapacityMustBeAPowerOfTwo() throws IOException {
+	new SharedMemoryRingPrinter(path, false, 1000);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SinkProviderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final Properties properties = new Properties();
+
+    @Before
+    public void setUp() {
+	RecordingPrinterFactory.created.clear();
+    }
+
+    @Test
+    public void testBuiltinAndPluggedInFactoriesAreFound() {
+	assertTrue(SinkProvider.loadFactories().keySet().containsAll(Arrays.asList(
+			"stdout", "file", "async_file", "rolling_file"
+			, "mapped_file", "server", "shm", "recording")));
+    }
+
+    @Test
+    public void testSinksAreBuiltFromTheirSettings() throws Exception {
+	properties.setProperty("profiler.output.sink.heavy.type", "recording");
+	properties.setProperty("profiler.output.sink.heavy.route", "min_profiles=1000");
+	properties.setProperty("profiler.output.sink.heavy.queue", "8");
+	properties.setProperty("profiler.output.sink.recording.queue_full", "block");
+	FanOutPrinter printer = SinkProvider.load("heavy, recording", properties);
+
+	assertThat(printer.getSinks().size(), equalTo(2));
+	assertThat(printer.getSinks().get(0).getName(), equalTo("heavy"));
+	assertThat(printer.getSinks().get(0).getStage().getQueueCapacity(), equalTo(8));
+	assertThat(RecordingPrinterFactory.created.get(0).get("route", ""), equalTo("min_profiles=1000"));
+	printer.close();
+    }
+
+    @Test(expected=SinkProvider.UnknownSinkTypeException.class)
+    public void testUnknownSinkTypeIsRejected() {
+	SinkProvider.load("nowhere", properties);
+    }
+
+    @Test(expected=SinkProvider.UnknownQueueFullPolicyException.class)
+    public void testUnknownQueueFullPolicyIsRejected() {
+	properties.setProperty("profiler.output.sink.recording.queue_full", "panic");
+	SinkProvider.load("recording", properties);
+    }
+
+    @Test
+    public void testStdoutSinkDoesNotCloseSystemOut() throws Exception {
+	properties.setProperty("profiler.output.sink.console.type", "stdout");
+	FanOutPrinter printer = SinkProvider.load("console", properties);
+	printer.close();
+
+	assertFalse(printer.getSinks().get(0).getPrinter() instanceof AutoCloseable);
+	assertFalse(System.out.checkError());
+    }
+
+    @Test
+    public void testSinkCreationFailureKeepsItsCause() throws IOException {
+	properties.setProperty("profiler.output.sink.bad.type", "file");
+	properties.setProperty("profiler.output.sink.bad.path"
+		, folder.getRoot().getAbsolutePath());
+	try {
+	    SinkProvider.load("bad", properties);
+	    fail("a directory was accepted as the file sink path");
+	} catch (SinkProvider.SinkCreationException e) {
+	    assertThat(e.getCause(), instanceOf(IOException.class));
+	}
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+
+import org.junit.Test;
+
+public class SinkRouteTest {
+    private final List<ConvertableProfile> mixed = Arrays.asList(
+	    new DummyConvertableProfile(), new OrderedProfileStub(1), new OrderedProfileStub(2));
+    private final GroupDescriptor group = GroupDescriptor.of(7, 0, mixed);
+
+    @Test
+    public void testEmptyRouteSelectsEverything() {
+	assertTrue(SinkRoute.parse("").test(group));
+	assertTrue(SinkRoute.parse("all").test(GroupDescriptor.unknown()));
+    }
+
+    @Test
+    public void testGroupRouteSelectsListedGroups() {
+	assertTrue(SinkRoute.parse("group=3, 7").test(group));
+	assertFalse(SinkRoute.parse("group=3").test(group));
+	assertFalse(SinkRoute.parse("group=0").test(GroupDescriptor.unknown()));
+    }
+
+    @Test
+    public void testClassRouteMatchesSimpleOrQualifiedNames() {
+	assertTrue(SinkRoute.parse("class=OrderedProfileStub").test(group));
+	assertTrue(SinkRoute.parse(
+		    "class=uk.ac.manchester.bauprofiler.core.DummyConvertableProfile").test(group));
+	assertFalse(SinkRoute.parse("class=Timer").test(group));
+    }
+
+    @Test
+    public void testProfileCountBounds() {
+	GroupDescriptor empty = GroupDescriptor.of(1, 0, Collections.emptyList());
+	SinkRoute heavy = SinkRoute.parse("min_profiles=3");
+	SinkRoute light = SinkRoute.parse("max_profiles=2");
+
+	assertTrue(heavy.test(group));
+	assertFalse(light.test(group));
+	assertTrue(light.test(empty));
+    }
+
+    @Test
+    public void testEveryConditionMustHold() {
+	assertTrue(SinkRoute.parse("group=7; class=OrderedProfileStub").test(group));
+	assertFalse(SinkRoute.parse("group=7;max_profiles=1").test(group));
+    }
+
+    @Test(expected=SinkRoute.InvalidRouteException.class)
+    public void testUnknownConditionIsRejected() {
+	SinkRoute.parse("colour=blue");
+    }
+
+    @Test(expected=SinkRoute.InvalidRouteException.class)
+    public void testMalformedNumberIsRejected() {
+	SinkRoute.parse("min_profiles=lots");
+    }
+}
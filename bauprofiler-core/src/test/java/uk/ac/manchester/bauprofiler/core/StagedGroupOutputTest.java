@@ -0,0 +1,154 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.core.converter.SequentialProfileConverter;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+public class StagedGroupOutputTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> printed = Collections.synchronizedList(new ArrayList<>());
+    private OutputGenerator generator;
+
+    private List<ConvertableProfile> createGroup(int size) {
+	List<ConvertableProfile> group = new ArrayList<>();
+	for (int i = 0; i < size; i++)
+	    group.add(new DummyConvertableProfile());
+	return group;
+    }
+
+    private void awaitPrinted(int count) throws InterruptedException {
+	long deadline = System.currentTimeMillis()+10000;
+	while (printed.size() < count && System.currentTimeMillis() < deadline)
+	    Thread.sleep(1);
+    }
+
+    private void awaitRelease() {
+	try {
+	    release.await(10, TimeUnit.SECONDS);
+	} catch (InterruptedException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+
+    @Before
+    public void createGenerator() {
+	AssemblerFactory countingFactory = () -> (conversions, estimatedSize) -> {
+	    int count = 0;
+	    for ( ; conversions.hasNext(); conversions.next(), count++) {}
+	    return new AssemblyStub(Integer.toString(count));
+	};
+	generator = new OutputGenerator(new SequentialProfileConverter(), countingFactory);
+    }
+
+    @After
+    public void releasePrinter() {
+	release.countDown();
+    }
+
+    @Test
+    public void testGroupsArePrintedInOrder_whenStagesAreSingleThreaded() throws InterruptedException {
+	StagedGroupOutput output = new StagedGroupOutput(
+		generator, (assembly) -> printed.add(assembly.toString()), 1, 2, 1, 2);
+	for (int size = 1; size <= 10; size++)
+	    output.output(GroupDescriptor.forSequence(size), createGroup(size));
+	awaitPrinted(10);
+
+	assertThat(printed, equalTo(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10")));
+	assertThat(output.getConvertStage().getCompleted(), equalTo(10L));
+	assertThat(output.getSinkStage().getCompleted(), equalTo(10L));
+    }
+
+    @Test
+    public void testStalledPrinterBacksUpThroughBothQueues() throws InterruptedException {
+	StagedGroupOutput output = new StagedGroupOutput(generator, (assembly) -> {
+	    awaitRelease();
+	    printed.add(assembly.toString());
+	}, 1, 2, 1, 2);
+	Thread consumer = new Thread(() -> {
+	    for (int i = 0; i < 8; i++)
+		output.output(GroupDescriptor.forSequence(i), createGroup(1));
+	});
+	consumer.start();
+	consumer.join(300);
+
+	assertTrue(consumer.isAlive());
+	assertThat(output.getSinkStage().getQueueDepth(), equalTo(2));
+	assertThat(output.getConvertStage().getQueueDepth(), equalTo(2));
+
+	release.countDown();
+	consumer.join(10000);
+	awaitPrinted(8);
+	assertThat(printed.size(), equalTo(8));
+    }
+
+    @Test
+    public void testGroupIsConsumedOnlyOncePrinted() throws InterruptedException {
+	List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+	StagedGroupOutput output = new StagedGroupOutput(generator, (assembly) -> {
+	    awaitRelease();
+	    printed.add(assembly.toString());
+	}, 1, 2, 1, 2);
+	output.output(GroupDescriptor.forSequence(0), createGroup(3), () -> consumed.add("3"));
+
+	assertFalse(output.drain(200));
+	assertThat(consumed, equalTo(Collections.<String>emptyList()));
+	assertThat(output.getInFlight(), equalTo(1));
+
+	release.countDown();
+	assertTrue(output.drain(10000));
+	assertThat(printed, equalTo(Arrays.asList("3")));
+	assertThat(consumed, equalTo(Arrays.asList("3")));
+	assertThat(output.getInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void testFailedPrintStillCountsAsConsumed() throws InterruptedException {
+	List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+	StagedGroupOutput output = new StagedGroupOutput(generator, (assembly) -> {
+	    throw new IllegalStateException("closed");
+	}, 1, 2, 1, 2);
+	output.output(GroupDescriptor.forSequence(0), createGroup(1), () -> consumed.add("1"));
+
+	assertTrue(output.drain(10000));
+	assertThat(consumed, equalTo(Arrays.asList("1")));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+
+import org.junit.Test;
+
+public class StringDictionaryPrinterTest {
+    private final List<String> printed = new ArrayList<>();
+    private final ProfilerPrinter recorder = (assembly) -> printed.add(assembly.toString());
+
+    /* Encodes its content as the slot it is given */
+    private Assembly assembly(String content) {
+	return new AssemblyStub(content) {
+	    public Assembly encodeStrings(StringDictionary dictionary) {
+		int slot = dictionary.lookup(content);
+		if (slot == StringDictionary.NO_SLOT)
+		    return assembly(content+"="+dictionary.define(content));
+		return assembly("$"+slot);
+	    }
+	};
+    }
+
+    @Test
+    public void testAssembliesAreEncodedAgainstStreamDictionary() {
+	StringDictionaryPrinter printer = new StringDictionaryPrinter(
+		recorder, new StringDictionary(4, 1));
+	printer.print(assembly("kernel"));
+	printer.print(1, assembly("device"));
+	printer.print(GroupDescriptor.forSequence(2), assembly("kernel"));
+
+	assertThat(printed, equalTo(Arrays.asList("kernel=0", "device=1", "$0")));
+	assertThat(printer.getDictionary().getReferenced(), equalTo(1L));
+    }
+
+    @Test
+    public void testEachRecordBeginsAfresh() {
+	StringDictionaryPrinter printer = new StringDictionaryPrinter(
+		recorder, new StringDictionary(1, 1));
+	printer.print(assembly("kernel"));
+	printer.print(assembly("device"));
+
+	assertThat(printed, equalTo(Arrays.asList("kernel=0", "device=0")));
+    }
+
+    @Test
+    public void testPrettyPrintersAreLeftUnencoded() {
+	StringDictionaryPrinter printer = new StringDictionaryPrinter(
+		new RecordingPrinter(true, false), new StringDictionary(4, 1));
+	printer.print(assembly("kernel"));
+	printer.print(assembly("kernel"));
+
+	assertThat(printer.isEncoding(), is(false));
+	assertThat(printed, equalTo(Arrays.asList("kernel", "kernel")));
+	assertThat(printer.getDictionary().getDefined(), equalTo(0L));
+	assertThat(printer.getDictionary().getReferenced(), equalTo(0L));
+    }
+
+    @Test
+    public void testPrintersThatMayDropAreLeftUnencoded() {
+	StringDictionaryPrinter printer = new StringDictionaryPrinter(
+		new RecordingPrinter(false, true), new StringDictionary(4, 1));
+	printer.print(assembly("kernel"));
+	printer.print(assembly("kernel"));
+
+	assertThat(printer.isEncoding(), is(false));
+	assertThat(printed, equalTo(Arrays.asList("kernel", "kernel")));
+	assertThat(printer.getDictionary().getDefined(), equalTo(0L));
+    }
+
+    private class RecordingPrinter implements ProfilerPrinter {
+	private final boolean pretty;
+	private final boolean mayDrop;
+
+	RecordingPrinter(boolean pretty, boolean mayDrop) {
+	    this.pretty = pretty;
+	    this.mayDrop = mayDrop;
+	}
+
+	public void print(Assembly output) {
+	    recorder.print(output);
+	}
+
+	public boolean isPretty() {
+	    return pretty;
+	}
+
+	public boolean mayDrop() {
+	    return mayDrop;
+	}
+    }
+}
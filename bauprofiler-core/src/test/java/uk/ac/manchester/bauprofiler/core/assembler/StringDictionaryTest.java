@@ -0,0 +1,83 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core.assembler;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+
+public class StringDictionaryTest {
+    private final StringDictionary dictionary = new StringDictionary(2, 4);
+
+    @Test
+    public void testValuesShorterThanMinLengthAreNotAccepted() {
+	assertFalse(dictionary.accepts("gpu"));
+	assertTrue(dictionary.accepts("cuda"));
+    }
+
+    @Test
+    public void testDefinedValueIsFoundInItsSlot() {
+	dictionary.beginRecord();
+	assertThat(dictionary.lookup("kernel"), equalTo(StringDictionary.NO_SLOT));
+	assertThat(dictionary.define("kernel"), equalTo(0));
+	assertThat(dictionary.define("device"), equalTo(1));
+
+	assertThat(dictionary.lookup("device"), equalTo(1));
+	assertThat(dictionary.getDefined(), equalTo(2L));
+	assertThat(dictionary.getReferenced(), equalTo(1L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedValueGivesUpItsSlot() {
+	dictionary.beginRecord();
+	dictionary.define("kernel");
+	dictionary.define("device");
+	dictionary.beginRecord();
+	dictionary.lookup("kernel");
+
+	assertThat(dictionary.define("task"), equalTo(1));
+	assertThat(dictionary.lookup("device"), equalTo(StringDictionary.NO_SLOT));
+	assertThat(dictionary.lookup("kernel"), equalTo(0));
+	assertThat(dictionary.size(), equalTo(2));
+	assertThat(dictionary.getEvicted(), equalTo(1L));
+    }
+
+    @Test
+    public void testSlotsInUseByCurrentRecordAreNotEvicted() {
+	dictionary.beginRecord();
+	dictionary.define("kernel");
+	dictionary.define("device");
+
+	assertThat(dictionary.define("task"), equalTo(StringDictionary.NO_SLOT));
+	assertThat(dictionary.getEvicted(), equalTo(0L));
+    }
+
+    @Test
+    public void testEmptyDictionaryHasNoSlots() {
+	assertThat(new StringDictionary(0, 1).define("kernel"), equalTo(StringDictionary.NO_SLOT));
+    }
+}
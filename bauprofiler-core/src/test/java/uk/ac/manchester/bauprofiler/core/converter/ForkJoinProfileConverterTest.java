@@ -0,0 +1,192 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.core.converter;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.manchester.bauprofiler.core.Profile;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+public class ForkJoinProfileConverterTest {
+    private ForkJoinPool pool;
+
+    private List<ConvertableProfile> createProfiles(int count) {
+	List<ConvertableProfile> profiles = new LinkedList<>();
+	for (int i = 0; i < count; i++)
+	    profiles.add(new NumberedProfile(i));
+	return profiles;
+    }
+
+    private void assertConvertedInOrder(List<Conversion> conversions, int count) {
+	assertThat(conversions.size(), equalTo(count));
+	for (int i = 0; i < count; i++)
+	    assertThat(conversions.get(i).id(), equalTo((long) i));
+    }
+
+    @Before
+    public void createPool() {
+	pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void shutdownPool() {
+	pool.shutdownNow();
+    }
+
+    @Test
+    public void testLargeGroupKeepsOrder() {
+	ProfileConverter converter = new ForkJoinProfileConverter(pool, 1000);
+
+	assertConvertedInOrder(converter.convert(createProfiles(100_000)), 100_000);
+    }
+
+    @Test
+    public void testLargeGroupIsSplitAcrossWorkers() {
+	ProfileConverter converter = new ForkJoinProfileConverter(pool, 1000);
+	List<ConvertableProfile> profiles = createProfiles(100_000);
+
+	converter.convert(profiles);
+
+	for (ConvertableProfile profile : profiles)
+	    assertTrue(((NumberedProfile) profile).convertedOnWorker);
+    }
+
+    @Test
+    public void testSmallGroupIsConvertedOnCallingThread() {
+	ProfileConverter converter = new ForkJoinProfileConverter(pool, 1000);
+	List<ConvertableProfile> profiles = createProfiles(999);
+
+	assertConvertedInOrder(converter.convert(profiles), 999);
+	for (ConvertableProfile profile : profiles)
+	    assertFalse(((NumberedProfile) profile).convertedOnWorker);
+    }
+
+    @Test
+    public void testEveryProfileIsPostProcessedBeforeConversion() {
+	ProfileConverter converter = new ForkJoinProfileConverter(pool, 0);
+	List<ConvertableProfile> profiles = createProfiles(10_000);
+
+	converter.convert(profiles);
+
+	for (ConvertableProfile profile : profiles)
+	    assertTrue(((NumberedProfile) profile).postProcessedBeforeConversion);
+    }
+
+    @Test
+    public void testWholeGroupIsPostProcessedBeforeAnyConversion() {
+	ProfileConverter converter = new ForkJoinProfileConverter(pool, 0);
+	AtomicInteger postProcessed = new AtomicInteger();
+	List<ConvertableProfile> profiles = new LinkedList<>();
+	for (int i = 0; i < 10_000; i++)
+	    profiles.add(new GroupProfile(i, postProcessed, 10_000));
+
+	converter.convert(profiles);
+
+	for (ConvertableProfile profile : profiles)
+	    assertTrue(((GroupProfile) profile).groupPostProcessedBeforeConversion);
+    }
+
+    private static class NumberedProfile implements ConvertableProfile {
+	private final long number;
+	private boolean postProcessed = false;
+	private boolean postProcessedBeforeConversion = false;
+	private boolean convertedOnWorker = false;
+
+	NumberedProfile(long number) {
+	    this.number = number;
+	}
+
+	public int getId() {
+	    return 0;
+	}
+
+	public Optional<Integer> getDependencyId() {
+	    return Optional.empty();
+	}
+
+	public boolean dependsOn(Profile dep) {
+	    return false;
+	}
+
+	public void setVerbosity(boolean verbose) {
+	}
+
+	@Override
+	public void postProcess() {
+	    postProcessed = true;
+	}
+
+	public Conversion convert() {
+	    postProcessedBeforeConversion = postProcessed;
+	    convertedOnWorker = Thread.currentThread() instanceof ForkJoinWorkerThread;
+	    return new Conversion() {
+		public long id() {
+		    return number;
+		}
+
+		public AssemblyNode[] getAssemblyNodes() {
+		    return new AssemblyNode[]{};
+		}
+	    };
+	}
+    }
+
+    private static class GroupProfile extends NumberedProfile {
+	private final AtomicInteger postProcessed;
+	private final int groupSize;
+	private boolean groupPostProcessedBeforeConversion = false;
+
+	GroupProfile(long number, AtomicInteger postProcessed, int groupSize) {
+	    super(number);
+	    this.postProcessed = postProcessed;
+	    this.groupSize = groupSize;
+	}
+
+	@Override
+	public void postProcess() {
+	    super.postProcess();
+	    postProcessed.incrementAndGet();
+	}
+
+	@Override
+	public Conversion convert() {
+	    groupPostProcessedBeforeConversion = postProcessed.get() == groupSize;
+	    return super.convert();
+	}
+    }
+}
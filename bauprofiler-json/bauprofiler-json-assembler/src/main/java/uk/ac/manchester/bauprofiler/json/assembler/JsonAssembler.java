@@ -25,37 +25,64 @@
  */
 package uk.ac.manchester.bauprofiler.json.assembler;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Deque;
-import java.util.List;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
 
 import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
 import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
 import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonWriter;
 
 public class JsonAssembler implements Assembler {
+    private static final char[] VALUE_SEPARATOR = {','};
+    private static final int INITIAL_MAX_DEPTH = 8;
+    private static final int PRETTY_SPACING = 4;
+
+    private final boolean prettyPrint;
+
+    public JsonAssembler() {
+        this(false);
+    }
+
+    public JsonAssembler(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
 
     public Assembly assemble(Iterator<Conversion> conversions, int estimatedSize) {
         return new InternalAssembler(conversions, (int)(estimatedSize*1.02)).assemble();
     }
 
+    /* Extension points for assemblers that re-encode the assembled structure */
+    protected JsonWriter createWriter(int size) {
+        return (prettyPrint) ? JsonWriter.pretty(size, PRETTY_SPACING) : JsonWriter.compact(size);
+    }
+
+    protected Assembly createAssembly(JsonWriter json) {
+        return new JsonAssembly(json.toString(), json.isPretty());
+    }
+
     private class InternalAssembler {
-        private StringBuilder json;
+        private JsonWriter json;
         private Iterator<Conversion> conversions;
-        private String body;
+        private Conversion conversion;
         private AssemblyNode[] newDepthTree;
-        private List<AssemblyNode> depthTree = new ArrayList<>();
-        private Deque<Long> conversionIds = new ArrayDeque<>();
-        private Deque<Integer> conversionIdDepths = new ArrayDeque<>();
         private long conversionID;
-        private String separator;
+        private char[] separator;
+
+        /* Open layers of depth, indexed by depth */
+        private AssemblyNode[] depthNodes = new AssemblyNode[INITIAL_MAX_DEPTH];
+        private long[] depthNodeIds = new long[INITIAL_MAX_DEPTH];
+        private int depth = 0;
+
+        /* Stack of conversions that opened layers of depth, with the depth they opened to */
+        private long[] conversionIds = new long[INITIAL_MAX_DEPTH];
+        private int[] conversionIdDepths = new int[INITIAL_MAX_DEPTH];
+        private int openConversions = 0;
 
         public InternalAssembler(Iterator<Conversion> conversions, int size) {
             this.conversions = conversions;
-            json = new StringBuilder(size);
+            json = createWriter(size);
         }
 
         public Assembly assemble() {
@@ -64,7 +91,7 @@ public class JsonAssembler implements Assembler {
             includeOtherConversions();
             closeRemainingLayersOfDepth();
             closeObject();
-            return new JsonAssembly(json.toString());
+            return createAssembly(json);
         }
 
         private void openObject() {
@@ -96,10 +123,9 @@ public class JsonAssembler implements Assembler {
         }
 
         private void getNextConversion() {
-            Conversion c = conversions.next();
-            body = c.toString();
-            newDepthTree = c.getAssemblyNodes();
-            conversionID = c.id();
+            conversion = conversions.next();
+            newDepthTree = conversion.getAssemblyNodes();
+            conversionID = conversion.id();
         }
 
         private void closeMismatchingConversionDepth() {
@@ -108,37 +134,48 @@ public class JsonAssembler implements Assembler {
 
         private void openNewLayersOfDepth() {
             openConversionDepth();
-            for (int i = depthTree.size(); i < newDepthTree.length; i++) {
-                depthTree.add(newDepthTree[i]);
-                json.append(newDepthTree[i].prefix()
-                        + newDepthTree[i].separator()
-                        + newDepthTree[i].preOpen()
-                        + newDepthTree[i].open());
+            ensureDepthCapacity(newDepthTree.length);
+            for (int i = depth; i < newDepthTree.length; i++) {
+                depthNodes[i] = newDepthTree[i];
+                depthNodeIds[i] = newDepthTree[i].uniqueId();
+                json.append(newDepthTree[i].openFragment());
             }
+            depth = Math.max(depth, newDepthTree.length);
         }
 
         private void openConversionDepth() {
-            if (newDepthTree.length > depthTree.size()) {
-                conversionIds.addLast(conversionID);
-                conversionIdDepths.addLast(newDepthTree.length);
+            if (newDepthTree.length > depth) {
+                ensureDepthCapacity(openConversions+1);
+                conversionIds[openConversions] = conversionID;
+                conversionIdDepths[openConversions] = newDepthTree.length;
+                ++openConversions;
             }
         }
 
+        private void ensureDepthCapacity(int capacity) {
+            if (capacity <= depthNodes.length)
+                return;
+            int newCapacity = Math.max(capacity, depthNodes.length*2);
+            depthNodes = Arrays.copyOf(depthNodes, newCapacity);
+            depthNodeIds = Arrays.copyOf(depthNodeIds, newCapacity);
+            conversionIds = Arrays.copyOf(conversionIds, newCapacity);
+            conversionIdDepths = Arrays.copyOf(conversionIdDepths, newCapacity);
+        }
+
         private void includeConversionBody() {
-            json.append(body);
+            json.append(conversion);
         }
 
         private void determineSeparator() {
-            if (isMatchingConversion()) {
-                AssemblyNode n = depthTree.get(depthTree.size()-1);
-                separator = n.close()+","+n.open();
-            } else
-                separator = ",";
+            if (isMatchingConversion())
+                separator = depthNodes[depth-1].separatorFragment();
+            else
+                separator = VALUE_SEPARATOR;
         }
 
         private boolean isMatchingConversion() {
-            return conversionIds.size() > 0
-                && conversionIds.peekLast() == conversionID;
+            return openConversions > 0
+                && conversionIds[openConversions-1] == conversionID;
         }
 
         private void includeSeparator() {
@@ -146,22 +183,21 @@ public class JsonAssembler implements Assembler {
         }
 
         private void closeExcessLayersOfDepth() {
-            while (depthTree.size() > newDepthTree.length)
+            while (depth > newDepthTree.length)
                 closeMaxDepth();
             closeExcessConversionDepth();
         }
 
         private void closeMaxDepth() {
-            AssemblyNode deepestNode = depthTree.remove(depthTree.size()-1);
-            json.append(deepestNode.close()+deepestNode.postClose());
+            AssemblyNode deepestNode = depthNodes[--depth];
+            depthNodes[depth] = null;
+            json.append(deepestNode.closeFragment());
         }
 
         private void closeExcessConversionDepth() {
-            while (conversionIds.size() > 0
-                    && conversionIdDepths.peekLast() > depthTree.size()) {
-                conversionIds.removeLast();
-                conversionIdDepths.removeLast();
-            }
+            while (openConversions > 0
+                    && conversionIdDepths[openConversions-1] > depth)
+                --openConversions;
         }
 
         private void closeMismatchingLayersOfDepth() {
@@ -169,30 +205,25 @@ public class JsonAssembler implements Assembler {
                 return;
 
             int equalityAtDepth = findMaxDepthEquality();
-            for (int i = findMaxDepth(); i > equalityAtDepth; i--)
+            while (depth > equalityAtDepth)
                 closeMaxDepth();
 
             closeMismatchingConversionDepth();
         }
 
         private int findMaxDepthEquality() {
-            int maxDepth = findMaxDepth();
-            for (int equality = 0; equality < maxDepth; equality++)
+            for (int equality = 0; equality < depth; equality++)
                 if (!isMatchingNodeIDAtDepth(equality))
                     return equality;
-            return maxDepth;
-        }
-
-        private int findMaxDepth() {
-            return depthTree.size();
+            return depth;
         }
 
         private boolean isMatchingNodeIDAtDepth(int depth) {
-            return depthTree.get(depth).uniqueId() == newDepthTree[depth].uniqueId();
+            return depthNodeIds[depth] == newDepthTree[depth].uniqueId();
         }
 
         private void closeRemainingLayersOfDepth() {
-            while (depthTree.size() > 0)
+            while (depth > 0)
                 closeMaxDepth();
         }
 
@@ -25,14 +25,21 @@
  */
 package uk.ac.manchester.bauprofiler.json.assembler;
 
+import java.util.Arrays;
+
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
 import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
 
 public class JsonAssemblerFactory implements AssemblerFactory {
+    public static final String PRETTY_PRINT_PARAM = "prettyprint";
+
+    private final boolean prettyPrint;
+
     public JsonAssemblerFactory(String[] params) {
+        prettyPrint = Arrays.asList(params).contains(PRETTY_PRINT_PARAM);
     }
 
     public Assembler create() {
-        return new JsonAssembler();
+        return new JsonAssembler(prettyPrint);
     }
 }
@@ -27,12 +27,24 @@ package uk.ac.manchester.bauprofiler.json.assembler;
 
 import uk.ac.manchester.bauprofiler.json.core.utils.JsonUtils;
 import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
 
 public class JsonAssembly implements Assembly {
+    private static final int PRETTY_SPACING = 4;
+
     private String content;
+    private boolean pretty;
+    /* Pretty printing is for reading by eye, so it keeps the strings unencoded */
+    private Assembly unencoded;
 
     public JsonAssembly(String content) {
+        this(content, false);
+    }
+
+    public JsonAssembly(String content, boolean pretty) {
         this.content = content;
+        this.pretty = pretty;
+        this.unencoded = this;
     }
 
     public String toString() {
@@ -40,6 +52,15 @@ public class JsonAssembly implements Assembly {
     }
 
     public String toPrettyString() {
-        return JsonUtils.prettyPrint(content, 4); 
+        if (unencoded != this)
+            return unencoded.toPrettyString();
+        return (pretty) ? content : JsonUtils.prettyPrint(content, PRETTY_SPACING);
+    }
+
+    public Assembly encodeStrings(StringDictionary dictionary) {
+        JsonAssembly encoded = new JsonAssembly(
+                JsonStringEncoder.encode(content, dictionary), pretty);
+        encoded.unencoded = this;
+        return encoded;
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import java.util.StringJoiner;
+
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+
+/* Replaces the string values of a json record by "$<slot>" references into a
+ * stream dictionary. Slots first used by the record are defined in a side table
+ * leading the record, {"$strings":{"<slot>":"value",...},...}. Values that
+ * start with '$' but are written as is gain a second '$'. Keys are untouched */
+final class JsonStringEncoder {
+    static final String STRINGS_KEY = "$strings";
+    static final char REFERENCE = '$';
+
+    private final String json;
+    private final StringDictionary dictionary;
+    private final StringBuilder body;
+    private final StringJoiner definitions =
+        new StringJoiner(",", "\""+STRINGS_KEY+"\":{", "},");
+    private boolean defined = false;
+
+    private JsonStringEncoder(String json, StringDictionary dictionary) {
+        this.json = json;
+        this.dictionary = dictionary;
+        body = new StringBuilder(json.length());
+    }
+
+    /* Records that are not json objects are returned as they are */
+    static String encode(String json, StringDictionary dictionary) {
+        return new JsonStringEncoder(json, dictionary).encode();
+    }
+
+    private String encode() {
+        int open = skipWhitespace(0);
+        if (open >= json.length() || json.charAt(open) != '{')
+            return json;
+        int i = open+1;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c != '"') {
+                body.append(c);
+                ++i;
+                continue;
+            }
+            int end = endOfString(i);
+            int next = skipWhitespace(end);
+            if (end > json.length() || (next < json.length() && json.charAt(next) == ':'))
+                body.append(json, i, Math.min(end, json.length()));
+            else
+                appendValue(json.substring(i+1, end-1));
+            i = end;
+        }
+        StringBuilder encoded = new StringBuilder(body.length()+64);
+        encoded.append(json, 0, open+1);
+        if (defined)
+            encoded.append(definitions.toString());
+        return encoded.append(body).toString();
+    }
+
+    private void appendValue(String value) {
+        int slot = slotOf(value);
+        body.append('"');
+        if (slot != StringDictionary.NO_SLOT)
+            body.append(REFERENCE).append(slot);
+        else if (!value.isEmpty() && value.charAt(0) == REFERENCE)
+            body.append(REFERENCE).append(value);
+        else
+            body.append(value);
+        body.append('"');
+    }
+
+    private int slotOf(String value) {
+        if (!dictionary.accepts(value))
+            return StringDictionary.NO_SLOT;
+        int slot = dictionary.lookup(value);
+        if (slot != StringDictionary.NO_SLOT)
+            return slot;
+        slot = dictionary.define(value);
+        if (slot != StringDictionary.NO_SLOT) {
+            definitions.add("\""+slot+"\":\""+value+"\"");
+            defined = true;
+        }
+        return slot;
+    }
+
+    /* Index after the closing quote, past the end when unterminated */
+    private int endOfString(int start) {
+        for (int i = start+1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\\')
+                ++i;
+            else if (c == '"')
+                return i+1;
+        }
+        return json.length()+1;
+    }
+
+    private int skipWhitespace(int from) {
+        int i = from;
+        while (i < json.length() && Character.isWhitespace(json.charAt(i)))
+            ++i;
+        return i;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.manchester.bauprofiler.core.SchemaOncePrinter;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonUtils;
+
+/* Expands a schema-once stream back into regular json. Schema records
+ * {"$schema":{"@<id>":["key",...],...}} are consumed, and every row
+ * "@<id>":[value,...] of a later record is replaced by its key value pairs.
+ * Records are read one per line, as written by the compact printers. */
+public class SchemaOnceDecoder {
+    private static final int PRETTY_SPACING = 4;
+    private static final String SCHEMA_KEY = "\""+SchemaOncePrinter.SCHEMA_KEY+"\"";
+
+    private final Map<String, List<String>> rows = new HashMap<>();
+
+    /* Null when the record is a schema record */
+    public String expand(String record) {
+        Cursor cursor = new Cursor(record);
+        if (cursor.isSchemaRecord()) {
+            readSchema(cursor);
+            return null;
+        }
+        return expandRows(cursor);
+    }
+
+    public int decodeLines(Reader in, Writer out, boolean prettyPrint) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        int records = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            String json = expand(line);
+            if (json == null)
+                continue;
+            out.write((prettyPrint) ? JsonUtils.prettyPrint(json, PRETTY_SPACING) : json);
+            out.write('\n');
+            ++records;
+        }
+        out.flush();
+        return records;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /* Usage: SchemaOnceDecoder [--pretty] <input|-> [output] */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean prettyPrint = arguments.remove("--pretty");
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            System.err.println("usage: SchemaOnceDecoder [--pretty] <input|-> [output]");
+            System.exit(1);
+        }
+        try (Reader in = openInput(arguments.get(0))
+                ; Writer out = openOutput((arguments.size() > 1) ? arguments.get(1) : null)) {
+            new SchemaOnceDecoder().decodeLines(in, out, prettyPrint);
+        }
+    }
+
+    private static Reader openInput(String path) throws IOException {
+        if (path.equals("-"))
+            return new InputStreamReader(System.in, StandardCharsets.UTF_8);
+        return Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private static Writer openOutput(String path) throws IOException {
+        if (path == null)
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private void readSchema(Cursor cursor) {
+        cursor.expect('{');
+        cursor.readString();
+        cursor.expect(':');
+        cursor.expect('{');
+        if (cursor.accept('}'))
+            return;
+        do {
+            String row = cursor.readString();
+            cursor.expect(':');
+            cursor.expect('[');
+            List<String> keys = new ArrayList<>();
+            if (!cursor.accept(']')) {
+                do {
+                    keys.add(cursor.readString());
+                } while (cursor.accept(','));
+                cursor.expect(']');
+            }
+            rows.put(row, keys);
+        } while (cursor.accept(','));
+        cursor.expect('}');
+    }
+
+    /* Everything outside of the rows is copied as is */
+    private String expandRows(Cursor cursor) {
+        StringBuilder json = new StringBuilder(cursor.text.length()*2);
+        while (!cursor.atEnd()) {
+            if (cursor.peek() != '"') {
+                json.append(cursor.next());
+                continue;
+            }
+            String string = cursor.readString();
+            List<String> keys = rows.get(string);
+            int end = cursor.position;
+            if (keys != null && cursor.accept(':') && cursor.accept('[')) {
+                appendRow(json, string, keys, cursor);
+            } else {
+                cursor.position = end;
+                json.append(string);
+            }
+        }
+        return json.toString();
+    }
+
+    private void appendRow(StringBuilder json, String row, List<String> keys, Cursor cursor) {
+        List<String> values = new ArrayList<>(keys.size());
+        if (!cursor.accept(']')) {
+            do {
+                values.add(cursor.readValue());
+            } while (cursor.accept(','));
+            cursor.expect(']');
+        }
+        if (values.size() != keys.size())
+            throw new MalformedRecordException(
+                    row+" has "+values.size()+" values for "+keys.size()+" keys");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            json.append(keys.get(i)).append(':').append(values.get(i));
+        }
+    }
+
+    private static class Cursor {
+        private final String text;
+        private int position = 0;
+
+        Cursor(String text) {
+            this.text = text;
+        }
+
+        boolean isSchemaRecord() {
+            int start = position;
+            boolean schema = accept('{') && skipWhitespace() && peek() == '"'
+                && readString().equals(SCHEMA_KEY);
+            position = start;
+            return schema;
+        }
+
+        /* False at the end of the text */
+        boolean skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                ++position;
+            return position < text.length();
+        }
+
+        char peek() {
+            return text.charAt(position);
+        }
+
+        char next() {
+            return text.charAt(position++);
+        }
+
+        boolean accept(char c) {
+            if (!skipWhitespace() || peek() != c)
+                return false;
+            ++position;
+            return true;
+        }
+
+        void expect(char c) {
+            if (!accept(c))
+                throw new MalformedRecordException("expected '"+c+"' at "+position);
+        }
+
+        String readString() {
+            if (!skipWhitespace() || peek() != '"')
+                throw new MalformedRecordException("expected a string at "+position);
+            int start = position++;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '\\')
+                    ++position;
+                else if (c == '"')
+                    return text.substring(start, position);
+            }
+            throw new MalformedRecordException("unterminated string at "+start);
+        }
+
+        boolean atEnd() {
+            return position >= text.length();
+        }
+
+        String readValue() {
+            if (!skipWhitespace())
+                throw new MalformedRecordException("expected a value at "+position);
+            int start = position;
+            int depth = 0;
+            while (!atEnd()) {
+                char c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (depth == 0 && (c == ',' || c == ']' || c == '}'))
+                    break;
+                if (c == '[' || c == '{')
+                    ++depth;
+                else if (c == ']' || c == '}')
+                    --depth;
+                ++position;
+            }
+            String value = text.substring(start, position).trim();
+            if (value.isEmpty() || depth != 0)
+                throw new MalformedRecordException("expected a value at "+start);
+            return value;
+        }
+    }
+
+    public static class MalformedRecordException extends RuntimeException {
+        public MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonWriter;
+import uk.ac.manchester.bauprofiler.json.core.Skeleton;
+
+/* Produces the same output as JsonAssembler for conversions whose id is
+ * the class id of a generated profile, but reads the layers of depth from
+ * a precomputed Skeleton instead of matching AssemblyNode arrays. */
+public class SkeletonAssembler implements Assembler {
+    private static final char[] VALUE_SEPARATOR = {','};
+    private static final int INITIAL_MAX_DEPTH = 8;
+
+    private static final int PRETTY_SPACING = 4;
+
+    private final Skeleton skeleton;
+    private final boolean prettyPrint;
+
+    public SkeletonAssembler(Skeleton skeleton) {
+        this(skeleton, false);
+    }
+
+    public SkeletonAssembler(Skeleton skeleton, boolean prettyPrint) {
+        this.skeleton = skeleton;
+        this.prettyPrint = prettyPrint;
+    }
+
+    public Assembly assemble(Iterator<Conversion> conversions, int estimatedSize) {
+        return new InternalAssembler(conversions, (int)(estimatedSize*1.02)).assemble();
+    }
+
+    private class InternalAssembler {
+        private JsonWriter json;
+        private Iterator<Conversion> conversions;
+        private Conversion conversion;
+        private int classId;
+        private int newDepth;
+        private int previousClassId;
+        private char[] separator;
+
+        /* Class ids that opened each layer of depth */
+        private int[] depthOwners = new int[INITIAL_MAX_DEPTH];
+        private int depth = 0;
+
+        private int[] conversionIds = new int[INITIAL_MAX_DEPTH];
+        private int[] conversionIdDepths = new int[INITIAL_MAX_DEPTH];
+        private int openConversions = 0;
+
+        public InternalAssembler(Iterator<Conversion> conversions, int size) {
+            this.conversions = conversions;
+            json = (prettyPrint)
+                ? JsonWriter.pretty(size, PRETTY_SPACING) : JsonWriter.compact(size);
+        }
+
+        public Assembly assemble() {
+            json.append('{');
+            includeFirstConversion();
+            includeOtherConversions();
+            closeRemainingLayersOfDepth();
+            json.append('}');
+            return new JsonAssembly(json.toString(), json.isPretty());
+        }
+
+        private void includeFirstConversion() {
+            if (conversions.hasNext()) {
+                getNextConversion();
+                openNewLayersOfDepth();
+                json.append(conversion);
+            }
+        }
+
+        private void includeOtherConversions() {
+            while (conversions.hasNext()) {
+                getNextConversion();
+                closeExcessLayersOfDepth();
+                determineSeparator();
+                closeMismatchingLayersOfDepth();
+                json.append(separator);
+                openNewLayersOfDepth();
+                json.append(conversion);
+            }
+        }
+
+        private void getNextConversion() {
+            conversion = conversions.next();
+            previousClassId = classId;
+            classId = (int) conversion.id();
+            newDepth = skeleton.depth(classId);
+        }
+
+        private void openNewLayersOfDepth() {
+            if (newDepth <= depth)
+                return;
+            ensureDepthCapacity(newDepth);
+            conversionIds[openConversions] = classId;
+            conversionIdDepths[openConversions++] = newDepth;
+            for ( ; depth < newDepth; depth++) {
+                depthOwners[depth] = classId;
+                json.append(skeleton.openFragment(classId, depth));
+            }
+        }
+
+        private void ensureDepthCapacity(int capacity) {
+            if (capacity <= depthOwners.length)
+                return;
+            int newCapacity = Math.max(capacity, depthOwners.length*2);
+            depthOwners = Arrays.copyOf(depthOwners, newCapacity);
+            conversionIds = Arrays.copyOf(conversionIds, newCapacity);
+            conversionIdDepths = Arrays.copyOf(conversionIdDepths, newCapacity);
+        }
+
+        private void determineSeparator() {
+            if (isMatchingConversion())
+                separator = skeleton.separatorFragment(depthOwners[depth-1], depth-1);
+            else
+                separator = VALUE_SEPARATOR;
+        }
+
+        private boolean isMatchingConversion() {
+            return openConversions > 0 && conversionIds[openConversions-1] == classId;
+        }
+
+        private void closeExcessLayersOfDepth() {
+            while (depth > newDepth)
+                closeMaxDepth();
+            closeExcessConversionDepth();
+        }
+
+        private void closeMaxDepth() {
+            --depth;
+            json.append(skeleton.closeFragment(depthOwners[depth], depth));
+        }
+
+        private void closeExcessConversionDepth() {
+            while (openConversions > 0 && conversionIdDepths[openConversions-1] > depth)
+                --openConversions;
+        }
+
+        /* The open layers are always a prefix of the previous conversion's
+         * layout, so the matching depth is known without comparing nodes */
+        private void closeMismatchingLayersOfDepth() {
+            if (isMatchingConversion())
+                return;
+            int equalityAtDepth = Math.min(depth, skeleton.commonDepth(previousClassId, classId));
+            while (depth > equalityAtDepth)
+                closeMaxDepth();
+            closeExcessConversionDepth();
+        }
+
+        private void closeRemainingLayersOfDepth() {
+            while (depth > 0)
+                closeMaxDepth();
+        }
+    }
+}
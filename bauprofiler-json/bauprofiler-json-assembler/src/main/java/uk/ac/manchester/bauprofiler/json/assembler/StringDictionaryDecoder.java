@@ -0,0 +1,239 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import static uk.ac.manchester.bauprofiler.json.assembler.JsonStringEncoder.REFERENCE;
+import static uk.ac.manchester.bauprofiler.json.assembler.JsonStringEncoder.STRINGS_KEY;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.manchester.bauprofiler.json.core.utils.JsonUtils;
+
+/* Expands a stream written through a string dictionary back into regular json.
+ * The "$strings" side table leading a record redefines slots of the dictionary
+ * and is dropped, "$<slot>" values are replaced by the value in their slot and
+ * "$$" values lose their extra '$'. Records are read one per line, in stream
+ * order. Where schemas are also printed once, expand strings first. */
+public class StringDictionaryDecoder {
+    private static final int PRETTY_SPACING = 4;
+    private static final String SIDE_TABLE = "\""+STRINGS_KEY+"\"";
+
+    private final List<String> slots = new ArrayList<>();
+
+    public String expand(String record) {
+        Record in = new Record(record);
+        in.skipWhitespace();
+        if (in.atEnd() || in.peek() != '{')
+            return record;
+        StringBuilder json = new StringBuilder(record.length()*2);
+        json.append(record, 0, ++in.position);
+        readSideTable(in);
+        while (!in.atEnd()) {
+            if (in.peek() != '"') {
+                json.append(in.next());
+                continue;
+            }
+            String string = in.readString();
+            int end = in.position;
+            in.skipWhitespace();
+            boolean key = !in.atEnd() && in.peek() == ':';
+            in.position = end;
+            json.append((key) ? string : expandValue(string));
+        }
+        return json.toString();
+    }
+
+    public int decodeLines(Reader in, Writer out, boolean prettyPrint) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        int records = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            String json = expand(line);
+            out.write((prettyPrint) ? JsonUtils.prettyPrint(json, PRETTY_SPACING) : json);
+            out.write('\n');
+            ++records;
+        }
+        out.flush();
+        return records;
+    }
+
+    public int getSlotCount() {
+        return slots.size();
+    }
+
+    /* Usage: StringDictionaryDecoder [--pretty] <input|-> [output] */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean prettyPrint = arguments.remove("--pretty");
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            System.err.println("usage: StringDictionaryDecoder [--pretty] <input|-> [output]");
+            System.exit(1);
+        }
+        try (Reader in = openInput(arguments.get(0))
+                ; Writer out = openOutput((arguments.size() > 1) ? arguments.get(1) : null)) {
+            new StringDictionaryDecoder().decodeLines(in, out, prettyPrint);
+        }
+    }
+
+    private static Reader openInput(String path) throws IOException {
+        if (path.equals("-"))
+            return new InputStreamReader(System.in, StandardCharsets.UTF_8);
+        return Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private static Writer openOutput(String path) throws IOException {
+        if (path == null)
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private void readSideTable(Record in) {
+        int start = in.position;
+        in.skipWhitespace();
+        if (!in.record.startsWith(SIDE_TABLE, in.position)) {
+            in.position = start;
+            return;
+        }
+        in.readString();
+        in.expect(':');
+        in.expect('{');
+        if (!in.accept('}')) {
+            do {
+                int slot = parseSlot(in.readString());
+                in.expect(':');
+                String value = in.readString();
+                define(slot, value.substring(1, value.length()-1));
+            } while (in.accept(','));
+            in.expect('}');
+        }
+        in.expect(',');
+    }
+
+    private int parseSlot(String string) {
+        try {
+            return Integer.parseInt(string.substring(1, string.length()-1));
+        } catch (NumberFormatException e) {
+            throw new MalformedRecordException("bad slot "+string);
+        }
+    }
+
+    /* Slots are handed out in order, so a new slot is never past the end */
+    private void define(int slot, String value) {
+        if (slot < 0 || slot > slots.size())
+            throw new MalformedRecordException("slot "+slot+" out of order");
+        if (slot == slots.size())
+            slots.add(value);
+        else
+            slots.set(slot, value);
+    }
+
+    private String expandValue(String string) {
+        if (string.length() < 3 || string.charAt(1) != REFERENCE)
+            return string;
+        if (string.charAt(2) == REFERENCE)
+            return "\""+string.substring(2);
+        int slot = parseSlot("\""+string.substring(2));
+        if (slot >= slots.size())
+            throw new MalformedRecordException("undefined slot "+slot);
+        return "\""+slots.get(slot)+"\"";
+    }
+
+    private static class Record {
+        private final String record;
+        private int position = 0;
+
+        Record(String record) {
+            this.record = record;
+        }
+
+        boolean atEnd() {
+            return position >= record.length();
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(record.charAt(position)))
+                ++position;
+        }
+
+        char peek() {
+            return record.charAt(position);
+        }
+
+        char next() {
+            return record.charAt(position++);
+        }
+
+        boolean accept(char c) {
+            skipWhitespace();
+            if (atEnd() || peek() != c)
+                return false;
+            ++position;
+            return true;
+        }
+
+        void expect(char c) {
+            if (!accept(c))
+                throw new MalformedRecordException("expected '"+c+"' at "+position);
+        }
+
+        /* The string with its quotes, or the rest of the record if unterminated */
+        String readString() {
+            skipWhitespace();
+            if (atEnd() || peek() != '"')
+                throw new MalformedRecordException("expected a string at "+position);
+            int start = position++;
+            while (!atEnd()) {
+                char c = record.charAt(position++);
+                if (c == '\\')
+                    ++position;
+                else if (c == '"')
+                    return record.substring(start, position);
+            }
+            position = record.length();
+            return record.substring(start);
+        }
+    }
+
+    public static class MalformedRecordException extends RuntimeException {
+        public MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
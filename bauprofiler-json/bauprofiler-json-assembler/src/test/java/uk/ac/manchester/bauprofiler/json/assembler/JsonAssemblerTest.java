@@ -38,12 +38,15 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Arrays;
+import java.io.IOException;
 
+import uk.ac.manchester.bauprofiler.core.assembler.Assembly;
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
 import uk.ac.manchester.bauprofiler.core.converter.Conversion;
 import uk.ac.manchester.bauprofiler.json.core.ObjectNode;
 import uk.ac.manchester.bauprofiler.json.core.ObjectArrayNode;
 import uk.ac.manchester.bauprofiler.json.core.ArrayNode;
+import uk.ac.manchester.bauprofiler.json.core.ChildNode;
 
 /* TODO Extremely hard to understand: 
  * Refactor to Assemble(Disassemble(json_string)) 
@@ -402,4 +405,113 @@ public class JsonAssemblerTest {
 		    +baseDepthTree[0].postClose()
 		    +CLOSE_OBJECT));
     }
+
+    @Test
+    public void testAssemblingObjectWithChildObject() {
+	String body = "\"metric\":\"TORNADO_RUNTIME\",\"events\":{\"ocl_timing\":6529479";
+	AssemblyNode[] depthTree = new AssemblyNode[] {
+	    new ObjectNode("\"vmbytecode\"", uniquelyEncodePrefix("\"vmbytecode\""))
+	    , new ChildNode(new ObjectNode("", uniquelyEncodePrefix("\"events\"")))
+	};
+	List<Conversion> conversions = new ArrayList<>();
+	conversions.add(createConversion(body, depthTree, getNextConversionId()));
+	String assembly = assembler.assemble(conversions.iterator(), 50).toString();
+
+	assertThat(assembly, equalTo(
+		    OPEN_OBJECT
+		    +depthTree[0].prefix()
+		    +depthTree[0].separator()
+		    +depthTree[0].open()
+		    +body
+		    +CLOSE_OBJECT
+		    +depthTree[0].close()
+		    +CLOSE_OBJECT));
+    }
+
+    @Test
+    public void testAssemblingKeyValuePairsBeyondInitialDepth() {
+	String[] prefixes = new String[12];
+	for (int i = 0; i < prefixes.length; i++)
+	    prefixes[i] = "\"level"+i+"\"";
+	String[] keyValuePairs = new String[] {
+	    "\"metric\":\"TORNADO_RUNTIME\""
+	    , "\"j_totalTime\":228870945"
+	};
+	AssemblyNode[] deepDepthTree = createObjectDepthTree(prefixes);
+	AssemblyNode[] baseDepthTree = createObjectDepthTree(prefixes[0]);
+	List<Conversion> conversions = new ArrayList<>();
+	conversions.add(createConversion(
+		    keyValuePairs[0], deepDepthTree, getNextConversionId()));
+	conversions.add(createConversion(
+		    keyValuePairs[1], baseDepthTree, getNextConversionId()));
+	String assembly = assembler.assemble(conversions.iterator(), 50).toString();
+
+	StringBuilder expected = new StringBuilder(OPEN_OBJECT);
+	for (AssemblyNode n : deepDepthTree)
+	    expected.append(n.prefix()+n.separator()+n.open());
+	expected.append(keyValuePairs[0]);
+	for (int i = deepDepthTree.length-1; i > 0; i--)
+	    expected.append(deepDepthTree[i].close());
+	expected.append(VALUE_SEPARATOR+keyValuePairs[1]+baseDepthTree[0].close()+CLOSE_OBJECT);
+	assertThat(assembly, equalTo(expected.toString()));
+    }
+
+    @Test
+    public void testPrettyAssemblingObjectArrayBelowObject() {
+	List<Conversion> conversions = new ArrayList<>();
+	conversions.add(createConversion("\"metric\":\"TORNADO_RUNTIME\""
+		    , createObjectDepthTree("\"vmbytecode\""), getNextConversionId()));
+	AssemblyNode[] kernels = createObjectArrayDepthTree("\"vmbytecode\"", "\"kernels\"");
+	long kernelsId = getNextConversionId();
+	conversions.add(createConversion("\"name\":\"add\"", kernels, kernelsId));
+	conversions.add(createConversion("\"name\":\"mul\"", kernels, kernelsId));
+	String assembly = new JsonAssembler(true).assemble(conversions.iterator(), 10).toString();
+
+	assertThat(assembly, equalTo(
+		    "{\n"
+		    +"    \"vmbytecode\": {\n"
+		    +"        \"metric\": \"TORNADO_RUNTIME\",\n"
+		    +"        \"kernels\": [{\n"
+		    +"                \"name\": \"add\"\n"
+		    +"            },\n"
+		    +"            {\n"
+		    +"                \"name\": \"mul\"\n"
+		    +"            }\n"
+		    +"        ]\n"
+		    +"    }\n"
+		    +"}"));
+    }
+
+    @Test
+    public void testPrettyAssemblingKeepsEscapedStringsIntact() {
+	String body = "\"name\":\"{\\\"a\\\":[1,2]}\"";
+	Assembly assembly = new JsonAssembler(true)
+	    .assemble(createZeroDepthConversionIterator(body), 10);
+
+	assertThat(assembly.toString(), equalTo(
+		    "{\n    \"name\": \"{\\\"a\\\":[1,2]}\"\n}"));
+	assertThat(assembly.toPrettyString(), equalTo(assembly.toString()));
+    }
+
+    @Test
+    public void testAssemblingWritesConversionsInPlace() {
+	Conversion conversion = new Conversion() {
+	    public long id() {
+		return getNextConversionId();
+	    }
+	    public String toString() {
+		throw new AssertionError("Conversion materialised as a String");
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return new AssemblyNode[] {};
+	    }
+	    public void writeTo(Appendable out) throws IOException {
+		out.append("\"metric\":\"TORNADO_RUNTIME\"");
+	    }
+	};
+	String assembly = assembler
+	    .assemble(Collections.singletonList(conversion).iterator(), 10).toString();
+
+	assertThat(assembly, equalTo("{\"metric\":\"TORNADO_RUNTIME\"}"));
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.json.core.Skeleton;
+
+public class NodeSkeleton implements Skeleton {
+    private final Map<Integer, AssemblyNode[]> layouts = new HashMap<>();
+
+    public NodeSkeleton add(int classId, AssemblyNode... nodes) {
+	layouts.put(classId, nodes);
+	return this;
+    }
+
+    public AssemblyNode[] layout(int classId) {
+	AssemblyNode[] nodes = layouts.get(classId);
+	if (nodes == null)
+	    throw new UnknownClassException(classId);
+	return nodes;
+    }
+
+    public int depth(int classId) {
+	return layout(classId).length;
+    }
+
+    public int commonDepth(int classId, int otherClassId) {
+	AssemblyNode[] a = layout(classId);
+	AssemblyNode[] b = layout(otherClassId);
+	int depth = 0;
+	while (depth < a.length && depth < b.length && a[depth].uniqueId() == b[depth].uniqueId())
+	    ++depth;
+	return depth;
+    }
+
+    public char[] openFragment(int classId, int depth) {
+	return layout(classId)[depth].openFragment();
+    }
+
+    public char[] closeFragment(int classId, int depth) {
+	return layout(classId)[depth].closeFragment();
+    }
+
+    public char[] separatorFragment(int classId, int depth) {
+	return layout(classId)[depth].separatorFragment();
+    }
+}
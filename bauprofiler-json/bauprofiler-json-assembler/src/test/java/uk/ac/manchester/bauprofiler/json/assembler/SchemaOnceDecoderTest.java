@@ -0,0 +1,93 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.IOException;
+
+public class SchemaOnceDecoderTest {
+    private static final String SCHEMA =
+	"{\"$schema\":{\"@3\":[\"name\",\"sizes\"],\"@3.child\":[\"time\"],\"@4\":[\"id\"]}}";
+
+    private SchemaOnceDecoder decoder;
+
+    @Before
+    public void setupDecoder() {
+	decoder = new SchemaOnceDecoder();
+	assertThat(decoder.expand(SCHEMA), nullValue());
+    }
+
+    @Test
+    public void testSchemaRecordRegistersRows() {
+	assertThat(decoder.getRowCount(), equalTo(3));
+    }
+
+    @Test
+    public void testExpandsRowsIntoKeyValuePairs() {
+	assertThat(decoder.expand(
+		    "{\"events\":[{\"@3\":[\"a,]\",[1, 2]],\"child\":{\"@3.child\":[0.50]}}"
+		    +",{\"@4\":[{\"x\":[1]}]}]}")
+		, equalTo("{\"events\":[{\"name\":\"a,]\",\"sizes\":[1, 2],\"child\":{\"time\":0.50}}"
+		    +",{\"id\":{\"x\":[1]}}]}"));
+    }
+
+    @Test
+    public void testLeavesUnknownRowsAndRowKeyValues() {
+	assertThat(decoder.expand("{\"@9\":[1],\"name\":\"@3\"}")
+		, equalTo("{\"@9\":[1],\"name\":\"@3\"}"));
+    }
+
+    @Test
+    public void testLaterSchemaRecordsAddRows() {
+	decoder.expand("{\"$schema\":{\"@5\":[\"a\",\"b\"]}}");
+
+	assertThat(decoder.expand("{\"@5\":[true,null]}"), equalTo("{\"a\":true,\"b\":null}"));
+	assertThat(decoder.getRowCount(), equalTo(4));
+    }
+
+    @Test(expected=SchemaOnceDecoder.MalformedRecordException.class)
+    public void testRejectsRowWithWrongValueCount() {
+	decoder.expand("{\"@4\":[1,2]}");
+    }
+
+    @Test
+    public void testDecodeLinesSkipsSchemaRecords() throws IOException {
+	StringWriter out = new StringWriter();
+
+	int records = new SchemaOnceDecoder().decodeLines(new StringReader(
+		    SCHEMA+"\n{\"@4\":[7]}\n\n{\"@4\":[8]}\n"), out, false);
+
+	assertThat(records, equalTo(2));
+	assertThat(out.toString(), equalTo("{\"id\":7}\n{\"id\":8}\n"));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+import uk.ac.manchester.bauprofiler.json.core.Skeleton;
+import uk.ac.manchester.bauprofiler.json.core.ObjectNode;
+import uk.ac.manchester.bauprofiler.json.core.ObjectArrayNode;
+import uk.ac.manchester.bauprofiler.json.core.ArrayNode;
+import uk.ac.manchester.bauprofiler.json.core.ChildNode;
+
+public class SkeletonAssemblerTest {
+    private static final int RUNTIME = 0;
+    private static final int EVENTS = 1;
+    private static final int GRAPH = 2;
+    private static final int KERNELS = 3;
+    private static final int REQUIRED = 4;
+    private static final int TASK = 5;
+
+    private NodeSkeleton skeleton;
+    private List<Conversion> conversions;
+
+    @Before
+    public void setup() {
+	AssemblyNode vmbytecode = new ObjectNode("\"vmbytecode\"", 0);
+	skeleton = new NodeSkeleton()
+	    .add(RUNTIME, vmbytecode)
+	    .add(EVENTS, vmbytecode, new ObjectNode("\"events\"", 1))
+	    .add(GRAPH, new ObjectNode("\"graph\"", 2))
+	    .add(KERNELS, vmbytecode, new ObjectArrayNode("\"kernels\"", 3))
+	    .add(REQUIRED, new ArrayNode("\"required\"", 4))
+	    .add(TASK, new ObjectArrayNode("\"tasks\"", 5)
+		    , new ChildNode(new ObjectNode("", 6)));
+	conversions = new ArrayList<>();
+    }
+
+    private void addConversion(int classId, String body) {
+	AssemblyNode[] nodes = skeleton.layout(classId);
+	conversions.add(new Conversion() {
+	    public long id() {
+		return classId;
+	    }
+	    public String toString() {
+		return body;
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return nodes;
+	    }
+	});
+    }
+
+    private void assertMatchesJsonAssembler() {
+	String expected = new JsonAssembler().assemble(conversions.iterator(), 10).toString();
+	String assembly = new SkeletonAssembler(skeleton)
+	    .assemble(conversions.iterator(), 10).toString();
+	assertThat(assembly, equalTo(expected));
+    }
+
+    @Test
+    public void testAssemblingEmptyConversions() {
+	String assembly = new SkeletonAssembler(skeleton)
+	    .assemble(Collections.emptyIterator(), 10).toString();
+	assertThat(assembly, equalTo("{}"));
+    }
+
+    @Test
+    public void testAssemblingObjectAndNestedObject() {
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+	addConversion(EVENTS, "\"ocl_timing\":6529479");
+	addConversion(RUNTIME, "\"j_totalTime\":228870945");
+
+	assertMatchesJsonAssembler();
+    }
+
+    @Test
+    public void testAssemblingNestedObjectOnce() {
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+	addConversion(EVENTS, "\"ocl_timing\":6529479");
+	String assembly = new SkeletonAssembler(skeleton)
+	    .assemble(conversions.iterator(), 10).toString();
+
+	assertThat(assembly, equalTo("{\"vmbytecode\":{\"metric\":\"TORNADO_RUNTIME\""
+		    +",\"events\":{\"ocl_timing\":6529479}}}"));
+    }
+
+    @Test
+    public void testAssemblingDifferentRootObjects() {
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+	addConversion(GRAPH, "\"metric\":\"TORNADO_BUILD_GRAPH\"");
+	addConversion(EVENTS, "\"ocl_timing\":6529479");
+
+	assertMatchesJsonAssembler();
+    }
+
+    @Test
+    public void testAssemblingObjectArrayBelowObject() {
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+	addConversion(KERNELS, "\"name\":\"add\"");
+	addConversion(KERNELS, "\"name\":\"mul\"");
+	addConversion(EVENTS, "\"ocl_timing\":6529479");
+	addConversion(KERNELS, "\"name\":\"sub\"");
+
+	assertMatchesJsonAssembler();
+    }
+
+    @Test
+    public void testAssemblingArrayOfValues() {
+	addConversion(REQUIRED, "\"id\"");
+	addConversion(REQUIRED, "\"name\"");
+	addConversion(GRAPH, "\"metric\":\"TORNADO_BUILD_GRAPH\"");
+	addConversion(REQUIRED, "\"price\"");
+
+	assertMatchesJsonAssembler();
+    }
+
+    @Test
+    public void testAssemblingObjectArrayWithChild() {
+	addConversion(TASK, "\"id\":0,\"copy\":{\"bytes\":64");
+	addConversion(TASK, "\"id\":1,\"copy\":{\"bytes\":128");
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+
+	assertMatchesJsonAssembler();
+    }
+
+    @Test (expected=Skeleton.UnknownClassException.class)
+    public void testAssemblingUnknownClass() {
+	conversions.add(new Conversion() {
+	    public long id() {
+		return 42;
+	    }
+	    public AssemblyNode[] getAssemblyNodes() {
+		return new AssemblyNode[0];
+	    }
+	});
+	new SkeletonAssembler(skeleton).assemble(conversions.iterator(), 10);
+    }
+
+    @Test
+    public void testPrettyAssemblingMatchesPrettyJsonAssembler() {
+	addConversion(RUNTIME, "\"metric\":\"TORNADO_RUNTIME\"");
+	addConversion(KERNELS, "\"name\":\"add\"");
+	addConversion(TASK, "\"id\":0,\"copy\":{\"bytes\":64");
+	addConversion(REQUIRED, "\"id\"");
+	String expected = new JsonAssembler(true).assemble(conversions.iterator(), 10).toString();
+	String assembly = new SkeletonAssembler(skeleton, true)
+	    .assemble(conversions.iterator(), 10).toString();
+
+	assertThat(assembly, equalTo(expected));
+	assertThat(assembly, equalTo(new SkeletonAssembler(skeleton)
+		    .assemble(conversions.iterator(), 10).toPrettyString()));
+    }
+}
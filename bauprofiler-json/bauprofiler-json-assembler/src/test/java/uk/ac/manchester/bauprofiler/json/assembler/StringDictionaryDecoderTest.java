@@ -0,0 +1,99 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.assembler;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.IOException;
+
+import uk.ac.manchester.bauprofiler.core.assembler.StringDictionary;
+
+public class StringDictionaryDecoderTest {
+    private final StringDictionary dictionary = new StringDictionary(2, 4);
+
+    private String encode(String json) {
+	dictionary.beginRecord();
+	return new JsonAssembly(json).encodeStrings(dictionary).toString();
+    }
+
+    @Test
+    public void testRepeatedValuesAreDefinedOnceInSideTable() {
+	assertThat(encode("{\"e\":{\"name\":\"kernel\",\"tags\":[\"kernel\",\"gpu\"]}}")
+		, equalTo("{\"$strings\":{\"0\":\"kernel\"},\"e\":{\"name\":\"$0\",\"tags\":[\"$0\",\"gpu\"]}}"));
+	assertThat(encode("{\"e\":{\"name\":\"kernel\"}}"), equalTo("{\"e\":{\"name\":\"$0\"}}"));
+    }
+
+    @Test
+    public void testKeysAndShortValuesAreKept() {
+	assertThat(encode("{\"kernel\" : \"gpu\",\"$key\":\"$\"}")
+		, equalTo("{\"kernel\" : \"gpu\",\"$key\":\"$$\"}"));
+    }
+
+    @Test
+    public void testRecordsThatAreNotObjectsAreKept() {
+	assertThat(encode("[\"kernel\"]"), equalTo("[\"kernel\"]"));
+    }
+
+    @Test
+    public void testPrettyStringIsUnencoded() {
+	dictionary.beginRecord();
+	assertThat(new JsonAssembly("{\"a\":\"kernel\"}").encodeStrings(dictionary).toPrettyString()
+		, equalTo(new JsonAssembly("{\"a\":\"kernel\"}").toPrettyString()));
+    }
+
+    @Test
+    public void testStreamExpandsBackToRecords() throws IOException {
+	String[] records = {
+	    "{\"e\":{\"name\":\"first kernel\",\"id\":\"$dollar\"}}"
+	    , "{\"e\":{\"name\":\"second kernel\",\"id\":\"$dollar\"}}"
+	    , "{\"e\":{\"name\":\"third kernel\",\"next\":\"first kernel\",\"id\":\"$dollar\"}}"
+	    , "{\"e\":{\"name\":\"@3\",\"sizes\":[1, 2]}}"};
+	StringBuilder stream = new StringBuilder();
+	StringBuilder expected = new StringBuilder();
+	for (String record : records) {
+	    stream.append(encode(record)).append('\n');
+	    expected.append(record).append('\n');
+	}
+	StringWriter out = new StringWriter();
+
+	int decoded = new StringDictionaryDecoder().decodeLines(
+		new StringReader(stream.toString()), out, false);
+
+	assertThat(decoded, equalTo(records.length));
+	assertThat(out.toString(), equalTo(expected.toString()));
+	assertThat(dictionary.getEvicted(), equalTo(3L));
+    }
+
+    @Test(expected=StringDictionaryDecoder.MalformedRecordException.class)
+    public void testRejectsUndefinedSlot() {
+	new StringDictionaryDecoder().expand("{\"a\":\"$0\"}");
+    }
+}
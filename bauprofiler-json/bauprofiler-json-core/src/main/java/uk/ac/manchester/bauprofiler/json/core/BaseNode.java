@@ -35,6 +35,9 @@ public class BaseNode implements AssemblyNode {
     private final String close;
     private final String postClose;
     private final String separator = ":";
+    private final char[] openFragment;
+    private final char[] closeFragment;
+    private final char[] separatorFragment;
 
     public BaseNode(String prefix, long uniqueId
             , String preOpen, String open, String close, String postClose) {
@@ -44,6 +47,9 @@ public class BaseNode implements AssemblyNode {
         this.open = open;
         this.close = close;
         this.postClose = postClose;
+        openFragment = (prefix+separator+preOpen+open).toCharArray();
+        closeFragment = (close+postClose).toCharArray();
+        separatorFragment = (close+","+open).toCharArray();
     }
 
     public String prefix() {
@@ -73,4 +79,16 @@ public class BaseNode implements AssemblyNode {
     public String separator() {
         return separator;
     }
+
+    public char[] openFragment() {
+        return openFragment;
+    }
+
+    public char[] closeFragment() {
+        return closeFragment;
+    }
+
+    public char[] separatorFragment() {
+        return separatorFragment;
+    }
 }
@@ -33,9 +33,15 @@ public class ChildNode implements AssemblyNode {
     private final String preOpen = "";
     private final String open = "";
     private final String separator = "";
+    private final char[] openFragment;
+    private final char[] closeFragment;
+    private final char[] separatorFragment;
 
     public ChildNode(BaseNode childed) {
         this.childed = childed;
+        openFragment = (prefix+separator+preOpen+open).toCharArray();
+        closeFragment = (childed.close()+childed.postClose()).toCharArray();
+        separatorFragment = (childed.close()+","+open).toCharArray();
     }
 
     public String prefix() {
@@ -65,4 +71,16 @@ public class ChildNode implements AssemblyNode {
     public String separator() {
         return separator;
     }
+
+    public char[] openFragment() {
+        return openFragment;
+    }
+
+    public char[] closeFragment() {
+        return closeFragment;
+    }
+
+    public char[] separatorFragment() {
+        return separatorFragment;
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.core;
+
+/* Assembly layout of every known profile class, addressed by class id and
+ * depth. Depth i of a class is the i-th AssemblyNode of its conversions. */
+public interface Skeleton {
+    int depth(int classId);
+    /* Number of leading layers of depth with matching node ids */
+    int commonDepth(int classId, int otherClassId);
+    char[] openFragment(int classId, int depth);
+    char[] closeFragment(int classId, int depth);
+    char[] separatorFragment(int classId, int depth);
+
+    static class UnknownClassException extends RuntimeException {
+        public UnknownClassException(int classId) {
+            super(String.format("No skeleton for class id %d", classId));
+        }
+    }
+}
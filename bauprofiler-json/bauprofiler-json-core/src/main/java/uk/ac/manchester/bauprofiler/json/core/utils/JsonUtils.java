@@ -27,38 +27,6 @@ package uk.ac.manchester.bauprofiler.json.core.utils;
 
 public class JsonUtils {
     public static String prettyPrint(String uglyJson, int spacing) {
-        boolean inside = false;
-        String indent = "";
-        String space = new String(new char[spacing]).replace("\0", " ");
-        StringBuilder buffer = new StringBuilder(uglyJson.length() + 20);
-
-        for (int i = 0; i < uglyJson.length(); i++) {
-            char ch = uglyJson.charAt(i);
-            if (ch == '"') {
-                inside = !inside;
-                buffer.append(ch);
-                continue;
-            }
-
-            if (inside)
-                buffer.append(ch);
-            else
-                if (ch == '{') {
-                    indent += space;
-                    buffer.append(ch + "\n" + indent);
-                } else if (ch == '}' || ch == ']') {
-                    indent = indent.substring(0, indent.length() - spacing);
-                    buffer.append("\n" + indent + ch);
-                } else if (ch == '[') {
-                    indent += space;
-                    buffer.append(ch);
-                } else if (ch == ',')
-                    buffer.append(ch + "\n" + indent);
-                else if (ch == ':')
-                    buffer.append(ch + " ");
-                else
-                    buffer.append(ch);
-        }
-        return buffer.toString();
+        return JsonWriter.pretty(uglyJson.length(), spacing).append(uglyJson).toString();
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.core.utils;
+
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+
+/* Destination of assembled json, formatting structure as it is written */
+public abstract class JsonWriter implements Appendable {
+    protected final StringBuilder out;
+
+    protected JsonWriter(int capacity) {
+        out = new StringBuilder(capacity);
+    }
+
+    public static JsonWriter compact(int capacity) {
+        return new CompactJsonWriter(capacity);
+    }
+
+    public static JsonWriter pretty(int capacity, int spacing) {
+        return new PrettyJsonWriter(capacity, spacing);
+    }
+
+    public abstract boolean isPretty();
+
+    public abstract JsonWriter append(char c);
+
+    public abstract JsonWriter append(CharSequence csq, int start, int end);
+
+    public JsonWriter append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    public abstract JsonWriter append(char[] str);
+
+    public abstract JsonWriter append(Conversion conversion);
+
+    public int length() {
+        return out.length();
+    }
+
+    public String toString() {
+        return out.toString();
+    }
+}
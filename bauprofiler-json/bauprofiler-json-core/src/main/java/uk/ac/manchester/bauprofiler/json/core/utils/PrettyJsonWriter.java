@@ -0,0 +1,148 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.core.utils;
+
+import java.util.Arrays;
+import java.nio.CharBuffer;
+
+import uk.ac.manchester.bauprofiler.core.converter.Conversion;
+
+/* Indents structure as it is written, keeping track of whether it is inside
+ * a string (and after an escape) across appends. Runs of characters that do
+ * not change the structure are copied in bulk. */
+public class PrettyJsonWriter extends JsonWriter {
+    private final int spacing;
+    private char[] indentTable = new char[0];
+    private int indent = 0;
+    private boolean insideString = false;
+    private boolean escaped = false;
+
+    public PrettyJsonWriter(int capacity, int spacing) {
+        super(capacity+capacity/2);
+        this.spacing = spacing;
+    }
+
+    public boolean isPretty() {
+        return true;
+    }
+
+    public JsonWriter append(char c) {
+        if (insideString)
+            appendInsideString(c);
+        else
+            appendOutsideString(c);
+        return this;
+    }
+
+    public JsonWriter append(char[] str) {
+        return append(CharBuffer.wrap(str), 0, str.length);
+    }
+
+    public JsonWriter append(Conversion conversion) {
+        return append(conversion.toString());
+    }
+
+    public JsonWriter append(CharSequence csq, int start, int end) {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+            if (insideString ? !isStringStructure(c) : !isStructure(c))
+                continue;
+            out.append(csq, runStart, i);
+            append(c);
+            runStart = i+1;
+        }
+        out.append(csq, runStart, end);
+        return this;
+    }
+
+    private boolean isStringStructure(char c) {
+        return escaped || c == '"' || c == '\\';
+    }
+
+    private boolean isStructure(char c) {
+        switch (c) {
+            case '"': case '{': case '}': case '[': case ']': case ',': case ':':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void appendInsideString(char c) {
+        out.append(c);
+        if (escaped)
+            escaped = false;
+        else if (c == '\\')
+            escaped = true;
+        else if (c == '"')
+            insideString = false;
+    }
+
+    private void appendOutsideString(char c) {
+        switch (c) {
+            case '"':
+                insideString = true;
+                out.append(c);
+                break;
+            case '{':
+                indent += spacing;
+                out.append(c);
+                appendNewLine();
+                break;
+            case '}':
+            case ']':
+                indent = Math.max(0, indent-spacing);
+                appendNewLine();
+                out.append(c);
+                break;
+            case '[':
+                indent += spacing;
+                out.append(c);
+                break;
+            case ',':
+                out.append(c);
+                appendNewLine();
+                break;
+            case ':':
+                out.append(c).append(' ');
+                break;
+            default:
+                out.append(c);
+        }
+    }
+
+    private void appendNewLine() {
+        if (indent > indentTable.length)
+            growIndentTable();
+        out.append('\n').append(indentTable, 0, indent);
+    }
+
+    private void growIndentTable() {
+        indentTable = new char[Math.max(indent, indentTable.length*2)];
+        Arrays.fill(indentTable, ' ');
+    }
+}
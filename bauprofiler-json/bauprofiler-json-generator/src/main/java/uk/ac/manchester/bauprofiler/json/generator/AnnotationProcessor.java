@@ -43,7 +43,10 @@ import uk.ac.manchester.bauprofiler.json.annotations.JClass;
 public class AnnotationProcessor extends AbstractProcessor {
     private static final String PREFIX_ENCODING_FILENAME = "./.prefix_encoding.so";
     private static final String PROFILE_ENCODING_FILENAME = "./.profile_encoding.so";
+    private static final String ASSEMBLY_LAYOUT_FILENAME = "./.assembly_layout.so";
     private Filer filer;
+    private boolean layoutsRegistered = false;
+    private boolean assemblerGenerated = false;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -57,13 +60,30 @@ public class AnnotationProcessor extends AbstractProcessor {
             .getElementsAnnotatedWith(JClass.class);
 	PersistentEncoder prefixEncoder = loadEncoder(PREFIX_ENCODING_FILENAME);
 	PersistentEncoder profileEncoder = loadEncoder(PROFILE_ENCODING_FILENAME);
+	PersistentLayouts layouts = loadLayouts();
 	for (TypeElement elem : annotatedElements)
-	    writeToFiler(generateCode(elem, prefixEncoder, profileEncoder));
+	    processElement(elem, prefixEncoder, profileEncoder, layouts);
 	persistEncoder(prefixEncoder);
 	persistEncoder(profileEncoder);
+	persistLayouts(layouts);
+	if (annotatedElements.isEmpty() && layoutsRegistered && !assemblerGenerated) {
+	    writeToFiler(AssemblerGenerator.build(layouts.getLayouts()));
+	    assemblerGenerated = true;
+	}
 	return true;
     }
 
+    private void processElement(TypeElement element, Encoder prefixEncoder
+	    , Encoder profileEncoder, PersistentLayouts layouts) {
+	ProfileContainer profile = ProfileExtractor.extract(element, profileEncoder);
+	JsonContainer json = AnnotationExtractor.extract(element);
+	BodyGenerator body = new BodyGenerator(json, prefixEncoder);
+	writeToFiler(CodeGenerator.build(new SkeletonGenerator(profile), body
+		    , new BinaryGenerator(json, body), new RowGenerator(json, body, profile.classId)));
+	layouts.register(LayoutExtractor.extract(profile.classId, json, prefixEncoder));
+	layoutsRegistered = true;
+    }
+
     private PersistentEncoder loadEncoder(String filename) {
 	try {
 	    return PersistentEncoder.load(filename);
@@ -72,11 +92,12 @@ public class AnnotationProcessor extends AbstractProcessor {
 	}
     }
 
-    private CodeGenerator generateCode(
-	    TypeElement element, Encoder prefixEncoder, Encoder profileEncoder) {
-	return CodeGenerator.build(
-		new SkeletonGenerator(ProfileExtractor.extract(element, profileEncoder))
-		, new BodyGenerator(AnnotationExtractor.extract(element), prefixEncoder));
+    private PersistentLayouts loadLayouts() {
+	try {
+	    return PersistentLayouts.load(ASSEMBLY_LAYOUT_FILENAME);
+	} catch (ClassNotFoundException | IOException e) {
+	    throw new RuntimeException(e);
+	}
     }
 
     private void writeToFiler(CodeGenerator codeGenerator) {
@@ -87,6 +108,22 @@ public class AnnotationProcessor extends AbstractProcessor {
 	}
     }
 
+    private void writeToFiler(AssemblerGenerator assemblerGenerator) {
+	try {
+	    assemblerGenerator.writeTo(filer);
+	} catch (IOException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+
+    private void persistLayouts(PersistentLayouts layouts) {
+	try {
+	    layouts.persist();
+	} catch (IOException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+
     private void persistEncoder(PersistentEncoder encoder) {
 	try {
 	    encoder.persist();
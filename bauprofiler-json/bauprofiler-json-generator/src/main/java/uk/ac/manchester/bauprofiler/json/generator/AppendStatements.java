@@ -0,0 +1,129 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.Optional;
+
+import com.squareup.javapoet.CodeBlock;
+
+/* Straight-line statements appending json to a StringBuilder, with
+ * consecutive literals merged into a single append. Typed statements hand
+ * compiled numbers to a ValueWriter instead, writing everything else to
+ * the text of the writer */
+public class AppendStatements {
+    private static final int VALUE_SIZE_ESTIMATE = 16;
+
+    private final CodeBlock.Builder statements = CodeBlock.builder();
+    private final boolean typed;
+    private final StringBuilder literal = new StringBuilder();
+    private int sizeEstimate = 0;
+
+    public AppendStatements() {
+	this(false);
+    }
+
+    private AppendStatements(boolean typed) {
+	this.typed = typed;
+	if (typed)
+	    statements.addStatement("$T sb = out.text()", StringBuilder.class);
+    }
+
+    public static AppendStatements typed() {
+	return new AppendStatements(true);
+    }
+
+    public AppendStatements appendLiteral(String text) {
+	literal.append(text);
+	sizeEstimate += text.length();
+	return this;
+    }
+
+    public AppendStatements appendField(Field field) {
+	appendLiteral(escape(field.key)+":");
+	return appendValue(field);
+    }
+
+    public AppendStatements appendValue(Field field) {
+	Optional<ValueFormat> format = ValueFormat.compile(field.valueFormat);
+	if (format.isPresent() && format.get().accepts(field.valueType))
+	    appendCompiledValue(field, format.get());
+	else
+	    appendStatement("sb.append(String.format($S, $L))"
+		    , field.valueFormat, field.valueFormatArg);
+	return this;
+    }
+
+    private String escape(String unescaped) {
+	return CodeBlock.of("$S", unescaped).toString();
+    }
+
+    private void appendCompiledValue(Field field, ValueFormat format) {
+	appendLiteral(format.prefix);
+	switch (format.conversion) {
+	    case 'f':
+		appendStatement("$T.appendFixed($L, $L, $L)"
+			, ValueAppender.class, (typed) ? "out" : "sb", field.name, format.scale);
+		break;
+	    case 's':
+		appendStringValue(field);
+		break;
+	    default:
+		appendStatement((typed) ? "out.appendInteger($L)" : "sb.append($L)", field.name);
+	}
+	appendLiteral(format.suffix);
+    }
+
+    private void appendStringValue(Field field) {
+	if (field.valueType == Field.ValueType.PRIMITIVE_ARRAY)
+	    appendStatement("$T.appendArray(sb, $L)", ValueAppender.class, field.name);
+	else if (field.valueType == Field.ValueType.STRING_ARRAY)
+	    appendStatement("$T.appendStringArray(sb, $L)", ValueAppender.class, field.name);
+	else
+	    appendStatement("sb.append($L)", field.name);
+    }
+
+    private void appendStatement(String format, Object... args) {
+	flushLiteral();
+	statements.addStatement(format, args);
+	sizeEstimate += VALUE_SIZE_ESTIMATE;
+    }
+
+    private void flushLiteral() {
+	if (literal.length() == 0)
+	    return;
+	statements.addStatement("sb.append($S)", literal.toString());
+	literal.setLength(0);
+    }
+
+    public int sizeEstimate() {
+	return sizeEstimate;
+    }
+
+    public CodeBlock build() {
+	flushLiteral();
+	return statements.build();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.Collection;
+import java.time.LocalDateTime;
+import java.io.IOException;
+
+import javax.lang.model.element.Modifier;
+import javax.annotation.Generated;
+import javax.annotation.processing.Filer;
+
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+
+import uk.ac.manchester.bauprofiler.core.assembler.Assembler;
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblerFactory;
+import uk.ac.manchester.bauprofiler.json.core.Skeleton;
+
+/* Generates an AssemblerFactory whose assemblers read the layers of depth of
+ * every known profile class from switch tables over class ids, with the
+ * common depth of each pair of classes resolved from their prefix ids */
+public class AssemblerGenerator {
+    public static final String PACKAGE_NAME = "uk.ac.manchester.bauprofiler.json.generated";
+    public static final String CLASS_NAME = "GeneratedJsonAssemblerFactory";
+    private static final String SKELETON_CLASS_NAME = "GeneratedSkeleton";
+    private static final String PRETTY_PRINT_PARAM = "prettyprint";
+    private static final ClassName SKELETON_ASSEMBLER = ClassName.get(
+	    "uk.ac.manchester.bauprofiler.json.assembler", "SkeletonAssembler");
+    private static final ClassName UNKNOWN_CLASS_EXCEPTION =
+	ClassName.get(Skeleton.UnknownClassException.class);
+    private static final TypeName FRAGMENTS = ArrayTypeName.of(ArrayTypeName.of(TypeName.CHAR));
+
+    private final Collection<Layout> layouts;
+    private JavaFile javaFile;
+
+    private AssemblerGenerator(Collection<Layout> layouts) {
+	this.layouts = layouts;
+    }
+
+    public static AssemblerGenerator build(Collection<Layout> layouts) {
+	AssemblerGenerator ag = new AssemblerGenerator(layouts);
+	ag.build();
+	return ag;
+    }
+
+    private void build() {
+	TypeSpec factory = TypeSpec.classBuilder(CLASS_NAME)
+	    .addModifiers(Modifier.PUBLIC)
+	    .addSuperinterface(AssemblerFactory.class)
+	    .addAnnotation(getGeneratedAnnotation())
+	    .addField(createSkeletonField())
+	    .addField(createPrettyPrintField())
+	    .addMethod(createConstructor())
+	    .addMethod(createCreateMethod())
+	    .addType(createSkeletonType())
+	    .build();
+	javaFile = JavaFile.builder(PACKAGE_NAME, factory)
+	    .skipJavaLangImports(true)
+	    .build();
+    }
+
+    private AnnotationSpec getGeneratedAnnotation() {
+	return AnnotationSpec.builder(Generated.class)
+	    .addMember("value", "$S", AssemblerGenerator.class.getName())
+	    .addMember("date", "$S", LocalDateTime.now())
+	    .build();
+    }
+
+    private FieldSpec createSkeletonField() {
+	return FieldSpec.builder(Skeleton.class, "SKELETON")
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+	    .initializer("new $N()", SKELETON_CLASS_NAME)
+	    .build();
+    }
+
+    private FieldSpec createPrettyPrintField() {
+	return FieldSpec.builder(TypeName.BOOLEAN, "prettyPrint")
+	    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+	    .build();
+    }
+
+    private MethodSpec createConstructor() {
+	return MethodSpec.constructorBuilder()
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(ParameterSpec.builder(String[].class, "params").build())
+	    .addStatement("prettyPrint = $T.asList(params).contains($S)"
+		    , Arrays.class, PRETTY_PRINT_PARAM)
+	    .build();
+    }
+
+    private MethodSpec createCreateMethod() {
+	return MethodSpec.methodBuilder("create")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(Assembler.class)
+	    .addStatement("return new $T(SKELETON, prettyPrint)", SKELETON_ASSEMBLER)
+	    .build();
+    }
+
+    private TypeSpec createSkeletonType() {
+	TypeSpec.Builder builder = TypeSpec.classBuilder(SKELETON_CLASS_NAME)
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+	    .addSuperinterface(Skeleton.class);
+	for (Layout layout : layouts) {
+	    builder.addField(createFragmentsField("OPEN_", layout, layout.openFragments));
+	    builder.addField(createFragmentsField("CLOSE_", layout, layout.closeFragments));
+	    builder.addField(createFragmentsField("SEPARATOR_", layout, layout.separatorFragments));
+	}
+	builder.addMethod(createDepthMethod());
+	builder.addMethod(createCommonDepthMethod());
+	for (Layout layout : layouts)
+	    builder.addMethod(createCommonDepthOfClassMethod(layout));
+	builder.addMethod(createFragmentMethod("openFragment", "OPEN_"));
+	builder.addMethod(createFragmentMethod("closeFragment", "CLOSE_"));
+	builder.addMethod(createFragmentMethod("separatorFragment", "SEPARATOR_"));
+	return builder.build();
+    }
+
+    private FieldSpec createFragmentsField(String namePrefix, Layout layout, String[] fragments) {
+	StringJoiner format = new StringJoiner(", ", "{", "}");
+	for (int i = 0; i < fragments.length; i++)
+	    format.add("$S.toCharArray()");
+	return FieldSpec.builder(FRAGMENTS, namePrefix+layout.classId)
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+	    .initializer(format.toString(), (Object[]) fragments)
+	    .build();
+    }
+
+    private MethodSpec createDepthMethod() {
+	CodeBlock.Builder code = beginClassIdSwitch("classId");
+	for (Layout layout : layouts)
+	    code.add("case $L: return $L;\n", layout.classId, layout.depth());
+	return MethodSpec.methodBuilder("depth")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(TypeName.INT, "classId")
+	    .returns(TypeName.INT)
+	    .addCode(endClassIdSwitch(code, "classId"))
+	    .build();
+    }
+
+    private CodeBlock.Builder beginClassIdSwitch(String parameter) {
+	return CodeBlock.builder().beginControlFlow("switch ($N)", parameter);
+    }
+
+    private CodeBlock endClassIdSwitch(CodeBlock.Builder code, String parameter) {
+	return code
+	    .add("default: throw new $T($N);\n", UNKNOWN_CLASS_EXCEPTION, parameter)
+	    .endControlFlow()
+	    .build();
+    }
+
+    private MethodSpec createCommonDepthMethod() {
+	CodeBlock.Builder code = beginClassIdSwitch("classId");
+	for (Layout layout : layouts)
+	    code.add("case $L: return $N(otherClassId);\n"
+		    , layout.classId, getCommonDepthOfClassMethodName(layout));
+	return MethodSpec.methodBuilder("commonDepth")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(TypeName.INT, "classId")
+	    .addParameter(TypeName.INT, "otherClassId")
+	    .returns(TypeName.INT)
+	    .addCode(endClassIdSwitch(code, "classId"))
+	    .build();
+    }
+
+    private String getCommonDepthOfClassMethodName(Layout layout) {
+	return "commonDepthOfClass"+layout.classId;
+    }
+
+    /* One method per class keeps each switch within the method size limit */
+    private MethodSpec createCommonDepthOfClassMethod(Layout layout) {
+	CodeBlock.Builder code = CodeBlock.builder()
+	    .beginControlFlow("switch (otherClassId)");
+	for (Layout other : layouts) {
+	    int commonDepth = layout.commonDepth(other);
+	    if (commonDepth > 0)
+		code.add("case $L: return $L;\n", other.classId, commonDepth);
+	}
+	code.add("default: return 0;\n").endControlFlow();
+	return MethodSpec.methodBuilder(getCommonDepthOfClassMethodName(layout))
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+	    .addParameter(TypeName.INT, "otherClassId")
+	    .returns(TypeName.INT)
+	    .addCode(code.build())
+	    .build();
+    }
+
+    private MethodSpec createFragmentMethod(String name, String fieldPrefix) {
+	CodeBlock.Builder code = beginClassIdSwitch("classId");
+	for (Layout layout : layouts)
+	    code.add("case $L: return $N[depth];\n", layout.classId, fieldPrefix+layout.classId);
+	return MethodSpec.methodBuilder(name)
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(TypeName.INT, "classId")
+	    .addParameter(TypeName.INT, "depth")
+	    .returns(char[].class)
+	    .addCode(endClassIdSwitch(code, "classId"))
+	    .build();
+    }
+
+    public void writeTo(Appendable out) throws IOException {
+	javaFile.writeTo(out);
+    }
+
+    public void writeTo(Filer filer) throws IOException {
+	javaFile.writeTo(filer);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+
+/* Generates a fixed layout binary encoder for a profile and a decoder that
+ * reads the layout back into locals named after the fields, so the json body
+ * statements of the BodyGenerator can be reused to write the decoded json */
+public class BinaryGenerator {
+    private static final ClassName STRING = ClassName.get(String.class);
+    private static final int VARIABLE_SIZE_ESTIMATE = 20;
+
+    private final JsonContainer container;
+    private final BodyGenerator body;
+
+    public BinaryGenerator(JsonContainer container, BodyGenerator body) {
+	this.container = container;
+	this.body = body;
+    }
+
+    public TypeName getSuperInterface() {
+	return ClassName.get(BinaryConvertableProfile.class);
+    }
+
+    public MethodSpec[] getMethods() {
+	List<MethodSpec> methods = new ArrayList<>();
+	methods.add(createWriteBinaryMethod());
+	methods.add(createBinarySizeHintMethod());
+	methods.add(createIsVerboseMethod());
+	methods.add(createReadBinaryMethod());
+	return methods.toArray(new MethodSpec[methods.size()]);
+    }
+
+    private List<Field> getLayout() {
+	List<Field> layout = new ArrayList<>();
+	for (Field field : container.fields)
+	    layout.add(field);
+	for (Field field : container.childFields)
+	    layout.add(field);
+	return layout;
+    }
+
+    private MethodSpec createWriteBinaryMethod() {
+	MethodSpec.Builder method = MethodSpec.methodBuilder("writeBinary")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(BinaryProfileWriter.class, "_out")
+	    .returns(TypeName.VOID);
+	for (Field field : getLayout())
+	    method.addStatement("_out.write$L($N)", getCodecName(field.type), field.name);
+	return method.build();
+    }
+
+    private MethodSpec createBinarySizeHintMethod() {
+	int size = 0;
+	for (Field field : getLayout())
+	    size += getSizeEstimate(field.type);
+	return MethodSpec.methodBuilder("binarySizeHint")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(TypeName.INT)
+	    .addStatement("return $L", size)
+	    .build();
+    }
+
+    private MethodSpec createIsVerboseMethod() {
+	return MethodSpec.methodBuilder("isVerbose")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(TypeName.BOOLEAN)
+	    .addStatement("return _verbose")
+	    .build();
+    }
+
+    private MethodSpec createReadBinaryMethod() {
+	MethodSpec.Builder method = MethodSpec.methodBuilder("readBinary")
+	    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+	    .addParameter(BinaryProfileReader.class, "_in")
+	    .addParameter(StringBuilder.class, "sb")
+	    .addParameter(TypeName.BOOLEAN, "_verbose")
+	    .returns(TypeName.VOID);
+	for (Field field : getLayout())
+	    method.addStatement("$T $N = _in.read$L()"
+		    , field.type, field.name, getCodecName(field.type));
+	return method.addCode(CodeBlock.builder()
+		.beginControlFlow("if (_verbose)")
+		.add(body.getIncludeInvisibleStatements().build())
+		.nextControlFlow("else")
+		.add(body.getExcludeInvisibleStatements().build())
+		.endControlFlow()
+		.build())
+	    .build();
+    }
+
+    private String getCodecName(TypeName type) {
+	if (type instanceof ArrayTypeName)
+	    return getCodecName(((ArrayTypeName) type).componentType)+"Array";
+	if (type.equals(STRING))
+	    return "String";
+	if (type.isPrimitive()) {
+	    String name = type.toString();
+	    return Character.toUpperCase(name.charAt(0))+name.substring(1);
+	}
+	throw new UnsupportedBinaryTypeException(type);
+    }
+
+    private int getSizeEstimate(TypeName type) {
+	if (type.equals(TypeName.LONG) || type.equals(TypeName.DOUBLE))
+	    return 8;
+	if (type.equals(TypeName.INT) || type.equals(TypeName.FLOAT))
+	    return 4;
+	if (type.equals(TypeName.SHORT) || type.equals(TypeName.CHAR))
+	    return 2;
+	if (type.isPrimitive())
+	    return 1;
+	return VARIABLE_SIZE_ESTIMATE;
+    }
+
+    public static class UnsupportedBinaryTypeException extends RuntimeException {
+	public UnsupportedBinaryTypeException(TypeName type) {
+	    super("No binary codec for "+type);
+	}
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static uk.ac.manchester.bauprofiler.json.generator.BinaryProfileWriter.NULL_LENGTH;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/* Reads the values written by a BinaryProfileWriter, in the same order. The
+ * values of a writer that shares strings are read with a list of strings that
+ * all readers of its values share, read in the order it wrote them */
+public final class BinaryProfileReader {
+    private final ByteBuffer buffer;
+    private final List<String> strings;
+
+    public BinaryProfileReader(byte[] bytes) {
+	this(ByteBuffer.wrap(bytes));
+    }
+
+    public BinaryProfileReader(ByteBuffer buffer) {
+	this(buffer, null);
+    }
+
+    public BinaryProfileReader(ByteBuffer buffer, List<String> strings) {
+	this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+	this.strings = strings;
+    }
+
+    public int readInt() {
+	return buffer.getInt();
+    }
+
+    public long readLong() {
+	return buffer.getLong();
+    }
+
+    public double readDouble() {
+	return buffer.getDouble();
+    }
+
+    public float readFloat() {
+	return buffer.getFloat();
+    }
+
+    public short readShort() {
+	return buffer.getShort();
+    }
+
+    public char readChar() {
+	return buffer.getChar();
+    }
+
+    public byte readByte() {
+	return buffer.get();
+    }
+
+    public boolean readBoolean() {
+	return buffer.get() != 0;
+    }
+
+    public String readString() {
+	if (strings != null && buffer.remaining() >= Integer.BYTES
+		&& buffer.getInt(buffer.position()) < NULL_LENGTH)
+	    return readSharedString();
+	int length = readLength(Byte.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	String value;
+	if (!buffer.hasArray()) {
+	    byte[] utf8 = new byte[length];
+	    buffer.get(utf8);
+	    value = new String(utf8, StandardCharsets.UTF_8);
+	} else {
+	    value = new String(buffer.array(), buffer.arrayOffset()+buffer.position()
+		    , length, StandardCharsets.UTF_8);
+	    advance(length);
+	}
+	if (strings != null)
+	    strings.add(value);
+	return value;
+    }
+
+    private String readSharedString() {
+	int length = buffer.getInt();
+	int index = NULL_LENGTH-1-length;
+	if (index >= strings.size())
+	    throw new MalformedValueException(length, buffer.position()-Integer.BYTES);
+	return strings.get(index);
+    }
+
+    public int[] readIntArray() {
+	int length = readLength(Integer.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	int[] values = new int[length];
+	buffer.asIntBuffer().get(values);
+	advance(length*Integer.BYTES);
+	return values;
+    }
+
+    public long[] readLongArray() {
+	int length = readLength(Long.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	long[] values = new long[length];
+	buffer.asLongBuffer().get(values);
+	advance(length*Long.BYTES);
+	return values;
+    }
+
+    public double[] readDoubleArray() {
+	int length = readLength(Double.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	double[] values = new double[length];
+	buffer.asDoubleBuffer().get(values);
+	advance(length*Double.BYTES);
+	return values;
+    }
+
+    public float[] readFloatArray() {
+	int length = readLength(Float.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	float[] values = new float[length];
+	buffer.asFloatBuffer().get(values);
+	advance(length*Float.BYTES);
+	return values;
+    }
+
+    public short[] readShortArray() {
+	int length = readLength(Short.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	short[] values = new short[length];
+	buffer.asShortBuffer().get(values);
+	advance(length*Short.BYTES);
+	return values;
+    }
+
+    public char[] readCharArray() {
+	int length = readLength(Character.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	char[] values = new char[length];
+	buffer.asCharBuffer().get(values);
+	advance(length*Character.BYTES);
+	return values;
+    }
+
+    public byte[] readByteArray() {
+	int length = readLength(Byte.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	byte[] values = new byte[length];
+	buffer.get(values);
+	return values;
+    }
+
+    public boolean[] readBooleanArray() {
+	int length = readLength(Byte.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	boolean[] values = new boolean[length];
+	for (int i = 0; i < length; i++)
+	    values[i] = buffer.get() != 0;
+	return values;
+    }
+
+    public String[] readStringArray() {
+	int length = readLength(Integer.BYTES);
+	if (length == NULL_LENGTH)
+	    return null;
+	String[] values = new String[length];
+	for (int i = 0; i < length; i++)
+	    values[i] = readString();
+	return values;
+    }
+
+    /* Rejects lengths the remaining bytes cannot hold before allocating for them */
+    private int readLength(int minElementBytes) {
+	int length = buffer.getInt();
+	if (length == NULL_LENGTH)
+	    return length;
+	if (length < 0 || (long) length*minElementBytes > buffer.remaining())
+	    throw new MalformedValueException(length, buffer.position()-Integer.BYTES);
+	return length;
+    }
+
+    private void advance(int bytes) {
+	buffer.position(buffer.position()+bytes);
+    }
+
+    public int remaining() {
+	return buffer.remaining();
+    }
+
+    public boolean hasRemaining() {
+	return buffer.hasRemaining();
+    }
+
+    public static class MalformedValueException extends RuntimeException {
+	public MalformedValueException(int length, int position) {
+	    super("Invalid length "+length+" at byte "+position);
+	}
+    }
+}
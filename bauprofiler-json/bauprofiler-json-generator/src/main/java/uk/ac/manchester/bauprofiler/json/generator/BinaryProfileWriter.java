@@ -0,0 +1,217 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Little endian values for generated binary codecs. Strings are utf-8 and
+ * strings and arrays are preceded by their int length, -1 when null. A writer
+ * that shares strings writes a string it has written before, since it was
+ * created, as the length -2-index, index counting the strings it wrote out */
+public final class BinaryProfileWriter {
+    static final int NULL_LENGTH = -1;
+
+    private ByteBuffer buffer;
+    private final Map<String, Integer> strings;
+
+    public BinaryProfileWriter(int capacity) {
+	this(capacity, false);
+    }
+
+    public BinaryProfileWriter(int capacity, boolean shareStrings) {
+	buffer = ByteBuffer.allocate(Math.max(capacity, 16)).order(ByteOrder.LITTLE_ENDIAN);
+	strings = (shareStrings) ? new HashMap<>() : null;
+    }
+
+    public void writeInt(int value) {
+	ensureCapacity(Integer.BYTES);
+	buffer.putInt(value);
+    }
+
+    public void writeLong(long value) {
+	ensureCapacity(Long.BYTES);
+	buffer.putLong(value);
+    }
+
+    public void writeDouble(double value) {
+	ensureCapacity(Double.BYTES);
+	buffer.putDouble(value);
+    }
+
+    public void writeFloat(float value) {
+	ensureCapacity(Float.BYTES);
+	buffer.putFloat(value);
+    }
+
+    public void writeShort(short value) {
+	ensureCapacity(Short.BYTES);
+	buffer.putShort(value);
+    }
+
+    public void writeChar(char value) {
+	ensureCapacity(Character.BYTES);
+	buffer.putChar(value);
+    }
+
+    public void writeByte(byte value) {
+	ensureCapacity(Byte.BYTES);
+	buffer.put(value);
+    }
+
+    public void writeBoolean(boolean value) {
+	writeByte((byte) ((value) ? 1 : 0));
+    }
+
+    public void writeString(String value) {
+	if (value == null) {
+	    writeInt(NULL_LENGTH);
+	    return;
+	}
+	if (strings != null) {
+	    Integer index = strings.putIfAbsent(value, strings.size());
+	    if (index != null) {
+		writeInt(NULL_LENGTH-1-index);
+		return;
+	    }
+	}
+	byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+	writeInt(utf8.length);
+	ensureCapacity(utf8.length);
+	buffer.put(utf8);
+    }
+
+    public void writeIntArray(int[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Integer.BYTES))
+	    return;
+	buffer.asIntBuffer().put(values);
+	advance(values.length*Integer.BYTES);
+    }
+
+    public void writeLongArray(long[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Long.BYTES))
+	    return;
+	buffer.asLongBuffer().put(values);
+	advance(values.length*Long.BYTES);
+    }
+
+    public void writeDoubleArray(double[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Double.BYTES))
+	    return;
+	buffer.asDoubleBuffer().put(values);
+	advance(values.length*Double.BYTES);
+    }
+
+    public void writeFloatArray(float[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Float.BYTES))
+	    return;
+	buffer.asFloatBuffer().put(values);
+	advance(values.length*Float.BYTES);
+    }
+
+    public void writeShortArray(short[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Short.BYTES))
+	    return;
+	buffer.asShortBuffer().put(values);
+	advance(values.length*Short.BYTES);
+    }
+
+    public void writeCharArray(char[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Character.BYTES))
+	    return;
+	buffer.asCharBuffer().put(values);
+	advance(values.length*Character.BYTES);
+    }
+
+    public void writeByteArray(byte[] values) {
+	if (writeLength((values == null) ? NULL_LENGTH : values.length, Byte.BYTES))
+	    buffer.put(values);
+    }
+
+    public void writeBooleanArray(boolean[] values) {
+	if (!writeLength((values == null) ? NULL_LENGTH : values.length, Byte.BYTES))
+	    return;
+	for (boolean value : values)
+	    buffer.put((byte) ((value) ? 1 : 0));
+    }
+
+    public void writeStringArray(String[] values) {
+	if (values == null) {
+	    writeInt(NULL_LENGTH);
+	    return;
+	}
+	writeInt(values.length);
+	for (String value : values)
+	    writeString(value);
+    }
+
+    /* Returns whether elements follow, with room made for them */
+    private boolean writeLength(int length, int elementBytes) {
+	writeInt(length);
+	if (length == NULL_LENGTH)
+	    return false;
+	ensureCapacity(length*elementBytes);
+	return true;
+    }
+
+    /* Bulk puts through a view leave the position of the buffer untouched */
+    private void advance(int bytes) {
+	buffer.position(buffer.position()+bytes);
+    }
+
+    private void ensureCapacity(int extra) {
+	if (buffer.remaining() >= extra)
+	    return;
+	int capacity = Math.max(buffer.capacity()*2, buffer.position()+extra);
+	ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	buffer.flip();
+	grown.put(buffer);
+	buffer = grown;
+    }
+
+    public int size() {
+	return buffer.position();
+    }
+
+    /* Shared strings are kept, later values may still refer to them */
+    public void reset() {
+	buffer.clear();
+    }
+
+    /* Copies what has been written without an intermediate array */
+    public void copyTo(byte[] dest, int offset) {
+	System.arraycopy(buffer.array(), 0, dest, offset, buffer.position());
+    }
+
+    public byte[] toByteArray() {
+	byte[] bytes = new byte[buffer.position()];
+	System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+	return bytes;
+    }
+}
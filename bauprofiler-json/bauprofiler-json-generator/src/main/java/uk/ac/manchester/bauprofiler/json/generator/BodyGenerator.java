@@ -40,6 +40,7 @@ import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.CodeBlock;
 
 import uk.ac.manchester.bauprofiler.json.core.*;
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
 import uk.ac.manchester.bauprofiler.core.converter.Conversion;
 
 public class BodyGenerator {
@@ -54,8 +55,6 @@ public class BodyGenerator {
     public FieldSpec[] getFields() {
 	List<FieldSpec> fields = new ArrayList<>();
 	fields.add(createAssemblyNodesField());
-	fields.add(createIncludeInvisibleField());
-	fields.add(createExcludeInvisibleField());
 	fields.add(createVerboseField());
 	return fields.toArray(new FieldSpec[fields.size()]);
     }
@@ -65,7 +64,7 @@ public class BodyGenerator {
 			"uk.ac.manchester.bauprofiler.core.assembler"
 			, "AssemblyNode"))
 		, "_assemblyNodes")
-            .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
             .initializer(getAssemblyNodesFormat(), getAssemblyNodesArgs())
             .build();
     }
@@ -115,90 +114,7 @@ public class BodyGenerator {
 	return type.getNodeClass();
     }
 
-    private FieldSpec createIncludeInvisibleField() {
-	return createInvisibleField(
-		"_includeInvisible", container.fields, container.childFields);
-    }
-
-    private FieldSpec createInvisibleField(String name, Field[] fields, Field[] childFields) {
-        return FieldSpec.builder(String.class, name)
-            .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-            .initializer("$S", composeIncludeInvisibleField(fields, childFields))
-            .build();
-    }
-
-    private String composeIncludeInvisibleField(Field[] fields, Field[] childFields) {
-	return CodeBlock.of(
-		join(
-		    getInvisibleFormat(fields.length)
-		    , getInvisibleChildFormat(childFields.length))
-		, concatenate(
-		    getInvisibleArgs(fields)
-		    , getInvisibleChildArgs(childFields))
-		).toString();
-    }
-
-    private String join(String a, String b) {
-	if (a.isEmpty())
-	    return b;
-	if (b.isEmpty())
-	    return a;
-	return a+","+b;
-    }
-
-    private String getInvisibleFormat(int size) {
-	StringJoiner format = new StringJoiner(",");
-	for (int i = 0; i < size; i++)
-	    format.add("$S:$L");
-	return format.toString();
-    }
-
-    private String getInvisibleChildFormat(int size) {
-	return (container.childNode.isPresent()) ? buildInvisibleChildFormat(size) : "";
-    }
-
-    private String buildInvisibleChildFormat(int size) {
-	BaseNode childNode = container.childNode.get();
-	return "$S"+childNode.separator()+childNode.preOpen()+childNode.open()
-	    +getInvisibleFormat(size);
-    }
-
-    private Object[] concatenate(Object[] a, Object[] b) {
-	Object[] concatenation = new Object[a.length+b.length];
-	System.arraycopy(a, 0, concatenation, 0, a.length);
-	System.arraycopy(b, 0, concatenation, a.length, b.length);
-	return concatenation;
-    }
-
-    private Object[] getInvisibleArgs(Field[] fields) {
-	return getInvisibleArgsFrom(fields);
-    }
-
-    private Object[] getInvisibleArgsFrom(Field[] fields) {
-	List<Object> args = new ArrayList<>();
-	for (Field field : fields)
-	    args.addAll(Arrays.asList(field.key, field.valueFormat));
-	return args.toArray();
-    }
-
-    private Object[] getInvisibleChildArgs(Field[] fields) {
-	return concatenate(getChildPrefix(), getInvisibleArgsFrom(fields));
-    }
-
-    private Object[] getChildPrefix() {
-	return (container.childNode.isPresent())
-	    ? new Object[] {container.childNode.get().prefix()}
-	    : new Object[0];
-    }
-
-    private FieldSpec createExcludeInvisibleField() {
-	return createInvisibleField(
-		"_excludeInvisible"
-		, filterInvisible(container.fields, container.invisibleFields)
-		, filterInvisible(container.childFields, container.invisibleChildFields));
-    }
-
-    private Field[] filterInvisible(Field[] fields, int invisibles) {
+    static Field[] filterInvisible(Field[] fields, int invisibles) {
 	Field[] filtered = new Field[fields.length-invisibles];
 	for (int i = 0, j = 0; i < fields.length; i++) {
 	    if (!fields[i].isInvisible)
@@ -220,57 +136,132 @@ public class BodyGenerator {
 	List<MethodSpec> methods = new ArrayList<>();
 	methods.add(createSetVerbosityMethod());
 	methods.add(createConvertMethod());
-	methods.add(createGetJson());
-	methods.add(createGetJsonIncludeInvisible());
-	methods.add(createGetJsonExcludeInvisible());
+	methods.add(createWriteBody());
+	methods.add(createBodySizeHint());
+	methods.add(createWriteJsonIncludeInvisible());
+	methods.add(createWriteJsonExcludeInvisible());
+	methods.add(createWriteValues());
+	methods.add(createWriteValuesIncludeInvisible());
+	methods.add(createWriteValuesExcludeInvisible());
 	return methods.toArray(new MethodSpec[methods.size()]);
     }
 
-    private MethodSpec createGetJsonIncludeInvisible() {
-	return createGetJsonInvisible(
-		"_includeInvisible", container.fields, container.childFields);
+    AppendStatements getIncludeInvisibleStatements() {
+	return buildIncludeInvisible(new AppendStatements());
+    }
+
+    AppendStatements getExcludeInvisibleStatements() {
+	return buildExcludeInvisible(new AppendStatements());
+    }
+
+    private AppendStatements buildIncludeInvisible(AppendStatements statements) {
+	return buildAppendStatements(statements, container.fields, container.childFields);
+    }
+
+    private AppendStatements buildExcludeInvisible(AppendStatements statements) {
+	return buildAppendStatements(statements
+		, filterInvisible(container.fields, container.invisibleFields)
+		, filterInvisible(container.childFields, container.invisibleChildFields));
+    }
+
+    private AppendStatements buildAppendStatements(AppendStatements statements
+	    , Field[] fields, Field[] childFields) {
+	appendFields(statements, fields);
+	if (container.childNode.isPresent()) {
+	    if (fields.length > 0)
+		statements.appendLiteral(",");
+	    statements.appendLiteral(getChildOpening());
+	    appendFields(statements, childFields);
+	}
+	return statements;
+    }
+
+    private void appendFields(AppendStatements statements, Field[] fields) {
+	for (int i = 0; i < fields.length; i++) {
+	    if (i > 0)
+		statements.appendLiteral(",");
+	    statements.appendField(fields[i]);
+	}
+    }
+
+    String getChildOpening() {
+	BaseNode childNode = container.childNode.get();
+	return escape(childNode.prefix())
+	    +childNode.separator()+childNode.preOpen()+childNode.open();
+    }
+
+    private MethodSpec createWriteJsonIncludeInvisible() {
+	return createWriteJsonInvisible(
+		"writeJsonIncludeInvisible", getIncludeInvisibleStatements());
+    }
+
+    private MethodSpec createWriteJsonExcludeInvisible() {
+	return createWriteJsonInvisible(
+		"writeJsonExcludeInvisible", getExcludeInvisibleStatements());
     }
 
-    private MethodSpec createGetJsonInvisible(
-	    String format, Field[] fields, Field[] childFields) {
-	return MethodSpec.methodBuilder(buildGetJsonMethodName(format))
+    private MethodSpec createWriteJsonInvisible(String name, AppendStatements statements) {
+	return MethodSpec.methodBuilder(name)
 	    .addModifiers(Modifier.PRIVATE)
-	    .returns(String.class)
-	    .addStatement(buildGetJsonInvisibleStatement(format, fields, childFields))
+	    .addParameter(StringBuilder.class, "sb")
+	    .returns(TypeName.VOID)
+	    .addCode(statements.build())
 	    .build();
     }
 
-    private String buildGetJsonMethodName(String format) {
-	return "getJson"+format.substring(1,2).toUpperCase()+format.substring(2);
+    private MethodSpec createWriteBody() {
+	return MethodSpec.methodBuilder("writeBody")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(StringBuilder.class, "sb")
+	    .returns(TypeName.VOID)
+	    .beginControlFlow("if (_verbose)")
+	    .addStatement("writeJsonIncludeInvisible(sb)")
+	    .nextControlFlow("else")
+	    .addStatement("writeJsonExcludeInvisible(sb)")
+	    .endControlFlow()
+	    .build();
     }
 
-    private String buildGetJsonInvisibleStatement(
-	    String format, Field[] fields, Field[] childFields) {
-	StringJoiner sj = new StringJoiner(", ");
-	for (Field field : fields)
-	    sj.add(field.valueFormatArg);
-	for (Field field : childFields)
-	    sj.add(field.valueFormatArg);
-	return "return String.format("+format+", "+sj.toString()+")";
+    private MethodSpec createWriteValuesIncludeInvisible() {
+	return createWriteValuesInvisible("writeValuesIncludeInvisible"
+		, buildIncludeInvisible(AppendStatements.typed()));
     }
 
-    private MethodSpec createGetJsonExcludeInvisible() {
-	return createGetJsonInvisible(
-		"_excludeInvisible"
-		, filterInvisible(container.fields, container.invisibleFields)
-		, filterInvisible(container.childFields, container.invisibleChildFields));
+    private MethodSpec createWriteValuesExcludeInvisible() {
+	return createWriteValuesInvisible("writeValuesExcludeInvisible"
+		, buildExcludeInvisible(AppendStatements.typed()));
     }
 
-    private MethodSpec createGetJson() {
-	return MethodSpec.methodBuilder("getJson")
+    private MethodSpec createWriteValuesInvisible(String name, AppendStatements statements) {
+	return MethodSpec.methodBuilder(name)
 	    .addModifiers(Modifier.PRIVATE)
-	    .returns(String.class)
-	    .addStatement(buildGetJsonStatement())
+	    .addParameter(ValueWriter.class, "out")
+	    .returns(TypeName.VOID)
+	    .addCode(statements.build())
+	    .build();
+    }
+
+    private MethodSpec createWriteValues() {
+	return MethodSpec.methodBuilder("writeValues")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(ValueWriter.class, "out")
+	    .returns(TypeName.VOID)
+	    .beginControlFlow("if (_verbose)")
+	    .addStatement("writeValuesIncludeInvisible(out)")
+	    .nextControlFlow("else")
+	    .addStatement("writeValuesExcludeInvisible(out)")
+	    .endControlFlow()
 	    .build();
     }
 
-    private String buildGetJsonStatement() {
-	return "return (_verbose) ? getJsonIncludeInvisible() : getJsonExcludeInvisible()";
+    private MethodSpec createBodySizeHint() {
+	return MethodSpec.methodBuilder("bodySizeHint")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(TypeName.INT)
+	    .addStatement("return (_verbose) ? $L : $L"
+		    , getIncludeInvisibleStatements().sizeEstimate()
+		    , getExcludeInvisibleStatements().sizeEstimate())
+	    .build();
     }
 
     private MethodSpec createSetVerbosityMethod() {
@@ -291,7 +282,7 @@ public class BodyGenerator {
     }
 
     private String getConvertStatementFormat() {
-	return "return new $T(getId(), getJson(), _assemblyNodes)";
+	return "return new $T(getId(), this, _assemblyNodes)";
     }
 
     private Object[] getConvertStatementArgs() {
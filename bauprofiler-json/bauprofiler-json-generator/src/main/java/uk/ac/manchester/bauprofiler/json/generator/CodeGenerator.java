@@ -40,15 +40,21 @@ import com.squareup.javapoet.JavaFile;
 public class CodeGenerator {
     private final SkeletonGenerator skeleton;
     private final BodyGenerator body;
+    private final BinaryGenerator binary;
+    private final RowGenerator row;
     private JavaFile javaFile;
 
-    private CodeGenerator(SkeletonGenerator skeleton, BodyGenerator body) {
+    private CodeGenerator(SkeletonGenerator skeleton, BodyGenerator body
+	    , BinaryGenerator binary, RowGenerator row) {
 	this.skeleton = skeleton;
 	this.body = body;
+	this.binary = binary;
+	this.row = row;
     }
 
-    public static CodeGenerator build(SkeletonGenerator skeleton, BodyGenerator body) {
-	CodeGenerator cg = new CodeGenerator(skeleton, body);
+    public static CodeGenerator build(SkeletonGenerator skeleton, BodyGenerator body
+	    , BinaryGenerator binary, RowGenerator row) {
+	CodeGenerator cg = new CodeGenerator(skeleton, body, binary, row);
 	cg.build();
 	return cg;
     }
@@ -57,19 +63,27 @@ public class CodeGenerator {
 	TypeSpec.Builder builder = TypeSpec.classBuilder(skeleton.getClassName())
 	    .addModifiers(Modifier.PUBLIC)
 	    .superclass(skeleton.getSuperClass())
-	    .addSuperinterface(skeleton.getSuperInterface());
+	    .addSuperinterface(skeleton.getSuperInterface())
+	    .addSuperinterface(binary.getSuperInterface());
 	for (AnnotationSpec as : skeleton.getAnnotations())
 	    builder.addAnnotation(as);
 	for (FieldSpec fs : skeleton.getFields())
 	    builder.addField(fs);
 	for (FieldSpec fs : body.getFields())
 	    builder.addField(fs);
+	for (FieldSpec fs : row.getFields())
+	    builder.addField(fs);
+	builder.addStaticBlock(row.getStaticBlock());
 	for (MethodSpec ms : skeleton.getConstructors())
 	    builder.addMethod(ms);
 	for (MethodSpec ms : skeleton.getMethods())
 	    builder.addMethod(ms);
 	for (MethodSpec ms : body.getMethods())
 	    builder.addMethod(ms);
+	for (MethodSpec ms : binary.getMethods())
+	    builder.addMethod(ms);
+	for (MethodSpec ms : row.getMethods())
+	    builder.addMethod(ms);
 	javaFile = JavaFile.builder(skeleton.getPackageName(), builder.build())
 	    .skipJavaLangImports(true)
 	    .build();
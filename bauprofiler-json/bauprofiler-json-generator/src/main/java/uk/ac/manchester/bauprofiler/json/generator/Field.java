@@ -25,9 +25,18 @@
  */
 package uk.ac.manchester.bauprofiler.json.generator;
 
+import com.squareup.javapoet.TypeName;
+
 public class Field {
     String key;
+    String name;
+    TypeName type;
+    ValueType valueType;
     String valueFormat;
     String valueFormatArg;
     boolean isInvisible;
+
+    enum ValueType {
+	INTEGRAL, DECIMAL, STRING, PRIMITIVE_ARRAY, STRING_ARRAY, OTHER
+    }
 }
@@ -30,6 +30,8 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.ArrayType;
 
+import com.squareup.javapoet.TypeName;
+
 import uk.ac.manchester.bauprofiler.json.core.JType;
 import uk.ac.manchester.bauprofiler.json.annotations.*;
 
@@ -52,6 +54,9 @@ public class FieldExtractor {
 	TypeMirror type = element.asType();
 	Field field = new Field();
 	field.key = getKey();
+	field.name = simpleName;
+	field.type = TypeName.get(type);
+	field.valueType = getValueType(type);
 	field.valueFormat = getValueFormat(type);
 	field.valueFormatArg = getValueFormatArg(type);
 	field.isInvisible = isInvisible();
@@ -64,6 +69,24 @@ public class FieldExtractor {
 	+ jfield.postfix();
     }
 
+    private Field.ValueType getValueType(TypeMirror type) {
+	if (isStringType(type))
+	    return Field.ValueType.STRING;
+	else if (isStringArrayType(type))
+	    return Field.ValueType.STRING_ARRAY;
+	else if (isPrimitiveArrayType(type))
+	    return Field.ValueType.PRIMITIVE_ARRAY;
+	else if (isDecimal(type.getKind()))
+	    return Field.ValueType.DECIMAL;
+	else if (isIntegral(type.getKind()))
+	    return Field.ValueType.INTEGRAL;
+	return Field.ValueType.OTHER;
+    }
+
+    private boolean isIntegral(TypeKind kind) {
+	return isNumeric(kind) || kind.equals(TypeKind.SHORT) || kind.equals(TypeKind.BYTE);
+    }
+
     private String getValueFormat(TypeMirror type) {
 	String valueFormat;
 	if (hasOverloadedFormat())
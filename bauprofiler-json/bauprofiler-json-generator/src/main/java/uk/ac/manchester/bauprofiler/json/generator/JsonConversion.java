@@ -25,17 +25,27 @@
  */
 package uk.ac.manchester.bauprofiler.json.generator;
 
+import java.io.IOException;
+
 import uk.ac.manchester.bauprofiler.core.converter.Conversion;
 import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
 
 public class JsonConversion implements Conversion {
     private final long id;
-    private final String json;
+    private final JsonConvertableProfile profile;
     private final AssemblyNode[] assemblyNodes;
+    private String json;
 
     public JsonConversion(long id, String json, AssemblyNode[] assemblyNodes) {
-	this.id = id;
+	this(id, (JsonConvertableProfile) null, assemblyNodes);
 	this.json = json;
+    }
+
+    /* The body is written from the profile when it is assembled */
+    public JsonConversion(long id, JsonConvertableProfile profile, AssemblyNode[] assemblyNodes) {
+	this.id = id;
+	this.profile = profile;
 	this.assemblyNodes = assemblyNodes;
     }
 
@@ -44,9 +54,46 @@ public class JsonConversion implements Conversion {
     }
     
     public String toString() {
+	if (json == null) {
+	    StringBuilder sb = new StringBuilder(sizeHint());
+	    write(sb);
+	    json = sb.toString();
+	}
 	return json;
     }
 
+    public void writeTo(Appendable out) throws IOException {
+	if (json == null && out instanceof StringBuilder)
+	    write((StringBuilder) out);
+	else if (json == null && out instanceof ValueWriter)
+	    write((ValueWriter) out);
+	else
+	    out.append(toString());
+    }
+
+    private void write(StringBuilder sb) {
+	if (profile.isPositional())
+	    profile.writeRow(sb);
+	else
+	    profile.writeBody(sb);
+    }
+
+    /* Rows stay text, their values are few next to the body they replace */
+    private void write(ValueWriter out) {
+	if (profile.isPositional())
+	    profile.writeRow(out.text());
+	else if (out instanceof BinaryValueWriter && profile instanceof BinaryConvertableProfile)
+	    ((BinaryValueWriter) out).appendBinary((BinaryConvertableProfile) profile);
+	else
+	    profile.writeValues(out);
+    }
+
+    public int sizeHint() {
+	if (json != null)
+	    return json.length();
+	return (profile.isPositional()) ? profile.rowSizeHint() : profile.bodySizeHint();
+    }
+
     public AssemblyNode[] getAssemblyNodes() {
 	return assemblyNodes;
     }
@@ -29,8 +29,30 @@ import java.util.StringJoiner;
 
 import uk.ac.manchester.bauprofiler.core.Profile;
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
 
 public interface JsonConvertableProfile extends ConvertableProfile {
+    void writeBody(StringBuilder sb);
+    int bodySizeHint();
+
+    /* Same body as writeBody, numbers going to the writer as values */
+    default void writeValues(ValueWriter out) {
+	writeBody(out.text());
+    }
+
+    /* Positional form of the body, see ConvertableProfile.setPositional */
+    default boolean isPositional() {
+	return false;
+    }
+
+    default void writeRow(StringBuilder sb) {
+	writeBody(sb);
+    }
+
+    default int rowSizeHint() {
+	return bodySizeHint();
+    }
+
     static String arrayToString(String[] array) {
 	StringJoiner sj = new StringJoiner(",", "[", "]");
 	for (String e : array)
@@ -0,0 +1,52 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.io.Serializable;
+
+public class Layout implements Serializable {
+    /* Fixed so recompiling the processor keeps persisted layouts readable,
+     * the value is the one computed for the layouts persisted so far */
+    private static final long serialVersionUID = -7278809355945947539L;
+
+    int classId;
+    long[] nodeIds;
+    String[] openFragments;
+    String[] closeFragments;
+    String[] separatorFragments;
+
+    int depth() {
+	return nodeIds.length;
+    }
+
+    int commonDepth(Layout other) {
+	int depth = 0;
+	int maxDepth = Math.min(depth(), other.depth());
+	while (depth < maxDepth && nodeIds[depth] == other.nodeIds[depth])
+	    depth++;
+	return depth;
+    }
+}
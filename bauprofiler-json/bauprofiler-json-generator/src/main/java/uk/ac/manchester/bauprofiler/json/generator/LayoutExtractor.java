@@ -0,0 +1,103 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.lang.reflect.InvocationTargetException;
+
+import com.squareup.javapoet.CodeBlock;
+
+import uk.ac.manchester.bauprofiler.core.assembler.AssemblyNode;
+import uk.ac.manchester.bauprofiler.json.core.*;
+
+/* Builds the same AssemblyNodes as BodyGenerator so that the fragments of
+ * the generated skeleton match those of the generated profiles */
+public class LayoutExtractor {
+    public static Layout extract(int classId, JsonContainer container, Encoder prefixEncoder) {
+	return new LayoutExtractor(container, prefixEncoder).extract(classId);
+    }
+
+    private final JsonContainer container;
+    private final Encoder prefixEncoder;
+
+    private LayoutExtractor(JsonContainer container, Encoder prefixEncoder) {
+	this.container = container;
+	this.prefixEncoder = prefixEncoder;
+    }
+
+    private Layout extract(int classId) {
+	List<AssemblyNode> nodes = buildAssemblyNodes();
+	Layout layout = new Layout();
+	layout.classId = classId;
+	layout.nodeIds = new long[nodes.size()];
+	layout.openFragments = new String[nodes.size()];
+	layout.closeFragments = new String[nodes.size()];
+	layout.separatorFragments = new String[nodes.size()];
+	for (int i = 0; i < nodes.size(); i++) {
+	    AssemblyNode node = nodes.get(i);
+	    layout.nodeIds[i] = node.uniqueId();
+	    layout.openFragments[i] = new String(node.openFragment());
+	    layout.closeFragments[i] = new String(node.closeFragment());
+	    layout.separatorFragments[i] = new String(node.separatorFragment());
+	}
+	return layout;
+    }
+
+    private List<AssemblyNode> buildAssemblyNodes() {
+	List<AssemblyNode> nodes = new ArrayList<>();
+	int numOfPrefixes = container.prefixes.length;
+	for (int i = 0; i < numOfPrefixes-1; i++)
+	    nodes.add(buildNode(JType.OBJECT.getNodeClass(), escape(container.prefixes[i])
+			, prefixEncoder.encode(container.prefixes[i])));
+	if (numOfPrefixes > 0)
+	    nodes.add(buildNode(container.type.getNodeClass()
+			, escape(container.prefixes[numOfPrefixes-1])
+			, prefixEncoder.encode(container.prefixes[numOfPrefixes-1])));
+	if (container.childNode.isPresent())
+	    nodes.add(buildChildNode());
+	return nodes;
+    }
+
+    private String escape(String unescaped) {
+	return CodeBlock.of("$S", unescaped).toString();
+    }
+
+    private AssemblyNode buildChildNode() {
+	BaseNode childNode = container.childNode.get();
+	return new ChildNode(buildNode(
+		    childNode.getClass(), "", prefixEncoder.encode(childNode.prefix())));
+    }
+
+    private BaseNode buildNode(Class<? extends BaseNode> nodeClass, String prefix, long id) {
+	try {
+	    return nodeClass.getConstructor(String.class, long.class).newInstance(prefix, id);
+	} catch (NoSuchMethodException | InstantiationException
+		| IllegalAccessException | InvocationTargetException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.TreeMap;
+import java.util.Collection;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+public class PersistentLayouts {
+    private final String filename;
+    private final TreeMap<Integer, Layout> layouts;
+
+    private PersistentLayouts(TreeMap<Integer, Layout> layouts, String filename) {
+	this.layouts = layouts;
+	this.filename = filename;
+    }
+
+    public static PersistentLayouts load(String filename)
+	    throws ClassNotFoundException, IOException {
+	TreeMap<Integer, Layout> layouts = null;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
+            layouts = (TreeMap<Integer, Layout>) ois.readObject();
+        } catch (FileNotFoundException e) {
+            // Not yet created
+        }
+
+        if (layouts == null)
+	    layouts = new TreeMap<>();
+
+	return new PersistentLayouts(layouts, filename);
+    }
+
+    public void persist() throws IOException {
+	try (ObjectOutputStream oos =
+		new ObjectOutputStream(new FileOutputStream(filename, false))) {
+	    oos.writeObject(layouts);
+	}
+    }
+
+    public void register(Layout layout) {
+	layouts.put(layout.classId, layout);
+    }
+
+    public Collection<Layout> getLayouts() {
+	return layouts.values();
+    }
+}
@@ -36,5 +36,6 @@ public class ProfileContainer {
     int classId;
     Optional<String> fullyQualifiedDependencyName;
     Optional<Integer> dependencyId;
+    boolean timed;
     ExecutableElement[] constructors;
 }
@@ -38,10 +38,12 @@ import javax.lang.model.type.DeclaredType;
 
 import uk.ac.manchester.bauprofiler.core.Profile;
 import uk.ac.manchester.bauprofiler.core.interfaces.Dependency;
+import uk.ac.manchester.bauprofiler.core.interfaces.Timed;
 
 public class ProfileExtractor {
     private static final String PROFILE_FULLY_QUALIFIED_NAME = Profile.class.getName();
     private static final String DEPENDENCY_FULLY_QUALIFIED_NAME = Dependency.class.getName();
+    private static final String TIMED_FULLY_QUALIFIED_NAME = Timed.class.getName();
     private TypeElement enclosingElement;
     private DeclaredType profile;
     private ProfileContainer container;
@@ -66,6 +68,7 @@ public class ProfileExtractor {
 	populateClassName();
 	populateClassId();
 	populateDependency();
+	populateTimed();
 	populateConstructors();
 	return container;
     }
@@ -131,6 +134,10 @@ public class ProfileExtractor {
 		    container.fullyQualifiedDependencyName.get()));
     }
 
+    private void populateTimed() {
+	container.timed = findImplementation(TIMED_FULLY_QUALIFIED_NAME) != null;
+    }
+
     private String getFullyQualifiedDependencyClassName(String dependencyClassName) {
 	String packageName = extractPackageName(dependencyClassName);
 	String className = extractClassName(dependencyClassName);
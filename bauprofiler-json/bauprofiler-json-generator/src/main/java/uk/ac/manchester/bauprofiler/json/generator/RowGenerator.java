@@ -0,0 +1,211 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.StringJoiner;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.CodeBlock;
+
+import uk.ac.manchester.bauprofiler.core.converter.ProfileSchemas;
+
+/* Generates the positional form of the body, where the fields of a profile
+ * are written as a single array of values under the row key "@<class id>"
+ * (and "@<class id>.child" for the fields of the child node). The keys are
+ * registered once with ProfileSchemas as the matching schema fragment */
+public class RowGenerator {
+    private static final String CHILD_ROW_SUFFIX = ".child";
+
+    private final JsonContainer container;
+    private final BodyGenerator body;
+    private final int classId;
+
+    public RowGenerator(JsonContainer container, BodyGenerator body, int classId) {
+	this.container = container;
+	this.body = body;
+	this.classId = classId;
+    }
+
+    public FieldSpec[] getFields() {
+	return new FieldSpec[] {createPositionalField()};
+    }
+
+    private FieldSpec createPositionalField() {
+        return FieldSpec.builder(boolean.class, "_positional")
+            .addModifiers(Modifier.PRIVATE)
+            .initializer("$L", "false")
+            .build();
+    }
+
+    public CodeBlock getStaticBlock() {
+	return CodeBlock.builder()
+	    .addStatement("$T.register(_id, $S, $S)", ProfileSchemas.class
+		    , getExcludeInvisibleSchema(), getIncludeInvisibleSchema())
+	    .build();
+    }
+
+    String getIncludeInvisibleSchema() {
+	return buildSchema(container.fields, container.childFields);
+    }
+
+    String getExcludeInvisibleSchema() {
+	return buildSchema(
+		BodyGenerator.filterInvisible(container.fields, container.invisibleFields)
+		, BodyGenerator.filterInvisible(
+		    container.childFields, container.invisibleChildFields));
+    }
+
+    private String buildSchema(Field[] fields, Field[] childFields) {
+	StringJoiner schema = new StringJoiner(",");
+	if (fields.length > 0)
+	    schema.add(getRowKey()+":"+joinKeys(fields));
+	if (container.childNode.isPresent() && childFields.length > 0)
+	    schema.add(getChildRowKey()+":"+joinKeys(childFields));
+	return schema.toString();
+    }
+
+    private String joinKeys(Field[] fields) {
+	StringJoiner keys = new StringJoiner(",", "[", "]");
+	for (Field field : fields)
+	    keys.add(escape(field.key));
+	return keys.toString();
+    }
+
+    private String getRowKey() {
+	return escape("@"+classId);
+    }
+
+    private String getChildRowKey() {
+	return escape("@"+classId+CHILD_ROW_SUFFIX);
+    }
+
+    private String escape(String unescaped) {
+	return CodeBlock.of("$S", unescaped).toString();
+    }
+
+    public MethodSpec[] getMethods() {
+	List<MethodSpec> methods = new ArrayList<>();
+	methods.add(createSetPositionalMethod());
+	methods.add(createIsPositionalMethod());
+	methods.add(createWriteRow());
+	methods.add(createRowSizeHint());
+	methods.add(createWriteRowInvisible(
+		    "writeRowIncludeInvisible", getIncludeInvisibleStatements()));
+	methods.add(createWriteRowInvisible(
+		    "writeRowExcludeInvisible", getExcludeInvisibleStatements()));
+	return methods.toArray(new MethodSpec[methods.size()]);
+    }
+
+    AppendStatements getIncludeInvisibleStatements() {
+	return buildAppendStatements(container.fields, container.childFields);
+    }
+
+    AppendStatements getExcludeInvisibleStatements() {
+	return buildAppendStatements(
+		BodyGenerator.filterInvisible(container.fields, container.invisibleFields)
+		, BodyGenerator.filterInvisible(
+		    container.childFields, container.invisibleChildFields));
+    }
+
+    private AppendStatements buildAppendStatements(Field[] fields, Field[] childFields) {
+	AppendStatements statements = new AppendStatements();
+	if (fields.length > 0)
+	    appendRow(statements, getRowKey(), fields);
+	if (container.childNode.isPresent()) {
+	    if (fields.length > 0)
+		statements.appendLiteral(",");
+	    statements.appendLiteral(body.getChildOpening());
+	    if (childFields.length > 0)
+		appendRow(statements, getChildRowKey(), childFields);
+	}
+	return statements;
+    }
+
+    private void appendRow(AppendStatements statements, String rowKey, Field[] fields) {
+	statements.appendLiteral(rowKey+":[");
+	for (int i = 0; i < fields.length; i++) {
+	    if (i > 0)
+		statements.appendLiteral(",");
+	    statements.appendValue(fields[i]);
+	}
+	statements.appendLiteral("]");
+    }
+
+    private MethodSpec createWriteRowInvisible(String name, AppendStatements statements) {
+	return MethodSpec.methodBuilder(name)
+	    .addModifiers(Modifier.PRIVATE)
+	    .addParameter(StringBuilder.class, "sb")
+	    .returns(TypeName.VOID)
+	    .addCode(statements.build())
+	    .build();
+    }
+
+    private MethodSpec createWriteRow() {
+	return MethodSpec.methodBuilder("writeRow")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(StringBuilder.class, "sb")
+	    .returns(TypeName.VOID)
+	    .beginControlFlow("if (_verbose)")
+	    .addStatement("writeRowIncludeInvisible(sb)")
+	    .nextControlFlow("else")
+	    .addStatement("writeRowExcludeInvisible(sb)")
+	    .endControlFlow()
+	    .build();
+    }
+
+    private MethodSpec createRowSizeHint() {
+	return MethodSpec.methodBuilder("rowSizeHint")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(TypeName.INT)
+	    .addStatement("return (_verbose) ? $L : $L"
+		    , getIncludeInvisibleStatements().sizeEstimate()
+		    , getExcludeInvisibleStatements().sizeEstimate())
+	    .build();
+    }
+
+    private MethodSpec createSetPositionalMethod() {
+	return MethodSpec.methodBuilder("setPositional")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(TypeName.BOOLEAN, "positional")
+	    .returns(TypeName.VOID)
+	    .addStatement("this._positional = positional")
+	    .build();
+    }
+
+    private MethodSpec createIsPositionalMethod() {
+	return MethodSpec.methodBuilder("isPositional")
+	    .addModifiers(Modifier.PUBLIC)
+	    .returns(TypeName.BOOLEAN)
+	    .addStatement("return _positional")
+	    .build();
+    }
+}
@@ -46,6 +46,7 @@ import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.AnnotationSpec;
 
 import uk.ac.manchester.bauprofiler.core.Profile;
+import uk.ac.manchester.bauprofiler.core.TimerInfo;
 import uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile;
 
 public class SkeletonGenerator {
@@ -90,12 +91,14 @@ public class SkeletonGenerator {
 	List<FieldSpec> fields = new ArrayList<>();
 	fields.add(createIdField());
 	fields.add(createDependencyIdField());
+	if (container.timed)
+	    fields.add(createTimerField());
 	return fields.toArray(new FieldSpec[fields.size()]);
     }
 
     private FieldSpec createIdField() {
 	return FieldSpec.builder(TypeName.INT, "_id")
-	    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
 	    .initializer("$L", container.classId)
 	    .build();
     }
@@ -103,11 +106,17 @@ public class SkeletonGenerator {
     private FieldSpec createDependencyIdField() {
 	return FieldSpec.builder(ParameterizedTypeName.get(
 		    ClassName.get(Optional.class), TypeName.INT.box()), "_dependencyId")
-	    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+	    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
 	    .initializer(getDependencyIdInitializer())
 	    .build();
     }
 
+    private FieldSpec createTimerField() {
+	return FieldSpec.builder(ClassName.get(TimerInfo.class), "_timer")
+	    .addModifiers(Modifier.PRIVATE)
+	    .build();
+    }
+
     private CodeBlock getDependencyIdInitializer() {
 	return CodeBlock.of(getDependencyIdFormat(), getDependencyIdArgs());
     }
@@ -146,7 +155,12 @@ public class SkeletonGenerator {
 	List<MethodSpec> methods = new ArrayList<>();
 	methods.add(getGetIdMethod());
 	methods.add(getGetDependencyIdMethod());
+	methods.add(getPrimitiveDependencyIdMethod());
 	methods.add(getDependsOnMethod());
+	if (container.timed) {
+	    methods.add(getSetTimerMethod());
+	    methods.add(getGetTimerMethod());
+	}
 	return methods.toArray(new MethodSpec[methods.size()]);
     }
 
@@ -166,6 +180,41 @@ public class SkeletonGenerator {
 	    .build();
     }
 
+    private MethodSpec getPrimitiveDependencyIdMethod() {
+	return MethodSpec.methodBuilder("dependencyId")
+	    .addModifiers(Modifier.PUBLIC)
+	    .addStatement(getPrimitiveDependencyIdStatement())
+	    .returns(TypeName.INT)
+	    .build();
+    }
+
+    private CodeBlock getPrimitiveDependencyIdStatement() {
+	return container.dependencyId.isPresent()
+	    ? CodeBlock.of("return $L", container.dependencyId.get())
+	    : CodeBlock.of("return $T.NO_DEPENDENCY", ConvertableProfile.class);
+    }
+
+    /* Keeps the timer handed out by tprofile, so start time ordering can
+     * read it back whatever the profile does with it */
+    private MethodSpec getSetTimerMethod() {
+	return MethodSpec.methodBuilder("setTimer")
+	    .addAnnotation(Override.class)
+	    .addModifiers(Modifier.PUBLIC)
+	    .addParameter(ClassName.get(TimerInfo.class), "timer")
+	    .addStatement("_timer = timer")
+	    .addStatement("super.setTimer(timer)")
+	    .build();
+    }
+
+    private MethodSpec getGetTimerMethod() {
+	return MethodSpec.methodBuilder("getTimer")
+	    .addAnnotation(Override.class)
+	    .addModifiers(Modifier.PUBLIC)
+	    .addStatement("return _timer")
+	    .returns(ClassName.get(TimerInfo.class))
+	    .build();
+    }
+
     private MethodSpec getDependsOnMethod() {
 	return MethodSpec.methodBuilder("dependsOn")
 	    .addModifiers(Modifier.PUBLIC)
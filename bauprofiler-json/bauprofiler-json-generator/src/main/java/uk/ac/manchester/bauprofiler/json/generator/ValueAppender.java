@@ -0,0 +1,201 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
+
+/* Appends the values of generated profiles without going through
+ * String.format, matching its output for the compiled value formats */
+public final class ValueAppender {
+    private static final long[] POWERS_OF_TEN = {
+	1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    /* Below 2^33 the error of scaling stays well within TIE_GUARD of the
+     * fraction, so rounding agrees with String.format away from ties */
+    private static final double MAX_FAST_SCALED = 0x1p33;
+    private static final double TIE_GUARD = 1e-5;
+
+    private ValueAppender() {
+    }
+
+    /* Same output as String.format("%.<scale>f", value): half up rounding of
+     * the shortest decimal representation of value */
+    public static void appendFixed(StringBuilder sb, double value, int scale) {
+	if (Double.isNaN(value) || Double.isInfinite(value)) {
+	    sb.append(value);
+	    return;
+	}
+	if (Double.doubleToRawLongBits(value) < 0) {
+	    sb.append('-');
+	    value = -value;
+	}
+	long scaled = roundScaled(value, scale);
+	if (scaled >= 0)
+	    appendScaled(sb, scaled, scale);
+	else
+	    sb.append(BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).toPlainString());
+    }
+
+    /* Same value as appendFixed, handed over unscaled where that is exact.
+     * Negative zero keeps its sign only as text */
+    public static void appendFixed(ValueWriter out, double value, int scale) {
+	boolean negative = Double.doubleToRawLongBits(value) < 0;
+	long scaled = (Double.isNaN(value)) ? -1 : roundScaled(Math.abs(value), scale);
+	if (scaled > 0 || (scaled == 0 && !negative))
+	    out.appendDecimal((negative) ? -scaled : scaled, scale);
+	else
+	    appendFixed(out.text(), value, scale);
+    }
+
+    /* Non-negative value scaled by 10^scale and rounded half up, or -1 where
+     * that cannot be done exactly in a double */
+    private static long roundScaled(double value, int scale) {
+	if (scale >= POWERS_OF_TEN.length)
+	    return -1;
+	double scaled = value*POWERS_OF_TEN[scale];
+	if (!(scaled < MAX_FAST_SCALED))
+	    return -1;
+	double floor = Math.floor(scaled);
+	double fraction = scaled-floor;
+	if (Math.abs(fraction-0.5) <= TIE_GUARD)
+	    return -1;
+	return (long) floor + ((fraction > 0.5) ? 1 : 0);
+    }
+
+    private static void appendScaled(StringBuilder sb, long scaled, int scale) {
+	sb.append(scaled/POWERS_OF_TEN[scale]);
+	if (scale == 0)
+	    return;
+	sb.append('.');
+	long fraction = scaled%POWERS_OF_TEN[scale];
+	for (int i = scale-1; i > 0 && fraction < POWERS_OF_TEN[i]; i--)
+	    sb.append('0');
+	sb.append(fraction);
+    }
+
+    /* Same output as JsonConvertableProfile.arrayToString */
+    public static void appendStringArray(StringBuilder sb, String[] array) {
+	sb.append('[');
+	for (int i = 0; i < array.length; i++) {
+	    if (i > 0)
+		sb.append(',');
+	    sb.append('"').append(array[i]).append('"');
+	}
+	sb.append(']');
+    }
+
+    /* Same output as java.util.Arrays.toString */
+    public static void appendArray(StringBuilder sb, int[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, long[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, short[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, byte[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, double[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, float[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, char[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+
+    public static void appendArray(StringBuilder sb, boolean[] array) {
+	if (array == null) {
+	    sb.append("null");
+	    return;
+	}
+	sb.append('[');
+	for (int i = 0; i < array.length; i++)
+	    ((i > 0) ? sb.append(", ") : sb).append(array[i]);
+	sb.append(']');
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import java.util.Optional;
+
+/* Value format compiled at processing time into the literal text around a
+ * single %d, %s, %f or %.Nf conversion. Other patterns are not compiled and
+ * are left to String.format. */
+public class ValueFormat {
+    private static final int DEFAULT_SCALE = 6;
+
+    final String prefix;
+    final char conversion;
+    final int scale;
+    final String suffix;
+
+    private ValueFormat(String prefix, char conversion, int scale, String suffix) {
+	this.prefix = prefix;
+	this.conversion = conversion;
+	this.scale = scale;
+	this.suffix = suffix;
+    }
+
+    public static Optional<ValueFormat> compile(String format) {
+	StringBuilder prefix = new StringBuilder();
+	StringBuilder suffix = new StringBuilder();
+	StringBuilder literal = prefix;
+	char conversion = 0;
+	int scale = DEFAULT_SCALE;
+	int i = 0;
+	while (i < format.length()) {
+	    char c = format.charAt(i++);
+	    if (c != '%') {
+		literal.append(c);
+		continue;
+	    }
+	    if (i < format.length() && format.charAt(i) == '%') {
+		literal.append('%');
+		i++;
+		continue;
+	    }
+	    if (conversion != 0)
+		return Optional.empty();
+	    int precisionStart = i;
+	    if (i < format.length() && format.charAt(i) == '.') {
+		int digitsStart = ++i;
+		while (i < format.length() && Character.isDigit(format.charAt(i)))
+		    i++;
+		if (i == digitsStart || i-digitsStart > 2)
+		    return Optional.empty();
+		scale = Integer.parseInt(format.substring(digitsStart, i));
+	    }
+	    if (i >= format.length())
+		return Optional.empty();
+	    conversion = format.charAt(i++);
+	    if (!isSupported(conversion, i-1 > precisionStart))
+		return Optional.empty();
+	    literal = suffix;
+	}
+	if (conversion == 0)
+	    return Optional.empty();
+	return Optional.of(new ValueFormat(prefix.toString(), conversion, scale, suffix.toString()));
+    }
+
+    private static boolean isSupported(char conversion, boolean hasPrecision) {
+	switch (conversion) {
+	    case 'f':
+		return true;
+	    case 'd':
+	    case 's':
+		return !hasPrecision;
+	    default:
+		return false;
+	}
+    }
+
+    /* Conversions that String.format would reject at runtime are not compiled */
+    public boolean accepts(Field.ValueType type) {
+	switch (conversion) {
+	    case 'd':
+		return type == Field.ValueType.INTEGRAL;
+	    case 'f':
+		return type == Field.ValueType.DECIMAL;
+	    default:
+		return type != null && type != Field.ValueType.OTHER;
+	}
+    }
+}
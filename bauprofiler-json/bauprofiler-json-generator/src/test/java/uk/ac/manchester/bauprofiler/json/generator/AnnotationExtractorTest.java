@@ -296,6 +296,30 @@ public class AnnotationExtractorTest {
 	assertThat(container).hadJFieldNamed("myFloat").withMatchingValueFormat("%.2f");
     }
 
+    @Test
+    public void testExtractionOfJFieldValueTypes() {
+	JsonContainer container = extractContainerForSourceLines(
+		"test.JFieldAnnotation"
+		, "package test;"
+		, "import uk.ac.manchester.bauprofiler.json.annotations.*;"
+		, "@JClass"
+		, "public class JFieldAnnotation {"
+		, "  @JField protected long myLong;"
+		, "  @JField protected double myDouble;"
+		, "  @JField protected String myString;"
+		, "  @JField protected int[] myIntArray;"
+		, "  @JField protected String[] myStringArray;"
+		, "}");
+
+	assertThat(container).hadJFieldNamed("myLong").withValueType(Field.ValueType.INTEGRAL);
+	assertThat(container).hadJFieldNamed("myDouble").withValueType(Field.ValueType.DECIMAL);
+	assertThat(container).hadJFieldNamed("myString").withValueType(Field.ValueType.STRING);
+	assertThat(container).hadJFieldNamed("myIntArray")
+	    .withValueType(Field.ValueType.PRIMITIVE_ARRAY);
+	assertThat(container).hadJFieldNamed("myStringArray")
+	    .withValueType(Field.ValueType.STRING_ARRAY);
+    }
+
     @Test (expected=FieldExtractor.InvalidPrimitiveTypeException.class)
     public void testExtractionOfJFieldValueFormatForOtherPrimitive() {
 	JsonContainer container = extractContainerForSourceLines(
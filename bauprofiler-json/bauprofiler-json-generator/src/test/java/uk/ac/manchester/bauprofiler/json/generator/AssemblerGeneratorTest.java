@@ -0,0 +1,139 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.util.Optional;
+import java.util.Arrays;
+import java.io.IOException;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+
+import uk.ac.manchester.bauprofiler.json.core.*;
+
+public class AssemblerGeneratorTest {
+    private static final String FULLY_QUALIFIED_NAME_FACTORY =
+	AssemblerGenerator.PACKAGE_NAME+"."+AssemblerGenerator.CLASS_NAME;
+
+    private Encoder prefixEncoder;
+
+    private JsonContainer buildContainer(JType type, String... prefixes) {
+	JsonContainer container = new JsonContainer();
+	container.prefixes = prefixes;
+	container.type = type;
+	container.fields = new Field[0];
+	container.childNode = Optional.empty();
+	container.childFields = new Field[0];
+	return container;
+    }
+
+    private String generate(Layout... layouts) throws IOException {
+	StringBuilder source = new StringBuilder();
+	AssemblerGenerator.build(Arrays.asList(layouts)).writeTo(source);
+	return source.toString();
+    }
+
+    @Before
+    public void setupPrefixEncoder() {
+	prefixEncoder = new EncoderImpl();
+    }
+
+    @Test
+    public void testLayoutExtraction_ForNestedObjects() {
+	Layout layout = LayoutExtractor.extract(
+		3, buildContainer(JType.OBJECT, "vmbytecode", "events"), prefixEncoder);
+
+	assertThat(layout.classId, equalTo(3));
+	assertArrayEquals(new long[] {0, 1}, layout.nodeIds);
+	assertArrayEquals(new String[] {"\"vmbytecode\":{", "\"events\":{"}
+		, layout.openFragments);
+	assertArrayEquals(new String[] {"}", "}"}, layout.closeFragments);
+	assertArrayEquals(new String[] {"},{", "},{"}, layout.separatorFragments);
+    }
+
+    @Test
+    public void testLayoutExtraction_ForObjectArrayWithChild() {
+	JsonContainer container = buildContainer(JType.OBJECT_ARRAY, "tasks");
+	container.childNode = Optional.of(new ObjectNode("task", 0));
+
+	Layout layout = LayoutExtractor.extract(0, container, prefixEncoder);
+
+	assertArrayEquals(new long[] {0, 1}, layout.nodeIds);
+	assertArrayEquals(new String[] {"\"tasks\":[{", ""}, layout.openFragments);
+	assertArrayEquals(new String[] {"}]", "}"}, layout.closeFragments);
+	assertArrayEquals(new String[] {"},{", "},"}, layout.separatorFragments);
+    }
+
+    @Test
+    public void testCommonDepthOfLayouts() {
+	Layout runtime = LayoutExtractor.extract(
+		0, buildContainer(JType.OBJECT, "vmbytecode"), prefixEncoder);
+	Layout events = LayoutExtractor.extract(
+		1, buildContainer(JType.OBJECT, "vmbytecode", "events"), prefixEncoder);
+	Layout graph = LayoutExtractor.extract(
+		2, buildContainer(JType.OBJECT, "graph"), prefixEncoder);
+
+	assertThat(runtime.commonDepth(events), equalTo(1));
+	assertThat(events.commonDepth(events), equalTo(2));
+	assertThat(events.commonDepth(graph), equalTo(0));
+    }
+
+    @Test
+    public void testSwitchTablesGen() throws IOException {
+	String source = generate(
+		LayoutExtractor.extract(0, buildContainer(JType.OBJECT, "vmbytecode"), prefixEncoder)
+		, LayoutExtractor.extract(
+		    1, buildContainer(JType.OBJECT, "vmbytecode", "events"), prefixEncoder)
+		, LayoutExtractor.extract(2, buildContainer(JType.OBJECT, "graph"), prefixEncoder));
+
+	assertThat(source, containsString("case 1: return 2;"));
+	assertThat(source, containsString("case 1: return commonDepthOfClass1(otherClassId);"));
+	assertThat(source, containsString("case 2: return OPEN_2[depth];"));
+	assertThat(source, containsString(
+		    "default: throw new Skeleton.UnknownClassException(classId);"));
+    }
+
+    @Test
+    public void testGeneratedFactoryCompiles() throws IOException {
+	String source = generate(
+		LayoutExtractor.extract(0, buildContainer(JType.OBJECT, "vmbytecode"), prefixEncoder)
+		, LayoutExtractor.extract(
+		    1, buildContainer(JType.OBJECT_ARRAY, "kernels"), prefixEncoder));
+
+	Compilation compilation = javac()
+	    .compile(JavaFileObjects.forSourceString(FULLY_QUALIFIED_NAME_FACTORY, source));
+
+	CompilationSubject.assertThat(compilation).succeeded();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.util.Optional;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.tools.JavaFileObject;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+
+public class BinaryGeneratorTest {
+    private static final String SAMPLE_SOURCE = String.join("\n"
+	    , "package test;"
+	    , "public class Sample implements uk.ac.manchester.bauprofiler.core.Profile {"
+	    , "    protected String name;"
+	    , "    protected long start;"
+	    , "    protected double time;"
+	    , "    protected int[] sizes;"
+	    , "    protected String[] tags;"
+	    , "    protected int secret;"
+	    , "}");
+
+    private JsonContainer container;
+
+    private Optional<MethodSpec> filterMethodsByName(MethodSpec[] methods, String name) {
+	for (MethodSpec method : methods)
+	    if (method.name.equals(name))
+		return Optional.of(method);
+	return Optional.empty();
+    }
+
+    private Field buildField(String name, TypeName type
+	    , Field.ValueType valueType, String valueFormat, String valueFormatArg) {
+	Field field = new Field();
+	field.key = name;
+	field.name = name;
+	field.type = type;
+	field.valueType = valueType;
+	field.valueFormat = valueFormat;
+	field.valueFormatArg = valueFormatArg;
+	return field;
+    }
+
+    @Before
+    public void setupSampleJsonContainer() {
+	Field secret = buildField("secret", TypeName.INT, Field.ValueType.INTEGRAL, "%d", "secret");
+	secret.isInvisible = true;
+	container = new JsonContainer();
+	container.prefixes = new String[] {"samples"};
+	container.type = uk.ac.manchester.bauprofiler.json.core.JType.OBJECT_ARRAY;
+	container.childNode = Optional.empty();
+	container.childFields = new Field[0];
+	container.fields = new Field[] {
+	    buildField("name", ClassName.get(String.class)
+		    , Field.ValueType.STRING, "\"%s\"", "name")
+	    , buildField("start", TypeName.LONG, Field.ValueType.INTEGRAL, "%d", "start")
+	    , buildField("time", TypeName.DOUBLE, Field.ValueType.DECIMAL, "%.2f", "time")
+	    , buildField("sizes", ArrayTypeName.of(TypeName.INT), Field.ValueType.PRIMITIVE_ARRAY
+		    , "%s", "java.util.Arrays.toString(sizes)")
+	    , buildField("tags", ArrayTypeName.of(String.class), Field.ValueType.STRING_ARRAY
+		    , "%s", "JsonConvertableProfile.arrayToString(tags)")
+	    , secret
+	};
+	container.invisibleFields = 1;
+    }
+
+    private BinaryGenerator buildGenerator() {
+	return new BinaryGenerator(container, new BodyGenerator(container, new DummyEncoder()));
+    }
+
+    @Test
+    public void testWriteBinaryWritesEveryFieldInOrder() {
+	Optional<MethodSpec> write = filterMethodsByName(buildGenerator().getMethods(), "writeBinary");
+
+	assertTrue(write.isPresent());
+	assertThat(write.get().toString(), equalTo(
+		    "public void writeBinary("+BinaryProfileWriter.class.getName()+" _out) {\n"
+		    +"  _out.writeString(name);\n"
+		    +"  _out.writeLong(start);\n"
+		    +"  _out.writeDouble(time);\n"
+		    +"  _out.writeIntArray(sizes);\n"
+		    +"  _out.writeStringArray(tags);\n"
+		    +"  _out.writeInt(secret);\n"
+		    +"}\n"));
+    }
+
+    @Test
+    public void testBinarySizeHintCountsFixedWidths() {
+	Optional<MethodSpec> hint = filterMethodsByName(
+		buildGenerator().getMethods(), "binarySizeHint");
+
+	assertTrue(hint.isPresent());
+	assertThat(hint.get().toString(), containsString("return 80;"));
+    }
+
+    @Test(expected=BinaryGenerator.UnsupportedBinaryTypeException.class)
+    public void testRejectsTypeWithoutCodec() {
+	container.fields = new Field[] {buildField(
+		"other", ClassName.get(Object.class), Field.ValueType.OTHER, "%s", "other")};
+	container.invisibleFields = 0;
+
+	buildGenerator().getMethods();
+    }
+
+    @Test
+    public void testGeneratedCodecDecodesToJsonBody() throws Exception {
+	Compilation compilation = compileSample();
+	CompilationSubject.assertThat(compilation).succeeded();
+	ClassLoader loader = new CompilationClassLoader(compilation);
+	Class<?> generated = loader.loadClass("test.GeneratedSample");
+	Object profile = generated.newInstance();
+	setField(profile, "name", "kernel");
+	setField(profile, "start", 1571234567890123456L);
+	setField(profile, "time", 1.005);
+	setField(profile, "sizes", new int[] {1, 2});
+	setField(profile, "tags", new String[] {"a", null});
+	setField(profile, "secret", 7);
+
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	((BinaryConvertableProfile) profile).writeBinary(out);
+
+	for (boolean verbose : new boolean[] {false, true}) {
+	    StringBuilder decoded = new StringBuilder();
+	    generated.getMethod("readBinary"
+		    , BinaryProfileReader.class, StringBuilder.class, boolean.class)
+		.invoke(null, new BinaryProfileReader(out.toByteArray()), decoded, verbose);
+	    StringBuilder body = new StringBuilder();
+	    ((JsonConvertableProfile) profile).setVerbosity(verbose);
+	    ((JsonConvertableProfile) profile).writeBody(body);
+
+	    assertThat(((BinaryConvertableProfile) profile).isVerbose(), equalTo(verbose));
+	    assertThat(decoded.toString(), equalTo(body.toString()));
+	}
+    }
+
+    private Compilation compileSample() throws IOException {
+	ProfileContainer profile = new ProfileContainer();
+	profile.packageName = "test";
+	profile.className = "Sample";
+	profile.classId = 0;
+	profile.dependencyId = Optional.empty();
+	profile.fullyQualifiedDependencyName = Optional.empty();
+	profile.constructors = new ExecutableElement[0];
+	BodyGenerator body = new BodyGenerator(container, new DummyEncoder());
+	StringBuilder source = new StringBuilder();
+	CodeGenerator.build(new SkeletonGenerator(profile), body
+		, new BinaryGenerator(container, body), new RowGenerator(container, body, 0))
+	    .writeTo(source);
+	return javac().compile(
+		JavaFileObjects.forSourceString("test.Sample", SAMPLE_SOURCE)
+		, JavaFileObjects.forSourceString("test.GeneratedSample", source.toString()));
+    }
+
+    private void setField(Object profile, String name, Object value) throws Exception {
+	java.lang.reflect.Field field = profile.getClass().getSuperclass().getDeclaredField(name);
+	field.setAccessible(true);
+	field.set(profile, value);
+    }
+
+    private static class CompilationClassLoader extends ClassLoader {
+	private final Compilation compilation;
+
+	CompilationClassLoader(Compilation compilation) {
+	    super(BinaryGeneratorTest.class.getClassLoader());
+	    this.compilation = compilation;
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+	    String path = "/"+name.replace('.', '/')+".class";
+	    for (JavaFileObject file : compilation.generatedFiles())
+		if (file.getKind() == JavaFileObject.Kind.CLASS
+			&& file.toUri().getPath().endsWith(path))
+		    return define(name, file);
+	    throw new ClassNotFoundException(name);
+	}
+
+	private Class<?> define(String name, JavaFileObject file) throws ClassNotFoundException {
+	    try (InputStream in = file.openInputStream()) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) > 0)
+		    bytes.write(buffer, 0, read);
+		return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+	    } catch (IOException e) {
+		throw new ClassNotFoundException(name, e);
+	    }
+	}
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryProfileCodecTest {
+    @Test
+    public void testPrimitivesAreLittleEndian() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeInt(0x01020304);
+	out.writeLong(-2L);
+	out.writeShort((short) 0x0506);
+
+	byte[] bytes = out.toByteArray();
+
+	assertThat(bytes.length, equalTo(14));
+	assertThat(bytes[0], equalTo((byte) 0x04));
+	assertThat(bytes[3], equalTo((byte) 0x01));
+	assertThat(ByteBuffer.wrap(bytes, 4, 8).order(ByteOrder.LITTLE_ENDIAN).getLong()
+		, equalTo(-2L));
+	assertThat(bytes[12], equalTo((byte) 0x06));
+    }
+
+    @Test
+    public void testValuesRoundTrip() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeInt(-7);
+	out.writeLong(1571234567890123456L);
+	out.writeDouble(1.005);
+	out.writeFloat(0.1f);
+	out.writeShort((short) -3);
+	out.writeChar('é');
+	out.writeByte((byte) 9);
+	out.writeBoolean(true);
+	out.writeString("kernel \"main\" é");
+	out.writeString(null);
+
+	BinaryProfileReader in = new BinaryProfileReader(out.toByteArray());
+
+	assertThat(in.readInt(), equalTo(-7));
+	assertThat(in.readLong(), equalTo(1571234567890123456L));
+	assertThat(in.readDouble(), equalTo(1.005));
+	assertThat(in.readFloat(), equalTo(0.1f));
+	assertThat(in.readShort(), equalTo((short) -3));
+	assertThat(in.readChar(), equalTo('é'));
+	assertThat(in.readByte(), equalTo((byte) 9));
+	assertTrue(in.readBoolean());
+	assertThat(in.readString(), equalTo("kernel \"main\" é"));
+	assertThat(in.readString(), is(nullValue()));
+	assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void testArraysRoundTrip() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeIntArray(new int[] {1, -2, 3});
+	out.writeLongArray(new long[] {Long.MIN_VALUE, Long.MAX_VALUE});
+	out.writeDoubleArray(new double[] {0.5});
+	out.writeFloatArray(new float[0]);
+	out.writeShortArray(new short[] {4});
+	out.writeCharArray(new char[] {'a', 'b'});
+	out.writeByteArray(new byte[] {5, 6});
+	out.writeBooleanArray(new boolean[] {true, false});
+	out.writeStringArray(new String[] {"x", null});
+	out.writeIntArray(null);
+
+	BinaryProfileReader in = new BinaryProfileReader(out.toByteArray());
+
+	assertArrayEquals(new int[] {1, -2, 3}, in.readIntArray());
+	assertArrayEquals(new long[] {Long.MIN_VALUE, Long.MAX_VALUE}, in.readLongArray());
+	assertArrayEquals(new double[] {0.5}, in.readDoubleArray(), 0);
+	assertArrayEquals(new float[0], in.readFloatArray(), 0);
+	assertArrayEquals(new short[] {4}, in.readShortArray());
+	assertArrayEquals(new char[] {'a', 'b'}, in.readCharArray());
+	assertArrayEquals(new byte[] {5, 6}, in.readByteArray());
+	assertArrayEquals(new boolean[] {true, false}, in.readBooleanArray());
+	assertArrayEquals(new String[] {"x", null}, in.readStringArray());
+	assertThat(in.readIntArray(), is(nullValue()));
+	assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void testReadsFromDirectBuffer() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeString("direct");
+	byte[] bytes = out.toByteArray();
+	ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+	direct.put(bytes).flip();
+
+	assertThat(new BinaryProfileReader(direct).readString(), equalTo("direct"));
+    }
+
+    @Test
+    public void testSharedStringsAreWrittenOnceAcrossResets() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1, true);
+	out.writeString("uk.ac.manchester.Kernel.run");
+	out.writeStringArray(new String[] {"a", null});
+	byte[] first = out.toByteArray();
+	out.reset();
+	out.writeString("a");
+	out.writeString("uk.ac.manchester.Kernel.run");
+	byte[] second = out.toByteArray();
+
+	List<String> strings = new ArrayList<>();
+	BinaryProfileReader in = new BinaryProfileReader(ByteBuffer.wrap(first), strings);
+	assertThat(in.readString(), equalTo("uk.ac.manchester.Kernel.run"));
+	assertArrayEquals(new String[] {"a", null}, in.readStringArray());
+	in = new BinaryProfileReader(ByteBuffer.wrap(second), strings);
+	assertThat(second.length, equalTo(2*Integer.BYTES));
+	assertThat(in.readString(), equalTo("a"));
+	assertThat(in.readString(), equalTo("uk.ac.manchester.Kernel.run"));
+	assertFalse(in.hasRemaining());
+    }
+
+    @Test(expected=BinaryProfileReader.MalformedValueException.class)
+    public void testRejectsUndefinedSharedString() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeInt(-2);
+
+	new BinaryProfileReader(ByteBuffer.wrap(out.toByteArray()), new ArrayList<>()).readString();
+    }
+
+    @Test(expected=BinaryProfileReader.MalformedValueException.class)
+    public void testRejectsLengthBeyondRemainingBytes() {
+	BinaryProfileWriter out = new BinaryProfileWriter(1);
+	out.writeInt(1000);
+	out.writeInt(1);
+
+	new BinaryProfileReader(out.toByteArray()).readLongArray();
+    }
+}
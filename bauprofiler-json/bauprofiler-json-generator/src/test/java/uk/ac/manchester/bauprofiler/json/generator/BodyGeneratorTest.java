@@ -69,20 +69,43 @@ public class BodyGeneratorTest {
 	return CodeBlock.of("$S", unescaped).toString();
     }
 
-    private Field buildInvisibleField(String key, String valueFormat, String valueFormatArg) {
-	Field field = buildField(key, valueFormat, valueFormatArg);
+    private Field buildInvisibleField(String key, String valueFormat, String name) {
+	Field field = buildField(key, valueFormat, name);
 	field.isInvisible = true;
 	return field;
     }
 
-    private Field buildField(String key, String valueFormat, String valueFormatArg) {
+    private Field buildField(String key, String valueFormat, String name) {
+	return buildField(key, valueFormat, name, Field.ValueType.STRING);
+    }
+
+    private Field buildField(
+	    String key, String valueFormat, String name, Field.ValueType valueType) {
 	Field field = new Field();
 	field.key = key;
+	field.name = name;
+	field.valueType = valueType;
 	field.valueFormat = valueFormat;
-	field.valueFormatArg = valueFormatArg;
+	field.valueFormatArg = name;
 	return field;
     }
 
+    private String appendLiteral(String literal) {
+	return "  sb.append("+escape(literal)+");\n";
+    }
+
+    private String appendValue(String value) {
+	return "  sb.append("+value+");\n";
+    }
+
+    private String writeJsonMethod(String name, String... statements) {
+	StringBuilder method = new StringBuilder(
+		"private void "+name+"(java.lang.StringBuilder sb) {\n");
+	for (String statement : statements)
+	    method.append(statement);
+	return method.append("}\n").toString();
+    }
+
     @Before
     public void setupBasicJsonContainer() {
 	container = new JsonContainer();
@@ -100,7 +123,7 @@ public class BodyGeneratorTest {
 
 	assertTrue(assemblyNodes.isPresent());
 	assertThat(assemblyNodes.get().toString(), equalTo(
-		    "private final "
+		    "private static final "
 		    +FULLY_QUALIFIED_NAME_ASSEMBLYNODE
 		    +"[] _assemblyNodes = {};\n"));
     }
@@ -115,7 +138,7 @@ public class BodyGeneratorTest {
 
 	assertTrue(assemblyNodes.isPresent());
 	assertThat(assemblyNodes.get().toString(), equalTo(
-		    "private final "
+		    "private static final "
 		    +FULLY_QUALIFIED_NAME_ASSEMBLYNODE
 		    +"[] _assemblyNodes = {new "
 		    +JSON_CORE_PACKAGE
@@ -132,7 +155,7 @@ public class BodyGeneratorTest {
 
 	assertTrue(assemblyNodes.isPresent());
 	assertThat(assemblyNodes.get().toString(), equalTo(
-		    "private final "
+		    "private static final "
 		    +FULLY_QUALIFIED_NAME_ASSEMBLYNODE
 		    +"[] _assemblyNodes = {new "
 		    +JSON_CORE_PACKAGE
@@ -150,7 +173,7 @@ public class BodyGeneratorTest {
 
 	assertTrue(assemblyNodes.isPresent());
 	assertThat(assemblyNodes.get().toString(), equalTo(
-		    "private final "
+		    "private static final "
 		    +FULLY_QUALIFIED_NAME_ASSEMBLYNODE
 		    +"[] _assemblyNodes = "
 		    +"{new "+JSON_CORE_PACKAGE+".ObjectNode("+escape("\"object\"")+", 0)"
@@ -159,65 +182,80 @@ public class BodyGeneratorTest {
     }
 
     @Test
-    public void testJsonFormattingGen_includeInvisible_noChild() {
+    public void testWriteJsonIncludeInvisible_noChild() {
 	container.fields = new Field[] {
-	    buildInvisibleField("name", "\"%s\"", "name")
-	    , buildField("secondName", "\"%s\"", "secondName")
+	    buildField("name", "\"%s\"", "name")
+	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
 	};
 	container.invisibleFields = 1;
-	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<FieldSpec> includeInvisible =
-	    filterFieldsByName(bodyGen.getFields(), "_includeInvisible");
+	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	assertTrue(includeInvisible.isPresent());
-	assertThat(includeInvisible.get().toString(), equalTo(
-		    "private final java.lang.String _includeInvisible = "
-		    +escape("\"name\":\"%s\",\"secondName\":\"%s\"")
-		    +";\n"));
+	Optional<MethodSpec> writeJsonIncludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonIncludeInvisible");
+
+	assertTrue(writeJsonIncludeInvisible.isPresent());
+	assertThat(writeJsonIncludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonIncludeInvisible"
+			, appendLiteral("\"name\":\"")
+			, appendValue("name")
+			, appendLiteral("\",\"nextName\":\"")
+			, appendValue("nextName")
+			, appendLiteral("\""))));
     }
 
     @Test
-    public void testJsonFormattingGen_includeInvisible_withObjectChild() {
+    public void testWriteJsonIncludeInvisible_withChild() {
+	container.fields = new Field[] {
+	    buildField("name", "\"%s\"", "name")
+	};
 	container.childNode = Optional.of(new ObjectNode("child", 0));
 	container.childFields = new Field[] {
 	    buildField("childName", "\"%s\"", "childName")
-	    , buildInvisibleField("secondChildName", "\"%s\"", "secondChildName")
+	    , buildInvisibleField("nextChildName", "\"%s\"", "nextChildName")
 	};
 	container.invisibleChildFields = 1;
-	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<FieldSpec> includeInvisible =
-	    filterFieldsByName(bodyGen.getFields(), "_includeInvisible");
+	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	assertTrue(includeInvisible.isPresent());
-	assertThat(includeInvisible.get().toString(), equalTo(
-		    "private final java.lang.String _includeInvisible = "
-		    +escape("\"child\":{\"childName\":\"%s\",\"secondChildName\":\"%s\"")
-		    +";\n"));
+	Optional<MethodSpec> writeJsonIncludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonIncludeInvisible");
+
+	assertTrue(writeJsonIncludeInvisible.isPresent());
+	assertThat(writeJsonIncludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonIncludeInvisible"
+			, appendLiteral("\"name\":\"")
+			, appendValue("name")
+			, appendLiteral("\",\"child\":{\"childName\":\"")
+			, appendValue("childName")
+			, appendLiteral("\",\"nextChildName\":\"")
+			, appendValue("nextChildName")
+			, appendLiteral("\""))));
     }
 
     @Test
-    public void testJsonFormattingGen_excludeInvisible_noChild() {
+    public void testWriteJsonExcludeInvisible_noChild() {
 	container.fields = new Field[] {
 	    buildField("name", "\"%s\"", "name")
-	    , buildInvisibleField("secondName", "\"%s\"", "secondName")
+	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
 	};
 	container.invisibleFields = 1;
+
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<FieldSpec> excludeInvisible =
-	    filterFieldsByName(bodyGen.getFields(), "_excludeInvisible");
+	Optional<MethodSpec> writeJsonExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonExcludeInvisible");
 
-	assertTrue(excludeInvisible.isPresent());
-	assertThat(excludeInvisible.get().toString(), equalTo(
-		    "private final java.lang.String _excludeInvisible = "
-		    +escape("\"name\":\"%s\"")
-		    +";\n"));
+	assertTrue(writeJsonExcludeInvisible.isPresent());
+	assertThat(writeJsonExcludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonExcludeInvisible"
+			, appendLiteral("\"name\":\"")
+			, appendValue("name")
+			, appendLiteral("\""))));
     }
 
     @Test
-    public void testJsonFormattingGen_excludeInvisible_withChild() {
+    public void testWriteJsonExcludeInvisible_withChild() {
 	container.fields = new Field[] {
 	    buildField("name", "\"%s\"", "name")
 	};
@@ -227,120 +265,142 @@ public class BodyGeneratorTest {
 	    , buildInvisibleField("nextChildName", "\"%s\"", "nextChildName")
 	};
 	container.invisibleChildFields = 1;
-	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<FieldSpec> excludeInvisible =
-	    filterFieldsByName(bodyGen.getFields(), "_excludeInvisible");
+	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	assertTrue(excludeInvisible.isPresent());
-	assertThat(excludeInvisible.get().toString(), equalTo(
-		    "private final java.lang.String _excludeInvisible = "
-		    +escape("\"name\":\"%s\",\"child\":{\"childName\":\"%s\"")
-		    +";\n"));
+	Optional<MethodSpec> writeJsonExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonExcludeInvisible");
+
+	assertTrue(writeJsonExcludeInvisible.isPresent());
+	assertThat(writeJsonExcludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonExcludeInvisible"
+			, appendLiteral("\"name\":\"")
+			, appendValue("name")
+			, appendLiteral("\",\"child\":{\"childName\":\"")
+			, appendValue("childName")
+			, appendLiteral("\""))));
     }
 
     @Test
-    public void testGetJsonIncludeInvisible_noChild() {
+    public void testWriteJsonWithCompiledNumberFormats() {
 	container.fields = new Field[] {
-	    buildField("name", "\"%s\"", "name")
-	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
+	    buildField("count", "%d", "count", Field.ValueType.INTEGRAL)
+	    , buildField("time", "%.2fms", "time", Field.ValueType.DECIMAL)
 	};
-	container.invisibleFields = 1;
 
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<MethodSpec> getJsonIncludeInvisible =
-	    filterMethodsByName(bodyGen.getMethods(), "getJsonIncludeInvisible");
-
-	assertTrue(getJsonIncludeInvisible.isPresent());
-	assertThat(getJsonIncludeInvisible.get().toString(), equalTo(
-		    "private java.lang.String getJsonIncludeInvisible() {\n"
-		    + "  return String.format(_includeInvisible, name, nextName);\n"
-		    + "}\n"));
+	Optional<MethodSpec> writeJsonExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonExcludeInvisible");
+
+	assertTrue(writeJsonExcludeInvisible.isPresent());
+	assertThat(writeJsonExcludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonExcludeInvisible"
+			, appendLiteral("\"count\":")
+			, appendValue("count")
+			, appendLiteral(",\"time\":")
+			, "  "+JSON_GENERATOR_PACKAGE+".ValueAppender.appendFixed(sb, time, 2);\n"
+			, appendLiteral("ms"))));
     }
 
     @Test
-    public void testGetJsonIncludeInvisible_withChild() {
+    public void testWriteValuesHandsCompiledNumbersToTheWriter() {
 	container.fields = new Field[] {
 	    buildField("name", "\"%s\"", "name")
+	    , buildField("count", "%d", "count", Field.ValueType.INTEGRAL)
+	    , buildField("time", "%.2fms", "time", Field.ValueType.DECIMAL)
 	};
-	container.childNode = Optional.of(new ObjectNode("child", 0));
-	container.childFields = new Field[] {
-	    buildField("childName", "\"%s\"", "childName")
-	    , buildInvisibleField("nextChildName", "\"%s\"", "nextChildName")
-	};
-	container.invisibleChildFields = 1;
 
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<MethodSpec> getJsonIncludeInvisible =
-	    filterMethodsByName(bodyGen.getMethods(), "getJsonIncludeInvisible");
-
-	assertTrue(getJsonIncludeInvisible.isPresent());
-	assertThat(getJsonIncludeInvisible.get().toString(), equalTo(
-		    "private java.lang.String getJsonIncludeInvisible() {\n"
-		    + "  return String.format("
-		    + "_includeInvisible, name, childName, nextChildName);\n"
-		    + "}\n"));
+	Optional<MethodSpec> writeValuesExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeValuesExcludeInvisible");
+
+	assertTrue(writeValuesExcludeInvisible.isPresent());
+	assertThat(writeValuesExcludeInvisible.get().toString(), equalTo(
+		    "private void writeValuesExcludeInvisible(\n"
+		    +"    "+JSON_CORE_PACKAGE+".utils.ValueWriter out) {\n"
+		    +"  java.lang.StringBuilder sb = out.text();\n"
+		    +appendLiteral("\"name\":\"")
+		    +appendValue("name")
+		    +appendLiteral("\",\"count\":")
+		    +"  out.appendInteger(count);\n"
+		    +appendLiteral(",\"time\":")
+		    +"  "+JSON_GENERATOR_PACKAGE+".ValueAppender.appendFixed(out, time, 2);\n"
+		    +appendLiteral("ms")
+		    +"}\n"));
     }
 
     @Test
-    public void testGetJsonExcludeInvisible_noChild() {
+    public void testWriteJsonWithPrimitiveArray() {
 	container.fields = new Field[] {
-	    buildField("name", "\"%s\"", "name")
-	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
+	    buildField("sizes", "%s", "sizes", Field.ValueType.PRIMITIVE_ARRAY)
 	};
-	container.invisibleFields = 1;
 
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<MethodSpec> getJsonExcludeInvisible =
-	    filterMethodsByName(bodyGen.getMethods(), "getJsonExcludeInvisible");
+	Optional<MethodSpec> writeJsonExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonExcludeInvisible");
 
-	assertTrue(getJsonExcludeInvisible.isPresent());
-	assertThat(getJsonExcludeInvisible.get().toString(), equalTo(
-		    "private java.lang.String getJsonExcludeInvisible() {\n"
-		    + "  return String.format(_excludeInvisible, name);\n"
-		    + "}\n"));
+	assertTrue(writeJsonExcludeInvisible.isPresent());
+	assertThat(writeJsonExcludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonExcludeInvisible"
+			, appendLiteral("\"sizes\":")
+			, "  "+JSON_GENERATOR_PACKAGE+".ValueAppender.appendArray(sb, sizes);\n")));
     }
 
     @Test
-    public void testGetJsonExcludeInvisible_withChild() {
+    public void testWriteJsonFallsBackToStringFormat_ForUnsupportedNumberFormat() {
 	container.fields = new Field[] {
-	    buildField("name", "\"%s\"", "name")
-	};
-	container.childNode = Optional.of(new ObjectNode("child", 0));
-	container.childFields = new Field[] {
-	    buildField("childName", "\"%s\"", "childName")
-	    , buildInvisibleField("nextChildName", "\"%s\"", "nextChildName")
+	    buildField("count", "%08d", "count", Field.ValueType.INTEGRAL)
 	};
-	container.invisibleChildFields = 1;
 
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<MethodSpec> getJsonExcludeInvisible =
-	    filterMethodsByName(bodyGen.getMethods(), "getJsonExcludeInvisible");
+	Optional<MethodSpec> writeJsonExcludeInvisible =
+	    filterMethodsByName(bodyGen.getMethods(), "writeJsonExcludeInvisible");
+
+	assertTrue(writeJsonExcludeInvisible.isPresent());
+	assertThat(writeJsonExcludeInvisible.get().toString(), equalTo(
+		    writeJsonMethod("writeJsonExcludeInvisible"
+			, appendLiteral("\"count\":")
+			, appendValue("String.format(\"%08d\", count)"))));
+    }
+
+    @Test
+    public void testWriteBodyMethod() {
+	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	assertTrue(getJsonExcludeInvisible.isPresent());
-	assertThat(getJsonExcludeInvisible.get().toString(), equalTo(
-		    "private java.lang.String getJsonExcludeInvisible() {\n"
-		    + "  return String.format("
-		    + "_excludeInvisible, name, childName);\n"
+	Optional<MethodSpec> writeBody =
+	    filterMethodsByName(bodyGen.getMethods(), "writeBody");
+
+	assertTrue(writeBody.isPresent());
+	assertThat(writeBody.get().toString(), equalTo(
+		    "public void writeBody(java.lang.StringBuilder sb) {\n"
+		    + "  if (_verbose) {\n"
+		    + "    writeJsonIncludeInvisible(sb);\n"
+		    + "  } else {\n"
+		    + "    writeJsonExcludeInvisible(sb);\n"
+		    + "  }\n"
 		    + "}\n"));
     }
 
     @Test
-    public void testGetJsonMethod() {
+    public void testBodySizeHintMethod() {
+	container.fields = new Field[] {
+	    buildField("name", "\"%s\"", "name")
+	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
+	};
+	container.invisibleFields = 1;
 	BodyGenerator bodyGen = new BodyGenerator(container, new DummyEncoder());
 
-	Optional<MethodSpec> getJson =
-	    filterMethodsByName(bodyGen.getMethods(), "getJson");
+	Optional<MethodSpec> bodySizeHint =
+	    filterMethodsByName(bodyGen.getMethods(), "bodySizeHint");
 
-	assertTrue(getJson.isPresent());
-	assertThat(getJson.get().toString(), equalTo(
-		    "private java.lang.String getJson() {\n"
-		    + "  return (_verbose) "
-		    + "? getJsonIncludeInvisible() : getJsonExcludeInvisible();\n"
+	assertTrue(bodySizeHint.isPresent());
+	assertThat(bodySizeHint.get().toString(), equalTo(
+		    "public int bodySizeHint() {\n"
+		    + "  return (_verbose) ? 55 : 25;\n"
 		    + "}\n"));
     }
 
@@ -380,7 +440,7 @@ public class BodyGeneratorTest {
 	assertThat(convert.get().toString(), equalTo(
 		    "public "+FULLY_QUALIFIED_NAME_CONVERSION+" convert() {\n"
 		    + "  return new "+JSON_GENERATOR_PACKAGE+".JsonConversion("
-		    + "getId(), getJson(), _assemblyNodes);\n"
+		    + "getId(), this, _assemblyNodes);\n"
 		    + "}\n"));
     }
 }
@@ -114,6 +114,10 @@ public class ContainerSubject {
 	    Assert.assertThat(actual.valueFormatArg, equalTo(valueFormatArg));
 	}
 
+	public void withValueType(Field.ValueType valueType) {
+	    Assert.assertThat(actual.valueType, equalTo(valueType));
+	}
+
 	public void markedInvisible() {
 	    Assert.assertTrue(actual.isInvisible);
 	}
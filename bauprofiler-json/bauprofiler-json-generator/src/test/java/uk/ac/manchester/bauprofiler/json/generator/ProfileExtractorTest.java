@@ -102,6 +102,24 @@ public class ProfileExtractorTest {
 		, "}");
 
 	assertFalse(container.fullyQualifiedDependencyName.isPresent());
+	assertFalse(container.timed);
+    }
+
+    @Test
+    public void testExtractionOfTimed() {
+	ProfileContainer container = extractContainerForSourceLines(
+		"test.TimedProfileImpl"
+		, "package test;"
+		, "import uk.ac.manchester.bauprofiler.json.annotations.JClass;"
+		, "import uk.ac.manchester.bauprofiler.core.Profile;"
+		, "import uk.ac.manchester.bauprofiler.core.TimerInfo;"
+		, "import uk.ac.manchester.bauprofiler.core.interfaces.Timed;"
+		, "@JClass"
+		, "public class TimedProfileImpl implements Profile, Timed {"
+		, "    public void setTimer(TimerInfo timer) {}"
+		, "}");
+
+	assertTrue(container.timed);
     }
 
     @Test
@@ -0,0 +1,196 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.util.Optional;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.CodeBlock;
+
+import uk.ac.manchester.bauprofiler.json.core.*;
+
+public class RowGeneratorTest {
+    private static final String PROFILE_SCHEMAS =
+	"uk.ac.manchester.bauprofiler.core.converter.ProfileSchemas";
+
+    private JsonContainer container;
+
+    private Optional<MethodSpec> filterMethodsByName(MethodSpec[] methods, String name) {
+	for (MethodSpec method : methods)
+	    if (method.name.equals(name))
+		return Optional.of(method);
+	return Optional.empty();
+    }
+
+    private String escape(String unescaped) {
+	return CodeBlock.of("$S", unescaped).toString();
+    }
+
+    private Field buildInvisibleField(String key, String valueFormat, String name) {
+	Field field = buildField(key, valueFormat, name);
+	field.isInvisible = true;
+	return field;
+    }
+
+    private Field buildField(String key, String valueFormat, String name) {
+	Field field = new Field();
+	field.key = key;
+	field.name = name;
+	field.valueType = Field.ValueType.STRING;
+	field.valueFormat = valueFormat;
+	field.valueFormatArg = name;
+	return field;
+    }
+
+    private String appendLiteral(String literal) {
+	return "  sb.append("+escape(literal)+");\n";
+    }
+
+    private String appendValue(String value) {
+	return "  sb.append("+value+");\n";
+    }
+
+    private String writeRowMethod(String name, String... statements) {
+	StringBuilder method = new StringBuilder(
+		"private void "+name+"(java.lang.StringBuilder sb) {\n");
+	for (String statement : statements)
+	    method.append(statement);
+	return method.append("}\n").toString();
+    }
+
+    private RowGenerator buildGenerator() {
+	return new RowGenerator(container, new BodyGenerator(container, new DummyEncoder()), 3);
+    }
+
+    @Before
+    public void setupJsonContainer() {
+	container = new JsonContainer();
+	container.prefixes = new String[0];
+	container.fields = new Field[] {
+	    buildField("name", "\"%s\"", "name")
+	    , buildInvisibleField("nextName", "\"%s\"", "nextName")
+	};
+	container.invisibleFields = 1;
+	container.childNode = Optional.empty();
+	container.childFields = new Field[0];
+    }
+
+    @Test
+    public void testWriteRowIncludeInvisible_noChild() {
+	Optional<MethodSpec> writeRow =
+	    filterMethodsByName(buildGenerator().getMethods(), "writeRowIncludeInvisible");
+
+	assertTrue(writeRow.isPresent());
+	assertThat(writeRow.get().toString(), equalTo(
+		    writeRowMethod("writeRowIncludeInvisible"
+			, appendLiteral("\"@3\":[\"")
+			, appendValue("name")
+			, appendLiteral("\",\"")
+			, appendValue("nextName")
+			, appendLiteral("\"]"))));
+    }
+
+    @Test
+    public void testWriteRowExcludeInvisible_withChild() {
+	container.childNode = Optional.of(new ObjectNode("child", 0));
+	container.childFields = new Field[] {
+	    buildField("childName", "\"%s\"", "childName")
+	    , buildInvisibleField("nextChildName", "\"%s\"", "nextChildName")
+	};
+	container.invisibleChildFields = 1;
+
+	Optional<MethodSpec> writeRow =
+	    filterMethodsByName(buildGenerator().getMethods(), "writeRowExcludeInvisible");
+
+	assertTrue(writeRow.isPresent());
+	assertThat(writeRow.get().toString(), equalTo(
+		    writeRowMethod("writeRowExcludeInvisible"
+			, appendLiteral("\"@3\":[\"")
+			, appendValue("name")
+			, appendLiteral("\"],\"child\":{\"@3.child\":[\"")
+			, appendValue("childName")
+			, appendLiteral("\"]"))));
+    }
+
+    @Test
+    public void testWriteRow_childOnly() {
+	container.fields = new Field[0];
+	container.invisibleFields = 0;
+	container.childNode = Optional.of(new ObjectNode("child", 0));
+	container.childFields = new Field[] {buildField("childName", "\"%s\"", "childName")};
+
+	Optional<MethodSpec> writeRow =
+	    filterMethodsByName(buildGenerator().getMethods(), "writeRowIncludeInvisible");
+
+	assertTrue(writeRow.isPresent());
+	assertThat(writeRow.get().toString(), equalTo(
+		    writeRowMethod("writeRowIncludeInvisible"
+			, appendLiteral("\"child\":{\"@3.child\":[\"")
+			, appendValue("childName")
+			, appendLiteral("\"]"))));
+    }
+
+    @Test
+    public void testSchemaPerVerbosity() {
+	container.childNode = Optional.of(new ObjectNode("child", 0));
+	container.childFields = new Field[] {buildField("childName", "\"%s\"", "childName")};
+	RowGenerator rowGen = buildGenerator();
+
+	assertThat(rowGen.getExcludeInvisibleSchema(), equalTo(
+		    "\"@3\":[\"name\"],\"@3.child\":[\"childName\"]"));
+	assertThat(rowGen.getIncludeInvisibleSchema(), equalTo(
+		    "\"@3\":[\"name\",\"nextName\"],\"@3.child\":[\"childName\"]"));
+    }
+
+    @Test
+    public void testStaticBlockRegistersSchemas() {
+	assertThat(buildGenerator().getStaticBlock().toString(), equalTo(
+		    PROFILE_SCHEMAS+".register(_id, "
+		    +escape("\"@3\":[\"name\"]")+", "
+		    +escape("\"@3\":[\"name\",\"nextName\"]")+");\n"));
+    }
+
+    @Test
+    public void testWriteRowBranchesOnVerbosity() {
+	Optional<MethodSpec> writeRow = filterMethodsByName(buildGenerator().getMethods(), "writeRow");
+
+	assertTrue(writeRow.isPresent());
+	assertThat(writeRow.get().toString(), equalTo(
+		    "public void writeRow(java.lang.StringBuilder sb) {\n"
+		    +"  if (_verbose) {\n"
+		    +"    writeRowIncludeInvisible(sb);\n"
+		    +"  } else {\n"
+		    +"    writeRowExcludeInvisible(sb);\n"
+		    +"  }\n"
+		    +"}\n"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.Before;
+
+import java.util.Optional;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+
+public class SkeletonGeneratorTest {
+    private ProfileContainer container;
+
+    private Optional<FieldSpec> filterFieldsByName(FieldSpec[] fields, String name) {
+	for (FieldSpec field : fields)
+	    if (field.name.equals(name))
+		return Optional.of(field);
+	return Optional.empty();
+    }
+
+    private Optional<MethodSpec> filterMethodsByName(MethodSpec[] methods, String name) {
+	for (MethodSpec method : methods)
+	    if (method.name.equals(name))
+		return Optional.of(method);
+	return Optional.empty();
+    }
+
+    @Before
+    public void setupBasicProfileContainer() {
+	container = new ProfileContainer();
+	container.packageName = "test";
+	container.className = "Profile";
+	container.classId = 3;
+	container.dependencyId = Optional.empty();
+	container.fullyQualifiedDependencyName = Optional.empty();
+    }
+
+    @Test
+    public void testIdFieldIsStatic() {
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	Optional<FieldSpec> id = filterFieldsByName(skeletonGen.getFields(), "_id");
+
+	assertTrue(id.isPresent());
+	assertThat(id.get().toString(), equalTo("private static final int _id = 3;\n"));
+    }
+
+    @Test
+    public void testDependencyIdFieldIsStatic() {
+	container.dependencyId = Optional.of(1);
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	Optional<FieldSpec> dependencyId =
+	    filterFieldsByName(skeletonGen.getFields(), "_dependencyId");
+
+	assertTrue(dependencyId.isPresent());
+	assertThat(dependencyId.get().toString(), equalTo(
+		    "private static final java.util.Optional<java.lang.Integer> _dependencyId = "
+		    +"java.util.Optional.of(1);\n"));
+    }
+
+    @Test
+    public void testPrimitiveDependencyIdReturnsLiteral() {
+	container.dependencyId = Optional.of(7);
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	Optional<MethodSpec> dependencyId =
+	    filterMethodsByName(skeletonGen.getMethods(), "dependencyId");
+
+	assertTrue(dependencyId.isPresent());
+	assertThat(dependencyId.get().code.toString(), equalTo("return 7;\n"));
+    }
+
+    @Test
+    public void testTimedProfileKeepsItsTimer() {
+	container.timed = true;
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	Optional<MethodSpec> setTimer = filterMethodsByName(skeletonGen.getMethods(), "setTimer");
+	Optional<MethodSpec> getTimer = filterMethodsByName(skeletonGen.getMethods(), "getTimer");
+
+	assertTrue(filterFieldsByName(skeletonGen.getFields(), "_timer").isPresent());
+	assertThat(setTimer.get().code.toString(), equalTo(
+		    "_timer = timer;\nsuper.setTimer(timer);\n"));
+	assertThat(getTimer.get().code.toString(), equalTo("return _timer;\n"));
+    }
+
+    @Test
+    public void testUntimedProfileHasNoTimer() {
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	assertFalse(filterFieldsByName(skeletonGen.getFields(), "_timer").isPresent());
+	assertFalse(filterMethodsByName(skeletonGen.getMethods(), "getTimer").isPresent());
+    }
+
+    @Test
+    public void testPrimitiveDependencyIdReturnsSentinel_whenNoDependency() {
+	SkeletonGenerator skeletonGen = new SkeletonGenerator(container);
+
+	Optional<MethodSpec> dependencyId =
+	    filterMethodsByName(skeletonGen.getMethods(), "dependencyId");
+
+	assertTrue(dependencyId.isPresent());
+	assertThat(dependencyId.get().code.toString(), equalTo(
+		    "return uk.ac.manchester.bauprofiler.core.converter.ConvertableProfile.NO_DEPENDENCY;\n"));
+    }
+}
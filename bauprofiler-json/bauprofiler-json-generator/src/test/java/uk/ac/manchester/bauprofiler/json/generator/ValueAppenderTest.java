@@ -0,0 +1,149 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import uk.ac.manchester.bauprofiler.json.core.utils.ValueWriter;
+
+public class ValueAppenderTest {
+    private String appendFixed(double value, int scale) {
+	StringBuilder sb = new StringBuilder();
+	ValueAppender.appendFixed(sb, value, scale);
+	return sb.toString();
+    }
+
+    /* Renders values as text, recording how many were handed over */
+    private static class TextValueWriter implements ValueWriter {
+	private final StringBuilder sb = new StringBuilder();
+	private int values;
+
+	public StringBuilder text() {
+	    return sb;
+	}
+
+	public void appendInteger(long value) {
+	    appendDecimal(value, 0);
+	}
+
+	public void appendDecimal(long unscaled, int scale) {
+	    values++;
+	    sb.append(new BigDecimal(BigInteger.valueOf(unscaled), scale).toPlainString());
+	}
+    }
+
+    private void assertMatchesStringFormat(double value, int scale) {
+	String expected = String.format(Locale.ROOT, "%."+scale+"f", value);
+	TextValueWriter out = new TextValueWriter();
+	ValueAppender.appendFixed(out, value, scale);
+
+	assertThat("value "+value+" scale "+scale, appendFixed(value, scale), equalTo(expected));
+	assertThat("value "+value+" scale "+scale, out.text().toString(), equalTo(expected));
+    }
+
+    @Test
+    public void testAppendFixed_HandsOverExactValues() {
+	TextValueWriter out = new TextValueWriter();
+	ValueAppender.appendFixed(out, 3.14159, 2);
+	ValueAppender.appendFixed(out, 42.7, 0);
+	ValueAppender.appendFixed(out, -7.125, 1);
+	ValueAppender.appendFixed(out, -0.001, 2);
+	ValueAppender.appendFixed(out, Double.NaN, 2);
+	ValueAppender.appendFixed(out, 1e20, 2);
+
+	assertThat(out.values, equalTo(3));
+	assertThat(out.text().toString()
+		, equalTo("3.1443-7.1-0.00NaN100000000000000000000.00"));
+    }
+
+    @Test
+    public void testAppendFixed_ForEdgeCases() {
+	double[] values = {
+	    0.0, -0.0, 0.5, -0.5, 1.005, 2.675, 0.125, 0.0045, 1e-7, -1e-7, 9.9999995
+	    , 123456789.987654321, 1e15, 1e20, 1.7976931348623157e308, Double.MIN_VALUE
+	    , Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+	};
+	for (double value : values)
+	    for (int scale = 0; scale <= 12; scale++)
+		assertMatchesStringFormat(value, scale);
+    }
+
+    @Test
+    public void testAppendFixed_ForFloats() {
+	float[] values = {0.1f, 1.005f, 3.14159f, 228870.945f, -42.5f};
+	for (float value : values)
+	    for (int scale = 0; scale <= 6; scale++)
+		assertMatchesStringFormat(value, scale);
+    }
+
+    @Test
+    public void testAppendFixed_ForRandomValues() {
+	Random random = new Random(42);
+	for (int i = 0; i < 20000; i++) {
+	    double value = (random.nextDouble()-0.5)*Math.pow(10, random.nextInt(14)-4);
+	    assertMatchesStringFormat(value, random.nextInt(10));
+	}
+    }
+
+    @Test
+    public void testAppendFixed_ForTies() {
+	for (int i = 0; i < 10000; i++)
+	    assertMatchesStringFormat(i/1000.0+0.0005, 3);
+    }
+
+    @Test
+    public void testAppendArray_MatchesArraysToString() {
+	StringBuilder sb = new StringBuilder();
+	ValueAppender.appendArray(sb, new int[] {1, -2, 3});
+	ValueAppender.appendArray(sb, new double[] {});
+	ValueAppender.appendArray(sb, (long[]) null);
+	ValueAppender.appendArray(sb, new float[] {0.5f, 1e10f});
+
+	assertThat(sb.toString(), equalTo(
+		    Arrays.toString(new int[] {1, -2, 3})
+		    +Arrays.toString(new double[] {})
+		    +Arrays.toString((long[]) null)
+		    +Arrays.toString(new float[] {0.5f, 1e10f})));
+    }
+
+    @Test
+    public void testAppendStringArray_MatchesArrayToString() {
+	String[] array = {"a", "b", "c"};
+	StringBuilder sb = new StringBuilder();
+	ValueAppender.appendStringArray(sb, array);
+
+	assertThat(sb.toString(), equalTo(JsonConvertableProfile.arrayToString(array)));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornado
+ *
+ * Copyright (c) 2013-2019, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Benjamin Bell
+ *
+ */
+package uk.ac.manchester.bauprofiler.json.generator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ValueFormatTest {
+    @Test
+    public void testCompilingQuotedString() {
+	ValueFormat format = ValueFormat.compile("\"%s\"").get();
+
+	assertThat(format.prefix, equalTo("\""));
+	assertThat(format.conversion, equalTo('s'));
+	assertThat(format.suffix, equalTo("\""));
+    }
+
+    @Test
+    public void testCompilingDefaultScale() {
+	ValueFormat format = ValueFormat.compile("%f").get();
+
+	assertThat(format.conversion, equalTo('f'));
+	assertThat(format.scale, equalTo(6));
+    }
+
+    @Test
+    public void testCompilingPrecisionAndEscapedPercent() {
+	ValueFormat format = ValueFormat.compile("\"%.2f%%\"").get();
+
+	assertThat(format.prefix, equalTo("\""));
+	assertThat(format.scale, equalTo(2));
+	assertThat(format.suffix, equalTo("%\""));
+    }
+
+    @Test
+    public void testUnsupportedPatternsAreNotCompiled() {
+	assertFalse(ValueFormat.compile("%08d").isPresent());
+	assertFalse(ValueFormat.compile("%,d").isPresent());
+	assertFalse(ValueFormat.compile("%e").isPresent());
+	assertFalse(ValueFormat.compile("%.2s").isPresent());
+	assertFalse(ValueFormat.compile("%d-%d").isPresent());
+	assertFalse(ValueFormat.compile("no conversion").isPresent());
+	assertFalse(ValueFormat.compile("%").isPresent());
+    }
+
+    @Test
+    public void testConversionsOnlyAcceptMatchingTypes() {
+	assertTrue(ValueFormat.compile("%d").get().accepts(Field.ValueType.INTEGRAL));
+	assertFalse(ValueFormat.compile("%d").get().accepts(Field.ValueType.DECIMAL));
+	assertTrue(ValueFormat.compile("%.1f").get().accepts(Field.ValueType.DECIMAL));
+	assertFalse(ValueFormat.compile("%.1f").get().accepts(Field.ValueType.INTEGRAL));
+	assertTrue(ValueFormat.compile("%s").get().accepts(Field.ValueType.PRIMITIVE_ARRAY));
+	assertFalse(ValueFormat.compile("%s").get().accepts(Field.ValueType.OTHER));
+    }
+}